@@ -40,6 +40,7 @@ import com.oracle.bedrock.testsupport.deferred.Eventually;
 import com.oracle.bedrock.testsupport.junit.TestLogs;
 
 import com.oracle.coherence.k8s.CoherenceVersion;
+import com.oracle.coherence.k8s.JmxmpServer;
 
 import com.tangosol.util.AssertionException;
 import com.tangosol.util.Resources;
@@ -2469,6 +2470,65 @@ public abstract class BaseHelmChartTest
             }
         }
 
+    /**
+     * Read attributes of all the MBeans matching a pattern in a single JMXMP
+     * round trip using the {@link com.oracle.coherence.k8s.BulkAttributeQuery}
+     * MBean registered by the JMX Pod.
+     * <p>
+     * This method will run a kubectl port-forward process to expose the JMX port
+     * then perform the JMX query and close the port-forward process.
+     *
+     * @param k8sCluster   the {@link K8sCluster} to use
+     * @param sNamespace   the namespace that the JMX Pod is in
+     * @param sRelease     the name of the Helm release that installed the JMX Pod
+     * @param sPattern     the ObjectName pattern of the MBeans to query
+     * @param asAttribute  the names of the attributes to get, or empty for all attributes
+     *
+     * @return the attribute values keyed by attribute name, keyed by MBean name
+     * @throws Exception if the query fails
+     */
+    public Map<String, Map<String, Object>> jmxBulkQuery(K8sCluster k8sCluster, String sNamespace, String sRelease,
+                                                         String sPattern, String... asAttribute) throws Exception
+        {
+        String sSelector = getCoherenceJmxPodSelector(sRelease);
+        try (Application application = portForward(k8sCluster, sNamespace, sSelector, 9099))
+            {
+            PortMapping portMapping = application.get(PortMapping.class);
+            int         nPort       = portMapping.getPort().getActualPort();
+
+            return jmxBulkQuery("127.0.0.1", nPort, sPattern, asAttribute);
+            }
+        }
+
+    /**
+     * Read attributes of all the MBeans matching a pattern in a single JMXMP
+     * round trip using the {@link com.oracle.coherence.k8s.BulkAttributeQuery}
+     * MBean registered by the JMX Pod.
+     *
+     * @param hostName     the address that the jmxmp JMX server is bound to
+     * @param port         the port that the jmxmp JMX server is listening on
+     * @param sPattern     the ObjectName pattern of the MBeans to query
+     * @param asAttribute  the names of the attributes to get, or empty for all attributes
+     *
+     * @return the attribute values keyed by attribute name, keyed by MBean name
+     * @throws Exception if the query fails
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Object>> jmxBulkQuery(String hostName, int port, String sPattern, String... asAttribute)
+            throws Exception
+        {
+        JMXServiceURL jmxURL = new JMXServiceURL("jmxmp", hostName, port);
+
+        try (JMXConnector jmxc = JMXConnectorFactory.connect(jmxURL, null))
+            {
+            MBeanServerConnection serverConnection = jmxc.getMBeanServerConnection();
+
+            return (Map<String, Map<String, Object>>) serverConnection.invoke(
+                    new ObjectName(JmxmpServer.BULK_QUERY_MBEAN), "query",
+                    new Object[] {sPattern, asAttribute}, new String[] {String.class.getName(), String[].class.getName()});
+            }
+        }
+
     /**
      * Invoke a method on a JMX MBean.
      * <p>
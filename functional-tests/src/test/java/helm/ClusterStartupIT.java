@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package helm;
+
+import com.oracle.bedrock.deferred.options.RetryFrequency;
+import com.oracle.bedrock.options.Timeout;
+import com.oracle.bedrock.runtime.k8s.K8sCluster;
+import com.oracle.bedrock.testsupport.deferred.Eventually;
+import com.tangosol.net.CacheFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.oracle.bedrock.deferred.DeferredHelper.invoking;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ * Measures the time from installing a Coherence release until every member
+ * has joined a single cluster, first with every Pod of the headless service
+ * as WKA and then with only the WKA seed members, see {@code store.wkaSeeds}.
+ * <p>
+ * The harness is only run when the {@code startup.harness} system property is
+ * {@code true}, for example
+ * {@code mvn -Phelm-test verify -Dit.test=ClusterStartupIT -Dstartup.harness=true}.
+ * The number of storage members is set with {@code startup.cluster.size},
+ * default 6, and the number of seeds with {@code startup.wka.seeds}, default 3.
+ * The times are logged; the test only asserts that each install forms one
+ * full cluster, as the JMX member only sees the members of its own cluster.
+ * The time includes pulling images and scheduling Pods, so compare runs on
+ * the same Kubernetes cluster.
+ *
+ * @author jk
+ */
+public class ClusterStartupIT
+        extends BaseHelmChartTest
+    {
+    // ----- test lifecycle -------------------------------------------------
+
+    @BeforeClass
+    public static void setup()
+        {
+        Assume.assumeTrue("Set -Dstartup.harness=true to run the cluster start-up harness",
+                          Boolean.getBoolean("startup.harness"));
+
+        assertPreconditions(s_k8sCluster);
+        ensureNamespace(s_k8sCluster);
+        ensureSecret(s_k8sCluster);
+        }
+
+    @AfterClass
+    public static void cleanup()
+        {
+        if (Boolean.getBoolean("startup.harness"))
+            {
+            cleanupPullSecrets(s_k8sCluster);
+            cleanupNamespace(s_k8sCluster);
+            }
+        }
+
+    @After
+    public void cleanUpCoherence()
+        {
+        if (m_sRelease != null)
+            {
+            deleteCoherence(s_k8sCluster, getK8sNamespace(), m_sRelease, false);
+            m_sRelease = null;
+            }
+        }
+
+    // ----- test methods ---------------------------------------------------
+
+    @Test
+    public void shouldMeasureTimeToFullClusterWithEveryPodAsWka() throws Exception
+        {
+        long cMillis = measureTimeToFullCluster(0);
+
+        CacheFactory.log("Time to a full cluster of " + CLUSTER_SIZE + " members with every Pod as WKA: "
+                         + cMillis + "ms", CacheFactory.LOG_INFO);
+        }
+
+    @Test
+    public void shouldMeasureTimeToFullClusterWithWkaSeeds() throws Exception
+        {
+        long cMillis = measureTimeToFullCluster(WKA_SEEDS);
+
+        CacheFactory.log("Time to a full cluster of " + CLUSTER_SIZE + " members with " + WKA_SEEDS
+                         + " WKA seeds: " + cMillis + "ms", CacheFactory.LOG_INFO);
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Install a Coherence release and wait for all of its members, and the
+     * JMX member, to be in one cluster.
+     *
+     * @param cSeeds  the number of WKA seed members, or zero to use every Pod as WKA
+     *
+     * @return the time in milliseconds from starting the install to the full cluster
+     *
+     * @throws Exception  if the install fails or the cluster does not form in time
+     */
+    private long measureTimeToFullCluster(int cSeeds) throws Exception
+        {
+        String sNamespace = getK8sNamespace();
+        long   ldtStart   = System.currentTimeMillis();
+
+        m_sRelease = installCoherence(s_k8sCluster, sNamespace, "values/helm-values-coh.yaml",
+                                      "clusterSize=" + CLUSTER_SIZE, "store.wkaSeeds=" + cSeeds,
+                                      "store.jmx.enabled=true");
+
+        // the JMX member is also a cluster member
+        Eventually.assertThat(invoking(this).getClusterSizeViaJMX(s_k8sCluster, sNamespace, m_sRelease),
+                              greaterThanOrEqualTo(CLUSTER_SIZE + 1), RetryFrequency.every(1, TimeUnit.SECONDS),
+                              Timeout.after(10, TimeUnit.MINUTES));
+
+        return System.currentTimeMillis() - ldtStart;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The number of storage members.
+     */
+    private static final int CLUSTER_SIZE = Integer.getInteger("startup.cluster.size", 6);
+
+    /**
+     * The number of WKA seed members.
+     */
+    private static final int WKA_SEEDS = Integer.getInteger("startup.wka.seeds", 3);
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The k8s cluster to use to install the charts.
+     */
+    private static K8sCluster s_k8sCluster = getDefaultCluster();
+
+    /**
+     * The name of the deployed Coherence Helm release.
+     */
+    private String m_sRelease;
+    }
@@ -104,6 +104,12 @@ public class ClusteringIT
         Eventually.assertThat(invoking(this).getClusterSizeViaJMX(s_k8sCluster, sNamespace, sReleaseOne),
             greaterThanOrEqualTo(3), RetryFrequency.every(10, TimeUnit.SECONDS), Timeout.after(60, TimeUnit.SECONDS));
 
+        // the JMX Pod reads the attributes of every member in one round trip
+        Map<String, Map<String, Object>> mapNode = jmxBulkQuery(s_k8sCluster, sNamespace, sReleaseOne,
+                                                                "Coherence:type=Node,*", "MemberName");
+
+        assertThat(mapNode.size(), is(greaterThanOrEqualTo(3)));
+
         String[] asSetValues = {sValClusterName, sValClusterSize, "store.wkaRelease=" + sReleaseOne};
         String   sReleaseTwo = installCoherence(s_k8sCluster, sNamespace, null, asSetValues);
 
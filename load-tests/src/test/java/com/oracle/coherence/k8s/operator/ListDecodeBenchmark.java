@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import com.google.protobuf.ByteString;
+import io.kubernetes.client.JSON;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1Namespace;
+import io.kubernetes.client.models.V1NamespaceList;
+import io.kubernetes.client.models.V1Node;
+import io.kubernetes.client.models.V1NodeList;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.proto.V1;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of decoding large namespace and node lists received in
+ * the JSON and protobuf wire formats, including the conversion of protobuf
+ * objects to the client model used by the operator.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.oracle.coherence.k8s.operator.ListDecodeBenchmark}.
+ *
+ * @author sc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListDecodeBenchmark
+    {
+    @Setup
+    public void setup() throws Exception
+        {
+        List<V1Namespace>        listNamespace    = new ArrayList<>();
+        List<V1Node>             listNode         = new ArrayList<>();
+        V1.NamespaceList.Builder builderNamespace = V1.NamespaceList.newBuilder();
+        V1.NodeList.Builder      builderNode      = V1.NodeList.newBuilder();
+
+        for (int i = 0; i < m_cItems; i++)
+            {
+            V1Namespace ns   = new V1Namespace().apiVersion("v1").kind("Namespace")
+                    .metadata(createMetadata("ns-" + i, i));
+            V1Node      node = new V1Node().apiVersion("v1").kind("Node").metadata(createMetadata("node-" + i, i)
+                    .putLabelsItem("failure-domain.beta.kubernetes.io/zone", "zone-" + (i % 3)));
+
+            listNamespace.add(ns);
+            listNode.add(node);
+            builderNamespace.addItems(FakeKubernetesServer.toProtobuf(ns));
+            builderNode.addItems(FakeKubernetesServer.toProtobuf(node));
+            }
+
+        m_abNamespaceJson  = toJson(new V1NamespaceList().items(listNamespace).metadata(new V1ListMeta()));
+        m_abNamespaceProto = FakeKubernetesServer.toEnvelope("NamespaceList", builderNamespace.build());
+        m_abNodeJson       = toJson(new V1NodeList().items(listNode).metadata(new V1ListMeta()));
+        m_abNodeProto      = FakeKubernetesServer.toEnvelope("NodeList", builderNode.build());
+        }
+
+    @Benchmark
+    public List<V1Namespace> namespaceListJson()
+        {
+        return f_json.<V1NamespaceList>deserialize(new String(m_abNamespaceJson, StandardCharsets.UTF_8),
+                                                   V1NamespaceList.class).getItems();
+        }
+
+    @Benchmark
+    public List<V1Namespace> namespaceListProtobuf() throws Exception
+        {
+        List<V1Namespace> list = new ArrayList<>();
+
+        for (V1.Namespace ns : V1.NamespaceList.parseFrom(unwrap(m_abNamespaceProto)).getItemsList())
+            {
+            list.add(NamespaceWatcher.toNamespace(ns));
+            }
+
+        return list;
+        }
+
+    @Benchmark
+    public List<V1Node> nodeListJson()
+        {
+        return f_json.<V1NodeList>deserialize(new String(m_abNodeJson, StandardCharsets.UTF_8),
+                                              V1NodeList.class).getItems();
+        }
+
+    @Benchmark
+    public List<V1ObjectMeta> nodeListProtobuf() throws Exception
+        {
+        List<V1ObjectMeta> list = new ArrayList<>();
+
+        for (V1.Node node : V1.NodeList.parseFrom(unwrap(m_abNodeProto)).getItemsList())
+            {
+            list.add(ProtobufWatch.toObjectMeta(node.getMetadata()));
+            }
+
+        return list;
+        }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param asArg  the program arguments (not used)
+     *
+     * @throws Exception  if the benchmarks fail
+     */
+    public static void main(String[] asArg) throws Exception
+        {
+        new Runner(new OptionsBuilder().include(ListDecodeBenchmark.class.getSimpleName()).build()).run();
+        }
+
+    // ----- helper methods --------------------------------------------------
+
+    /**
+     * Create metadata with a realistic number of labels.
+     *
+     * @param sName  the object name
+     * @param n      the object index
+     *
+     * @return the metadata
+     */
+    private static V1ObjectMeta createMetadata(String sName, int n)
+        {
+        V1ObjectMeta meta = new V1ObjectMeta().name(sName).resourceVersion(String.valueOf(n + 1))
+                .uid("00000000-0000-0000-0000-" + String.format("%012d", n));
+
+        for (int i = 0; i < 8; i++)
+            {
+            meta.putLabelsItem("example.com/label-" + i, "value-" + i + "-" + n);
+            }
+
+        return meta;
+        }
+
+    /**
+     * Serialize a list to JSON as the API server sends it.
+     *
+     * @param oList  the list
+     *
+     * @return the JSON list
+     */
+    private byte[] toJson(Object oList)
+        {
+        return f_json.serialize(oList).getBytes(StandardCharsets.UTF_8);
+        }
+
+    /**
+     * Strip the protobuf envelope from a serialized list.
+     *
+     * @param ab  the serialized list
+     *
+     * @return the raw list
+     *
+     * @throws Exception  if the envelope is invalid
+     */
+    private static ByteString unwrap(byte[] ab) throws Exception
+        {
+        return ProtobufWatch.unwrap(ByteString.copyFrom(ab)).getRaw();
+        }
+
+    // ----- data members ----------------------------------------------------
+
+    /**
+     * The number of items in each list.
+     */
+    @Param({"1000", "10000"})
+    public int m_cItems;
+
+    /**
+     * The namespace list in JSON.
+     */
+    private byte[] m_abNamespaceJson;
+
+    /**
+     * The namespace list in protobuf.
+     */
+    private byte[] m_abNamespaceProto;
+
+    /**
+     * The node list in JSON.
+     */
+    private byte[] m_abNodeJson;
+
+    /**
+     * The node list in protobuf.
+     */
+    private byte[] m_abNodeProto;
+
+    /**
+     * The JSON serializer used by the Kubernetes client.
+     */
+    private final JSON f_json = new JSON();
+    }
@@ -0,0 +1,511 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.Configuration;
+import io.kubernetes.client.util.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives the operator's namespace watcher against a {@link FakeKubernetesServer}
+ * with a configurable workload and reports reconcile throughput, end-to-end
+ * latency percentiles, API calls per namespace and heap usage.
+ * <p>
+ * A namespace is reconciled when the operator has written its monitoring
+ * config secret; latency is measured from the namespace being added to
+ * the fake server until that secret is written.
+ *
+ * @author sc
+ */
+class OperatorLoadHarness
+    {
+    // ----- constructors ----------------------------------------------------
+
+    /**
+     * Constructs an OperatorLoadHarness.
+     *
+     * @param cNamespaces   the number of namespaces created by the workload
+     * @param cChurnCycles  the number of delete/re-create cycles of the churn workload
+     * @param cDisconnects  the number of watch disconnects of the disconnect workload
+     * @param cTimeoutSecs  the maximum time in seconds a workload may take to be reconciled
+     */
+    OperatorLoadHarness(int cNamespaces, int cChurnCycles, int cDisconnects, long cTimeoutSecs)
+        {
+        f_cNamespaces  = cNamespaces;
+        f_cChurnCycles = cChurnCycles;
+        f_cDisconnects = cDisconnects;
+        f_cTimeoutSecs = cTimeoutSecs;
+        }
+
+    /**
+     * Create an OperatorLoadHarness configured from system properties.
+     *
+     * @return an OperatorLoadHarness
+     */
+    static OperatorLoadHarness fromSystemProperties()
+        {
+        return new OperatorLoadHarness(Integer.getInteger("load.namespaces", 1000),
+                                       Integer.getInteger("load.churn.cycles", 5),
+                                       Integer.getInteger("load.disconnects", 10),
+                                       Long.getLong("load.timeout.seconds", 300L));
+        }
+
+    // ----- Workload enum ---------------------------------------------------
+
+    /**
+     * The workloads the harness can generate.
+     */
+    enum Workload
+        {
+        /**
+         * All namespaces are created in a single burst.
+         */
+        BURST,
+
+        /**
+         * After an initial burst, a tenth of the namespaces are repeatedly deleted and re-created.
+         */
+        CHURN,
+
+        /**
+         * Namespaces are created in batches with the watch disconnected between batches.
+         */
+        DISCONNECT
+        }
+
+    // ----- methods ---------------------------------------------------------
+
+    /**
+     * Run the workload and report the results.
+     *
+     * @param workload  the workload to run
+     *
+     * @return the report of the run
+     *
+     * @exception Exception  if the workload is not reconciled within the timeout
+     */
+    Report run(Workload workload) throws Exception
+        {
+        Logger               logger    = Logger.getLogger("Operator");
+        Level                level     = logger.getLevel();
+        FakeKubernetesServer server    = new FakeKubernetesServer(0);
+        AtomicBoolean        fStop     = new AtomicBoolean();
+        Map<String, Long>    mapAdded  = new ConcurrentHashMap<>();
+        List<Long>           listNanos = new ArrayList<>();
+        AtomicLong           cDone     = new AtomicLong();
+
+        server.setSecretListener((sNamespace, sName) ->
+            {
+            Long ldtAdded = mapAdded.remove(sNamespace);
+            if (ldtAdded != null)
+                {
+                long cNanos = System.nanoTime() - ldtAdded;
+                synchronized (listNanos)
+                    {
+                    listNanos.add(cNanos);
+                    }
+                cDone.incrementAndGet();
+                }
+            });
+
+        // per-namespace INFO logging would dominate the measurement
+        logger.setLevel(Level.WARNING);
+
+        try
+            {
+            server.start();
+
+            ApiClient client = Config.fromUrl(server.getUrl(), false);
+            Configuration.setDefaultApiClient(client);
+
+            new NamespaceWatcher(fStop, new CoherenceOperator.NamespaceProcessor("coherence-operator",
+                    new String[] { null }, EXCLUDED_NAMESPACES)).start(DAEMON_THREAD_FACTORY);
+
+            await(() -> server.getRequestCount("WATCH", "namespaces") > 0);
+
+            System.gc();
+            long cbHeapBefore = usedHeap();
+            resetPeakHeap();
+
+            long ldtStart   = System.nanoTime();
+            long cExpected  = f_cNamespaces;
+
+            switch (workload)
+                {
+                case BURST:
+                    addNamespaces(server, mapAdded, 0, f_cNamespaces);
+                    await(() -> cDone.get() >= f_cNamespaces);
+                    break;
+
+                case CHURN:
+                    addNamespaces(server, mapAdded, 0, f_cNamespaces);
+                    await(() -> cDone.get() >= f_cNamespaces);
+
+                    int cChurn = Math.max(1, f_cNamespaces / 10);
+                    for (int i = 0; i < f_cChurnCycles; i++)
+                        {
+                        int  nFrom   = (i * cChurn) % f_cNamespaces;
+                        int  nTo     = Math.min(nFrom + cChurn, f_cNamespaces);
+                        long cTarget = cDone.get() + (nTo - nFrom);
+
+                        for (int n = nFrom; n < nTo; n++)
+                            {
+                            server.deleteNamespace(namespace(n));
+                            }
+                        addNamespaces(server, mapAdded, nFrom, nTo);
+                        await(() -> cDone.get() >= cTarget);
+
+                        cExpected += nTo - nFrom;
+                        }
+                    break;
+
+                case DISCONNECT:
+                    int cBatch = Math.max(1, f_cNamespaces / (f_cDisconnects + 1));
+                    for (int nFrom = 0; nFrom < f_cNamespaces; nFrom += cBatch)
+                        {
+                        addNamespaces(server, mapAdded, nFrom, Math.min(nFrom + cBatch, f_cNamespaces));
+                        server.disconnectWatches();
+                        }
+                    await(() -> cDone.get() >= f_cNamespaces);
+                    break;
+                }
+
+            long cNanosElapsed = System.nanoTime() - ldtStart;
+            long cbHeapPeak    = peakHeap();
+
+            System.gc();
+
+            long[] alNanos;
+            synchronized (listNanos)
+                {
+                alNanos = listNanos.stream().mapToLong(Long::longValue).toArray();
+                }
+
+            return new Report(workload, cDone.get(), cExpected, cNanosElapsed, alNanos, server.getRequestCount(),
+                              cbHeapBefore, cbHeapPeak, usedHeap());
+            }
+        finally
+            {
+            fStop.set(true);
+            server.stop();
+            logger.setLevel(level);
+            }
+        }
+
+    // ----- helper methods --------------------------------------------------
+
+    /**
+     * Add the namespaces in the given range, recording the time each was added.
+     *
+     * @param server    the fake server
+     * @param mapAdded  the time each pending namespace was added
+     * @param nFrom     the first namespace index, inclusive
+     * @param nTo       the last namespace index, exclusive
+     */
+    private static void addNamespaces(FakeKubernetesServer server, Map<String, Long> mapAdded, int nFrom, int nTo)
+        {
+        for (int n = nFrom; n < nTo; n++)
+            {
+            String sName = namespace(n);
+
+            mapAdded.put(sName, System.nanoTime());
+            server.addNamespace(sName);
+            }
+        }
+
+    /**
+     * Returns the name of the namespace with the given index.
+     *
+     * @param n  the namespace index
+     *
+     * @return the namespace name
+     */
+    private static String namespace(int n)
+        {
+        return "load-" + n;
+        }
+
+    /**
+     * Wait for the condition to become true.
+     *
+     * @param condition  the condition
+     *
+     * @exception Exception  if the condition is not true within the timeout
+     */
+    private void await(BooleanSupplier condition) throws Exception
+        {
+        long ldtTimeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(f_cTimeoutSecs);
+
+        while (!condition.getAsBoolean())
+            {
+            if (System.currentTimeMillis() > ldtTimeout)
+                {
+                throw new TimeoutException("Workload not reconciled within " + f_cTimeoutSecs + "s");
+                }
+            TimeUnit.MILLISECONDS.sleep(5);
+            }
+        }
+
+    /**
+     * Returns the used heap in bytes.
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap()
+        {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+    /**
+     * Reset the peak usage of the heap memory pools.
+     */
+    private static void resetPeakHeap()
+        {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            {
+            if (pool.getType() == MemoryType.HEAP)
+                {
+                pool.resetPeakUsage();
+                }
+            }
+        }
+
+    /**
+     * Returns the sum of the peak usage of the heap memory pools in bytes.
+     *
+     * @return the peak heap usage in bytes
+     */
+    private static long peakHeap()
+        {
+        long cb = 0L;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            {
+            if (pool.getType() == MemoryType.HEAP)
+                {
+                cb += pool.getPeakUsage().getUsed();
+                }
+            }
+
+        return cb;
+        }
+
+    // ----- inner class: Report ---------------------------------------------
+
+    /**
+     * The results of a workload run.
+     */
+    static class Report
+        {
+        /**
+         * Constructs a Report.
+         *
+         * @param workload       the workload
+         * @param cReconciled    the number of namespaces reconciled
+         * @param cExpected      the number of namespace reconciles expected
+         * @param cNanosElapsed  the elapsed time of the workload in nanoseconds
+         * @param alNanos        the end-to-end latency of each reconcile in nanoseconds
+         * @param cApiRequests   the number of API requests received by the fake server
+         * @param cbHeapBefore   the used heap in bytes before the workload
+         * @param cbHeapPeak     the peak heap usage in bytes during the workload
+         * @param cbHeapAfter    the used heap in bytes after the workload
+         */
+        Report(Workload workload, long cReconciled, long cExpected, long cNanosElapsed, long[] alNanos,
+               long cApiRequests, long cbHeapBefore, long cbHeapPeak, long cbHeapAfter)
+            {
+            Arrays.sort(alNanos);
+
+            f_workload      = workload;
+            f_cReconciled   = cReconciled;
+            f_cExpected     = cExpected;
+            f_cNanosElapsed = cNanosElapsed;
+            f_alNanos       = alNanos;
+            f_cApiRequests  = cApiRequests;
+            f_cbHeapBefore  = cbHeapBefore;
+            f_cbHeapPeak    = cbHeapPeak;
+            f_cbHeapAfter   = cbHeapAfter;
+            }
+
+        /**
+         * Returns the number of namespaces reconciled.
+         *
+         * @return the number of namespaces reconciled
+         */
+        long getReconciled()
+            {
+            return f_cReconciled;
+            }
+
+        /**
+         * Returns the number of namespace reconciles expected.
+         *
+         * @return the number of namespace reconciles expected
+         */
+        long getExpected()
+            {
+            return f_cExpected;
+            }
+
+        /**
+         * Returns the reconcile throughput in namespaces per second.
+         *
+         * @return the reconcile throughput
+         */
+        double getThroughput()
+            {
+            return f_cReconciled * 1.0e9 / f_cNanosElapsed;
+            }
+
+        /**
+         * Returns the given percentile of the end-to-end reconcile latency in milliseconds.
+         *
+         * @param dPercentile  the percentile, between 0 and 100
+         *
+         * @return the latency in milliseconds
+         */
+        double getLatencyMillis(double dPercentile)
+            {
+            if (f_alNanos.length == 0)
+                {
+                return 0.0;
+                }
+
+            int i = (int) Math.ceil(dPercentile / 100.0 * f_alNanos.length) - 1;
+
+            return f_alNanos[Math.max(0, Math.min(i, f_alNanos.length - 1))] / 1.0e6;
+            }
+
+        /**
+         * Returns the number of API requests per reconciled namespace.
+         *
+         * @return the number of API requests per reconciled namespace
+         */
+        double getApiCallsPerNamespace()
+            {
+            return f_cReconciled == 0 ? 0.0 : (double) f_cApiRequests / f_cReconciled;
+            }
+
+        @Override
+        public String toString()
+            {
+            return String.format("%s: reconciled %d/%d namespaces in %.0fms (%.1f/s); "
+                                 + "latency ms p50=%.1f p90=%.1f p99=%.1f max=%.1f; "
+                                 + "%.2f API calls/namespace; heap MB before=%.1f peak=%.1f after=%.1f",
+                    f_workload, f_cReconciled, f_cExpected, f_cNanosElapsed / 1.0e6, getThroughput(),
+                    getLatencyMillis(50), getLatencyMillis(90), getLatencyMillis(99), getLatencyMillis(100),
+                    getApiCallsPerNamespace(),
+                    f_cbHeapBefore / MB, f_cbHeapPeak / MB, f_cbHeapAfter / MB);
+            }
+
+        /**
+         * The workload.
+         */
+        private final Workload f_workload;
+
+        /**
+         * The number of namespaces reconciled.
+         */
+        private final long f_cReconciled;
+
+        /**
+         * The number of namespace reconciles expected.
+         */
+        private final long f_cExpected;
+
+        /**
+         * The elapsed time of the workload in nanoseconds.
+         */
+        private final long f_cNanosElapsed;
+
+        /**
+         * The sorted end-to-end latency of each reconcile in nanoseconds.
+         */
+        private final long[] f_alNanos;
+
+        /**
+         * The number of API requests received by the fake server.
+         */
+        private final long f_cApiRequests;
+
+        /**
+         * The used heap in bytes before the workload.
+         */
+        private final long f_cbHeapBefore;
+
+        /**
+         * The peak heap usage in bytes during the workload.
+         */
+        private final long f_cbHeapPeak;
+
+        /**
+         * The used heap in bytes after the workload.
+         */
+        private final long f_cbHeapAfter;
+
+        /**
+         * The number of bytes in a megabyte.
+         */
+        private static final double MB = 1024.0 * 1024.0;
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * The namespaces excluded by the operator by default.
+     */
+    private static final String[] EXCLUDED_NAMESPACES = new String[] {"docker", "kube-public", "kube-system"};
+
+    /**
+     * ThreadFactory with daemon threads.
+     */
+    private static final ThreadFactory DAEMON_THREAD_FACTORY = (r) ->
+        {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        return t;
+        };
+
+    // ----- data members ----------------------------------------------------
+
+    /**
+     * The number of namespaces created by the workload.
+     */
+    private final int f_cNamespaces;
+
+    /**
+     * The number of delete/re-create cycles of the churn workload.
+     */
+    private final int f_cChurnCycles;
+
+    /**
+     * The number of watch disconnects of the disconnect workload.
+     */
+    private final int f_cDisconnects;
+
+    /**
+     * The maximum time in seconds a workload may take to be reconciled.
+     */
+    private final long f_cTimeoutSecs;
+    }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import org.junit.Test;
+
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Load tests of the operator against an in-process fake Kubernetes API server.
+ * <p>
+ * The workload size is configured with the {@code load.namespaces},
+ * {@code load.churn.cycles}, {@code load.disconnects} and
+ * {@code load.timeout.seconds} system properties. The module is only part of
+ * the build when the {@code load-tests} profile is active, for example
+ * {@code mvn -Pload-tests -pl load-tests -am install -Dload.namespaces=10000}.
+ *
+ * @author sc
+ */
+public class OperatorLoadTest
+    {
+    @Test
+    public void testBurst() throws Exception
+        {
+        verify(OperatorLoadHarness.Workload.BURST);
+        }
+
+    @Test
+    public void testChurn() throws Exception
+        {
+        verify(OperatorLoadHarness.Workload.CHURN);
+        }
+
+    @Test
+    public void testWatchDisconnects() throws Exception
+        {
+        verify(OperatorLoadHarness.Workload.DISCONNECT);
+        }
+
+    private void verify(OperatorLoadHarness.Workload workload) throws Exception
+        {
+        OperatorLoadHarness.Report report = OperatorLoadHarness.fromSystemProperties().run(workload);
+
+        LOGGER.info(report.toString());
+
+        assertEquals(report.toString(), report.getExpected(), report.getReconciled());
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * Class Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger("Operator");
+    }
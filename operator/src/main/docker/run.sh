@@ -37,5 +37,14 @@ fi
 LOGGING="-Djava.util.logging.config.file=${LOGGING_CONFIG}"
 mkdir -m 777 -p /logs
 
+# periodic flight recording snapshots are written to /logs unless overridden
+export JFR_SNAPSHOT_DIR=${JFR_SNAPSHOT_DIR:-/logs}
+
+# use the AppCDS archive created when the image was built, unless disabled
+CDS_ARCHIVE="/operator/operator.jsa"
+if [ -f "${CDS_ARCHIVE}" ] && [ "$CDS_ENABLED" != "false" ]; then
+  CDS="-XX:SharedArchiveFile=${CDS_ARCHIVE} -Xshare:auto"
+fi
+
 # Start operator
-java $LOGGING -cp "/operator/lib/*"  com.oracle.coherence.k8s.operator.CoherenceOperator
+java $LOGGING $CDS -cp "/operator/lib/*"  com.oracle.coherence.k8s.operator.CoherenceOperator
@@ -6,6 +6,8 @@
 
 package com.oracle.coherence.k8s.operator;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.squareup.okhttp.Call;
 import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
@@ -58,6 +60,7 @@ abstract class AbstractWatcher<T, A>
         this.m_fStopping                = fStopping;
         this.m_consumer                 = consumer;
         this.m_clzWatchType             = clzWatchType;
+        this.m_fProtobuf                = this instanceof ProtobufSupport && ProtobufWatch.isEnabled();
 
         this.m_api = clzApiType.newInstance();
         }
@@ -136,9 +139,19 @@ abstract class AbstractWatcher<T, A>
                 {
                 try
                     {
+                    OperatorMetrics.getInstance().watchReconnect(getClass().getSimpleName());
+
                     CallParams callParams = new CallParams();
                     callParams.setResourceVersion(m_sLastResourceVersion);
-                    watchCall(createCall(callParams), client);
+
+                    if (m_fProtobuf)
+                        {
+                        watchProtobufCall(getProtobufSupport(), callParams, client);
+                        }
+                    else
+                        {
+                        watchCall(createCall(callParams), client);
+                        }
                     }
                 catch (RuntimeException | ApiException ignore)
                     {
@@ -170,16 +183,56 @@ abstract class AbstractWatcher<T, A>
 
         try (Watch<T> watch = Watch.createWatch(client, call, paramType))
             {
-            for (Watch.Response<T> item : watch)
+            accept(watch);
+            }
+        }
+
+    /**
+     * Watches for a call that prefers the protobuf wire format. If the server
+     * answers in JSON the watcher uses JSON calls from then on.
+     *
+     * @param support     the protobuf support of this watcher
+     * @param callParams  the call parameters
+     * @param client      the Kubernetes API client
+     * @throws ApiException  Kubernetes API client exception
+     * @throws IOException  IOException while watching
+     */
+    private void watchProtobufCall(ProtobufSupport<T> support, CallParams callParams, ApiClient client)
+            throws ApiException, IOException
+        {
+        Type paramType = getParameterizedType(m_clzWatchType);
+        Call call      = support.createProtobufCall(callParams);
+
+        try (ProtobufWatch<T> watch = ProtobufWatch.createWatch(client, call, paramType, support::fromProtobuf))
+            {
+            if (!watch.isProtobuf())
                 {
-                if (item != null)
+                LOGGER.info(() -> "Watcher[" + getClass().getSimpleName() + "@" + m_sNamespace
+                        + "] protobuf is not supported, falling back to JSON");
+                m_fProtobuf = false;
+                }
+            accept(watch);
+            }
+        }
+
+    /**
+     * Passes the watch events to the consumer.
+     *
+     * @param watch  the watch events
+     */
+    private void accept(Iterable<Watch.Response<T>> watch)
+        {
+        for (Watch.Response<T> item : watch)
+            {
+            if (item != null)
+                {
+                OperatorMetrics.getInstance().watchEvent(getClass().getSimpleName(), item.type);
+
+                if (item.object != null)
                     {
-                    if (item.object != null)
-                        {
-                        m_sLastResourceVersion = getMetadata(item.object).getResourceVersion();
-                        }
-                    m_consumer.accept(item);
+                    m_sLastResourceVersion = getMetadata(item.object).getResourceVersion();
                     }
+                m_consumer.accept(item);
                 }
             }
         }
@@ -223,6 +276,70 @@ abstract class AbstractWatcher<T, A>
         this.m_api = api;
         }
 
+    /**
+     * Returns this watcher as its {@link ProtobufSupport}.
+     *
+     * @return the protobuf support of this watcher
+     */
+    @SuppressWarnings("unchecked")
+    private ProtobufSupport<T> getProtobufSupport()
+        {
+        return (ProtobufSupport<T>) this;
+        }
+
+    /**
+     * Sets whether watch calls should request the protobuf wire format.
+     * Only watchers implementing {@link ProtobufSupport} can request it.
+     *
+     * @param fProtobuf  true to request the protobuf wire format
+     */
+    void setProtobuf(boolean fProtobuf)
+        {
+        this.m_fProtobuf = fProtobuf && this instanceof ProtobufSupport;
+        }
+
+    /**
+     * Returns true if watch calls request the protobuf wire format.
+     *
+     * @return true if watch calls request the protobuf wire format
+     */
+    boolean isProtobuf()
+        {
+        return m_fProtobuf;
+        }
+
+    // ----- inner interface: ProtobufSupport --------------------------------
+
+    /**
+     * Implemented by a watcher whose resource can be watched in the protobuf
+     * wire format. A watcher opts in to protobuf by implementing both the
+     * call and the conversion of the objects it returns.
+     *
+     * @param <T>  the type of the object to be watched
+     */
+    interface ProtobufSupport<T>
+        {
+        /**
+         * Creates a watch Call object that requests the protobuf wire format.
+         *
+         * @param callParams  the call parameters
+         *
+         * @return a call object
+         * @throws ApiException  Kubernetes API client exception
+         */
+        Call createProtobufCall(CallParams callParams) throws ApiException;
+
+        /**
+         * Converts the raw protobuf representation of an object to T.
+         *
+         * @param raw  the raw protobuf object
+         *
+         * @return the converted object
+         * @throws InvalidProtocolBufferException  if the object cannot be decoded
+         */
+        T fromProtobuf(ByteString raw) throws InvalidProtocolBufferException;
+        }
+
     // ----- data members ---------------------------------------------------
 
     /**
@@ -250,6 +367,11 @@ abstract class AbstractWatcher<T, A>
      */
     final Class<T> m_clzWatchType;
 
+    /**
+     * True if watch calls should request the protobuf wire format.
+     */
+    private volatile boolean m_fProtobuf;
+
     /**
      * The last resource versions being watched.
      */
@@ -6,6 +6,8 @@
 
 package com.oracle.coherence.k8s.operator;
 
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Dispatcher;
 import io.kubernetes.client.ApiCallback;
 import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
@@ -69,7 +71,14 @@ public class CoherenceOperator
             ApiClient client = Config.defaultClient();
             Configuration.setDefaultApiClient(client);
 
-            new KubernetesInfoServer(K8S_INFO_SERVER_PORT).start();
+            registerQueueGauges(client);
+
+            OperatorFlightRecorder recorder = startFlightRecorder();
+
+            KubernetesInfoServer infoServer = new KubernetesInfoServer(K8S_INFO_SERVER_PORT);
+            infoServer.setFlightRecorder(recorder);
+            infoServer.setNamespaces(asNamespaces, asExcludedNamespaces);
+            infoServer.start();
 
             AbstractWatcher<?, ?> namespaceWatcher = createNamespaceWatcher(sNamespace, asNamespaces,
                     asExcludedNamespaces, fStopping);
@@ -112,6 +121,46 @@ public class CoherenceOperator
         return new NamespaceWatcher(fStop, new NamespaceProcessor(sNamespace, asNamespaces, asExcludedNamespaces));
         }
 
+    /**
+     * Start the continuous flight recording if it is enabled.
+     * A failure to start the recording is logged and does not prevent the operator from starting.
+     *
+     * @return the started OperatorFlightRecorder, or null if flight recording is disabled or failed to start
+     */
+    private static OperatorFlightRecorder startFlightRecorder()
+        {
+        try
+            {
+            OperatorFlightRecorder recorder = OperatorFlightRecorder.fromEnvironment();
+            if (recorder != null)
+                {
+                recorder.start();
+                }
+            return recorder;
+            }
+        catch (Throwable t)
+            {
+            LOGGER.log(Level.WARNING, "Cannot start flight recording: " + t, t);
+            return null;
+            }
+        }
+
+    /**
+     * Register gauges exposing the depth of the asynchronous request queue of the given client.
+     *
+     * @param client  the Kubernetes API client used for asynchronous calls
+     */
+    private static void registerQueueGauges(ApiClient client)
+        {
+        Dispatcher      dispatcher = client.getHttpClient().getDispatcher();
+        OperatorMetrics metrics    = OperatorMetrics.getInstance();
+
+        metrics.registerGauge("operator_api_queued_calls",
+                "The number of asynchronous API calls waiting to be executed.", dispatcher::getQueuedCallCount);
+        metrics.registerGauge("operator_api_running_calls",
+                "The number of asynchronous API calls currently executing.", dispatcher::getRunningCallCount);
+        }
+
 
     /**
      * Assert that the included namespaces should not be excluded.
@@ -205,6 +254,9 @@ public class CoherenceOperator
 
                     if (isAcceptableNamespace(sNamesp))
                         {
+                        OperatorMetrics metrics  = OperatorMetrics.getInstance();
+                        long            ldtStart = System.nanoTime();
+
                         try {
                             V1Secret secret      = null;
                             boolean  secretExist = false;
@@ -219,6 +271,10 @@ public class CoherenceOperator
                                 {
                                 // Not Found
                                 }
+                            finally
+                                {
+                                metrics.apiCall("get", "secrets", System.nanoTime() - ldtStart);
+                                }
 
                             if (!secretExist)
                                 {
@@ -251,16 +307,26 @@ public class CoherenceOperator
 
                             if (secretExist)
                                 {
-                                m_coreV1Api.replaceNamespacedSecret(COHERENCE_MONITORING_CONFIG, sNamesp, secret, null);
+                                long ldtReplace = System.nanoTime();
+                                try
+                                    {
+                                    m_coreV1Api.replaceNamespacedSecret(COHERENCE_MONITORING_CONFIG, sNamesp, secret, null);
+                                    }
+                                finally
+                                    {
+                                    metrics.apiCall("replace", "secrets", System.nanoTime() - ldtReplace);
+                                    }
                                 LOGGER.info("Updated '" + COHERENCE_MONITORING_CONFIG +
                                         "' Secret in namespace[" + sNamesp + "]");
                                 }
                             else
                                 {
+                                long ldtCreate = System.nanoTime();
                                 ApiCallback<V1Secret> callback = new ApiCallback<>() {
                                     @Override
                                     public void onFailure(ApiException e, int i, Map<String, List<String>> map)
                                         {
+                                        metrics.apiCall("create", "secrets", System.nanoTime() - ldtCreate);
                                         LOGGER.warning("Failed in creating '" + COHERENCE_MONITORING_CONFIG +
                                                 "' Secret in namespace[" + sNamesp + "]" + e.toString());
                                         }
@@ -268,6 +334,7 @@ public class CoherenceOperator
                                     @Override
                                     public void onSuccess(V1Secret v1Secret, int i, Map<String, List<String>> map)
                                         {
+                                        metrics.apiCall("create", "secrets", System.nanoTime() - ldtCreate);
                                         LOGGER.info("Created '" + COHERENCE_MONITORING_CONFIG +
                                                 "' Secret in namespace[" + sNamesp + "]");
                                         }
@@ -282,13 +349,21 @@ public class CoherenceOperator
                                         {
                                         }
                                     };
-                                m_coreV1Api.createNamespacedSecretAsync(sNamesp, secret, null, callback);
+                                // createNamespacedSecretAsync adds a progress interceptor to the shared
+                                // client on every call that is never removed, so build the call without
+                                // progress listeners and execute it asynchronously ourselves
+                                Call call = m_coreV1Api.createNamespacedSecretCall(sNamesp, secret, null, null, null);
+                                m_coreV1Api.getApiClient().executeAsync(call, V1Secret.class, callback);
                                 }
                         }
                         catch(Throwable t)
                             {
                             LOGGER.warning("Exception in creating secret in namespace[" + sNamesp + "]: " + t);
                             }
+                        finally
+                            {
+                            metrics.reconcile("namespace", System.nanoTime() - ldtStart);
+                            }
                         }
                     }
                 }
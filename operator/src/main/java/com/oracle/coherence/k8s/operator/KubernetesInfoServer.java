@@ -9,19 +9,54 @@ package com.oracle.coherence.k8s.operator;
 import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
 import io.kubernetes.client.ApiException;
+import io.kubernetes.client.ProtoClient;
 import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1EndpointAddress;
+import io.kubernetes.client.models.V1EndpointSubset;
+import io.kubernetes.client.models.V1Endpoints;
 import io.kubernetes.client.models.V1Node;
 import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.proto.Meta;
+import io.kubernetes.client.proto.V1;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
  * A Simple Http server returns info from Kubernetes.
- * Only zone information is returned in this moment.
+ * Zone information is returned from {@code /zone}, the pod IPs of a
+ * service's Endpoints, including not ready addresses, are returned from
+ * {@code /endpoints/<namespace>/<name>} and the operator's
+ * own metrics are returned in Prometheus format from {@code /metrics}.
+ * The recent flight recording is returned from {@code /jfr?minutes=N}
+ * to requests carrying the configured bearer token.
+ * <p>
+ * Requests are handled by a small pool of threads, and only one flight
+ * recording is dumped at a time, so a long dump does not delay the zone
+ * lookups of starting pods.
+ * <p>
+ * The {@code /endpoints} requests are not authenticated, as they are made by
+ * Coherence members starting up, so any client that can reach the server can
+ * read pod IPs. To limit the exposure only the Endpoints of Coherence headless
+ * services, labelled {@code component=coherence-headless}, in the namespaces
+ * managed by the operator are returned; any other Endpoints are reported as
+ * not found. The Endpoints are cached for {@link #ENDPOINTS_CACHE_TTL_MILLIS},
+ * so the API server load does not grow with the number of members asking.
  *
  * @author sc
  */
@@ -42,6 +77,16 @@ public class KubernetesInfoServer
                     m_httpServer = HttpServer.create(new InetSocketAddress(port), 0);
         HttpContext context      = m_httpServer.createContext("/zone");
 
+        // a flight recording dump streams for a long time, so it must not hold
+        // up the zone lookups of starting pods on the single dispatcher thread
+        f_executor = Executors.newFixedThreadPool(HANDLER_THREADS, r ->
+            {
+            Thread thread = new Thread(r, "KubernetesInfoServer");
+            thread.setDaemon(true);
+            return thread;
+            });
+        m_httpServer.setExecutor(f_executor);
+
         context.setHandler((httpExchange) -> {
             try
                 {
@@ -52,6 +97,7 @@ public class KubernetesInfoServer
                 if (sRequestURI.length() >= 6)
                     {
                     String sNodeName = sRequestURI.substring(6); // trim prefix "/zone/"
+                        long ldtStart = System.nanoTime();
                         try
                             {
                             sPayload = getZone(sNodeName);
@@ -61,6 +107,10 @@ public class KubernetesInfoServer
                             nStatusCode = 500;
                             LOGGER.warning("Exception in getting zone[" + sNodeName + "]: " + throwable);
                             }
+                        finally
+                            {
+                            f_metrics.apiCall("get", "nodes", System.nanoTime() - ldtStart);
+                            }
                     }
 
                 if (sPayload == null)
@@ -72,6 +122,8 @@ public class KubernetesInfoServer
                     nStatusCode = 404;
                     }
 
+                f_metrics.zoneLookup(nStatusCode == 200 ? "found" : nStatusCode == 404 ? "not_found" : "error");
+
                 httpExchange.sendResponseHeaders(nStatusCode, sPayload.getBytes().length);
                 OutputStream output = httpExchange.getResponseBody();
                 output.write(sPayload.getBytes());
@@ -82,6 +134,122 @@ public class KubernetesInfoServer
                 httpExchange.close();
                 }
             });
+
+        m_httpServer.createContext("/endpoints").setHandler((httpExchange) -> {
+            try
+                {
+                // the path is "/endpoints/<namespace>/<name>"
+                String[] asPart      = httpExchange.getRequestURI().getPath().split("/");
+                int      nStatusCode = 200;
+                String   sPayload    = "";
+
+                if (asPart.length == 4 && !asPart[2].isEmpty() && !asPart[3].isEmpty())
+                    {
+                    try
+                        {
+                        if (isManagedNamespace(asPart[2]))
+                            {
+                            sPayload = getEndpointAddresses(asPart[2], asPart[3]);
+                            }
+                        }
+                    catch (Throwable throwable)
+                        {
+                        nStatusCode = 500;
+                        LOGGER.warning("Exception in getting endpoints[" + asPart[2] + "/" + asPart[3] + "]: "
+                                + throwable);
+                        }
+                    }
+
+                if (sPayload.length() == 0 && nStatusCode == 200)
+                    {
+                    nStatusCode = 404;
+                    }
+
+                byte[] abPayload = sPayload.getBytes(StandardCharsets.UTF_8);
+
+                httpExchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                httpExchange.sendResponseHeaders(nStatusCode, abPayload.length == 0 ? -1 : abPayload.length);
+                if (abPayload.length > 0)
+                    {
+                    OutputStream output = httpExchange.getResponseBody();
+                    output.write(abPayload);
+                    output.flush();
+                    }
+                }
+            finally
+                {
+                httpExchange.close();
+                }
+            });
+
+        m_httpServer.createContext("/metrics").setHandler((httpExchange) -> {
+            try
+                {
+                byte[] abPayload = f_metrics.render().getBytes(StandardCharsets.UTF_8);
+
+                httpExchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                httpExchange.sendResponseHeaders(200, abPayload.length);
+                OutputStream output = httpExchange.getResponseBody();
+                output.write(abPayload);
+                output.flush();
+                }
+            finally
+                {
+                httpExchange.close();
+                }
+            });
+
+        m_httpServer.createContext("/jfr").setHandler((httpExchange) -> {
+            try
+                {
+                OperatorFlightRecorder recorder = m_recorder;
+
+                if (recorder == null || !recorder.isDumpEnabled())
+                    {
+                    httpExchange.sendResponseHeaders(404, -1);
+                    }
+                else if (!recorder.isAuthorized(httpExchange.getRequestHeaders().getFirst("Authorization")))
+                    {
+                    LOGGER.warning("Rejected unauthorized flight recording dump request from "
+                            + httpExchange.getRemoteAddress());
+                    httpExchange.sendResponseHeaders(401, -1);
+                    }
+                else if (!f_fDumping.compareAndSet(false, true))
+                    {
+                    // one dump at a time, so dumps cannot take every handler thread
+                    httpExchange.sendResponseHeaders(429, -1);
+                    }
+                else
+                    {
+                    try
+                        {
+                        long cMinutes = getMinutes(httpExchange.getRequestURI().getRawQuery());
+
+                        httpExchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                        httpExchange.getResponseHeaders().set("Content-Disposition",
+                                "attachment; filename=\"operator.jfr\"");
+                        httpExchange.sendResponseHeaders(200, 0);
+
+                        try (OutputStream output = httpExchange.getResponseBody())
+                            {
+                            recorder.writeTo(Duration.ofMinutes(cMinutes), output);
+                            }
+                        }
+                    finally
+                        {
+                        f_fDumping.set(false);
+                        }
+                    }
+                }
+            catch (Throwable t)
+                {
+                LOGGER.warning("Exception in dumping flight recording: " + t);
+                }
+            finally
+                {
+                httpExchange.close();
+                }
+            });
         }
 
     // ---- methods ----------------------------------------------------------
@@ -102,6 +270,17 @@ public class KubernetesInfoServer
     void stop(int delay)
         {
         m_httpServer.stop(delay);
+        f_executor.shutdownNow();
+        }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port the server is listening on
+     */
+    int getPort()
+        {
+        return m_httpServer.getAddress().getPort();
         }
 
     /**
@@ -114,30 +293,366 @@ public class KubernetesInfoServer
         this.m_api = api;
     }
 
+    /**
+     * Sets the namespaces whose Endpoints are returned from {@code /endpoints}.
+     *
+     * @param asIncludedNamespaces  the namespaces to include, or {@code null} or
+     *                              an array of {@code null} to include all namespaces
+     * @param asExcludedNamespaces  the namespaces to exclude, may be {@code null}
+     */
+    void setNamespaces(String[] asIncludedNamespaces, String[] asExcludedNamespaces)
+        {
+        Set<String> setIncluded = new HashSet<>();
+        Set<String> setExcluded = new HashSet<>();
+
+        // null means all which corresponds to empty set here
+        if (asIncludedNamespaces != null && asIncludedNamespaces.length > 0 && asIncludedNamespaces[0] != null)
+            {
+            setIncluded.addAll(Arrays.asList(asIncludedNamespaces));
+            }
+
+        if (asExcludedNamespaces != null)
+            {
+            setExcluded.addAll(Arrays.asList(asExcludedNamespaces));
+            }
+
+        m_setIncludedNamespaces = setIncluded;
+        m_setExcludedNamespaces = setExcluded;
+        }
+
+    /**
+     * Returns whether the given namespace is managed by the operator, that is
+     * it is not excluded and it is included if only some namespaces are.
+     *
+     * @param sNamespace  the namespace
+     *
+     * @return true if the namespace is managed by the operator
+     */
+    private boolean isManagedNamespace(String sNamespace)
+        {
+        Set<String> setIncluded = m_setIncludedNamespaces;
+
+        return !m_setExcludedNamespaces.contains(sNamespace)
+                && (setIncluded.isEmpty() || setIncluded.contains(sNamespace));
+        }
+
+    /**
+     * Sets whether node lookups should request the protobuf wire format.
+     *
+     * @param fProtobuf  true to request the protobuf wire format
+     */
+    void setProtobuf(boolean fProtobuf)
+        {
+        m_fProtobuf = fProtobuf;
+        }
+
+    /**
+     * Sets the flight recorder whose recording is dumped from {@code /jfr}.
+     *
+     * @param recorder  the flight recorder, or null to disable the endpoint
+     */
+    void setFlightRecorder(OperatorFlightRecorder recorder)
+        {
+        m_recorder = recorder;
+        }
+
+    /**
+     * Returns the number of minutes requested by the {@code minutes} query parameter.
+     *
+     * @param sQuery  the raw query string, may be null
+     *
+     * @return the number of minutes, or {@link #DEFAULT_JFR_MINUTES} if absent or invalid
+     */
+    private static long getMinutes(String sQuery)
+        {
+        if (sQuery != null)
+            {
+            for (String sParam : sQuery.split("&"))
+                {
+                if (sParam.startsWith("minutes="))
+                    {
+                    try
+                        {
+                        long cMinutes = Long.parseLong(sParam.substring(8));
+
+                        return cMinutes > 0 ? cMinutes : DEFAULT_JFR_MINUTES;
+                        }
+                    catch (NumberFormatException e)
+                        {
+                        return DEFAULT_JFR_MINUTES;
+                        }
+                    }
+                }
+            }
+
+        return DEFAULT_JFR_MINUTES;
+        }
+
     /**
      * Retrieve zone for the given node name.
      *
-     * @param sNodeName
-     * @return
-     * @throws ApiException
+     * @param sNodeName  the node name
+     *
+     * @return the zone of the node, or an empty String if it has no zone label
+     *
+     * @throws ApiException  Kubernetes API client exception
      */
     private String getZone(String sNodeName) throws ApiException
         {
-        String zone = "";
+        Map<String, String> labels = m_fProtobuf ? readNodeLabelsProtobuf(sNodeName) : readNodeLabels(sNodeName);
+        String              zone   = labels == null ? null : labels.get(ZONE_LABEL);
+
+        return zone == null ? "" : zone;
+        }
+
+    /**
+     * Retrieve the pod IP addresses of the given Endpoints, read at most
+     * {@link #ENDPOINTS_CACHE_TTL_MILLIS} ago.
+     * <p>
+     * Every Coherence member refreshes its WKA addresses about once a second,
+     * so the addresses are cached to keep the API server requests independent
+     * of the number of members.
+     *
+     * @param sNamespace  the namespace of the Endpoints
+     * @param sName       the name of the Endpoints
+     *
+     * @return a comma delimited list of the addresses, or an empty String if there are none,
+     *         the Endpoints do not exist or they are not of a Coherence headless service
+     *
+     * @throws ApiException  Kubernetes API client exception
+     */
+    private String getEndpointAddresses(String sNamespace, String sName) throws ApiException
+        {
+        String          sKey   = sNamespace + "/" + sName;
+        CachedEndpoints cached = f_mapEndpoints.get(sKey);
+
+        if (cached == null)
+            {
+            // drop the expired entries, so requests for many names do not grow the cache
+            f_mapEndpoints.values().removeIf(CachedEndpoints::isExpired);
+            cached = f_mapEndpoints.computeIfAbsent(sKey, s -> new CachedEndpoints(sNamespace, sName));
+            }
+
+        return cached.get();
+        }
+
+    /**
+     * Read the pod IP addresses of the given Endpoints, including the
+     * addresses that are not ready, so that Coherence members can find each
+     * other as soon as their pods have IPs.
+     * <p>
+     * Only the Endpoints of a Coherence headless service are returned. The
+     * Endpoints carry the labels of their service.
+     *
+     * @param sNamespace  the namespace of the Endpoints
+     * @param sName       the name of the Endpoints
+     *
+     * @return a comma delimited list of the addresses, or an empty String if there are none,
+     *         the Endpoints do not exist or they are not of a Coherence headless service
+     *
+     * @throws ApiException  Kubernetes API client exception
+     */
+    private String readEndpointAddresses(String sNamespace, String sName) throws ApiException
+        {
+        long        ldtStart = System.nanoTime();
+        V1Endpoints endpoints;
+
+        try
+            {
+            endpoints = m_api.readNamespacedEndpoints(sName, sNamespace, null, null, null);
+            }
+        catch (ApiException e)
+            {
+            if (e.getCode() == 404)
+                {
+                return "";
+                }
+            throw e;
+            }
+        finally
+            {
+            f_metrics.apiCall("get", "endpoints", System.nanoTime() - ldtStart);
+            }
+
+        Set<String> setAddress = new LinkedHashSet<>();
+
+        if (endpoints != null && isHeadlessService(endpoints.getMetadata()) && endpoints.getSubsets() != null)
+            {
+            for (V1EndpointSubset subset : endpoints.getSubsets())
+                {
+                addAddresses(setAddress, subset.getAddresses());
+                addAddresses(setAddress, subset.getNotReadyAddresses());
+                }
+            }
+
+        return String.join(",", setAddress);
+        }
+
+    /**
+     * Returns whether the given metadata is of a Coherence headless service.
+     *
+     * @param meta  the metadata, may be null
+     *
+     * @return true if the metadata has the label of a Coherence headless service
+     */
+    private static boolean isHeadlessService(V1ObjectMeta meta)
+        {
+        Map<String, String> mapLabels = meta == null ? null : meta.getLabels();
+
+        return mapLabels != null && HEADLESS_COMPONENT.equals(mapLabels.get(COMPONENT_LABEL));
+        }
+
+    /**
+     * Add the IP addresses of a list of endpoint addresses to a set.
+     *
+     * @param setAddress  the set to add the IP addresses to
+     * @param listAddress the endpoint addresses, may be null
+     */
+    private static void addAddresses(Set<String> setAddress, List<V1EndpointAddress> listAddress)
+        {
+        if (listAddress != null)
+            {
+            for (V1EndpointAddress address : listAddress)
+                {
+                if (address.getIp() != null)
+                    {
+                    setAddress.add(address.getIp());
+                    }
+                }
+            }
+        }
+
+    /**
+     * Read the labels of the given node using JSON.
+     *
+     * @param sNodeName  the node name
+     *
+     * @return the labels of the node or null
+     *
+     * @throws ApiException  Kubernetes API client exception
+     */
+    private Map<String, String> readNodeLabels(String sNodeName) throws ApiException
+        {
         V1Node node = m_api.readNode(sNodeName, null, Boolean.TRUE, Boolean.TRUE);
         if (node != null)
             {
             V1ObjectMeta meta = node.getMetadata();
             if (meta != null)
                 {
-                Map<String, String> labels = meta.getLabels();
-                if (labels != null)
-                    {
-                    zone = labels.get("failure-domain.beta.kubernetes.io/zone");
-                    }
+                return meta.getLabels();
                 }
             }
-        return zone;
+        return null;
+        }
+
+    /**
+     * Read the labels of the given node using protobuf, falling back to JSON
+     * from then on if the server does not answer in protobuf.
+     *
+     * @param sNodeName  the node name
+     *
+     * @return the labels of the node or null
+     *
+     * @throws ApiException  Kubernetes API client exception
+     */
+    private Map<String, String> readNodeLabelsProtobuf(String sNodeName) throws ApiException
+        {
+        ProtoClient.ObjectOrStatus<V1.Node> result;
+        try
+            {
+            result = new ProtoClient(m_api.getApiClient()).get(V1.Node.newBuilder(), "/api/v1/nodes/" + sNodeName);
+            }
+        catch (IOException | ApiException e)
+            {
+            // the client reports a non-protobuf response as an ApiException without an HTTP status
+            if (e instanceof ApiException && ((ApiException) e).getCode() != 0)
+                {
+                throw (ApiException) e;
+                }
+
+            LOGGER.info("Node lookup does not support protobuf, falling back to JSON: " + e);
+            m_fProtobuf = false;
+            return readNodeLabels(sNodeName);
+            }
+
+        if (result.status != null)
+            {
+            Meta.Status status = result.status;
+            throw new ApiException(status.getCode(), status.getMessage());
+            }
+
+        return result.object == null ? null : result.object.getMetadata().getLabelsMap();
+        }
+
+    // ----- inner class: CachedEndpoints -----------------------------------
+
+    /**
+     * The pod IP addresses of an Endpoints, read again once they are older
+     * than {@link #ENDPOINTS_CACHE_TTL_MILLIS}. Concurrent requests for the
+     * same Endpoints wait for a single read.
+     */
+    private class CachedEndpoints
+        {
+        /**
+         * Create a {@link CachedEndpoints}.
+         *
+         * @param sNamespace  the namespace of the Endpoints
+         * @param sName       the name of the Endpoints
+         */
+        CachedEndpoints(String sNamespace, String sName)
+            {
+            f_sNamespace = sNamespace;
+            f_sName      = sName;
+            }
+
+        /**
+         * Returns the addresses, reading them if they have expired.
+         *
+         * @return a comma delimited list of the addresses, or an empty String
+         *
+         * @throws ApiException  Kubernetes API client exception
+         */
+        synchronized String get() throws ApiException
+            {
+            if (isExpired())
+                {
+                m_sAddresses = readEndpointAddresses(f_sNamespace, f_sName);
+                m_ldtRead    = System.currentTimeMillis();
+                }
+
+            return m_sAddresses;
+            }
+
+        /**
+         * Returns whether the addresses have not been read or are older than
+         * {@link #ENDPOINTS_CACHE_TTL_MILLIS}.
+         *
+         * @return true if the addresses have expired
+         */
+        boolean isExpired()
+            {
+            return m_sAddresses == null || System.currentTimeMillis() - m_ldtRead >= ENDPOINTS_CACHE_TTL_MILLIS;
+            }
+
+        /**
+         * The namespace of the Endpoints.
+         */
+        private final String f_sNamespace;
+
+        /**
+         * The name of the Endpoints.
+         */
+        private final String f_sName;
+
+        /**
+         * The addresses last read, or null if not read yet.
+         */
+        private volatile String m_sAddresses;
+
+        /**
+         * The time the addresses were last read.
+         */
+        private volatile long m_ldtRead;
         }
 
     // ----- data members ---------------------------------------------------
@@ -146,13 +661,83 @@ public class KubernetesInfoServer
      */
     static final Logger LOGGER = Logger.getLogger("Operator");
 
+    /**
+     * The default number of minutes of flight recording returned from {@code /jfr}.
+     */
+    static final long DEFAULT_JFR_MINUTES = 5;
+
+    /**
+     * The time in milliseconds the addresses of an Endpoints are cached for.
+     */
+    static final long ENDPOINTS_CACHE_TTL_MILLIS = 1000L;
+
+    /**
+     * The number of threads handling requests.
+     */
+    private static final int HANDLER_THREADS = 4;
+
+    /**
+     * The label of a node carrying its zone.
+     */
+    private static final String ZONE_LABEL = "failure-domain.beta.kubernetes.io/zone";
+
+    /**
+     * The label of a Coherence chart resource carrying its component.
+     */
+    private static final String COMPONENT_LABEL = "component";
+
+    /**
+     * The component label value of a Coherence headless service.
+     */
+    private static final String HEADLESS_COMPONENT = "coherence-headless";
+
+    /**
+     * The operator metrics.
+     */
+    private final OperatorMetrics f_metrics = OperatorMetrics.getInstance();
+
     /**
      * The Core V1 api object to access Kubernetes info.
      */
     private CoreV1Api m_api;
 
+    /**
+     * True if node lookups should request the protobuf wire format.
+     */
+    private volatile boolean m_fProtobuf = ProtobufWatch.isEnabled();
+
     /**
      * The HttpServer to serve the Http request.
      */
     private HttpServer m_httpServer;
+
+    /**
+     * The cached addresses of Endpoints keyed by namespace and name.
+     */
+    private final Map<String, CachedEndpoints> f_mapEndpoints = new ConcurrentHashMap<>();
+
+    /**
+     * The executor handling the requests.
+     */
+    private final ExecutorService f_executor;
+
+    /**
+     * The flight recorder whose recording is dumped from {@code /jfr}.
+     */
+    private volatile OperatorFlightRecorder m_recorder;
+
+    /**
+     * True while a flight recording is being dumped from {@code /jfr}.
+     */
+    private final AtomicBoolean f_fDumping = new AtomicBoolean();
+
+    /**
+     * The namespaces whose Endpoints are returned, empty for all namespaces.
+     */
+    private volatile Set<String> m_setIncludedNamespaces = Collections.emptySet();
+
+    /**
+     * The namespaces whose Endpoints are not returned.
+     */
+    private volatile Set<String> m_setExcludedNamespaces = Collections.emptySet();
     }
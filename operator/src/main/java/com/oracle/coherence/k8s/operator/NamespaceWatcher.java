@@ -6,11 +6,15 @@
 
 package com.oracle.coherence.k8s.operator;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.squareup.okhttp.Call;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.models.V1Namespace;
+import io.kubernetes.client.models.V1NamespaceStatus;
 import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.proto.V1;
 import io.kubernetes.client.util.Watch;
 
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -24,6 +28,7 @@ import java.util.function.Consumer;
  * @author sc
  */
 class NamespaceWatcher extends AbstractWatcher<V1Namespace, CoreV1Api>
+        implements AbstractWatcher.ProtobufSupport<V1Namespace>
     {
     // ----- constructors ----------------------------------------------------
 
@@ -61,4 +66,49 @@ class NamespaceWatcher extends AbstractWatcher<V1Namespace, CoreV1Api>
         {
         return obj.getMetadata();
         }
+
+    // ----- ProtobufSupport interface ---------------------------------------
+
+    @Override
+    public Call createProtobufCall(CallParams callParams) throws ApiException
+        {
+        return ProtobufWatch.createCall(m_api.getApiClient(), PATH, callParams);
+        }
+
+    @Override
+    public V1Namespace fromProtobuf(ByteString raw) throws InvalidProtocolBufferException
+        {
+        return toNamespace(V1.Namespace.parseFrom(raw));
+        }
+
+    // ----- helper methods --------------------------------------------------
+
+    /**
+     * Converts a protobuf namespace to the model used by the operator.
+     *
+     * @param namespace  the protobuf namespace
+     *
+     * @return the model namespace
+     */
+    static V1Namespace toNamespace(V1.Namespace namespace)
+        {
+        V1Namespace result = new V1Namespace()
+                .apiVersion("v1")
+                .kind("Namespace")
+                .metadata(ProtobufWatch.toObjectMeta(namespace.getMetadata()));
+
+        if (namespace.hasStatus())
+            {
+            result.setStatus(new V1NamespaceStatus().phase(namespace.getStatus().getPhase()));
+            }
+
+        return result;
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * The API path of the namespace list.
+     */
+    private static final String PATH = "/api/v1/namespaces";
     }
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A continuous Java Flight Recorder recording of the operator, kept as a ring
+ * buffer bounded by size and age.
+ * <p>
+ * The recent part of the recording can be streamed on demand by
+ * {@link KubernetesInfoServer} and, optionally, snapshots are periodically
+ * written to a directory (by default {@code /logs}).
+ *
+ * @author sc
+ */
+public class OperatorFlightRecorder
+    {
+    // ----- constructors ----------------------------------------------------
+
+    /**
+     * Constructs an OperatorFlightRecorder.
+     *
+     * @param cbMaxSize          the maximum size in bytes of the recording ring buffer
+     * @param maxAge             the maximum age of the data kept in the recording ring buffer
+     * @param sToken             the token required to dump the recording, or null to disable dumps
+     * @param snapshotInterval   the interval between snapshots, or {@link Duration#ZERO} to disable snapshots
+     * @param dirSnapshot        the directory to write snapshots to
+     * @param cSnapshotRetained  the number of snapshots to retain in the snapshot directory
+     */
+    OperatorFlightRecorder(long cbMaxSize, Duration maxAge, String sToken, Duration snapshotInterval,
+                           Path dirSnapshot, int cSnapshotRetained)
+        {
+        f_cbMaxSize         = cbMaxSize;
+        f_maxAge            = maxAge;
+        f_abToken           = sToken == null || sToken.isEmpty() ? null : sToken.getBytes(StandardCharsets.UTF_8);
+        f_snapshotInterval  = snapshotInterval;
+        f_dirSnapshot       = dirSnapshot;
+        f_cSnapshotRetained = cSnapshotRetained;
+        }
+
+    // ----- factory methods -------------------------------------------------
+
+    /**
+     * Create an OperatorFlightRecorder configured from the environment.
+     *
+     * @return an OperatorFlightRecorder or null if flight recording is disabled
+     */
+    static OperatorFlightRecorder fromEnvironment()
+        {
+        if (!Boolean.parseBoolean(Env.get(JFR_ENABLED, "true")))
+            {
+            return null;
+            }
+
+        return new OperatorFlightRecorder(
+                Long.parseLong(Env.get(JFR_MAX_SIZE_MB, "64")) * 1024 * 1024,
+                Duration.ofMinutes(Long.parseLong(Env.get(JFR_MAX_AGE_MINUTES, "60"))),
+                Env.get(JFR_DUMP_TOKEN, null),
+                Duration.ofMinutes(Long.parseLong(Env.get(JFR_SNAPSHOT_INTERVAL_MINUTES, "0"))),
+                Paths.get(Env.get(JFR_SNAPSHOT_DIR, "/logs")),
+                Integer.parseInt(Env.get(JFR_SNAPSHOT_RETAINED, "5")));
+        }
+
+    // ----- methods ---------------------------------------------------------
+
+    /**
+     * Start the recording and, if configured, the periodic snapshots.
+     *
+     * @exception IOException     if the default JFR configuration cannot be read
+     * @exception ParseException  if the default JFR configuration cannot be parsed
+     */
+    public synchronized void start() throws IOException, ParseException
+        {
+        if (m_recording != null)
+            {
+            return;
+            }
+
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("coherence-operator");
+        recording.setToDisk(true);
+        recording.setMaxSize(f_cbMaxSize);
+        recording.setMaxAge(f_maxAge);
+        recording.start();
+
+        m_recording = recording;
+
+        LOGGER.info("Started flight recording: maxSize=" + f_cbMaxSize + " bytes, maxAge=" + f_maxAge);
+
+        if (!f_snapshotInterval.isZero() && !f_snapshotInterval.isNegative())
+            {
+            long cMillis = f_snapshotInterval.toMillis();
+
+            m_executor = Executors.newSingleThreadScheduledExecutor(r ->
+                {
+                Thread thread = new Thread(r, "JfrSnapshot");
+                thread.setDaemon(true);
+                return thread;
+                });
+            m_executor.scheduleAtFixedRate(this::snapshot, cMillis, cMillis, TimeUnit.MILLISECONDS);
+
+            LOGGER.info("Writing flight recording snapshots to " + f_dirSnapshot + " every " + f_snapshotInterval);
+            }
+        }
+
+    /**
+     * Stop the recording and the periodic snapshots.
+     */
+    public synchronized void stop()
+        {
+        if (m_executor != null)
+            {
+            m_executor.shutdownNow();
+            m_executor = null;
+            }
+
+        if (m_recording != null)
+            {
+            m_recording.close();
+            m_recording = null;
+            }
+        }
+
+    /**
+     * Returns true if dumping the recording is enabled.
+     *
+     * @return true if dumping the recording is enabled
+     */
+    boolean isDumpEnabled()
+        {
+        return f_abToken != null;
+        }
+
+    /**
+     * Returns true if the given HTTP Authorization header carries the dump token.
+     *
+     * @param sAuthorization  the value of the Authorization header, may be null
+     *
+     * @return true if the header carries the dump token
+     */
+    boolean isAuthorized(String sAuthorization)
+        {
+        if (f_abToken == null || sAuthorization == null || !sAuthorization.startsWith(BEARER))
+            {
+            return false;
+            }
+
+        byte[] abToken = sAuthorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8);
+
+        return MessageDigest.isEqual(f_abToken, abToken);
+        }
+
+    /**
+     * Write the last part of the recording to the output stream in JFR format.
+     *
+     * @param duration  how far back from now the data should go
+     * @param out       the stream to write to
+     *
+     * @exception IOException  if the recording cannot be written
+     */
+    void writeTo(Duration duration, OutputStream out) throws IOException
+        {
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot())
+            {
+            Instant     ldtEnd = Instant.now();
+            InputStream in     = snapshot.getStream(ldtEnd.minus(duration), ldtEnd);
+
+            if (in != null)
+                {
+                try (InputStream stream = in)
+                    {
+                    stream.transferTo(out);
+                    }
+                }
+            }
+        }
+
+    /**
+     * Write a snapshot of the whole ring buffer to the snapshot directory,
+     * removing the oldest snapshots above the retained count.
+     */
+    void snapshot()
+        {
+        Path path = f_dirSnapshot.resolve(SNAPSHOT_PREFIX + LocalDateTime.now().format(TIMESTAMP) + SNAPSHOT_SUFFIX);
+
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot())
+            {
+            Files.createDirectories(f_dirSnapshot);
+            snapshot.dump(path);
+
+            try (Stream<Path> stream = Files.list(f_dirSnapshot))
+                {
+                Path[] aPath = stream.filter(p -> p.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+                                                && p.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                                     .sorted()
+                                     .toArray(Path[]::new);
+
+                for (int i = 0; i < aPath.length - f_cSnapshotRetained; i++)
+                    {
+                    Files.deleteIfExists(aPath[i]);
+                    }
+                }
+            }
+        catch (Throwable t)
+            {
+            LOGGER.log(Level.WARNING, "Failed to write flight recording snapshot " + path + ": " + t, t);
+            }
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * Class Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger("Operator");
+
+    /**
+     * The environment property name for enabling the flight recording.
+     */
+    static final String JFR_ENABLED = "JFR_ENABLED";
+
+    /**
+     * The environment property name for the maximum size of the recording in MB.
+     */
+    static final String JFR_MAX_SIZE_MB = "JFR_MAX_SIZE_MB";
+
+    /**
+     * The environment property name for the maximum age of the recording in minutes.
+     */
+    static final String JFR_MAX_AGE_MINUTES = "JFR_MAX_AGE_MINUTES";
+
+    /**
+     * The environment property name for the token required to dump the recording.
+     */
+    static final String JFR_DUMP_TOKEN = "JFR_DUMP_TOKEN";
+
+    /**
+     * The environment property name for the snapshot interval in minutes.
+     */
+    static final String JFR_SNAPSHOT_INTERVAL_MINUTES = "JFR_SNAPSHOT_INTERVAL_MINUTES";
+
+    /**
+     * The environment property name for the snapshot directory.
+     */
+    static final String JFR_SNAPSHOT_DIR = "JFR_SNAPSHOT_DIR";
+
+    /**
+     * The environment property name for the number of snapshots to retain.
+     */
+    static final String JFR_SNAPSHOT_RETAINED = "JFR_SNAPSHOT_RETAINED";
+
+    /**
+     * The prefix of the Authorization header value carrying the dump token.
+     */
+    private static final String BEARER = "Bearer ";
+
+    /**
+     * The prefix of snapshot file names.
+     */
+    private static final String SNAPSHOT_PREFIX = "operator-";
+
+    /**
+     * The suffix of snapshot file names.
+     */
+    private static final String SNAPSHOT_SUFFIX = ".jfr";
+
+    /**
+     * The timestamp format of snapshot file names; sorts chronologically.
+     */
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // ----- data members ----------------------------------------------------
+
+    /**
+     * The maximum size in bytes of the recording ring buffer.
+     */
+    private final long f_cbMaxSize;
+
+    /**
+     * The maximum age of the data kept in the recording ring buffer.
+     */
+    private final Duration f_maxAge;
+
+    /**
+     * The token required to dump the recording, null if dumps are disabled.
+     */
+    private final byte[] f_abToken;
+
+    /**
+     * The interval between snapshots.
+     */
+    private final Duration f_snapshotInterval;
+
+    /**
+     * The directory to write snapshots to.
+     */
+    private final Path f_dirSnapshot;
+
+    /**
+     * The number of snapshots to retain.
+     */
+    private final int f_cSnapshotRetained;
+
+    /**
+     * The continuous recording.
+     */
+    private Recording m_recording;
+
+    /**
+     * The executor writing periodic snapshots.
+     */
+    private ScheduledExecutorService m_executor;
+    }
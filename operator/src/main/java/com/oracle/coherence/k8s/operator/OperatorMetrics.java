@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * A simple registry of the metrics of the operator itself, rendered
+ * in the Prometheus text exposition format by {@link KubernetesInfoServer}.
+ * <p>
+ * Metrics are identified by a name and a set of label name/value pairs.
+ * A single shared instance is obtained from {@link #getInstance()}.
+ *
+ * @author sc
+ */
+public class OperatorMetrics
+    {
+    // ----- constructors ----------------------------------------------------
+
+    /**
+     * Constructs an empty OperatorMetrics registry.
+     */
+    OperatorMetrics()
+        {
+        }
+
+    // ----- methods ---------------------------------------------------------
+
+    /**
+     * Returns the shared OperatorMetrics instance.
+     *
+     * @return the shared OperatorMetrics instance
+     */
+    public static OperatorMetrics getInstance()
+        {
+        return INSTANCE;
+        }
+
+    /**
+     * Record a watch event received by a watcher.
+     *
+     * @param sWatcher  the name of the watcher
+     * @param sType     the watch event type, e.g. ADDED
+     */
+    void watchEvent(String sWatcher, String sType)
+        {
+        counter(WATCH_EVENTS, "watcher", sWatcher, "type", sType).increment();
+        }
+
+    /**
+     * Record a watcher (re)establishing its watch.
+     *
+     * @param sWatcher  the name of the watcher
+     */
+    void watchReconnect(String sWatcher)
+        {
+        counter(WATCH_RECONNECTS, "watcher", sWatcher).increment();
+        }
+
+    /**
+     * Record the time taken to reconcile a resource.
+     *
+     * @param sResource  the resource type being reconciled
+     * @param cNanos     the elapsed time in nanoseconds
+     */
+    void reconcile(String sResource, long cNanos)
+        {
+        histogram(RECONCILE_DURATION, "resource", sResource).observe(cNanos);
+
+        if (f_ldtFirstReconcile.get() == 0L && f_ldtFirstReconcile.compareAndSet(0L, System.currentTimeMillis()))
+            {
+            LOGGER.info("First reconcile completed " + getFirstReconcileMillis() + "ms after JVM start");
+            }
+        }
+
+    /**
+     * Returns the time from JVM start until the first reconcile completed.
+     *
+     * @return the time in milliseconds, or -1 if no reconcile has completed yet
+     */
+    long getFirstReconcileMillis()
+        {
+        long ldtFirst = f_ldtFirstReconcile.get();
+
+        return ldtFirst == 0L ? -1L : ldtFirst - ManagementFactory.getRuntimeMXBean().getStartTime();
+        }
+
+    /**
+     * Record the time taken by a Kubernetes API call.
+     *
+     * @param sVerb      the API verb, e.g. get or create
+     * @param sResource  the API resource, e.g. secrets
+     * @param cNanos     the elapsed time in nanoseconds
+     */
+    void apiCall(String sVerb, String sResource, long cNanos)
+        {
+        histogram(API_CALL_DURATION, "verb", sVerb, "resource", sResource).observe(cNanos);
+        }
+
+    /**
+     * Record the result of a zone lookup request.
+     *
+     * @param sResult  the result of the lookup, one of found, not_found or error
+     */
+    void zoneLookup(String sResult)
+        {
+        counter(ZONE_LOOKUPS, "result", sResult).increment();
+        }
+
+    /**
+     * Register a gauge whose value is obtained from the supplier every time the metrics are rendered.
+     *
+     * @param sName      the metric name
+     * @param sHelp      the metric help text
+     * @param supplier   the supplier of the gauge value
+     */
+    void registerGauge(String sName, String sHelp, LongSupplier supplier)
+        {
+        f_mapGauge.put(sName, new Gauge(sHelp, supplier));
+        }
+
+    /**
+     * Renders all of the metrics in the Prometheus text exposition format.
+     *
+     * @return the metrics in the Prometheus text format
+     */
+    String render()
+        {
+        StringBuilder sb = new StringBuilder();
+
+        renderCounter(sb, WATCH_EVENTS, "The number of watch events received by type.");
+        renderCounter(sb, WATCH_RECONNECTS, "The number of times a watch has been (re)established.");
+        renderHistogram(sb, RECONCILE_DURATION, "The time taken to reconcile a resource in seconds.");
+        renderHistogram(sb, API_CALL_DURATION, "The latency of Kubernetes API calls in seconds.");
+        renderCounter(sb, ZONE_LOOKUPS, "The number of zone lookup requests by result.");
+
+        long cMillisFirst = getFirstReconcileMillis();
+        if (cMillisFirst >= 0)
+            {
+            sb.append("# HELP ").append(FIRST_RECONCILE).append(" The time from JVM start until the first reconcile completed in seconds.\n")
+              .append("# TYPE ").append(FIRST_RECONCILE).append(" gauge\n")
+              .append(FIRST_RECONCILE).append(' ').append(cMillisFirst / 1000.0).append('\n');
+            }
+
+        for (Map.Entry<String, Gauge> entry : f_mapGauge.entrySet())
+            {
+            String sName = entry.getKey();
+            Gauge  gauge = entry.getValue();
+
+            sb.append("# HELP ").append(sName).append(' ').append(gauge.f_sHelp).append('\n')
+              .append("# TYPE ").append(sName).append(" gauge\n")
+              .append(sName).append(' ').append(gauge.f_supplier.getAsLong()).append('\n');
+            }
+
+        return sb.toString();
+        }
+
+    // ----- helper methods --------------------------------------------------
+
+    /**
+     * Obtain the counter with the given name and labels, creating it if required.
+     *
+     * @param sName     the metric name
+     * @param asLabels  the label name/value pairs
+     *
+     * @return the counter
+     */
+    private LongAdder counter(String sName, String... asLabels)
+        {
+        return f_mapCounter.computeIfAbsent(sName, k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(labels(asLabels), k -> new LongAdder());
+        }
+
+    /**
+     * Obtain the histogram with the given name and labels, creating it if required.
+     *
+     * @param sName     the metric name
+     * @param asLabels  the label name/value pairs
+     *
+     * @return the histogram
+     */
+    private Histogram histogram(String sName, String... asLabels)
+        {
+        return f_mapHistogram.computeIfAbsent(sName, k -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(labels(asLabels), k -> new Histogram());
+        }
+
+    /**
+     * Render a counter family.
+     *
+     * @param sb     the StringBuilder to render into
+     * @param sName  the metric name
+     * @param sHelp  the metric help text
+     */
+    private void renderCounter(StringBuilder sb, String sName, String sHelp)
+        {
+        sb.append("# HELP ").append(sName).append(' ').append(sHelp).append('\n')
+          .append("# TYPE ").append(sName).append(" counter\n");
+
+        for (Map.Entry<String, LongAdder> entry : f_mapCounter.getOrDefault(sName, EMPTY_COUNTERS).entrySet())
+            {
+            sb.append(sName).append(braces(entry.getKey())).append(' ').append(entry.getValue().sum()).append('\n');
+            }
+        }
+
+    /**
+     * Render a histogram family.
+     *
+     * @param sb     the StringBuilder to render into
+     * @param sName  the metric name
+     * @param sHelp  the metric help text
+     */
+    private void renderHistogram(StringBuilder sb, String sName, String sHelp)
+        {
+        sb.append("# HELP ").append(sName).append(' ').append(sHelp).append('\n')
+          .append("# TYPE ").append(sName).append(" histogram\n");
+
+        for (Map.Entry<String, Histogram> entry : f_mapHistogram.getOrDefault(sName, EMPTY_HISTOGRAMS).entrySet())
+            {
+            String    sLabels    = entry.getKey();
+            String    sSeparator = sLabels.isEmpty() ? "" : ",";
+            Histogram histogram  = entry.getValue();
+            long      cTotal     = 0;
+
+            for (int i = 0; i < BUCKETS.length; i++)
+                {
+                cTotal += histogram.f_acBucket[i].sum();
+                sb.append(sName).append("_bucket{").append(sLabels).append(sSeparator)
+                  .append("le=\"").append(BUCKETS[i]).append("\"} ").append(cTotal).append('\n');
+                }
+
+            long cCount = histogram.f_cCount.sum();
+
+            sb.append(sName).append("_bucket{").append(sLabels).append(sSeparator)
+              .append("le=\"+Inf\"} ").append(cCount).append('\n')
+              .append(sName).append("_sum").append(braces(sLabels)).append(' ').append(histogram.f_dSum.sum()).append('\n')
+              .append(sName).append("_count").append(braces(sLabels)).append(' ').append(cCount).append('\n');
+            }
+        }
+
+    /**
+     * Convert label name/value pairs into the Prometheus label format without braces.
+     *
+     * @param asLabels  the label name/value pairs
+     *
+     * @return the formatted labels
+     */
+    private static String labels(String... asLabels)
+        {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i + 1 < asLabels.length; i += 2)
+            {
+            if (sb.length() > 0)
+                {
+                sb.append(',');
+                }
+
+            String sValue = asLabels[i + 1] == null ? "" : asLabels[i + 1];
+
+            sb.append(asLabels[i]).append("=\"")
+              .append(sValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+              .append('"');
+            }
+
+        return sb.toString();
+        }
+
+    /**
+     * Wrap formatted labels in braces unless there are no labels.
+     *
+     * @param sLabels  the formatted labels
+     *
+     * @return the labels wrapped in braces or an empty String
+     */
+    private static String braces(String sLabels)
+        {
+        return sLabels.isEmpty() ? "" : "{" + sLabels + "}";
+        }
+
+    // ----- inner class: Histogram ------------------------------------------
+
+    /**
+     * A histogram with the fixed {@link #BUCKETS} upper bounds.
+     */
+    private static class Histogram
+        {
+        /**
+         * Record an observation.
+         *
+         * @param cNanos  the observed duration in nanoseconds
+         */
+        void observe(long cNanos)
+            {
+            double dSeconds = cNanos / NANOS_PER_SECOND;
+
+            for (int i = 0; i < BUCKETS.length; i++)
+                {
+                if (dSeconds <= BUCKETS[i])
+                    {
+                    f_acBucket[i].increment();
+                    break;
+                    }
+                }
+
+            f_cCount.increment();
+            f_dSum.add(dSeconds);
+            }
+
+        /**
+         * The non-cumulative count of observations in each bucket.
+         */
+        final LongAdder[] f_acBucket = createBuckets();
+
+        /**
+         * The total count of observations.
+         */
+        final LongAdder f_cCount = new LongAdder();
+
+        /**
+         * The sum of all observations in seconds.
+         */
+        final DoubleAdder f_dSum = new DoubleAdder();
+        }
+
+    /**
+     * Create a set of histogram buckets.
+     *
+     * @return an array of counters with one counter per bucket
+     */
+    private static LongAdder[] createBuckets()
+        {
+        LongAdder[] acBucket = new LongAdder[BUCKETS.length];
+
+        for (int i = 0; i < acBucket.length; i++)
+            {
+            acBucket[i] = new LongAdder();
+            }
+
+        return acBucket;
+        }
+
+    // ----- inner class: Gauge ----------------------------------------------
+
+    /**
+     * A gauge whose value is obtained from a supplier.
+     */
+    private static class Gauge
+        {
+        /**
+         * Constructs a Gauge.
+         *
+         * @param sHelp     the help text
+         * @param supplier  the supplier of the gauge value
+         */
+        Gauge(String sHelp, LongSupplier supplier)
+            {
+            f_sHelp    = sHelp;
+            f_supplier = supplier;
+            }
+
+        /**
+         * The help text.
+         */
+        final String f_sHelp;
+
+        /**
+         * The supplier of the gauge value.
+         */
+        final LongSupplier f_supplier;
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * Class Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger("Operator");
+
+    /**
+     * The name of the watch events counter.
+     */
+    static final String WATCH_EVENTS = "operator_watch_events_total";
+
+    /**
+     * The name of the watch reconnects counter.
+     */
+    static final String WATCH_RECONNECTS = "operator_watch_reconnects_total";
+
+    /**
+     * The name of the reconcile latency histogram.
+     */
+    static final String RECONCILE_DURATION = "operator_reconcile_duration_seconds";
+
+    /**
+     * The name of the API call latency histogram.
+     */
+    static final String API_CALL_DURATION = "operator_api_call_duration_seconds";
+
+    /**
+     * The name of the time to first reconcile gauge.
+     */
+    static final String FIRST_RECONCILE = "operator_first_reconcile_seconds";
+
+    /**
+     * The name of the zone lookup counter.
+     */
+    static final String ZONE_LOOKUPS = "operator_zone_lookups_total";
+
+    /**
+     * The histogram bucket upper bounds in seconds.
+     */
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0};
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * An empty counter family.
+     */
+    private static final Map<String, LongAdder> EMPTY_COUNTERS = new ConcurrentSkipListMap<>();
+
+    /**
+     * An empty histogram family.
+     */
+    private static final Map<String, Histogram> EMPTY_HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    /**
+     * The shared OperatorMetrics instance.
+     */
+    private static final OperatorMetrics INSTANCE = new OperatorMetrics();
+
+    // ----- data members ----------------------------------------------------
+
+    /**
+     * The counters keyed by metric name and then by formatted labels.
+     */
+    private final Map<String, Map<String, LongAdder>> f_mapCounter = new ConcurrentHashMap<>();
+
+    /**
+     * The histograms keyed by metric name and then by formatted labels.
+     */
+    private final Map<String, Map<String, Histogram>> f_mapHistogram = new ConcurrentHashMap<>();
+
+    /**
+     * The wall clock time the first reconcile completed, or zero if none has completed.
+     */
+    private final AtomicLong f_ldtFirstReconcile = new AtomicLong();
+
+    /**
+     * The gauges keyed by metric name.
+     */
+    private final Map<String, Gauge> f_mapGauge = new ConcurrentSkipListMap<>();
+    }
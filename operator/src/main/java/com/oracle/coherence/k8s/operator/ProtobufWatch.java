@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.Pair;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Status;
+import io.kubernetes.client.proto.Meta;
+import io.kubernetes.client.proto.Runtime;
+import io.kubernetes.client.util.Watch;
+import okio.BufferedSource;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A watch that requests the Kubernetes protobuf wire format, falling back
+ * to JSON when the server does not support protobuf for the resource.
+ * <p>
+ * Protobuf watch events are length-prefixed {@code WatchEvent} frames whose
+ * object is wrapped in the {@code Unknown} envelope; the raw object bytes
+ * are handed to a {@link Decoder} which converts them to the model type
+ * used by the rest of the operator.
+ *
+ * @param <T>  the type of the watched object
+ *
+ * @author sc
+ */
+class ProtobufWatch<T>
+        implements Iterable<Watch.Response<T>>, Iterator<Watch.Response<T>>, Closeable
+    {
+    // ----- constructors ----------------------------------------------------
+
+    /**
+     * Constructs a ProtobufWatch over an open response body.
+     *
+     * @param client     the client whose JSON serializer is used for JSON responses
+     * @param body       the response body
+     * @param watchType  the type of Watch.Response&lt;T&gt; for JSON responses
+     * @param decoder    the decoder of raw protobuf objects
+     * @param fProtobuf  true if the response is in protobuf
+     */
+    private ProtobufWatch(ApiClient client, ResponseBody body, Type watchType, Decoder<T> decoder, boolean fProtobuf)
+            throws IOException
+        {
+        f_client    = client;
+        f_body      = body;
+        f_source    = body.source();
+        f_watchType = watchType;
+        f_decoder   = decoder;
+        f_fProtobuf = fProtobuf;
+        }
+
+    // ----- factory methods -------------------------------------------------
+
+    /**
+     * Returns true if the protobuf wire format has been enabled.
+     *
+     * @return true if the protobuf wire format has been enabled
+     */
+    static boolean isEnabled()
+        {
+        return PROTOBUF.equalsIgnoreCase(Env.get(K8S_WIRE_FORMAT, JSON));
+        }
+
+    /**
+     * Create a watch call for the resource list at the given path that
+     * prefers protobuf and accepts JSON.
+     *
+     * @param client      the client to create the call with
+     * @param sPath       the API path of the resource list, e.g. /api/v1/namespaces
+     * @param callParams  the call parameters
+     *
+     * @return the watch call
+     *
+     * @exception ApiException  if the call cannot be created
+     */
+    static Call createCall(ApiClient client, String sPath, CallParams callParams) throws ApiException
+        {
+        List<Pair> listQuery = new ArrayList<>();
+
+        addQuery(client, listQuery, "fieldSelector", callParams.getFieldSelector());
+        addQuery(client, listQuery, "labelSelector", callParams.getLabelSelector());
+        addQuery(client, listQuery, "resourceVersion", callParams.getResourceVersion());
+        addQuery(client, listQuery, "timeoutSeconds", callParams.getTimeoutSeconds());
+        addQuery(client, listQuery, "watch", Boolean.TRUE);
+
+        Map<String, String> mapHeader = new HashMap<>();
+        mapHeader.put("Accept", MEDIA_TYPE_PROTOBUF + ";stream=watch, " + MEDIA_TYPE_JSON);
+
+        return client.buildCall(sPath, "GET", listQuery, new ArrayList<>(), null, mapHeader, new HashMap<>(),
+                AUTH_NAMES, null);
+        }
+
+    /**
+     * Execute the watch call and return a watch over its events.
+     *
+     * @param client     the client whose JSON serializer is used for JSON responses
+     * @param call       the watch call
+     * @param watchType  the type of Watch.Response&lt;T&gt; for JSON responses
+     * @param decoder    the decoder of raw protobuf objects
+     * @param <T>        the type of the watched object
+     *
+     * @return the watch
+     *
+     * @exception ApiException  if the call fails
+     */
+    static <T> ProtobufWatch<T> createWatch(ApiClient client, Call call, Type watchType, Decoder<T> decoder)
+            throws ApiException
+        {
+        try
+            {
+            Response response = call.execute();
+
+            if (!response.isSuccessful())
+                {
+                String sBody = response.body() == null ? null : response.body().string();
+                throw new ApiException(response.message(), response.code(), response.headers().toMultimap(), sBody);
+                }
+
+            String sContentType = response.header("Content-Type", "");
+
+            return new ProtobufWatch<>(client, response.body(), watchType, decoder,
+                                       sContentType.startsWith(MEDIA_TYPE_PROTOBUF));
+            }
+        catch (IOException e)
+            {
+            throw new ApiException(e);
+            }
+        }
+
+    // ----- ProtobufWatch methods -------------------------------------------
+
+    /**
+     * Returns true if the server responded in protobuf, false if it fell back to JSON.
+     *
+     * @return true if the server responded in protobuf
+     */
+    boolean isProtobuf()
+        {
+        return f_fProtobuf;
+        }
+
+    // ----- Iterable/Iterator interface -------------------------------------
+
+    @Override
+    public Iterator<Watch.Response<T>> iterator()
+        {
+        return this;
+        }
+
+    @Override
+    public boolean hasNext()
+        {
+        try
+            {
+            return !f_source.exhausted();
+            }
+        catch (IOException e)
+            {
+            throw new RuntimeException(e);
+            }
+        }
+
+    @Override
+    public Watch.Response<T> next()
+        {
+        try
+            {
+            if (!f_fProtobuf)
+                {
+                String sLine = f_source.readUtf8Line();
+                if (sLine == null)
+                    {
+                    throw new NoSuchElementException();
+                    }
+                return f_client.getJSON().deserialize(sLine, f_watchType);
+                }
+
+            int cb = f_source.readInt();
+
+            // a corrupt length must fail the watch rather than allocate an arbitrary array
+            if (cb < 0 || cb > MAX_FRAME_SIZE)
+                {
+                throw new IOException("Invalid protobuf watch event length " + cb);
+                }
+
+            Meta.WatchEvent event   = Meta.WatchEvent.parseFrom(f_source.readByteArray(cb));
+            Runtime.Unknown unknown = unwrap(event.getObject().getRaw());
+
+            if (STATUS.equals(unknown.getTypeMeta().getKind()))
+                {
+                Meta.Status status = Meta.Status.parseFrom(unknown.getRaw());
+
+                return newResponse(RESPONSE_STATUS, event.getType(), new V1Status().status(status.getStatus())
+                        .message(status.getMessage()).reason(status.getReason()).code(status.getCode()));
+                }
+
+            return newResponse(RESPONSE_OBJECT, event.getType(), f_decoder.decode(unknown.getRaw()));
+            }
+        catch (EOFException e)
+            {
+            throw new NoSuchElementException();
+            }
+        catch (IOException e)
+            {
+            throw new RuntimeException(e);
+            }
+        }
+
+    @Override
+    public void close() throws IOException
+        {
+        f_body.close();
+        }
+
+    // ----- helper methods --------------------------------------------------
+
+    /**
+     * Unwrap the {@code Unknown} envelope of a serialized protobuf object.
+     *
+     * @param raw  the serialized object including the protobuf magic prefix
+     *
+     * @return the envelope
+     *
+     * @exception InvalidProtocolBufferException  if the bytes are not a protobuf envelope
+     */
+    static Runtime.Unknown unwrap(ByteString raw) throws InvalidProtocolBufferException
+        {
+        if (!raw.startsWith(MAGIC))
+            {
+            throw new InvalidProtocolBufferException("Missing protobuf magic prefix");
+            }
+
+        return Runtime.Unknown.parseFrom(raw.substring(MAGIC.size()));
+        }
+
+    /**
+     * Create a watch response with one of its package-private constructors.
+     *
+     * @param constructor  the constructor taking the event type and the object or status
+     * @param sType        the event type
+     * @param oValue       the object or status of the event
+     * @param <T>          the type of the watched object
+     *
+     * @return the watch response
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Watch.Response<T> newResponse(Constructor<?> constructor, String sType, Object oValue)
+        {
+        try
+            {
+            return (Watch.Response<T>) constructor.newInstance(sType, oValue);
+            }
+        catch (ReflectiveOperationException e)
+            {
+            throw new IllegalStateException("Cannot create watch response", e);
+            }
+        }
+
+    /**
+     * Look up a constructor of {@link Watch.Response}, which are package-private.
+     *
+     * @param clzValue  the type of the second constructor parameter
+     *
+     * @return the accessible constructor
+     */
+    private static Constructor<?> getResponseConstructor(Class<?> clzValue)
+        {
+        try
+            {
+            Constructor<?> constructor = Watch.Response.class.getDeclaredConstructor(String.class, clzValue);
+
+            constructor.setAccessible(true);
+
+            return constructor;
+            }
+        catch (NoSuchMethodException e)
+            {
+            throw new ExceptionInInitializerError(e);
+            }
+        }
+
+    /**
+     * Convert protobuf object metadata to the model used by the operator.
+     *
+     * @param meta  the protobuf metadata
+     *
+     * @return the model metadata
+     */
+    static V1ObjectMeta toObjectMeta(Meta.ObjectMeta meta)
+        {
+        V1ObjectMeta metadata = new V1ObjectMeta()
+                .name(meta.getName())
+                .resourceVersion(meta.getResourceVersion())
+                .uid(meta.getUid());
+
+        if (meta.hasNamespace())
+            {
+            metadata.setNamespace(meta.getNamespace());
+            }
+        if (meta.getLabelsCount() > 0)
+            {
+            metadata.setLabels(new HashMap<>(meta.getLabelsMap()));
+            }
+        if (meta.getAnnotationsCount() > 0)
+            {
+            metadata.setAnnotations(new HashMap<>(meta.getAnnotationsMap()));
+            }
+
+        return metadata;
+        }
+
+    /**
+     * Add a query parameter if its value is not null.
+     *
+     * @param client     the client
+     * @param listQuery  the query parameters
+     * @param sName      the parameter name
+     * @param oValue     the parameter value
+     */
+    private static void addQuery(ApiClient client, List<Pair> listQuery, String sName, Object oValue)
+        {
+        if (oValue != null)
+            {
+            listQuery.addAll(client.parameterToPair(sName, oValue));
+            }
+        }
+
+    // ----- inner interface: Decoder ----------------------------------------
+
+    /**
+     * Decodes a raw protobuf object into the model type.
+     *
+     * @param <T>  the model type
+     */
+    @FunctionalInterface
+    interface Decoder<T>
+        {
+        /**
+         * Decode the raw protobuf object.
+         *
+         * @param raw  the raw object, without the envelope
+         *
+         * @return the model object
+         *
+         * @exception InvalidProtocolBufferException  if the bytes cannot be decoded
+         */
+        T decode(ByteString raw) throws InvalidProtocolBufferException;
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * The environment property name for the Kubernetes API wire format.
+     */
+    static final String K8S_WIRE_FORMAT = "K8S_WIRE_FORMAT";
+
+    /**
+     * The protobuf wire format.
+     */
+    static final String PROTOBUF = "protobuf";
+
+    /**
+     * The JSON wire format.
+     */
+    static final String JSON = "json";
+
+    /**
+     * The protobuf media type.
+     */
+    static final String MEDIA_TYPE_PROTOBUF = "application/vnd.kubernetes.protobuf";
+
+    /**
+     * The JSON media type.
+     */
+    static final String MEDIA_TYPE_JSON = "application/json";
+
+    /**
+     * The prefix of every serialized protobuf object.
+     */
+    static final ByteString MAGIC = ByteString.copyFrom(new byte[] { 0x6b, 0x38, 0x73, 0x00 });
+
+    /**
+     * The largest protobuf watch event accepted, well above the largest
+     * object the API server stores.
+     */
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The constructor of a watch response carrying an object.
+     */
+    private static final Constructor<?> RESPONSE_OBJECT = getResponseConstructor(Object.class);
+
+    /**
+     * The constructor of a watch response carrying a status.
+     */
+    private static final Constructor<?> RESPONSE_STATUS = getResponseConstructor(V1Status.class);
+
+    /**
+     * The kind of status objects.
+     */
+    private static final String STATUS = "Status";
+
+    /**
+     * The authentication names used by the generated API calls.
+     */
+    private static final String[] AUTH_NAMES = new String[] { "BearerToken" };
+
+    // ----- data members ----------------------------------------------------
+
+    /**
+     * The client whose JSON serializer is used.
+     */
+    private final ApiClient f_client;
+
+    /**
+     * The response body.
+     */
+    private final ResponseBody f_body;
+
+    /**
+     * The source of the response body.
+     */
+    private final BufferedSource f_source;
+
+    /**
+     * The type of Watch.Response&lt;T&gt;.
+     */
+    private final Type f_watchType;
+
+    /**
+     * The decoder of raw protobuf objects.
+     */
+    private final Decoder<T> f_decoder;
+
+    /**
+     * True if the response is in protobuf.
+     */
+    private final boolean f_fProtobuf;
+    }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.Configuration;
+import io.kubernetes.client.util.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * A training run of the operator against a {@link FakeKubernetesServer}, used
+ * when the image is built to record the classes loaded by the operator so that
+ * they can be stored in an AppCDS archive.
+ * <p>
+ * The training run is packaged in the operator test jar, which is only on the
+ * class path of the image build stage that creates the archive.
+ * <p>
+ * The run goes through the same code paths as a real start: the namespace
+ * watch, the secret get/create/replace reconcile, a watch reconnect and the
+ * {@link KubernetesInfoServer} zone and metrics endpoints.
+ * <p>
+ * Usage: {@code CdsTraining [namespace-count]}
+ *
+ * @author sc
+ */
+public class CdsTraining
+    {
+    /**
+     * Entry point of the training run.
+     *
+     * @param args  optionally, the number of namespaces to reconcile
+     *
+     * @exception Exception  if the training run fails
+     */
+    public static void main(String[] args) throws Exception
+        {
+        int                  cNamespaces = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NAMESPACES;
+        FakeKubernetesServer server      = new FakeKubernetesServer(0);
+        AtomicBoolean        fStop       = new AtomicBoolean();
+        KubernetesInfoServer infoServer  = null;
+
+        try
+            {
+            server.start();
+            server.addNode("node-1", "zone-1");
+            for (int i = 0; i < cNamespaces; i++)
+                {
+                server.addNamespace("training-" + i);
+                }
+
+            ApiClient client = Config.fromUrl(server.getUrl(), false);
+            Configuration.setDefaultApiClient(client);
+
+            infoServer = new KubernetesInfoServer(0);
+            infoServer.start();
+
+            new NamespaceWatcher(fStop, new CoherenceOperator.NamespaceProcessor("coherence-operator",
+                    new String[] { null }, EXCLUDED_NAMESPACES)).start(DAEMON_THREAD_FACTORY);
+
+            // initial reconcile creates a secret in every namespace
+            await(() -> server.getSecretCount() >= cNamespaces);
+
+            // a reconnecting watch followed by new and re-added namespaces exercises
+            // the resume and secret replace paths
+            server.disconnectWatches();
+            for (int i = 0; i < 10; i++)
+                {
+                server.addNamespace("training-" + i);
+                server.addNamespace("training-extra-" + i);
+                }
+            await(() -> server.getRequestCount("PUT", "secrets") >= 10
+                        && server.getSecretCount() >= cNamespaces + 10);
+
+            get(infoServer.getPort(), "/zone/node-1");
+            get(infoServer.getPort(), "/zone/no-such-node");
+            get(infoServer.getPort(), "/metrics");
+
+            LOGGER.info("Training run reconciled " + server.getSecretCount() + " namespaces with "
+                    + server.getRequestCount() + " API requests; time to first reconcile "
+                    + OperatorMetrics.getInstance().getFirstReconcileMillis() + "ms");
+            }
+        finally
+            {
+            fStop.set(true);
+            if (infoServer != null)
+                {
+                infoServer.stop(0);
+                }
+            server.stop();
+            }
+
+        // OkHttp dispatcher threads are not daemon threads
+        System.exit(0);
+        }
+
+    // ----- helper methods --------------------------------------------------
+
+    /**
+     * Wait for the condition to become true.
+     *
+     * @param condition  the condition
+     *
+     * @exception Exception  if the condition is not true within {@link #TIMEOUT_MILLIS}
+     */
+    private static void await(BooleanSupplier condition) throws Exception
+        {
+        long ldtTimeout = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!condition.getAsBoolean())
+            {
+            if (System.currentTimeMillis() > ldtTimeout)
+                {
+                throw new TimeoutException("Training run did not complete within " + TIMEOUT_MILLIS + "ms");
+                }
+            TimeUnit.MILLISECONDS.sleep(10);
+            }
+        }
+
+    /**
+     * Perform a GET request against the info server, discarding the response.
+     *
+     * @param nPort  the info server port
+     * @param sPath  the request path
+     *
+     * @exception IOException  if the request fails
+     */
+    private static void get(int nPort, String sPath) throws IOException
+        {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + nPort + sPath).openConnection();
+        int               nStatus    = connection.getResponseCode();
+
+        try (InputStream in = nStatus < 400 ? connection.getInputStream() : connection.getErrorStream())
+            {
+            if (in != null)
+                {
+                in.readAllBytes();
+                }
+            }
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * The namespaces excluded by the operator by default.
+     */
+    private static final String[] EXCLUDED_NAMESPACES = new String[] {"docker", "kube-public", "kube-system"};
+
+    /**
+     * ThreadFactory with daemon threads.
+     */
+    private static final ThreadFactory DAEMON_THREAD_FACTORY = (r) ->
+        {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        return t;
+        };
+
+    /**
+     * The default number of namespaces to reconcile.
+     */
+    private static final int DEFAULT_NAMESPACES = 200;
+
+    /**
+     * The maximum time to wait for each phase of the training run.
+     */
+    private static final long TIMEOUT_MILLIS = 120_000L;
+
+    /**
+     * Class Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger("Operator");
+    }
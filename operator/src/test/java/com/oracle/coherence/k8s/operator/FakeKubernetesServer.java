@@ -0,0 +1,863 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.kubernetes.client.JSON;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1Namespace;
+import io.kubernetes.client.models.V1NamespaceList;
+import io.kubernetes.client.models.V1Node;
+import io.kubernetes.client.models.V1NodeList;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Secret;
+import io.kubernetes.client.models.V1Status;
+import io.kubernetes.client.proto.Meta;
+import io.kubernetes.client.proto.Runtime;
+import io.kubernetes.client.proto.V1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * A minimal in-process fake of the Kubernetes API server that serves the
+ * resources the operator uses: namespace LIST and WATCH, secrets and nodes.
+ * Namespace and node reads are served in the protobuf wire format to clients
+ * that accept it, unless protobuf support has been disabled.
+ * <p>
+ * It is used to train the operator's class data sharing archive when the
+ * image is built and to drive the operator in load tests, so it has no
+ * dependencies beyond those of the operator itself.
+ *
+ * @author sc
+ */
+public class FakeKubernetesServer
+    {
+    // ----- constructors ----------------------------------------------------
+
+    /**
+     * Constructs a FakeKubernetesServer.
+     *
+     * @param nPort  the port to listen on, or 0 for an ephemeral port
+     *
+     * @exception IOException  if the port cannot be bound
+     */
+    public FakeKubernetesServer(int nPort) throws IOException
+        {
+        // the JDK HTTP server writes headers and body separately; without TCP_NODELAY
+        // each small response can stall for a delayed ACK, dominating request latency
+        if (System.getProperty(NODELAY_PROPERTY) == null)
+            {
+            System.setProperty(NODELAY_PROPERTY, "true");
+            }
+
+        f_executor   = Executors.newCachedThreadPool(r ->
+            {
+            Thread thread = new Thread(r, "FakeKubernetesServer");
+            thread.setDaemon(true);
+            return thread;
+            });
+        f_httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", nPort), 0);
+        f_httpServer.setExecutor(f_executor);
+        f_httpServer.createContext("/api/v1/").setHandler(this::handle);
+        }
+
+    // ----- methods ---------------------------------------------------------
+
+    /**
+     * Start the server.
+     */
+    public void start()
+        {
+        f_httpServer.start();
+        }
+
+    /**
+     * Stop the server, ending all open watches.
+     */
+    public void stop()
+        {
+        synchronized (f_listEvent)
+            {
+            m_fStopped = true;
+            f_listEvent.notifyAll();
+            }
+
+        f_httpServer.stop(0);
+        f_executor.shutdownNow();
+        }
+
+    /**
+     * Returns the base URL of the server.
+     *
+     * @return the base URL of the server
+     */
+    public String getUrl()
+        {
+        return "http://127.0.0.1:" + f_httpServer.getAddress().getPort();
+        }
+
+    /**
+     * Add a namespace, notifying open watches with an ADDED event.
+     *
+     * @param sName  the namespace name
+     */
+    public void addNamespace(String sName)
+        {
+        synchronized (f_listEvent)
+            {
+            V1Namespace namespace = new V1Namespace()
+                    .metadata(new V1ObjectMeta().name(sName).resourceVersion(String.valueOf(f_listEvent.size() + 1)));
+
+            f_mapNamespace.put(sName, namespace);
+            addEvent("ADDED", namespace);
+            }
+        }
+
+    /**
+     * Delete a namespace and its secrets, notifying open watches with a DELETED event.
+     *
+     * @param sName  the namespace name
+     */
+    public void deleteNamespace(String sName)
+        {
+        synchronized (f_listEvent)
+            {
+            V1Namespace namespace = f_mapNamespace.remove(sName);
+
+            if (namespace != null)
+                {
+                namespace.getMetadata().setResourceVersion(String.valueOf(f_listEvent.size() + 1));
+                f_mapSecret.keySet().removeIf(sKey -> sKey.startsWith(sName + "/"));
+                addEvent("DELETED", namespace);
+                }
+            }
+        }
+
+    /**
+     * Add a node with the given zone label.
+     *
+     * @param sName  the node name
+     * @param sZone  the zone of the node
+     */
+    public void addNode(String sName, String sZone)
+        {
+        f_mapNode.put(sName, new V1Node().metadata(new V1ObjectMeta().name(sName)
+                .putLabelsItem("failure-domain.beta.kubernetes.io/zone", sZone)));
+        }
+
+    /**
+     * Set the listener notified with the namespace and name of every secret created or replaced.
+     *
+     * @param listener  the listener, or null for none
+     */
+    public void setSecretListener(BiConsumer<String, String> listener)
+        {
+        m_secretListener = listener;
+        }
+
+    /**
+     * Set whether namespace and node reads are served in protobuf to clients
+     * that accept it; when disabled the server answers JSON, as a real server
+     * does for resources without protobuf support.
+     *
+     * @param fSupported  true if protobuf is supported
+     */
+    public void setProtobufSupported(boolean fSupported)
+        {
+        m_fProtobufSupported = fSupported;
+        }
+
+    /**
+     * Close all open watches; clients are expected to re-establish them.
+     */
+    public void disconnectWatches()
+        {
+        synchronized (f_listEvent)
+            {
+            m_nWatchGeneration++;
+            f_listEvent.notifyAll();
+            }
+        }
+
+    /**
+     * Returns the number of secrets stored.
+     *
+     * @return the number of secrets stored
+     */
+    public int getSecretCount()
+        {
+        return f_mapSecret.size();
+        }
+
+    /**
+     * Returns true if the given secret exists.
+     *
+     * @param sNamespace  the namespace of the secret
+     * @param sName       the name of the secret
+     *
+     * @return true if the given secret exists
+     */
+    public boolean hasSecret(String sNamespace, String sName)
+        {
+        return f_mapSecret.containsKey(sNamespace + "/" + sName);
+        }
+
+    /**
+     * Returns the number of requests received for the verb and resource.
+     *
+     * @param sVerb      the verb, one of GET, LIST, WATCH, POST or PUT
+     * @param sResource  the resource, e.g. namespaces
+     *
+     * @return the number of requests received
+     */
+    public long getRequestCount(String sVerb, String sResource)
+        {
+        LongAdder count = f_mapRequestCount.get(sVerb + " " + sResource);
+
+        return count == null ? 0L : count.sum();
+        }
+
+    /**
+     * Returns the total number of requests received.
+     *
+     * @return the total number of requests received
+     */
+    public long getRequestCount()
+        {
+        return f_mapRequestCount.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+    // ----- helper methods --------------------------------------------------
+
+    /**
+     * Append a watch event for the namespace to the event log.
+     * Must be called holding the event log monitor.
+     *
+     * @param sType      the event type
+     * @param namespace  the namespace
+     */
+    private void addEvent(String sType, V1Namespace namespace)
+        {
+        f_listEvent.add(new Event(sType, namespace));
+        f_listEvent.notifyAll();
+        }
+
+    /**
+     * Returns true if the request accepts the protobuf wire format and the
+     * server supports it.
+     *
+     * @param exchange  the HTTP exchange
+     *
+     * @return true if the response should be in protobuf
+     */
+    private boolean isProtobuf(HttpExchange exchange)
+        {
+        String sAccept = exchange.getRequestHeaders().getFirst("Accept");
+
+        return m_fProtobufSupported && sAccept != null && sAccept.contains(MEDIA_TYPE_PROTOBUF);
+        }
+
+    /**
+     * Handle a request.
+     *
+     * @param exchange  the HTTP exchange
+     *
+     * @exception IOException  if the response cannot be written
+     */
+    private void handle(HttpExchange exchange) throws IOException
+        {
+        try
+            {
+            String              sMethod  = exchange.getRequestMethod();
+            String[]            asPath   = exchange.getRequestURI().getPath().substring(PREFIX.length()).split("/");
+            Map<String, String> mapQuery = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if (asPath.length == 1 && "namespaces".equals(asPath[0]) && "GET".equals(sMethod))
+                {
+                if (Boolean.parseBoolean(mapQuery.get("watch")))
+                    {
+                    count("WATCH", "namespaces");
+                    watchNamespaces(exchange, mapQuery.get("resourceVersion"), isProtobuf(exchange));
+                    }
+                else
+                    {
+                    count("LIST", "namespaces");
+                    if (isProtobuf(exchange))
+                        {
+                        send(exchange, 200, listNamespacesProtobuf());
+                        }
+                    else
+                        {
+                        send(exchange, 200, listNamespaces());
+                        }
+                    }
+                }
+            else if (asPath.length == 3 && "namespaces".equals(asPath[0]) && "secrets".equals(asPath[2])
+                     && "POST".equals(sMethod))
+                {
+                count("POST", "secrets");
+
+                V1Secret secret = f_json.deserialize(readBody(exchange), V1Secret.class);
+                f_mapSecret.put(asPath[1] + "/" + secret.getMetadata().getName(), secret);
+                notifySecret(asPath[1], secret.getMetadata().getName());
+                send(exchange, 201, f_json.serialize(secret));
+                }
+            else if (asPath.length == 4 && "namespaces".equals(asPath[0]) && "secrets".equals(asPath[2]))
+                {
+                String sKey = asPath[1] + "/" + asPath[3];
+
+                if ("GET".equals(sMethod))
+                    {
+                    count("GET", "secrets");
+
+                    V1Secret secret = f_mapSecret.get(sKey);
+                    send(exchange, secret == null ? 404 : 200,
+                         secret == null ? notFound("secrets", asPath[3]) : f_json.serialize(secret));
+                    }
+                else if ("PUT".equals(sMethod))
+                    {
+                    count("PUT", "secrets");
+
+                    V1Secret secret = f_json.deserialize(readBody(exchange), V1Secret.class);
+                    f_mapSecret.put(sKey, secret);
+                    notifySecret(asPath[1], asPath[3]);
+                    send(exchange, 200, f_json.serialize(secret));
+                    }
+                else
+                    {
+                    send(exchange, 405, "");
+                    }
+                }
+            else if (asPath.length == 1 && "nodes".equals(asPath[0]) && "GET".equals(sMethod))
+                {
+                count("LIST", "nodes");
+                send(exchange, 200, f_json.serialize(new V1NodeList().items(new ArrayList<>(f_mapNode.values()))
+                        .metadata(new V1ListMeta())));
+                }
+            else if (asPath.length == 2 && "nodes".equals(asPath[0]) && "GET".equals(sMethod))
+                {
+                count("GET", "nodes");
+
+                V1Node node = f_mapNode.get(asPath[1]);
+                if (isProtobuf(exchange))
+                    {
+                    send(exchange, node == null ? 404 : 200,
+                         node == null ? notFoundProtobuf("nodes", asPath[1]) : toEnvelope("Node", toProtobuf(node)));
+                    }
+                else
+                    {
+                    send(exchange, node == null ? 404 : 200,
+                         node == null ? notFound("nodes", asPath[1]) : f_json.serialize(node));
+                    }
+                }
+            else
+                {
+                send(exchange, 404, notFound("", exchange.getRequestURI().getPath()));
+                }
+            }
+        finally
+            {
+            exchange.close();
+            }
+        }
+
+    /**
+     * Stream namespace watch events to the client until the watch is
+     * disconnected or the server is stopped.
+     *
+     * @param exchange          the HTTP exchange
+     * @param sResourceVersion  the resource version to watch from, or null for the current state
+     * @param fProtobuf         true to stream the events in protobuf
+     *
+     * @exception IOException  if the events cannot be written
+     */
+    private void watchNamespaces(HttpExchange exchange, String sResourceVersion, boolean fProtobuf)
+            throws IOException
+        {
+        List<Event>  listInitial = new ArrayList<>();
+        int          nGeneration;
+        int          nNext;
+
+        synchronized (f_listEvent)
+            {
+            nGeneration = m_nWatchGeneration;
+
+            if (sResourceVersion == null || sResourceVersion.isEmpty())
+                {
+                // no resource version means the current state followed by changes
+                for (V1Namespace namespace : f_mapNamespace.values())
+                    {
+                    listInitial.add(new Event("ADDED", namespace));
+                    }
+                nNext = f_listEvent.size();
+                }
+            else
+                {
+                nNext = Math.min(Integer.parseInt(sResourceVersion), f_listEvent.size());
+                }
+            }
+
+        exchange.getResponseHeaders().set("Content-Type",
+                fProtobuf ? MEDIA_TYPE_PROTOBUF + ";stream=watch" : MEDIA_TYPE_JSON);
+        exchange.sendResponseHeaders(200, 0);
+
+        try (OutputStream out = exchange.getResponseBody())
+            {
+            for (Event event : listInitial)
+                {
+                out.write(event.getBytes(fProtobuf));
+                }
+            out.flush();
+
+            while (true)
+                {
+                List<Event> listEvent;
+
+                synchronized (f_listEvent)
+                    {
+                    while (nNext >= f_listEvent.size() && nGeneration == m_nWatchGeneration && !m_fStopped)
+                        {
+                        f_listEvent.wait();
+                        }
+
+                    if (nGeneration != m_nWatchGeneration || m_fStopped)
+                        {
+                        return;
+                        }
+
+                    listEvent = new ArrayList<>(f_listEvent.subList(nNext, f_listEvent.size()));
+                    nNext     = f_listEvent.size();
+                    }
+
+                for (Event event : listEvent)
+                    {
+                    out.write(event.getBytes(fProtobuf));
+                    }
+                out.flush();
+                }
+            }
+        catch (InterruptedException e)
+            {
+            Thread.currentThread().interrupt();
+            }
+        }
+
+    /**
+     * Returns the serialized list of namespaces.
+     *
+     * @return the serialized list of namespaces
+     */
+    private String listNamespaces()
+        {
+        synchronized (f_listEvent)
+            {
+            return f_json.serialize(new V1NamespaceList().items(new ArrayList<>(f_mapNamespace.values()))
+                    .metadata(new V1ListMeta().resourceVersion(String.valueOf(f_listEvent.size()))));
+            }
+        }
+
+    /**
+     * Returns the list of namespaces in the protobuf wire format.
+     *
+     * @return the serialized list of namespaces
+     */
+    private byte[] listNamespacesProtobuf()
+        {
+        synchronized (f_listEvent)
+            {
+            V1.NamespaceList.Builder builder = V1.NamespaceList.newBuilder()
+                    .setMetadata(Meta.ListMeta.newBuilder().setResourceVersion(String.valueOf(f_listEvent.size())));
+
+            for (V1Namespace namespace : f_mapNamespace.values())
+                {
+                builder.addItems(toProtobuf(namespace));
+                }
+
+            return toEnvelope("NamespaceList", builder.build());
+            }
+        }
+
+    /**
+     * Returns a NotFound status in the protobuf wire format.
+     *
+     * @param sResource  the resource type
+     * @param sName      the resource name
+     *
+     * @return the serialized status
+     */
+    private static byte[] notFoundProtobuf(String sResource, String sName)
+        {
+        return toEnvelope("Status", Meta.Status.newBuilder().setStatus("Failure").setReason("NotFound")
+                .setCode(404).setMessage(sResource + " \"" + sName + "\" not found").build());
+        }
+
+    /**
+     * Returns a serialized NotFound status.
+     *
+     * @param sResource  the resource type
+     * @param sName      the resource name
+     *
+     * @return the serialized status
+     */
+    private String notFound(String sResource, String sName)
+        {
+        return f_json.serialize(new V1Status().kind("Status").apiVersion("v1").status("Failure")
+                .reason("NotFound").code(404).message(sResource + " \"" + sName + "\" not found"));
+        }
+
+    /**
+     * Notify the secret listener, if any, of a created or replaced secret.
+     *
+     * @param sNamespace  the namespace of the secret
+     * @param sName       the name of the secret
+     */
+    private void notifySecret(String sNamespace, String sName)
+        {
+        BiConsumer<String, String> listener = m_secretListener;
+
+        if (listener != null)
+            {
+            listener.accept(sNamespace, sName);
+            }
+        }
+
+    /**
+     * Increment the request count for the verb and resource.
+     *
+     * @param sVerb      the verb
+     * @param sResource  the resource
+     */
+    private void count(String sVerb, String sResource)
+        {
+        f_mapRequestCount.computeIfAbsent(sVerb + " " + sResource, k -> new LongAdder()).increment();
+        }
+
+    /**
+     * Send a JSON response.
+     *
+     * @param exchange     the HTTP exchange
+     * @param nStatusCode  the status code
+     * @param sBody        the response body
+     *
+     * @exception IOException  if the response cannot be written
+     */
+    private static void send(HttpExchange exchange, int nStatusCode, String sBody) throws IOException
+        {
+        send(exchange, nStatusCode, sBody.getBytes(StandardCharsets.UTF_8), MEDIA_TYPE_JSON);
+        }
+
+    /**
+     * Send a protobuf response.
+     *
+     * @param exchange     the HTTP exchange
+     * @param nStatusCode  the status code
+     * @param abBody       the response body
+     *
+     * @exception IOException  if the response cannot be written
+     */
+    private static void send(HttpExchange exchange, int nStatusCode, byte[] abBody) throws IOException
+        {
+        send(exchange, nStatusCode, abBody, MEDIA_TYPE_PROTOBUF);
+        }
+
+    /**
+     * Send a response.
+     *
+     * @param exchange      the HTTP exchange
+     * @param nStatusCode   the status code
+     * @param abBody        the response body
+     * @param sContentType  the content type of the body
+     *
+     * @exception IOException  if the response cannot be written
+     */
+    private static void send(HttpExchange exchange, int nStatusCode, byte[] abBody, String sContentType)
+            throws IOException
+        {
+        exchange.getResponseHeaders().set("Content-Type", sContentType);
+        exchange.sendResponseHeaders(nStatusCode, abBody.length == 0 ? -1 : abBody.length);
+
+        if (abBody.length > 0)
+            {
+            try (OutputStream out = exchange.getResponseBody())
+                {
+                out.write(abBody);
+                }
+            }
+        }
+
+    /**
+     * Convert a namespace to protobuf.
+     *
+     * @param namespace  the namespace
+     *
+     * @return the protobuf namespace
+     */
+    public static V1.Namespace toProtobuf(V1Namespace namespace)
+        {
+        return V1.Namespace.newBuilder().setMetadata(toProtobuf(namespace.getMetadata())).build();
+        }
+
+    /**
+     * Convert a node to protobuf.
+     *
+     * @param node  the node
+     *
+     * @return the protobuf node
+     */
+    public static V1.Node toProtobuf(V1Node node)
+        {
+        return V1.Node.newBuilder().setMetadata(toProtobuf(node.getMetadata())).build();
+        }
+
+    /**
+     * Convert object metadata to protobuf.
+     *
+     * @param meta  the metadata
+     *
+     * @return the protobuf metadata
+     */
+    private static Meta.ObjectMeta toProtobuf(V1ObjectMeta meta)
+        {
+        Meta.ObjectMeta.Builder builder = Meta.ObjectMeta.newBuilder().setName(meta.getName());
+
+        if (meta.getResourceVersion() != null)
+            {
+            builder.setResourceVersion(meta.getResourceVersion());
+            }
+        if (meta.getLabels() != null)
+            {
+            builder.putAllLabels(meta.getLabels());
+            }
+
+        return builder.build();
+        }
+
+    /**
+     * Serialize an object in the protobuf wire format: the magic prefix
+     * followed by the object wrapped in an {@code Unknown} envelope.
+     *
+     * @param sKind    the kind of the object
+     * @param message  the object
+     *
+     * @return the serialized object
+     */
+    public static byte[] toEnvelope(String sKind, Message message)
+        {
+        return ProtobufWatch.MAGIC.concat(Runtime.Unknown.newBuilder()
+                .setTypeMeta(Runtime.TypeMeta.newBuilder().setApiVersion("v1").setKind(sKind))
+                .setRaw(message.toByteString())
+                .build().toByteString()).toByteArray();
+        }
+
+    /**
+     * Read the request body.
+     *
+     * @param exchange  the HTTP exchange
+     *
+     * @return the request body
+     *
+     * @exception IOException  if the body cannot be read
+     */
+    private static String readBody(HttpExchange exchange) throws IOException
+        {
+        try (InputStream in = exchange.getRequestBody())
+            {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+    /**
+     * Parse a raw query string into a map of parameters.
+     *
+     * @param sQuery  the raw query string, may be null
+     *
+     * @return the map of parameters
+     */
+    private static Map<String, String> parseQuery(String sQuery)
+        {
+        Map<String, String> mapQuery = new HashMap<>();
+
+        if (sQuery != null)
+            {
+            for (String sParam : sQuery.split("&"))
+                {
+                int of = sParam.indexOf('=');
+
+                if (of > 0)
+                    {
+                    mapQuery.put(sParam.substring(0, of), sParam.substring(of + 1));
+                    }
+                }
+            }
+
+        return mapQuery;
+        }
+
+    // ----- constants -------------------------------------------------------
+
+    /**
+     * The system property enabling TCP_NODELAY in the JDK HTTP server.
+     */
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    /**
+     * The path prefix of the core v1 API.
+     */
+    private static final String PREFIX = "/api/v1/";
+
+    /**
+     * The protobuf media type.
+     */
+    private static final String MEDIA_TYPE_PROTOBUF = ProtobufWatch.MEDIA_TYPE_PROTOBUF;
+
+    /**
+     * The JSON media type.
+     */
+    private static final String MEDIA_TYPE_JSON = ProtobufWatch.MEDIA_TYPE_JSON;
+
+    // ----- inner class: Event ----------------------------------------------
+
+    /**
+     * A namespace watch event, encoded when created in both wire formats.
+     */
+    private class Event
+        {
+        /**
+         * Constructs an Event.
+         *
+         * @param sType      the event type
+         * @param namespace  the namespace
+         */
+        Event(String sType, V1Namespace namespace)
+            {
+            f_abJson = ("{\"type\":\"" + sType + "\",\"object\":" + f_json.serialize(namespace) + "}\n")
+                    .getBytes(StandardCharsets.UTF_8);
+
+            byte[] abEvent = Meta.WatchEvent.newBuilder()
+                    .setType(sType)
+                    .setObject(Runtime.RawExtension.newBuilder()
+                            .setRaw(ByteString.copyFrom(toEnvelope("Namespace", toProtobuf(namespace)))))
+                    .build().toByteArray();
+
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(abEvent.length + 4);
+            try (DataOutputStream out = new DataOutputStream(buf))
+                {
+                out.writeInt(abEvent.length);
+                out.write(abEvent);
+                }
+            catch (IOException e)
+                {
+                throw new IllegalStateException(e);
+                }
+            f_abProtobuf = buf.toByteArray();
+            }
+
+        /**
+         * Returns the encoded event.
+         *
+         * @param fProtobuf  true for the length-prefixed protobuf frame, false for a JSON line
+         *
+         * @return the encoded event
+         */
+        byte[] getBytes(boolean fProtobuf)
+            {
+            return fProtobuf ? f_abProtobuf : f_abJson;
+            }
+
+        /**
+         * The event as a JSON line.
+         */
+        private final byte[] f_abJson;
+
+        /**
+         * The event as a length-prefixed protobuf frame.
+         */
+        private final byte[] f_abProtobuf;
+        }
+
+    // ----- data members ----------------------------------------------------
+
+    /**
+     * The HttpServer serving the API.
+     */
+    private final HttpServer f_httpServer;
+
+    /**
+     * The executor running request handlers; watches hold a thread each.
+     */
+    private final ExecutorService f_executor;
+
+    /**
+     * The JSON serializer used by the Kubernetes client.
+     */
+    private final JSON f_json = new JSON();
+
+    /**
+     * The namespace watch event log; the resource version of an event is its index plus one.
+     * Also used as the monitor guarding namespace and watch state.
+     */
+    private final List<Event> f_listEvent = new ArrayList<>();
+
+    /**
+     * The namespaces keyed by name, in creation order.
+     */
+    private final Map<String, V1Namespace> f_mapNamespace = new LinkedHashMap<>();
+
+    /**
+     * The secrets keyed by namespace/name.
+     */
+    private final Map<String, V1Secret> f_mapSecret = new ConcurrentHashMap<>();
+
+    /**
+     * The nodes keyed by name.
+     */
+    private final Map<String, V1Node> f_mapNode = new ConcurrentHashMap<>();
+
+    /**
+     * The request counts keyed by verb and resource.
+     */
+    private final Map<String, LongAdder> f_mapRequestCount = new ConcurrentHashMap<>();
+
+    /**
+     * The listener notified of created or replaced secrets.
+     */
+    private volatile BiConsumer<String, String> m_secretListener;
+
+    /**
+     * Flag indicating namespace and node reads are served in protobuf to clients that accept it.
+     */
+    private volatile boolean m_fProtobufSupported = true;
+
+    /**
+     * The watch generation; incremented to disconnect all open watches.
+     */
+    private int m_nWatchGeneration;
+
+    /**
+     * Flag indicating the server has been stopped.
+     */
+    private boolean m_fStopped;
+    }
@@ -7,7 +7,11 @@
 package com.oracle.coherence.k8s.operator;
 
 import com.oracle.bedrock.runtime.LocalPlatform;
+import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1EndpointAddress;
+import io.kubernetes.client.models.V1EndpointSubset;
+import io.kubernetes.client.models.V1Endpoints;
 import io.kubernetes.client.models.V1Node;
 import io.kubernetes.client.models.V1ObjectMeta;
 import org.junit.Test;
@@ -17,10 +21,22 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -55,6 +71,246 @@ public class KubernetesInfoServerTest {
         kubernetesInfoServer.stop(1);
         }
 
+    @Test
+    public void testEndpoints() throws Exception
+        {
+        int nPort = LocalPlatform.get().getAvailablePorts().next();
+        KubernetesInfoServer kubernetesInfoServer = new KubernetesInfoServer(nPort);
+
+        CoreV1Api        api    = mock(CoreV1Api.class);
+        V1Endpoints      ep     = new V1Endpoints();
+        V1EndpointSubset subset = new V1EndpointSubset();
+
+        subset.addAddressesItem(new V1EndpointAddress().ip("10.0.0.1"));
+        subset.addNotReadyAddressesItem(new V1EndpointAddress().ip("10.0.0.2"));
+        ep.metadata(new V1ObjectMeta().putLabelsItem("component", "coherence-headless")).addSubsetsItem(subset);
+
+        V1Endpoints epOther = new V1Endpoints().metadata(new V1ObjectMeta().putLabelsItem("component", "other"))
+                .addSubsetsItem(subset);
+
+        when(api.readNamespacedEndpoints("test-coherence-headless", "ns", null, null, null)).thenReturn(ep);
+        when(api.readNamespacedEndpoints("test-coherence-headless", "other-ns", null, null, null)).thenReturn(ep);
+        when(api.readNamespacedEndpoints("other", "ns", null, null, null)).thenReturn(epOther);
+        when(api.readNamespacedEndpoints("empty", "ns", null, null, null)).thenReturn(new V1Endpoints());
+        when(api.readNamespacedEndpoints("missing", "ns", null, null, null))
+                .thenThrow(new ApiException(404, "not found"));
+
+        kubernetesInfoServer.setApi(api);
+        kubernetesInfoServer.setNamespaces(new String[] {"ns"}, new String[] {"kube-system"});
+        kubernetesInfoServer.start();
+
+        try
+            {
+            verifyEndpoints(nPort, "/ns/test-coherence-headless", 200, "10.0.0.1,10.0.0.2");
+            verifyEndpoints(nPort, "/ns/empty", 404, "");
+            verifyEndpoints(nPort, "/ns/missing", 404, "");
+            verifyEndpoints(nPort, "/ns", 404, "");
+
+            // only Coherence headless services in managed namespaces are returned
+            verifyEndpoints(nPort, "/ns/other", 404, "");
+            verifyEndpoints(nPort, "/other-ns/test-coherence-headless", 404, "");
+            verifyEndpoints(nPort, "/kube-system/test-coherence-headless", 404, "");
+            verify(api, never()).readNamespacedEndpoints("test-coherence-headless", "other-ns", null, null, null);
+            }
+        finally
+            {
+            kubernetesInfoServer.stop(1);
+            }
+        }
+
+    @Test
+    public void testEndpointsAreCached() throws Exception
+        {
+        int nPort = LocalPlatform.get().getAvailablePorts().next();
+        KubernetesInfoServer kubernetesInfoServer = new KubernetesInfoServer(nPort);
+
+        CoreV1Api        api    = mock(CoreV1Api.class);
+        V1EndpointSubset subset = new V1EndpointSubset().addAddressesItem(new V1EndpointAddress().ip("10.0.0.1"));
+        V1Endpoints      ep     = new V1Endpoints()
+                .metadata(new V1ObjectMeta().putLabelsItem("component", "coherence-headless")).addSubsetsItem(subset);
+
+        when(api.readNamespacedEndpoints("test-coherence-headless", "ns", null, null, null)).thenReturn(ep);
+        when(api.readNamespacedEndpoints("missing", "ns", null, null, null))
+                .thenThrow(new ApiException(404, "not found"));
+
+        kubernetesInfoServer.setApi(api);
+        kubernetesInfoServer.start();
+
+        try
+            {
+            for (int i = 0; i < 5; i++)
+                {
+                verifyEndpoints(nPort, "/ns/test-coherence-headless", 200, "10.0.0.1");
+                verifyEndpoints(nPort, "/ns/missing", 404, "");
+                }
+
+            verify(api, atMost(2)).readNamespacedEndpoints("test-coherence-headless", "ns", null, null, null);
+            verify(api, atMost(2)).readNamespacedEndpoints("missing", "ns", null, null, null);
+
+            // the addresses are read again once the cached addresses expire
+            Thread.sleep(KubernetesInfoServer.ENDPOINTS_CACHE_TTL_MILLIS + 100);
+            subset.addAddressesItem(new V1EndpointAddress().ip("10.0.0.2"));
+
+            verifyEndpoints(nPort, "/ns/test-coherence-headless", 200, "10.0.0.1,10.0.0.2");
+            }
+        finally
+            {
+            kubernetesInfoServer.stop(1);
+            }
+        }
+
+    @Test
+    public void testMetrics() throws Exception
+        {
+        int nPort = LocalPlatform.get().getAvailablePorts().next();
+        KubernetesInfoServer kubernetesInfoServer = new KubernetesInfoServer(nPort);
+
+        CoreV1Api    api  = mock(CoreV1Api.class);
+
+        V1Node       node = new V1Node();
+        V1ObjectMeta meta = new V1ObjectMeta();
+        meta.putLabelsItem("failure-domain.beta.kubernetes.io/zone", "myzone");
+        node.setMetadata(meta);
+        when(api.readNode("mynode", null, Boolean.TRUE, Boolean.TRUE)).thenReturn(node);
+
+        kubernetesInfoServer.setApi(api);
+        kubernetesInfoServer.start();
+
+        verifyZone(nPort, "/mynode", 200, "myzone");
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + nPort + "/metrics").openConnection();
+        connection.setRequestMethod("GET");
+        connection.connect();
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/plain"));
+
+        List<String> listLine = new BufferedReader(new InputStreamReader(connection.getInputStream()))
+                .lines().collect(Collectors.toList());
+
+        assertTrue(listLine.toString(), listLine.contains("# TYPE operator_zone_lookups_total counter"));
+        assertTrue(listLine.toString(), listLine.stream()
+                .anyMatch(s -> s.startsWith("operator_zone_lookups_total{result=\"found\"} ")));
+        assertTrue(listLine.toString(), listLine.stream()
+                .anyMatch(s -> s.startsWith("operator_api_call_duration_seconds_count{verb=\"get\",resource=\"nodes\"} ")));
+
+        kubernetesInfoServer.stop(1);
+        }
+
+    @Test
+    public void testFlightRecordingDump() throws Exception
+        {
+        int nPort = LocalPlatform.get().getAvailablePorts().next();
+        KubernetesInfoServer kubernetesInfoServer = new KubernetesInfoServer(nPort);
+
+        OperatorFlightRecorder recorder = new OperatorFlightRecorder(16 * 1024 * 1024, Duration.ofMinutes(10),
+                "secret", Duration.ZERO, Paths.get("target"), 1);
+        recorder.start();
+
+        kubernetesInfoServer.setFlightRecorder(recorder);
+        kubernetesInfoServer.start();
+
+        try
+            {
+            assertEquals(401, openJfr(nPort, null).getResponseCode());
+            assertEquals(401, openJfr(nPort, "Bearer wrong").getResponseCode());
+
+            HttpURLConnection connection = openJfr(nPort, "Bearer secret");
+            assertEquals(200, connection.getResponseCode());
+
+            try (InputStream in = connection.getInputStream())
+                {
+                byte[] abMagic = in.readNBytes(4);
+                assertEquals("FLR\0", new String(abMagic, StandardCharsets.US_ASCII));
+                }
+            }
+        finally
+            {
+            kubernetesInfoServer.stop(1);
+            recorder.stop();
+            }
+        }
+
+    @Test
+    public void testZoneWhileFlightRecordingDumps() throws Exception
+        {
+        int nPort = LocalPlatform.get().getAvailablePorts().next();
+        KubernetesInfoServer kubernetesInfoServer = new KubernetesInfoServer(nPort);
+
+        CoreV1Api              api      = mock(CoreV1Api.class);
+        OperatorFlightRecorder recorder = mock(OperatorFlightRecorder.class);
+        CountDownLatch         latch    = new CountDownLatch(1);
+
+        V1Node node = new V1Node().metadata(new V1ObjectMeta()
+                .putLabelsItem("failure-domain.beta.kubernetes.io/zone", "myzone"));
+        when(api.readNode("mynode", null, Boolean.TRUE, Boolean.TRUE)).thenReturn(node);
+
+        // the dump does not finish until the latch is released
+        when(recorder.isDumpEnabled()).thenReturn(true);
+        when(recorder.isAuthorized("Bearer secret")).thenReturn(true);
+        doAnswer(invocation ->
+            {
+            latch.await(30, TimeUnit.SECONDS);
+            return null;
+            }).when(recorder).writeTo(any(), any());
+
+        kubernetesInfoServer.setApi(api);
+        kubernetesInfoServer.setFlightRecorder(recorder);
+        kubernetesInfoServer.start();
+
+        try
+            {
+            assertEquals(200, openJfr(nPort, "Bearer secret").getResponseCode());
+
+            // a second dump is refused while the first streams, and zones are still served
+            assertEquals(429, openJfr(nPort, "Bearer secret").getResponseCode());
+            verifyZone(nPort, "/mynode", 200, "myzone");
+            }
+        finally
+            {
+            latch.countDown();
+            kubernetesInfoServer.stop(1);
+            }
+        }
+
+    @Test
+    public void testFlightRecordingDumpDisabled() throws Exception
+        {
+        int nPort = LocalPlatform.get().getAvailablePorts().next();
+        KubernetesInfoServer kubernetesInfoServer = new KubernetesInfoServer(nPort);
+
+        kubernetesInfoServer.start();
+
+        assertEquals(404, openJfr(nPort, "Bearer secret").getResponseCode());
+
+        kubernetesInfoServer.stop(1);
+        }
+
+    private HttpURLConnection openJfr(int nPort, String sAuthorization) throws Exception
+        {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + nPort + "/jfr?minutes=1").openConnection();
+        connection.setRequestMethod("GET");
+        if (sAuthorization != null)
+            {
+            connection.setRequestProperty("Authorization", sAuthorization);
+            }
+        connection.connect();
+        return connection;
+        }
+
+    private void verifyEndpoints(int nPort, String sPath, int nExpectedStatus, String sExpected) throws Exception
+        {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + nPort + "/endpoints" + sPath).openConnection();
+        connection.setRequestMethod("GET");
+        connection.connect();
+        int nStatus = connection.getResponseCode();
+        assertEquals(nExpectedStatus, nStatus);
+
+        if (nStatus == 200)
+            {
+            assertEquals(sExpected, new BufferedReader(new InputStreamReader(connection.getInputStream())).readLine());
+            }
+        }
+
     private void verifyZone(int nPort, String sPath, int nExpectedStatus, String sExpectedZone) throws Exception
         {
         HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + nPort + "/zone" + sPath).openConnection();
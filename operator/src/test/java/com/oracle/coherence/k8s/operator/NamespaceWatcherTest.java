@@ -21,6 +21,7 @@ import com.squareup.okhttp.Protocol;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.Response;
 import com.squareup.okhttp.ResponseBody;
+import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.apis.CoreV1Api;
 import org.junit.Test;
 
@@ -92,8 +93,8 @@ public class NamespaceWatcherTest {
 
         CoreV1Api coreV1Api = setupTestSecret(sOpNamespace, asNamespaces, asIncludedNamespaces, asExcludedNamespaces);
 
-        verify(coreV1Api, times(1)).createNamespacedSecretAsync(eq("cohns2"), any(),any(), any());
-        verify(coreV1Api, times(1)).createNamespacedSecretAsync(any(), any(),any(), any());
+        verify(coreV1Api, times(1)).createNamespacedSecretCall(eq("cohns2"), any(), any(), isNull(), isNull());
+        verify(coreV1Api, times(1)).createNamespacedSecretCall(any(), any(), any(), any(), any());
         }
 
     /**
@@ -111,9 +112,9 @@ public class NamespaceWatcherTest {
 
         CoreV1Api coreV1Api = setupTestSecret(sOpNamespace, asNamespaces, asIncludedNamespaces, asExcludedNamespaces);
 
-        verify(coreV1Api, times(1)).createNamespacedSecretAsync(eq("cohns2"), any(),any(), any());
-        verify(coreV1Api, times(1)).createNamespacedSecretAsync(eq("default"), any(),any(), any());
-        verify(coreV1Api, times(2)).createNamespacedSecretAsync(any(), any(),any(), any());
+        verify(coreV1Api, times(1)).createNamespacedSecretCall(eq("cohns2"), any(), any(), isNull(), isNull());
+        verify(coreV1Api, times(1)).createNamespacedSecretCall(eq("default"), any(), any(), isNull(), isNull());
+        verify(coreV1Api, times(2)).createNamespacedSecretCall(any(), any(), any(), any(), any());
         }
 
     /**
@@ -131,8 +132,8 @@ public class NamespaceWatcherTest {
 
         CoreV1Api coreV1Api = setupTestSecret(sOpNamespace, asNamespaces, asIncludedNamespaces, asExcludedNamespaces);
 
-        verify(coreV1Api, times(1)).createNamespacedSecretAsync(eq("cohns2"), any(),any(), any());
-        verify(coreV1Api, times(1)).createNamespacedSecretAsync(any(), any(),any(), any());
+        verify(coreV1Api, times(1)).createNamespacedSecretCall(eq("cohns2"), any(), any(), isNull(), isNull());
+        verify(coreV1Api, times(1)).createNamespacedSecretCall(any(), any(), any(), any(), any());
         }
 
     // ---- helper methods --------------------------------------------------
@@ -186,6 +187,7 @@ public class NamespaceWatcherTest {
 
         when(coreV1Api.listNamespaceCall(any(), isNull(), any(), any(), any(), any(),
                 any(), any(), eq(Boolean.TRUE), any(), any())).thenReturn(call);
+        when(coreV1Api.getApiClient()).thenReturn(mock(ApiClient.class));
 
         return coreV1Api;
         }
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s.operator;
+
+import com.google.gson.reflect.TypeToken;
+import com.oracle.bedrock.runtime.LocalPlatform;
+import com.sun.net.httpserver.HttpServer;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1Namespace;
+import io.kubernetes.client.proto.V1;
+import io.kubernetes.client.util.Config;
+import io.kubernetes.client.util.Watch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the protobuf wire format support.
+ *
+ * @author sc
+ */
+public class ProtobufWatchTest
+    {
+    @Before
+    public void startServer() throws Exception
+        {
+        m_server = new FakeKubernetesServer(0);
+        m_server.addNamespace("ns-1");
+        m_server.addNamespace("ns-2");
+        m_server.addNode("mynode", "myzone");
+        m_server.start();
+
+        m_client = Config.fromUrl(m_server.getUrl(), false);
+        }
+
+    @After
+    public void stopServer()
+        {
+        m_server.stop();
+        }
+
+    @Test
+    public void testProtobufWatch() throws Exception
+        {
+        verifyWatch(true);
+        }
+
+    @Test
+    public void testWatchFallsBackToJson() throws Exception
+        {
+        m_server.setProtobufSupported(false);
+
+        verifyWatch(false);
+        }
+
+    @Test
+    public void testProtobufZone() throws Exception
+        {
+        verifyZone(3);
+        }
+
+    @Test
+    public void testZoneFallsBackToJson() throws Exception
+        {
+        m_server.setProtobufSupported(false);
+
+        // the first lookup is retried in JSON, later lookups use JSON directly
+        verifyZone(4);
+        }
+
+    @Test
+    public void testWatchFailsOnCorruptFrameLength() throws Exception
+        {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        // a frame length far beyond any object the API server stores
+        server.createContext("/api/v1/namespaces", exchange ->
+            {
+            byte[] abBody = new byte[] { 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff };
+
+            exchange.getResponseHeaders().set("Content-Type", ProtobufWatch.MEDIA_TYPE_PROTOBUF + ";stream=watch");
+            exchange.sendResponseHeaders(200, abBody.length);
+            try (OutputStream out = exchange.getResponseBody())
+                {
+                out.write(abBody);
+                }
+            });
+        server.start();
+
+        try
+            {
+            ApiClient  client     = Config.fromUrl("http://127.0.0.1:" + server.getAddress().getPort(), false);
+            Type       type       = new TypeToken<Watch.Response<V1Namespace>>(){}.getType();
+            CallParams callParams = new CallParams();
+
+            try (ProtobufWatch<V1Namespace> watch = ProtobufWatch.createWatch(client,
+                    ProtobufWatch.createCall(client, "/api/v1/namespaces", callParams), type,
+                    raw -> NamespaceWatcher.toNamespace(V1.Namespace.parseFrom(raw))))
+                {
+                assertTrue(watch.isProtobuf());
+                assertTrue(watch.hasNext());
+
+                try
+                    {
+                    watch.next();
+                    fail("A corrupt frame length should fail the watch");
+                    }
+                catch (RuntimeException e)
+                    {
+                    assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+                    }
+                }
+            }
+        finally
+            {
+            server.stop(0);
+            }
+        }
+
+    /**
+     * Watch the namespaces of the fake server, requesting protobuf.
+     *
+     * @param fProtobuf  true if the server is expected to answer in protobuf
+     */
+    private void verifyWatch(boolean fProtobuf) throws Exception
+        {
+        Type       type       = new TypeToken<Watch.Response<V1Namespace>>(){}.getType();
+        CallParams callParams = new CallParams();
+
+        try (ProtobufWatch<V1Namespace> watch = ProtobufWatch.createWatch(m_client,
+                ProtobufWatch.createCall(m_client, "/api/v1/namespaces", callParams), type,
+                raw -> NamespaceWatcher.toNamespace(V1.Namespace.parseFrom(raw))))
+            {
+            assertEquals(fProtobuf, watch.isProtobuf());
+
+            Iterator<Watch.Response<V1Namespace>> iter = watch.iterator();
+
+            for (String sName : new String[] {"ns-1", "ns-2"})
+                {
+                assertTrue(iter.hasNext());
+
+                Watch.Response<V1Namespace> response = iter.next();
+                assertEquals("ADDED", response.type);
+                assertEquals(sName, response.object.getMetadata().getName());
+                assertFalse(response.object.getMetadata().getResourceVersion().isEmpty());
+                }
+            }
+
+        assertEquals(1, m_server.getRequestCount("WATCH", "namespaces"));
+        }
+
+    /**
+     * Look up the zone of a node served by the fake server, requesting protobuf.
+     *
+     * @param cRequest  the expected number of node requests received by the fake server
+     */
+    private void verifyZone(int cRequest) throws Exception
+        {
+        int                  nPort  = LocalPlatform.get().getAvailablePorts().next();
+        KubernetesInfoServer server = new KubernetesInfoServer(nPort);
+
+        server.setApi(new CoreV1Api(m_client));
+        server.setProtobuf(true);
+        server.start();
+
+        try
+            {
+            assertEquals("myzone", readZone(nPort, "mynode", 200));
+            assertEquals("myzone", readZone(nPort, "mynode", 200));
+            readZone(nPort, "nosuchnode", 500);
+            }
+        finally
+            {
+            server.stop(1);
+            }
+
+        assertEquals(cRequest, m_server.getRequestCount("GET", "nodes"));
+        }
+
+    /**
+     * Read the zone of the node from the info server.
+     *
+     * @param nPort        the info server port
+     * @param sNode        the node name
+     * @param nStatusCode  the expected status code
+     *
+     * @return the zone
+     */
+    private static String readZone(int nPort, String sNode, int nStatusCode) throws Exception
+        {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + nPort + "/zone/" + sNode)
+                .openConnection();
+
+        assertEquals(nStatusCode, connection.getResponseCode());
+
+        if (nStatusCode != 200)
+            {
+            return null;
+            }
+
+        try (InputStream in = connection.getInputStream())
+            {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+    // ----- data members ----------------------------------------------------
+
+    /**
+     * The fake Kubernetes API server.
+     */
+    private FakeKubernetesServer m_server;
+
+    /**
+     * The client connected to the fake server.
+     */
+    private ApiClient m_client;
+    }
@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.oracle.common.base.Blocking;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.util.Base;
+
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.generic.MessageConnection;
+import javax.management.remote.generic.MessageConnectionServer;
+import javax.management.remote.message.HandshakeEndMessage;
+import javax.management.remote.message.Message;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A JMXMP {@link MessageConnectionServer} that limits the number of open
+ * client connections.
+ * <p>
+ * The JMXMP connector server uses a reader thread and a pool of worker
+ * threads for each client connection, so limiting the connections bounds
+ * the threads used by the connector. A connection accepted while the
+ * limit is reached is closed straight away, so the client fails fast
+ * rather than waiting. A connection that does not complete the JMXMP
+ * handshake in time is closed, so stalled clients cannot hold on to
+ * connections.
+ * <p>
+ * A failure to accept a connection while the server is running does not
+ * stop it, as the connector server would, so that one failed client does
+ * not stop the connector. Repeated failures, such as running out of file
+ * descriptors, are retried after a delay doubling up to
+ * {@value #MAX_ACCEPT_BACKOFF_MILLIS}ms and are logged at most once every
+ * {@value #ACCEPT_WARNING_INTERVAL_MILLIS}ms, so they neither spin a CPU nor
+ * flood the log.
+ * <p>
+ * The handshake timeout is enforced here rather than with the connector's
+ * {@code jmx.remote.x.server.side.connecting.timeout}, as the connector
+ * schedules that timeout on a timer shared by all connector servers in the
+ * JVM that is cancelled when any of them stops.
+ *
+ * @author jk
+ */
+class BoundedConnectionServer
+        implements MessageConnectionServer
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link BoundedConnectionServer}.
+     *
+     * @param delegate            the server accepting the connections
+     * @param cMaxConnection      the maximum number of open connections
+     * @param cConnectingMillis   the time in milliseconds a connection has to complete
+     *                            the handshake, or zero for no limit
+     */
+    BoundedConnectionServer(MessageConnectionServer delegate, int cMaxConnection, long cConnectingMillis)
+        {
+        f_delegate          = delegate;
+        f_cMaxConnection    = cMaxConnection;
+        f_cConnectingMillis = cConnectingMillis;
+        }
+
+    // ----- BoundedConnectionServer methods --------------------------------
+
+    /**
+     * Obtain the number of open connections.
+     *
+     * @return  the number of open connections
+     */
+    int getConnectionCount()
+        {
+        return f_cConnection.get();
+        }
+
+    /**
+     * Obtain the maximum number of open connections.
+     *
+     * @return  the maximum number of open connections
+     */
+    int getMaxConnectionCount()
+        {
+        return f_cMaxConnection;
+        }
+
+    /**
+     * Obtain the number of connections closed because the limit was reached.
+     *
+     * @return  the number of rejected connections
+     */
+    long getRejectedCount()
+        {
+        return f_cRejected.get();
+        }
+
+    /**
+     * Obtain the number of times accepting a connection failed while running.
+     *
+     * @return  the number of failures to accept a connection
+     */
+    long getAcceptFailureCount()
+        {
+        return f_cAcceptFailure.get();
+        }
+
+    /**
+     * Obtain the time a connection has to complete the handshake.
+     *
+     * @return  the time in milliseconds a connection has to complete the handshake,
+     *          or zero for no limit
+     */
+    long getConnectingMillis()
+        {
+        return f_cConnectingMillis;
+        }
+
+    // ----- MessageConnectionServer interface ------------------------------
+
+    @Override
+    public void start(Map env)
+            throws IOException
+        {
+        if (f_cConnectingMillis > 0)
+            {
+            m_executor = Executors.newSingleThreadScheduledExecutor(runnable ->
+                {
+                Thread thread = new Thread(runnable, "JmxmpConnectingTimeout");
+                thread.setDaemon(true);
+                return thread;
+                });
+            }
+
+        f_delegate.start(env);
+        }
+
+    @Override
+    public MessageConnection accept()
+            throws IOException
+        {
+        long cBackoffMillis = 0L;
+
+        while (true)
+            {
+            MessageConnection connection;
+
+            try
+                {
+                connection = f_delegate.accept();
+                }
+            catch (IOException e)
+                {
+                // the JMXMP connector server stops if accept() fails, so only
+                // fail once stopped, not when a single client connection fails
+                if (m_fStopped)
+                    {
+                    throw e;
+                    }
+
+                cBackoffMillis = cBackoffMillis == 0L
+                                 ? MIN_ACCEPT_BACKOFF_MILLIS
+                                 : Math.min(cBackoffMillis * 2, MAX_ACCEPT_BACKOFF_MILLIS);
+                onAcceptFailure(e, cBackoffMillis);
+                continue;
+                }
+
+            if (f_cConnection.incrementAndGet() <= f_cMaxConnection)
+                {
+                BoundedConnection connectionBounded = new BoundedConnection(connection);
+
+                connectionBounded.scheduleTimeout();
+
+                return connectionBounded;
+                }
+
+            f_cConnection.decrementAndGet();
+            reject(connection);
+            }
+        }
+
+    @Override
+    public void stop()
+            throws IOException
+        {
+        m_fStopped = true;
+
+        if (m_executor != null)
+            {
+            m_executor.shutdownNow();
+            }
+
+        f_delegate.stop();
+        }
+
+    @Override
+    public JMXServiceURL getAddress()
+        {
+        return f_delegate.getAddress();
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Log a failure to accept a connection and wait before accepting again.
+     *
+     * @param e               the failure
+     * @param cBackoffMillis  the time in milliseconds to wait
+     *
+     * @throws IOException  if the thread is interrupted while waiting
+     */
+    private void onAcceptFailure(IOException e, long cBackoffMillis)
+            throws IOException
+        {
+        long cFailure = f_cAcceptFailure.incrementAndGet();
+        long ldtNow   = Base.getSafeTimeMillis();
+
+        if (ldtNow >= m_ldtNextAcceptWarning)
+            {
+            m_ldtNextAcceptWarning = ldtNow + ACCEPT_WARNING_INTERVAL_MILLIS;
+            CacheFactory.log("Failed to accept JMXMP connection, " + cFailure + " failures so far, retrying in "
+                             + cBackoffMillis + "ms: " + e, CacheFactory.LOG_WARN);
+            }
+        else
+            {
+            CacheFactory.log("Failed to accept JMXMP connection: " + e, CacheFactory.LOG_DEBUG);
+            }
+
+        try
+            {
+            Blocking.sleep(cBackoffMillis);
+            }
+        catch (InterruptedException eInterrupt)
+            {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to accept JMXMP connections");
+            }
+        }
+
+    /**
+     * Close a connection accepted while the connection limit is reached.
+     *
+     * @param connection  the connection to close
+     */
+    private void reject(MessageConnection connection)
+        {
+        try
+            {
+            connection.close();
+            }
+        catch (IOException e)
+            {
+            // the client has gone already
+            }
+
+        // log the first rejection and then every hundredth, a flood of clients must not flood the log
+        if (f_cRejected.getAndIncrement() % 100 == 0)
+            {
+            CacheFactory.log("Rejected JMXMP connection, the limit of " + f_cMaxConnection
+                             + " connections has been reached", CacheFactory.LOG_WARN);
+            }
+        }
+
+    // ----- inner class: BoundedConnection ---------------------------------
+
+    /**
+     * A {@link MessageConnection} that releases its place in the connection
+     * limit when it is closed, and is closed if it does not complete the
+     * handshake in time.
+     */
+    private class BoundedConnection
+            implements MessageConnection
+        {
+        /**
+         * Create a {@link BoundedConnection}.
+         *
+         * @param delegate  the accepted connection
+         */
+        BoundedConnection(MessageConnection delegate)
+            {
+            f_delegate = delegate;
+            }
+
+        /**
+         * Schedule closing the connection if it does not complete the handshake in time.
+         */
+        void scheduleTimeout()
+            {
+            ScheduledExecutorService executor = m_executor;
+
+            if (executor != null)
+                {
+                m_futureTimeout = executor.schedule(this::onConnectingTimeout, f_cConnectingMillis,
+                                                    TimeUnit.MILLISECONDS);
+                }
+            }
+
+        /**
+         * Close the connection because it did not complete the handshake in time.
+         */
+        private void onConnectingTimeout()
+            {
+            CacheFactory.log("Closing JMXMP connection, the handshake did not complete in "
+                             + f_cConnectingMillis + "ms", CacheFactory.LOG_DEBUG);
+            try
+                {
+                close();
+                }
+            catch (IOException e)
+                {
+                // the client has gone already
+                }
+            }
+
+        /**
+         * Cancel closing the connection if it does not complete the handshake in time.
+         */
+        private void cancelTimeout()
+            {
+            ScheduledFuture<?> future = m_futureTimeout;
+
+            if (future != null)
+                {
+                future.cancel(false);
+                }
+            }
+
+        @Override
+        public void connect(Map env)
+                throws IOException
+            {
+            f_delegate.connect(env);
+            }
+
+        @Override
+        public Message readMessage()
+                throws IOException, ClassNotFoundException
+            {
+            return f_delegate.readMessage();
+            }
+
+        @Override
+        public void writeMessage(Message message)
+                throws IOException
+            {
+            f_delegate.writeMessage(message);
+
+            // the server ends a successful handshake
+            if (message instanceof HandshakeEndMessage)
+                {
+                cancelTimeout();
+                }
+            }
+
+        @Override
+        public void close()
+                throws IOException
+            {
+            cancelTimeout();
+            try
+                {
+                f_delegate.close();
+                }
+            finally
+                {
+                if (f_fClosed.compareAndSet(false, true))
+                    {
+                    f_cConnection.decrementAndGet();
+                    }
+                }
+            }
+
+        @Override
+        public String getConnectionId()
+            {
+            return f_delegate.getConnectionId();
+            }
+
+        /**
+         * The accepted connection.
+         */
+        private final MessageConnection f_delegate;
+
+        /**
+         * Whether the connection has been closed.
+         */
+        private final AtomicBoolean f_fClosed = new AtomicBoolean();
+
+        /**
+         * The scheduled closing of the connection if it does not complete the handshake in time.
+         */
+        private volatile ScheduledFuture<?> m_futureTimeout;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The first delay in milliseconds before accepting again after a failure.
+     */
+    static final long MIN_ACCEPT_BACKOFF_MILLIS = 10L;
+
+    /**
+     * The longest delay in milliseconds before accepting again after a failure.
+     */
+    static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000L;
+
+    /**
+     * The shortest time in milliseconds between warnings about accept failures.
+     */
+    static final long ACCEPT_WARNING_INTERVAL_MILLIS = 10000L;
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The server accepting the connections.
+     */
+    private final MessageConnectionServer f_delegate;
+
+    /**
+     * The maximum number of open connections.
+     */
+    private final int f_cMaxConnection;
+
+    /**
+     * The time in milliseconds a connection has to complete the handshake, or zero for no limit.
+     */
+    private final long f_cConnectingMillis;
+
+    /**
+     * The number of open connections.
+     */
+    private final AtomicInteger f_cConnection = new AtomicInteger();
+
+    /**
+     * The number of connections rejected because the limit was reached.
+     */
+    private final AtomicLong f_cRejected = new AtomicLong();
+
+    /**
+     * The number of times accepting a connection failed while running.
+     */
+    private final AtomicLong f_cAcceptFailure = new AtomicLong();
+
+    /**
+     * The time after which the next accept failure is logged as a warning.
+     */
+    private long m_ldtNextAcceptWarning;
+
+    /**
+     * Whether the server has been stopped.
+     */
+    private volatile boolean m_fStopped;
+
+    /**
+     * The executor closing connections that do not complete the handshake in time.
+     */
+    private volatile ScheduledExecutorService m_executor;
+    }
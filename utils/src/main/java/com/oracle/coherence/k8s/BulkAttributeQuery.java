@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.util.Base;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.TabularData;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the attributes of all the MBeans matching an {@link ObjectName}
+ * pattern in one call, so that a monitoring tool connected to the
+ * {@link JmxmpServer} can sample a large cluster in a single round trip
+ * instead of one round trip per MBean and attribute.
+ * <p>
+ * Results are cached for a short time keyed by the pattern and attribute
+ * names, so that several tools sampling the same MBeans share a read.
+ * <p>
+ * Only values of the JMX open types are returned, as the client may not
+ * have the classes of any other value and one value that cannot be
+ * deserialized, or serialized, would fail the whole query. Enum values are
+ * returned as their names and any other value is left out.
+ *
+ * @author jk
+ */
+public class BulkAttributeQuery
+        implements BulkAttributeQueryMBean
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link BulkAttributeQuery}.
+     *
+     * @param server      the {@link MBeanServer} to read the attributes from
+     * @param cTtlMillis  the time in milliseconds to cache a result for
+     */
+    public BulkAttributeQuery(MBeanServer server, long cTtlMillis)
+        {
+        f_server     = server;
+        f_cTtlMillis = cTtlMillis;
+        }
+
+    // ----- BulkAttributeQueryMBean interface ------------------------------
+
+    @Override
+    public Map<String, Map<String, Object>> query(String sPattern, String[] asAttribute)
+        {
+        ObjectName pattern;
+
+        try
+            {
+            pattern = ObjectName.getInstance(sPattern);
+            }
+        catch (JMException e)
+            {
+            throw new IllegalArgumentException("Invalid ObjectName pattern " + sPattern, e);
+            }
+
+        String  sKey   = getKey(pattern, asAttribute);
+        long    ldtNow = Base.getSafeTimeMillis();
+        Result  result = f_mapResult.get(sKey);
+
+        f_cQuery.incrementAndGet();
+
+        if (result != null && result.f_ldtExpiry > ldtNow)
+            {
+            f_cCacheHit.incrementAndGet();
+            return result.f_mapValue;
+            }
+
+        Map<String, Map<String, Object>> mapValue = read(pattern, asAttribute);
+
+        if (f_cTtlMillis > 0)
+            {
+            f_mapResult.values().removeIf(r -> r.f_ldtExpiry <= ldtNow);
+            f_mapResult.put(sKey, new Result(mapValue, ldtNow + f_cTtlMillis));
+            }
+
+        return mapValue;
+        }
+
+    @Override
+    public long getQueryCount()
+        {
+        return f_cQuery.get();
+        }
+
+    @Override
+    public long getCacheHitCount()
+        {
+        return f_cCacheHit.get();
+        }
+
+    @Override
+    public long getCacheTtlMillis()
+        {
+        return f_cTtlMillis;
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Read the attributes of the MBeans matching a pattern.
+     *
+     * @param pattern      the {@link ObjectName} pattern
+     * @param asAttribute  the names of the attributes, or {@code null} or empty for all attributes
+     *
+     * @return  the attribute values keyed by attribute name, keyed by MBean name
+     */
+    private Map<String, Map<String, Object>> read(ObjectName pattern, String[] asAttribute)
+        {
+        Map<String, Map<String, Object>> mapValue = new TreeMap<>();
+
+        for (ObjectName name : f_server.queryNames(pattern, null))
+            {
+            try
+                {
+                String[]            asName   = asAttribute == null || asAttribute.length == 0
+                                               ? getAttributeNames(name) : asAttribute;
+                Map<String, Object> mapMBean = new TreeMap<>();
+
+                for (Attribute attribute : f_server.getAttributes(name, asName).asList())
+                    {
+                    Object oValue = toOpenValue(attribute.getValue());
+
+                    if (oValue != NOT_OPEN)
+                        {
+                        mapMBean.put(attribute.getName(), oValue);
+                        }
+                    }
+
+                mapValue.put(name.getCanonicalName(), Collections.unmodifiableMap(mapMBean));
+                }
+            catch (JMException | RuntimeException e)
+                {
+                // the MBean was unregistered or could not be read, leave it out
+                }
+            }
+
+        return Collections.unmodifiableMap(mapValue);
+        }
+
+    /**
+     * Convert an attribute value to a value of an open type.
+     *
+     * @param oValue  the attribute value, may be {@code null}
+     *
+     * @return  the value, the name of an enum value, or {@link #NOT_OPEN}
+     *          if the value is not of an open type
+     */
+    static Object toOpenValue(Object oValue)
+        {
+        if (oValue instanceof Enum)
+            {
+            return ((Enum<?>) oValue).name();
+            }
+
+        return isOpenValue(oValue) ? oValue : NOT_OPEN;
+        }
+
+    /**
+     * Determine whether a value is of an open type, or is an array of such values.
+     *
+     * @param oValue  the value, may be {@code null}
+     *
+     * @return  {@code true} if the value is of an open type
+     */
+    private static boolean isOpenValue(Object oValue)
+        {
+        if (oValue == null || oValue instanceof CompositeData || oValue instanceof TabularData
+            || OpenType.ALLOWED_CLASSNAMES_LIST.contains(oValue.getClass().getName()))
+            {
+            return true;
+            }
+
+        Class<?> clz = oValue.getClass();
+
+        if (!clz.isArray())
+            {
+            return false;
+            }
+
+        if (clz.getComponentType().isPrimitive())
+            {
+            return true;
+            }
+
+        for (int i = 0, c = Array.getLength(oValue); i < c; i++)
+            {
+            if (!isOpenValue(Array.get(oValue, i)))
+                {
+                return false;
+                }
+            }
+
+        return true;
+        }
+
+    /**
+     * Obtain the names of the readable attributes of an MBean.
+     *
+     * @param name  the name of the MBean
+     *
+     * @return  the names of the readable attributes
+     *
+     * @throws JMException  if the MBean information cannot be read
+     */
+    private String[] getAttributeNames(ObjectName name)
+            throws JMException
+        {
+        List<String> listName = new ArrayList<>();
+
+        for (MBeanAttributeInfo info : f_server.getMBeanInfo(name).getAttributes())
+            {
+            if (info.isReadable())
+                {
+                listName.add(info.getName());
+                }
+            }
+
+        return listName.toArray(new String[0]);
+        }
+
+    /**
+     * Obtain the cache key of a query.
+     *
+     * @param pattern      the {@link ObjectName} pattern
+     * @param asAttribute  the names of the attributes, may be {@code null}
+     *
+     * @return  the cache key
+     */
+    private static String getKey(ObjectName pattern, String[] asAttribute)
+        {
+        StringBuilder sb = new StringBuilder(pattern.getCanonicalName());
+
+        if (asAttribute != null)
+            {
+            for (String sAttribute : asAttribute)
+                {
+                sb.append('\u0000').append(sAttribute);
+                }
+            }
+
+        return sb.toString();
+        }
+
+    // ----- inner class: Result --------------------------------------------
+
+    /**
+     * A cached query result.
+     */
+    private static class Result
+        {
+        /**
+         * Create a {@link Result}.
+         *
+         * @param mapValue    the attribute values
+         * @param ldtExpiry   the time the result expires
+         */
+        Result(Map<String, Map<String, Object>> mapValue, long ldtExpiry)
+            {
+            f_mapValue  = mapValue;
+            f_ldtExpiry = ldtExpiry;
+            }
+
+        /**
+         * The attribute values keyed by attribute name, keyed by MBean name.
+         */
+        private final Map<String, Map<String, Object>> f_mapValue;
+
+        /**
+         * The time the result expires.
+         */
+        private final long f_ldtExpiry;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The marker returned by {@link #toOpenValue(Object)} for a value that is
+     * not of an open type.
+     */
+    static final Object NOT_OPEN = new Object();
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The {@link MBeanServer} to read the attributes from.
+     */
+    private final MBeanServer f_server;
+
+    /**
+     * The time in milliseconds to cache a result for.
+     */
+    private final long f_cTtlMillis;
+
+    /**
+     * The cached results keyed by pattern and attribute names.
+     */
+    private final Map<String, Result> f_mapResult = new ConcurrentHashMap<>();
+
+    /**
+     * The number of queries.
+     */
+    private final AtomicLong f_cQuery = new AtomicLong();
+
+    /**
+     * The number of queries answered from the cache.
+     */
+    private final AtomicLong f_cCacheHit = new AtomicLong();
+    }
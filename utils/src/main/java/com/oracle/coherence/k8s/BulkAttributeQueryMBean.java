@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.management.annotation.Description;
+
+import java.util.Map;
+
+/**
+ * The MBean interface of the {@link BulkAttributeQuery} hosted by
+ * {@link JmxmpServer}, reading the attributes of many MBeans in one call.
+ *
+ * @author jk
+ */
+@Description("Reads the attributes of all the MBeans matching a pattern in one call")
+public interface BulkAttributeQueryMBean
+    {
+    /**
+     * Read attributes of all the MBeans matching an {@link javax.management.ObjectName} pattern.
+     * <p>
+     * The result is cached for {@link #getCacheTtlMillis()}, so callers
+     * sampling the same MBeans share a single read.
+     *
+     * @param sPattern     the {@link javax.management.ObjectName} pattern
+     * @param asAttribute  the names of the attributes to read, or {@code null}
+     *                     or empty to read all the readable attributes
+     *
+     * @return  the attribute values keyed by attribute name, keyed by the
+     *          canonical name of each MBean; enum values are returned as
+     *          their names and attributes that cannot be read, or whose value
+     *          is not of an open type, are omitted
+     */
+    @Description("Read the attributes of all the MBeans matching an ObjectName pattern")
+    Map<String, Map<String, Object>> query(String sPattern, String[] asAttribute);
+
+    /**
+     * Obtain the number of queries.
+     *
+     * @return  the number of queries
+     */
+    @Description("The number of queries")
+    long getQueryCount();
+
+    /**
+     * Obtain the number of queries answered from the result cache.
+     *
+     * @return  the number of queries answered from the result cache
+     */
+    @Description("The number of queries answered from the result cache")
+    long getCacheHitCount();
+
+    /**
+     * Obtain the time a query result is cached for.
+     *
+     * @return  the time in milliseconds a query result is cached for
+     */
+    @Description("The time in milliseconds a query result is cached for")
+    long getCacheTtlMillis();
+    }
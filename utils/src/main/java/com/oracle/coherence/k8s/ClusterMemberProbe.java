@@ -82,6 +82,12 @@ public class ClusterMemberProbe
         return getMBeanServerProxy().queryNames(MBEAN_PARTITION_ASSIGNMENT, null);
         }
 
+    @Override
+    protected Set<String> getPersistenceMBeans()
+        {
+        return getMBeanServerProxy().queryNames(MBEAN_PERSISTENCE_COORDINATOR, null);
+        }
+
     @Override
     protected Map<String, Object> getMBeanAttributes(String sMBean, String[] asAttributes)
         {
@@ -125,6 +131,12 @@ public class ClusterMemberProbe
     public static final String MBEAN_PARTITION_ASSIGNMENT = Registry.PARTITION_ASSIGNMENT_TYPE
             + ",service=*,responsibility=DistributionCoordinator";
 
+    /**
+     * The MBean name of the PersistenceCoordinator MBean.
+     */
+    public static final String MBEAN_PERSISTENCE_COORDINATOR = Registry.PERSISTENCE_SNAPSHOT_TYPE
+            + ",service=*,responsibility=PersistenceCoordinator";
+
     // ----- data members ---------------------------------------------------
 
     /**
@@ -8,14 +8,25 @@ package com.oracle.coherence.k8s;
 
 import com.tangosol.net.CacheFactory;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 /**
  * A simple class that either prints out the current Coherence version
  * or if a version is passed in prints whether the current Coherence
  * version is greater than or equal to that version.
- * 
+ * <p>
+ * Versions are compared part by part as numbers, so {@code 14.1.1} is
+ * later than {@code 12.2.1.4.0}. The parts may be separated by {@code .},
+ * {@code -} or {@code _}, so the Maven style {@code 14.1.1-0-3} is the same
+ * as {@code 14.1.1.0.3}, and missing parts are treated as zero. Anything
+ * before the last {@code :}, such as the repository of an image name, and
+ * any qualifier after the numeric parts, such as {@code -SNAPSHOT} or a
+ * build description, is ignored. Comparing versions does not allocate.
+ * <p>
+ * The version of Coherence on the class path is read and parsed once, and
+ * whether it supports each {@link Feature} is worked out once, so start-up
+ * code can branch on it without parsing the version again.
+ *
  * @author jk
  */
 public class CoherenceVersion
@@ -31,68 +42,344 @@ public class CoherenceVersion
 
         if (asArg != null && asArg.length > 0)
             {
-            nExitCode = versionCheck(CacheFactory.VERSION, asArg) ? 0 : 1;
+            nExitCode = isAtLeast(asArg[0]) ? 0 : 1;
             }
         else
             {
-            System.out.println(CacheFactory.VERSION);
+            System.out.println(getVersion());
             }
-        
+
         System.exit(nExitCode);
         }
 
+    /**
+     * Determine whether a Coherence version is greater than or equal to
+     * another version.
+     *
+     * @param sCoherence  the Coherence version
+     * @param asArg       the arguments, the first of which is the version to compare to
+     *
+     * @return  {@code true} if the Coherence version is greater than or equal to the version
+     */
     static public boolean versionCheck(String sCoherence, String... asArg)
         {
-        if (sCoherence.contains(":"))
+        return compare(sCoherence, asArg[0]) >= 0;
+        }
+
+    /**
+     * Compare two versions.
+     *
+     * @param sVersion1  the first version
+     * @param sVersion2  the second version
+     *
+     * @return  a negative integer, zero or a positive integer as the first
+     *          version is earlier than, the same as or later than the second
+     */
+    public static int compare(String sVersion1, String sVersion2)
+        {
+        int of1 = start(sVersion1);
+        int of2 = start(sVersion2);
+
+        while (true)
             {
-            sCoherence = sCoherence.substring(sCoherence.indexOf(":") + 1);
+            long lNext1 = next(sVersion1, of1);
+            long lNext2 = next(sVersion2, of2);
+            int  nPart1 = (int) lNext1;
+            int  nPart2 = (int) lNext2;
+
+            if (nPart1 < 0 && nPart2 < 0)
+                {
+                return 0;
+                }
+
+            // a missing part is zero
+            int nCompare = Integer.compare(Math.max(nPart1, 0), Math.max(nPart2, 0));
+
+            if (nCompare != 0)
+                {
+                return nCompare;
+                }
+
+            of1 = (int) (lNext1 >>> 32);
+            of2 = (int) (lNext2 >>> 32);
             }
+        }
 
-        boolean fResult     = true;
-        int[]   anCoherence = splitVersion(sCoherence);
-        int[]   anVersion   = splitVersion(asArg[0]);
-        int     cPart       = Math.min(anCoherence.length, anVersion.length);
+    /**
+     * Compare parsed version parts to a version.
+     *
+     * @param anParts   the parsed version parts, see {@link #parse(String)}
+     * @param sVersion  the version
+     *
+     * @return  a negative integer, zero or a positive integer as the parsed
+     *          version is earlier than, the same as or later than the version
+     */
+    static int compare(int[] anParts, String sVersion)
+        {
+        int of = start(sVersion);
 
-        if (cPart > 0)
+        for (int i = 0; ; i++)
             {
-            for (int i = 0; i < cPart && fResult; i++)
+            long lNext  = next(sVersion, of);
+            int  nPart2 = (int) lNext;
+
+            if (i >= anParts.length && nPart2 < 0)
                 {
-                fResult = anCoherence[i] >= anVersion[i];
+                return 0;
                 }
-            }
 
-        return fResult;
+            // a missing part is zero
+            int nPart1   = i < anParts.length ? anParts[i] : 0;
+            int nCompare = Integer.compare(nPart1, Math.max(nPart2, 0));
+
+            if (nCompare != 0)
+                {
+                return nCompare;
+                }
+
+            of = (int) (lNext >>> 32);
+            }
         }
 
-    private static int[] splitVersion(String sVersion)
+    /**
+     * Parse the numeric parts of a version.
+     *
+     * @param sVersion  the version
+     *
+     * @return  the numeric parts of the version
+     */
+    static int[] parse(String sVersion)
         {
-        Matcher matcher = pattern.matcher(sVersion);
-        int[]   anPart;
+        int[] anParts = new int[8];
+        int   cParts  = 0;
+        int   of      = start(sVersion);
 
-        if (matcher.matches())
+        while (true)
             {
-            int   cGroup = matcher.groupCount();
-            anPart = new int[cGroup];
+            long lNext = next(sVersion, of);
+            int  nPart = (int) lNext;
 
-            for (int i = 1; i <= cGroup; i++)
+            if (nPart < 0)
                 {
-                try
-                    {
-                    anPart[i-1] = Integer.parseInt(matcher.group(i));
-                    }
-                catch (NumberFormatException e)
-                    {
-                    anPart[i-1] = 0;
-                    }
+                return Arrays.copyOf(anParts, cParts);
                 }
+
+            if (cParts == anParts.length)
+                {
+                anParts = Arrays.copyOf(anParts, cParts * 2);
+                }
+
+            anParts[cParts++] = nPart;
+            of = (int) (lNext >>> 32);
             }
-        else
+        }
+
+    /**
+     * Obtain the version of Coherence on the class path.
+     * <p>
+     * The version is read once, from the manifest of the Coherence jar so
+     * that Coherence is not initialized, falling back to
+     * {@link CacheFactory#VERSION} if the manifest has no version.
+     *
+     * @return  the Coherence version
+     */
+    public static String getVersion()
+        {
+        return Current.VERSION;
+        }
+
+    /**
+     * Determine whether the version of Coherence on the class path is
+     * greater than or equal to a version.
+     *
+     * @param sVersion  the version to compare to
+     *
+     * @return  {@code true} if the Coherence version is greater than or equal to the version
+     */
+    public static boolean isAtLeast(String sVersion)
+        {
+        return compare(Current.PARTS, sVersion) >= 0;
+        }
+
+    /**
+     * Determine whether the version of Coherence on the class path
+     * supports a feature.
+     *
+     * @param feature  the feature
+     *
+     * @return  {@code true} if the feature is supported
+     */
+    public static boolean supports(Feature feature)
+        {
+        return Current.SUPPORTED[feature.ordinal()];
+        }
+
+    /**
+     * Determine whether a Coherence version supports a feature.
+     *
+     * @param sVersion  the Coherence version
+     * @param feature   the feature
+     *
+     * @return  {@code true} if the feature is supported
+     */
+    public static boolean supports(String sVersion, Feature feature)
+        {
+        return compare(sVersion, feature.getMinimumVersion()) >= 0;
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Find the start of the numeric parts of a version.
+     *
+     * @param sVersion  the version
+     *
+     * @return  the offset of the first digit after the last {@code :}
+     */
+    private static int start(String sVersion)
+        {
+        int of = sVersion.lastIndexOf(':') + 1;
+
+        while (of < sVersion.length() && !Character.isDigit(sVersion.charAt(of)))
+            {
+            of++;
+            }
+
+        return of;
+        }
+
+    /**
+     * Read the next numeric part of a version.
+     *
+     * @param sVersion  the version
+     * @param of        the offset of the part
+     *
+     * @return  the offset of the following part in the high 32 bits and the
+     *          value of the part in the low 32 bits, or -1 in the low bits
+     *          if there are no more parts
+     */
+    private static long next(String sVersion, int of)
+        {
+        int cch = sVersion.length();
+
+        if (of >= cch || !Character.isDigit(sVersion.charAt(of)))
+            {
+            return ((long) of << 32) | 0xFFFFFFFFL;
+            }
+
+        int nPart = 0;
+
+        while (of < cch && Character.isDigit(sVersion.charAt(of)))
             {
-            anPart = new int[0];
+            nPart = (int) Math.min((long) nPart * 10 + Character.digit(sVersion.charAt(of++), 10), Integer.MAX_VALUE);
             }
 
-        return anPart;
+        // step over a separator, but only if another numeric part follows it
+        if (of + 1 < cch && SEPARATORS.indexOf(sVersion.charAt(of)) >= 0 && Character.isDigit(sVersion.charAt(of + 1)))
+            {
+            of++;
+            }
+
+        return ((long) of << 32) | nPart;
         }
 
-    private static final Pattern pattern = Pattern.compile("(\\d*)\\D*(\\d*)\\D*(\\d*)\\D*(\\d*)\\D*(\\d*)\\D*");
+    /**
+     * Read the version of Coherence on the class path.
+     *
+     * @return  the Coherence version
+     */
+    private static String readVersion()
+        {
+        Package pkg      = CacheFactory.class.getPackage();
+        String  sVersion = pkg == null ? null : pkg.getImplementationVersion();
+
+        return sVersion == null || sVersion.trim().isEmpty() ? CacheFactory.VERSION : sVersion.trim();
+        }
+
+    // ----- inner enum: Feature --------------------------------------------
+
+    /**
+     * The Coherence features that depend on the Coherence version.
+     */
+    public enum Feature
+        {
+        /**
+         * Management over REST.
+         */
+        MANAGEMENT_OVER_REST("12.2.1.4.0"),
+
+        /**
+         * The metrics endpoint.
+         */
+        METRICS("12.2.1.4.0"),
+
+        /**
+         * SSL socket providers for the management over REST and metrics
+         * endpoints, configured by {@code k8s-coherence-override.xml}.
+         */
+        SSL_ENDPOINTS("12.2.1.4.0");
+
+        /**
+         * Create a {@link Feature}.
+         *
+         * @param sVersion  the first Coherence version supporting the feature
+         */
+        Feature(String sVersion)
+            {
+            f_sVersion = sVersion;
+            }
+
+        /**
+         * Obtain the first Coherence version supporting the feature.
+         *
+         * @return  the first Coherence version supporting the feature
+         */
+        public String getMinimumVersion()
+            {
+            return f_sVersion;
+            }
+
+        /**
+         * The first Coherence version supporting the feature.
+         */
+        private final String f_sVersion;
+        }
+
+    // ----- inner class: Current -------------------------------------------
+
+    /**
+     * Holder of the version of Coherence on the class path, read on first use.
+     */
+    private static class Current
+        {
+        /**
+         * The version of Coherence on the class path.
+         */
+        static final String VERSION = readVersion();
+
+        /**
+         * The numeric parts of the version of Coherence on the class path.
+         */
+        static final int[] PARTS = parse(VERSION);
+
+        /**
+         * Whether each {@link Feature} is supported, indexed by ordinal.
+         */
+        static final boolean[] SUPPORTED = new boolean[Feature.values().length];
+
+        static
+            {
+            for (Feature feature : Feature.values())
+                {
+                SUPPORTED[feature.ordinal()] = compare(PARTS, feature.getMinimumVersion()) >= 0;
+                }
+            }
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The characters separating the numeric parts of a version.
+     */
+    private static final String SEPARATORS = ".-_";
     }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.CacheFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Watches directories holding mounted secrets, notifying listeners when
+ * anything in a directory changes.
+ * <p>
+ * The individual events are not examined, as Kubernetes updates a mounted
+ * secret by swapping the {@code ..data} symbolic link rather than changing
+ * the files it contains, so listeners should read again all the files of
+ * the directory they are interested in. The listeners are called on a
+ * single daemon thread.
+ *
+ * @author jk
+ */
+final class DirectoryWatcher
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Private constructor for utility class.
+     */
+    private DirectoryWatcher()
+        {
+        }
+
+    // ----- DirectoryWatcher methods ---------------------------------------
+
+    /**
+     * Watch a directory for changes.
+     * <p>
+     * Adding the same listener for a directory more than once has no effect.
+     *
+     * @param dir       the directory
+     * @param listener  the listener to call with the directory when it changes
+     *
+     * @return {@code true} if the directory is watched
+     */
+    static synchronized boolean watch(Path dir, Consumer<Path> listener)
+        {
+        if (dir == null)
+            {
+            return false;
+            }
+
+        Set<Consumer<Path>> setListener = s_mapListener.get(dir);
+
+        if (setListener == null)
+            {
+            try
+                {
+                if (s_watchService == null)
+                    {
+                    s_watchService = FileSystems.getDefault().newWatchService();
+
+                    Thread thread = new Thread(DirectoryWatcher::processEvents, "DirectoryWatcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                    }
+
+                WatchKey key = dir.register(s_watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+                setListener = new CopyOnWriteArraySet<>();
+                s_mapWatched.put(key, dir);
+                s_mapListener.put(dir, setListener);
+                }
+            catch (IOException | UnsupportedOperationException e)
+                {
+                CacheFactory.log("Cannot watch " + dir + " for changes: " + e, CacheFactory.LOG_WARN);
+                return false;
+                }
+            }
+
+        setListener.add(listener);
+        return true;
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Process the changes to the watched directories.
+     */
+    private static void processEvents()
+        {
+        try
+            {
+            while (true)
+                {
+                WatchKey            key         = s_watchService.take();
+                Path                dir         = s_mapWatched.get(key);
+                Set<Consumer<Path>> setListener = dir == null ? null : s_mapListener.get(dir);
+
+                key.pollEvents();
+
+                if (!key.reset())
+                    {
+                    // the directory no longer exists, the listeners are told once more so they see that
+                    unwatch(key);
+                    }
+
+                notifyListeners(dir, setListener);
+                }
+            }
+        catch (InterruptedException | ClosedWatchServiceException e)
+            {
+            // the watcher is stopping
+            }
+        }
+
+    /**
+     * Call the listeners of a directory.
+     *
+     * @param dir          the directory
+     * @param setListener  the listeners, may be {@code null}
+     */
+    private static void notifyListeners(Path dir, Set<Consumer<Path>> setListener)
+        {
+        if (setListener != null)
+            {
+            for (Consumer<Path> listener : setListener)
+                {
+                try
+                    {
+                    listener.accept(dir);
+                    }
+                catch (RuntimeException e)
+                    {
+                    CacheFactory.log("Failed to process change to " + dir + ": " + e, CacheFactory.LOG_WARN);
+                    }
+                }
+            }
+        }
+
+    /**
+     * Stop watching a directory that no longer exists.
+     *
+     * @param key  the key of the directory
+     */
+    private static synchronized void unwatch(WatchKey key)
+        {
+        Path dir = s_mapWatched.remove(key);
+
+        if (dir != null)
+            {
+            s_mapListener.remove(dir);
+            }
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The watched directories, keyed by their {@link WatchKey}.
+     */
+    private static final Map<WatchKey, Path> s_mapWatched = new ConcurrentHashMap<>();
+
+    /**
+     * The listeners of each watched directory.
+     */
+    private static final Map<Path, Set<Consumer<Path>>> s_mapListener = new ConcurrentHashMap<>();
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The {@link WatchService} watching the directories.
+     */
+    private static WatchService s_watchService;
+    }
@@ -0,0 +1,487 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.oracle.common.base.Blocking;
+import com.oracle.common.util.Duration;
+import com.tangosol.net.AddressProvider;
+import com.tangosol.net.CacheFactory;
+import com.tangosol.util.Base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * An {@link AddressProvider} that obtains the WKA addresses from the pod IPs
+ * of the Endpoints of the Coherence headless service, as served by the
+ * operator's info server from {@code /endpoints/<namespace>/<name>}.
+ * <p>
+ * The Endpoints include the addresses of pods that are not ready, so members
+ * can find each other as soon as their pods have IPs rather than waiting for
+ * the headless service DNS records to propagate. If the info server cannot be
+ * reached, or has no addresses, the WKA host names are resolved with DNS.
+ * <p>
+ * Like {@link RetryingWkaAddressProvider}, {@link #create()} waits until at
+ * least one address is available, so a member never starts with an empty WKA
+ * list and forms a cluster of its own. After that Coherence is always given
+ * the last addresses found, and when they are older than
+ * {@link #DEFAULT_REFRESH_MILLIS} they are fetched again in the background,
+ * keeping the requests and DNS lookups off the cluster join path. A refresh
+ * that finds no addresses keeps the previous ones.
+ *
+ * @author jk
+ */
+public class EndpointsWkaAddressProvider
+        implements AddressProvider
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create an {@link EndpointsWkaAddressProvider}.
+     *
+     * @param sUrl              the info server URL of the Endpoints
+     * @param listHost          the WKA host names to resolve with DNS if the
+     *                          Endpoints are not available
+     * @param cMillisFetch      the connect and read timeout of the Endpoints request
+     * @param cMillisFrequency  the maximum time in milliseconds between attempts to
+     *                          find the first addresses
+     * @param cMillisTimeout    the maximum time in milliseconds to wait for the first
+     *                          addresses
+     */
+    EndpointsWkaAddressProvider(String sUrl, List<String> listHost, int cMillisFetch, long cMillisFrequency,
+                                long cMillisTimeout)
+        {
+        f_sUrl             = sUrl;
+        f_listHost         = listHost;
+        f_cMillisFetch     = cMillisFetch;
+        f_cMillisFrequency = cMillisFrequency;
+        f_cMillisTimeout   = cMillisTimeout;
+        }
+
+    // ----- factory methods ------------------------------------------------
+
+    /**
+     * Create the WKA {@link AddressProvider}.
+     * <p>
+     * If the info server URL of the Endpoints is configured, with the
+     * {@link #ENV_WKA_ENDPOINTS} environment variable or the
+     * {@link #PROP_WKA_ENDPOINTS} System property, an
+     * {@link EndpointsWkaAddressProvider} is returned, otherwise the WKA
+     * addresses are resolved with {@link RetryingWkaAddressProvider#create()}.
+     * <p>
+     * Either way this waits for at least one WKA address, retrying with the
+     * {@link RetryingWkaAddressProvider#PROP_WKA_RERESOLVE_FREQUENCY} frequency
+     * for up to the {@link RetryingWkaAddressProvider#PROP_WKA_TIMEOUT} timeout.
+     *
+     * @return the WKA {@link AddressProvider}
+     *
+     * @throws UnknownHostException if no WKA address is found within the timeout
+     */
+    public static AddressProvider create()
+            throws UnknownHostException
+        {
+        String sUrl = System.getenv(ENV_WKA_ENDPOINTS);
+
+        if (sUrl == null || sUrl.trim().isEmpty())
+            {
+            sUrl = System.getProperty(PROP_WKA_ENDPOINTS);
+            }
+
+        if (sUrl == null || sUrl.trim().isEmpty())
+            {
+            return RetryingWkaAddressProvider.create();
+            }
+
+        String       sWka     = System.getProperty(RetryingWkaAddressProvider.PROP_WKA_OVERRIDE);
+        List<String> listHost = sWka == null
+                ? Collections.emptyList()
+                : Arrays.stream(sWka.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                        .collect(Collectors.toList());
+
+        long cMillisFrequency = new Duration(System.getProperty(RetryingWkaAddressProvider.PROP_WKA_RERESOLVE_FREQUENCY,
+                                                                "2s")).as(Duration.Magnitude.MILLI);
+        long cMillisTimeout   = new Duration(System.getProperty(RetryingWkaAddressProvider.PROP_WKA_TIMEOUT, "6m"))
+                                        .as(Duration.Magnitude.MILLI);
+
+        return new EndpointsWkaAddressProvider(sUrl.trim(), listHost, DEFAULT_FETCH_TIMEOUT_MILLIS, cMillisFrequency,
+                                               cMillisTimeout).eventuallyResolve();
+        }
+
+    // ----- EndpointsWkaAddressProvider methods ----------------------------
+
+    /**
+     * Find the WKA addresses, retrying until at least one is found or
+     * the timeout expires.
+     * <p>
+     * Attempts start with a delay of
+     * {@link RetryingWkaAddressProvider#INITIAL_RERESOLVE_FREQUENCY_MS} that
+     * doubles up to the configured frequency.
+     *
+     * @return this provider
+     *
+     * @throws UnknownHostException if no WKA address is found within the timeout
+     */
+    public EndpointsWkaAddressProvider eventuallyResolve()
+            throws UnknownHostException
+        {
+        long ldtDeadline = Base.getSafeTimeMillis() + f_cMillisTimeout;
+        long cDelay      = Math.min(RetryingWkaAddressProvider.INITIAL_RERESOLVE_FREQUENCY_MS, f_cMillisFrequency);
+
+        while (true)
+            {
+            List<InetSocketAddress> listAddress = findAddresses();
+
+            if (!listAddress.isEmpty())
+                {
+                m_listAddress = listAddress;
+                m_ldtFetched  = Base.getSafeTimeMillis();
+                return this;
+                }
+
+            long cWait = Math.min(cDelay, ldtDeadline - Base.getSafeTimeMillis());
+
+            if (cWait <= 0)
+                {
+                break;
+                }
+
+            try
+                {
+                Blocking.sleep(cWait);
+                }
+            catch (InterruptedException e)
+                {
+                Thread.currentThread().interrupt();
+                throw Base.ensureRuntimeException(e);
+                }
+
+            cDelay = Math.min(cDelay * 2, f_cMillisFrequency);
+            }
+
+        throw new UnknownHostException(getClass().getName() + " failed to find WKA addresses from " + f_sUrl
+                                       + " or " + f_listHost + " within " + f_cMillisTimeout + " milliseconds.");
+        }
+
+    // ----- AddressProvider interface --------------------------------------
+
+    @Override
+    public synchronized InetSocketAddress getNextAddress()
+        {
+        if (m_iterAddress == null)
+            {
+            m_iterAddress = getAddresses().iterator();
+            }
+
+        if (m_iterAddress.hasNext())
+            {
+            return m_iterAddress.next();
+            }
+
+        // the end of this iteration, the next call starts a new one
+        m_iterAddress = null;
+        return null;
+        }
+
+    @Override
+    public void accept()
+        {
+        }
+
+    @Override
+    public void reject(Throwable eCause)
+        {
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Obtain the last WKA addresses found, starting a background refresh if
+     * they are older than {@link #DEFAULT_REFRESH_MILLIS}.
+     *
+     * @return the last WKA addresses found, empty if none have been found yet
+     */
+    protected List<InetSocketAddress> getAddresses()
+        {
+        List<InetSocketAddress> listAddress = m_listAddress;
+
+        if (listAddress == null || Base.getSafeTimeMillis() - m_ldtFetched >= DEFAULT_REFRESH_MILLIS)
+            {
+            refreshAsync();
+            }
+
+        return listAddress == null ? Collections.emptyList() : listAddress;
+        }
+
+    /**
+     * Start a background refresh of the WKA addresses unless one is already
+     * in progress.
+     */
+    private void refreshAsync()
+        {
+        if (f_fRefreshing.compareAndSet(false, true))
+            {
+            REFRESH_EXECUTOR.execute(() ->
+                {
+                try
+                    {
+                    refresh();
+                    }
+                finally
+                    {
+                    f_fRefreshing.set(false);
+                    }
+                });
+            }
+        }
+
+    /**
+     * Find the WKA addresses again, keeping the previous addresses if none
+     * are found, so a transient failure of the info server and DNS does not
+     * empty the WKA list.
+     */
+    void refresh()
+        {
+        List<InetSocketAddress> listAddress = findAddresses();
+
+        if (!listAddress.isEmpty())
+            {
+            m_listAddress = listAddress;
+            }
+        m_ldtFetched = Base.getSafeTimeMillis();
+        }
+
+    /**
+     * Find the WKA addresses, from the Endpoints or else by resolving the
+     * WKA host names.
+     *
+     * @return the WKA addresses, empty if none were found
+     */
+    protected List<InetSocketAddress> findAddresses()
+        {
+        List<InetSocketAddress> listAddress = fetchEndpoints();
+
+        return listAddress.isEmpty() ? resolveHosts() : listAddress;
+        }
+
+    /**
+     * Fetch the pod IPs of the Endpoints from the info server.
+     *
+     * @return the addresses of the Endpoints, or an empty list if they could
+     *         not be fetched
+     */
+    protected List<InetSocketAddress> fetchEndpoints()
+        {
+        HttpURLConnection connection = null;
+
+        try
+            {
+            connection = (HttpURLConnection) new URL(f_sUrl).openConnection();
+            connection.setConnectTimeout(f_cMillisFetch);
+            connection.setReadTimeout(f_cMillisFetch);
+
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+                {
+                return Collections.emptyList();
+                }
+
+            List<InetSocketAddress> listAddress = new ArrayList<>();
+
+            try (InputStream in = connection.getInputStream())
+                {
+                for (String sIP : read(in).split(","))
+                    {
+                    sIP = sIP.trim();
+                    if (!sIP.isEmpty())
+                        {
+                        // the IPs are literals so this does not perform a DNS lookup
+                        listAddress.add(new InetSocketAddress(InetAddress.getByName(sIP), 0));
+                        }
+                    }
+                }
+
+            return listAddress;
+            }
+        catch (IOException e)
+            {
+            if (!m_fFetchFailureLogged)
+                {
+                m_fFetchFailureLogged = true;
+                CacheFactory.log("Failed to fetch WKA endpoints from " + f_sUrl + ", resolving "
+                                 + f_listHost + " instead: " + e, CacheFactory.LOG_WARN);
+                }
+            return Collections.emptyList();
+            }
+        finally
+            {
+            if (connection != null)
+                {
+                connection.disconnect();
+                }
+            }
+        }
+
+    /**
+     * Resolve the WKA host names with DNS, skipping the host names that do
+     * not resolve.
+     *
+     * @return the resolved addresses
+     */
+    protected List<InetSocketAddress> resolveHosts()
+        {
+        Set<InetSocketAddress> setAddress = new LinkedHashSet<>();
+
+        for (String sHost : f_listHost)
+            {
+            try
+                {
+                for (InetAddress address : InetAddress.getAllByName(sHost))
+                    {
+                    setAddress.add(new InetSocketAddress(address, 0));
+                    }
+                }
+            catch (UnknownHostException e)
+                {
+                // the host does not resolve yet
+                }
+            }
+
+        return new ArrayList<>(setAddress);
+        }
+
+    /**
+     * Read a stream as a UTF-8 String.
+     *
+     * @param in  the stream to read
+     *
+     * @return the content of the stream
+     *
+     * @throws IOException if the stream cannot be read
+     */
+    private static String read(InputStream in) throws IOException
+        {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[]                ab  = new byte[1024];
+        int                   cb;
+
+        while ((cb = in.read(ab)) >= 0)
+            {
+            out.write(ab, 0, cb);
+            }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+    // ----- Object methods -------------------------------------------------
+
+    @Override
+    public String toString()
+        {
+        return getClass().getSimpleName() + "(url=" + f_sUrl + ", hosts=" + f_listHost + ")";
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The environment variable holding the info server URL of the WKA Endpoints.
+     */
+    public static final String ENV_WKA_ENDPOINTS = "COH_WKA_ENDPOINTS_URL";
+
+    /**
+     * The System property holding the info server URL of the WKA Endpoints.
+     */
+    public static final String PROP_WKA_ENDPOINTS = "coherence.k8s.wka.endpoints";
+
+    /**
+     * The minimum time between fetches of the Endpoints.
+     */
+    public static final long DEFAULT_REFRESH_MILLIS = 1000L;
+
+    /**
+     * The connect and read timeout of the Endpoints request.
+     */
+    public static final int DEFAULT_FETCH_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * The executor refreshing the WKA addresses.
+     */
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(runnable ->
+        {
+        Thread thread = new Thread(runnable, "WkaEndpointsRefresh");
+        thread.setDaemon(true);
+        return thread;
+        });
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The info server URL of the Endpoints.
+     */
+    private final String f_sUrl;
+
+    /**
+     * The WKA host names resolved if the Endpoints are not available.
+     */
+    private final List<String> f_listHost;
+
+    /**
+     * The connect and read timeout of the Endpoints request.
+     */
+    private final int f_cMillisFetch;
+
+    /**
+     * The maximum time in milliseconds between attempts to find the first addresses.
+     */
+    private final long f_cMillisFrequency;
+
+    /**
+     * The maximum time in milliseconds to wait for the first addresses.
+     */
+    private final long f_cMillisTimeout;
+
+    /**
+     * Whether the WKA addresses are being refreshed in the background.
+     */
+    private final AtomicBoolean f_fRefreshing = new AtomicBoolean();
+
+    /**
+     * The WKA addresses last found.
+     */
+    private volatile List<InetSocketAddress> m_listAddress;
+
+    /**
+     * The time the WKA addresses were last fetched.
+     */
+    private volatile long m_ldtFetched;
+
+    /**
+     * The iterator of the current iteration over the WKA addresses.
+     */
+    private Iterator<InetSocketAddress> m_iterAddress;
+
+    /**
+     * Whether a failure to fetch the Endpoints has been logged.
+     */
+    private volatile boolean m_fFetchFailureLogged;
+    }
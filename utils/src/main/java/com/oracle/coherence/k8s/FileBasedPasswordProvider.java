@@ -14,6 +14,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * A file based Coherence {@link PasswordProvider}.
@@ -21,6 +28,14 @@ import java.io.InputStreamReader;
  * If the file name passed to the constructor is {@code null} then
  * a {@code null} password value is returned from the {@link #get()}
  * method.
+ * <p>
+ * In caching mode the password of a file on the file system is kept in
+ * memory and the directory containing the file is watched with a
+ * {@link DirectoryWatcher}. Any change in the directory reloads the password,
+ * which covers Kubernetes updating a mounted secret by swapping the
+ * {@code ..data} symbolic link rather than modifying the file itself, so
+ * a secret can be rotated without a restart and without reading the file
+ * each time the password is used.
  *
  * @author jk
  */
@@ -36,7 +51,20 @@ public class FileBasedPasswordProvider
      */
     public FileBasedPasswordProvider(String sFile)
         {
-        m_sFile = sFile;
+        this(sFile, false);
+        }
+
+    /**
+     * Create a {@link FileBasedPasswordProvider}.
+     *
+     * @param sFile   the name of the file containing the password
+     * @param fCache  {@code true} to cache the password in memory and
+     *                reload it when the file changes
+     */
+    public FileBasedPasswordProvider(String sFile, boolean fCache)
+        {
+        m_sFile  = sFile;
+        m_fCache = fCache;
         }
 
     // ----- PasswordProvider methods ---------------------------------------
@@ -50,7 +78,34 @@ public class FileBasedPasswordProvider
             return null;
             }
 
-        try (InputStream in = Resources.findFileOrResource(m_sFile, getClass().getClassLoader()).openStream())
+        URL url = Resources.findFileOrResource(m_sFile, getClass().getClassLoader());
+
+        if (m_fCache)
+            {
+            Path path = toPath(url);
+
+            if (path != null && DirectoryWatcher.watch(path.getParent(), RELOADER))
+                {
+                // the caller may clear the returned array so always return a copy
+                return s_mapPassword.computeIfAbsent(path, p -> read(url)).clone();
+                }
+            }
+
+        return read(url);
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Read the password from the first line of a file or resource.
+     *
+     * @param url  the URL of the file or resource
+     *
+     * @return the password
+     */
+    private static char[] read(URL url)
+        {
+        try (InputStream in = url.openStream())
             {
             BufferedReader reader = new BufferedReader(new InputStreamReader(in));
             return reader.readLine().toCharArray();
@@ -61,10 +116,76 @@ public class FileBasedPasswordProvider
             }
         }
 
+    /**
+     * Obtain the file system path of a URL.
+     *
+     * @param url  the URL
+     *
+     * @return the absolute path of the file or {@code null} if the URL
+     *         is not a file, for example a class path resource in a jar
+     */
+    private static Path toPath(URL url)
+        {
+        if (url == null || !"file".equals(url.getProtocol()))
+            {
+            return null;
+            }
+
+        try
+            {
+            return Paths.get(url.toURI()).toAbsolutePath();
+            }
+        catch (URISyntaxException | IllegalArgumentException e)
+            {
+            return null;
+            }
+        }
+
+    /**
+     * Reload the cached passwords of the files in a directory.
+     *
+     * @param dir  the directory
+     */
+    private static void reload(Path dir)
+        {
+        for (Path path : s_mapPassword.keySet())
+            {
+            if (dir.equals(path.getParent()))
+                {
+                try
+                    {
+                    s_mapPassword.put(path, read(path.toUri().toURL()));
+                    }
+                catch (IOException | RuntimeException e)
+                    {
+                    // the file may be part way through an update, it is read again when next used
+                    s_mapPassword.remove(path);
+                    }
+                }
+            }
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The cached passwords, keyed by the absolute path of their file.
+     */
+    private static final Map<Path, char[]> s_mapPassword = new ConcurrentHashMap<>();
+
+    /**
+     * The listener reloading the cached passwords of a changed directory.
+     */
+    private static final Consumer<Path> RELOADER = FileBasedPasswordProvider::reload;
+
     // ----- data members ------------------------------------------------
 
     /**
      * The name of the file containing the password.
      */
     private String m_sFile;
+
+    /**
+     * Whether the password is cached and reloaded when the file changes.
+     */
+    private boolean m_fCache;
     }
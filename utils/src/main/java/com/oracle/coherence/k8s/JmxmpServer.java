@@ -6,17 +6,27 @@
 package com.oracle.coherence.k8s;
 
 import com.oracle.common.base.Blocking;
+import com.oracle.common.util.Duration;
+import com.sun.jmx.remote.socket.SocketConnectionServer;
 import com.tangosol.net.CacheFactory;
 import com.tangosol.net.Cluster;
+import com.tangosol.net.management.AnnotatedStandardMBean;
 import com.tangosol.net.management.MBeanServerFinder;
 import com.tangosol.util.Base;
 
+import javax.management.JMException;
 import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.management.remote.JMXConnectorServer;
 import javax.management.remote.JMXConnectorServerFactory;
 import javax.management.remote.JMXServiceURL;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * An implementation of a Coherence {@link MBeanServerFinder}
@@ -68,33 +78,182 @@ public class JmxmpServer
     /**
      * Obtain the JMXMP protocol {@link JMXConnectorServer} instance, creating the instance of the connector server if
      * one does not already exist.
+     * <p>
+     * The connector server is created once without locking; callers racing
+     * to create it wait for the winner to start it, and if starting it fails
+     * the next caller tries again.
      *
      * @param address the address to listen on
      *
      * @return the JMXMP protocol {@link JMXConnectorServer} instance.
      */
-    private static synchronized JMXConnectorServer ensureServer(String address)
+    private static JMXConnectorServer ensureServer(String address)
         {
+        CompletableFuture<JMXConnectorServer> future = s_refServer.get();
+
+        while (future == null)
+            {
+            CompletableFuture<JMXConnectorServer> futureNew = new CompletableFuture<>();
+
+            if (s_refServer.compareAndSet(null, futureNew))
+                {
+                startServer(address, futureNew);
+                future = futureNew;
+                }
+            else
+                {
+                future = s_refServer.get();
+                }
+            }
+
         try
             {
-            if (s_connectorServer == null)
+            return future.join();
+            }
+        catch (CompletionException e)
+            {
+            Throwable eCause = e.getCause();
+
+            if (eCause instanceof Error)
                 {
-                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
-                int nPort = Integer.getInteger("coherence.jmxmp.port", 9000);
+                throw (Error) eCause;
+                }
+            throw Base.ensureRuntimeException(eCause);
+            }
+        }
+
+    /**
+     * Start the JMXMP protocol {@link JMXConnectorServer}, completing a future
+     * with the started connector server.
+     *
+     * @param address  the address to listen on
+     * @param future   the future to complete
+     */
+    private static void startServer(String address, CompletableFuture<JMXConnectorServer> future)
+        {
+        JMXConnectorServer connectorServer = null;
+
+        try
+            {
+            // read all the configuration before the connector binds its port
+            MBeanServer   server         = ManagementFactory.getPlatformMBeanServer();
+            int           nPort          = Integer.getInteger("coherence.jmxmp.port", 9000);
+            JMXServiceURL url            = new JMXServiceURL("jmxmp", address, nPort);
+            boolean       fBulkQuery     = Boolean.getBoolean(PROP_BULK_QUERY);
+            long          cBulkTtlMillis = fBulkQuery ? getMillis(PROP_BULK_QUERY_TTL, "1s") : 0L;
 
-                s_jmxServiceURL = new JMXServiceURL("jmxmp", address, nPort);
-                s_connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(s_jmxServiceURL, null, server);
+            connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(url, createEnvironment(url), server);
+            connectorServer.start();
 
-                s_connectorServer.start();
+            CacheFactory.log("Started JMXMP connector " + connectorServer.getAddress());
 
-                CacheFactory.log("Started JMXMP connector " + s_connectorServer.getAddress());
+            if (fBulkQuery)
+                {
+                registerBulkQuery(server, cBulkTtlMillis);
                 }
 
-            return s_connectorServer;
+            s_jmxServiceURL = url;
+            future.complete(connectorServer);
             }
-        catch (IOException e)
+        catch (Throwable e)
             {
-            throw Base.ensureRuntimeException(e);
+            // any failure, including an Error such as a missing OpenDMK class, must complete
+            // the future and clear it, or every later caller would wait for it forever
+            if (connectorServer != null && connectorServer.isActive())
+                {
+                try
+                    {
+                    connectorServer.stop();
+                    }
+                catch (IOException | RuntimeException eStop)
+                    {
+                    CacheFactory.log("Failed to stop JMXMP connector: " + eStop, CacheFactory.LOG_WARN);
+                    }
+                }
+
+            s_refServer.set(null);
+            future.completeExceptionally(e);
+            }
+        }
+
+    /**
+     * Create the environment of the JMXMP protocol {@link JMXConnectorServer}
+     * from the System properties.
+     * <p>
+     * The JMXMP connector server uses a reader thread and a bounded pool of
+     * worker threads for each client connection, so the threads it uses are
+     * bounded by limiting both the open connections and the threads per
+     * connection. Idle clients are closed after a timeout, and clients that
+     * open a connection but never complete the handshake are closed after a
+     * shorter timeout, so stalled clients do not hold on to connections.
+     * Any {@code jmx.remote.x.*} System property is passed to the connector
+     * server as is, overriding these settings.
+     *
+     * @param url  the address of the connector server
+     *
+     * @return  the environment of the connector server
+     *
+     * @throws IOException  if the connector server socket cannot be created
+     */
+    static Map<String, Object> createEnvironment(JMXServiceURL url)
+            throws IOException
+        {
+        Map<String, Object> mapEnv = new HashMap<>();
+
+        mapEnv.put(ENV_MAX_THREADS, Integer.getInteger(PROP_MAX_THREADS, 4));
+        mapEnv.put(ENV_IDLE_TIMEOUT, getMillis(PROP_IDLE_TIMEOUT, "2m"));
+
+        for (String sName : System.getProperties().stringPropertyNames())
+            {
+            if (sName.startsWith("jmx.remote.x."))
+                {
+                mapEnv.put(sName, System.getProperty(sName));
+                }
+            }
+
+        int  cMaxConnection    = Integer.getInteger(PROP_MAX_CONNECTIONS, 100);
+        long cConnectingMillis = getMillis(PROP_CONNECTING_TIMEOUT, "10s");
+
+        mapEnv.put(ENV_CONNECTION_SERVER, new BoundedConnectionServer(new SocketConnectionServer(url, mapEnv),
+                                                                      cMaxConnection, cConnectingMillis));
+
+        return mapEnv;
+        }
+
+    /**
+     * Obtain a duration System property in milliseconds.
+     *
+     * @param sName     the name of the System property
+     * @param sDefault  the default duration, such as {@code 10s}
+     *
+     * @return  the duration in milliseconds
+     */
+    private static long getMillis(String sName, String sDefault)
+        {
+        return new Duration(System.getProperty(sName, sDefault)).as(Duration.Magnitude.MILLI);
+        }
+
+    /**
+     * Register the {@link BulkAttributeQuery} MBean, so that clients can read
+     * the attributes of many MBeans in a single JMXMP round trip.
+     *
+     * @param server      the {@link MBeanServer} served by the connector
+     * @param cTtlMillis  the time in milliseconds to cache a result for
+     */
+    private static void registerBulkQuery(MBeanServer server, long cTtlMillis)
+        {
+        try
+            {
+            BulkAttributeQuery query = new BulkAttributeQuery(server, cTtlMillis);
+
+            server.registerMBean(new AnnotatedStandardMBean(query, BulkAttributeQueryMBean.class),
+                                 new ObjectName(BULK_QUERY_MBEAN));
+
+            CacheFactory.log("Registered " + BULK_QUERY_MBEAN + " with a result cache of " + cTtlMillis + "ms");
+            }
+        catch (JMException e)
+            {
+            CacheFactory.log("Failed to register " + BULK_QUERY_MBEAN + ": " + e, CacheFactory.LOG_WARN);
             }
         }
 
@@ -126,17 +285,77 @@ public class JmxmpServer
             }
         }
 
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The System property to set to {@code true} to register the {@link BulkAttributeQuery} MBean.
+     */
+    public static final String PROP_BULK_QUERY = "coherence.jmxmp.bulk.enabled";
+
+    /**
+     * The System property setting how long {@link BulkAttributeQuery} results
+     * are cached for, as a duration such as {@code 500ms} or {@code 2s}.
+     */
+    public static final String PROP_BULK_QUERY_TTL = "coherence.jmxmp.bulk.ttl";
+
+    /**
+     * The name of the {@link BulkAttributeQuery} MBean.
+     */
+    public static final String BULK_QUERY_MBEAN = "com.oracle.coherence.k8s:type=BulkAttributeQuery";
+
+    /**
+     * The System property setting the maximum number of open JMXMP client connections.
+     */
+    public static final String PROP_MAX_CONNECTIONS = "coherence.jmxmp.max.connections";
+
+    /**
+     * The System property setting the maximum number of threads serving each
+     * JMXMP client connection, including the thread reading its requests.
+     */
+    public static final String PROP_MAX_THREADS = "coherence.jmxmp.max.threads";
+
+    /**
+     * The System property setting how long an idle JMXMP client connection is
+     * kept open for, as a duration such as {@code 30s} or {@code 2m}.
+     */
+    public static final String PROP_IDLE_TIMEOUT = "coherence.jmxmp.idle.timeout";
+
+    /**
+     * The System property setting how long a JMXMP client has to complete the
+     * connection handshake, as a duration such as {@code 10s}.
+     */
+    public static final String PROP_CONNECTING_TIMEOUT = "coherence.jmxmp.connecting.timeout";
+
+    /**
+     * The connector environment key of the maximum number of threads per connection.
+     */
+    static final String ENV_MAX_THREADS = "jmx.remote.x.server.max.threads";
+
+    /**
+     * The connector environment key of the idle connection timeout in milliseconds.
+     */
+    static final String ENV_IDLE_TIMEOUT = "jmx.remote.x.server.connection.timeout";
+
+    /**
+     * The connector environment key of the server accepting client connections.
+     */
+    static final String ENV_CONNECTION_SERVER = "jmx.remote.message.connection.server";
+
     // ----- data members ---------------------------------------------------
 
     /**
      * The JMXServiceURL for the MBeanConnector used by the Coherence JMX framework.
      */
-    private static JMXServiceURL s_jmxServiceURL;
+    private static volatile JMXServiceURL s_jmxServiceURL;
 
     /**
-     * The {@link JMXConnectorServer} using the JMXMP protocol.
+     * The future holding the {@link JMXConnectorServer} using the JMXMP protocol,
+     * or {@code null} if it has not been created.
      */
-    private static JMXConnectorServer s_connectorServer;
+    private static final AtomicReference<CompletableFuture<JMXConnectorServer>> s_refServer = new AtomicReference<>();
 
+    /**
+     * The address to listen on.
+     */
     private final String f_sAddress;
     }
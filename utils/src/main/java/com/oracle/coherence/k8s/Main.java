@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The launcher used by {@code startCoherence.sh} to start a Coherence
+ * process in a Pod.
+ * <p>
+ * The launcher configures the system properties from the environment
+ * variables set by the Helm chart and then runs the real main class in the
+ * same JVM. It replaces the steps the script used to run before starting the
+ * JVM: running a separate JVM to check the Coherence version, fetching the
+ * site with {@code curl}, and dumping the environment and certificate
+ * directories. A system property that is already set, for example in
+ * {@code JAVA_OPTS}, is not changed.
+ * <p>
+ * The first argument is the name of the main class to run and the remaining
+ * arguments are passed to that class.
+ *
+ * @author jk
+ */
+public class Main
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Private constructor for utility class.
+     */
+    private Main()
+        {
+        }
+
+    // ----- Main methods ---------------------------------------------------
+
+    /**
+     * Configure the system properties and run the main class.
+     *
+     * @param asArg  the main class followed by its arguments
+     *
+     * @throws Exception  if the main class fails
+     */
+    public static void main(String[] asArg) throws Exception
+        {
+        if (asArg == null || asArg.length == 0)
+            {
+            System.err.println("Usage: " + Main.class.getName() + " <main-class> [args...]");
+            System.exit(1);
+            return;
+            }
+
+        long ldtStart = System.nanoTime();
+
+        // configure the DNS cache before anything in this JVM looks up a host name
+        Map<String, String> mapSecurity = getDnsCacheProperties(System.getenv());
+
+        for (Map.Entry<String, String> entry : mapSecurity.entrySet())
+            {
+            Security.setProperty(entry.getKey(), entry.getValue());
+            }
+
+        String   sVersion = CoherenceVersion.getVersion();
+        String   sMain    = asArg[0];
+        String[] asMain   = Arrays.copyOfRange(asArg, 1, asArg.length);
+        boolean  fProbe   = PodChecker.class.getName().equals(sMain);
+
+        Map<String, String> mapProperty = getProperties(System.getenv(), sVersion, fProbe);
+
+        // the member installed the override when it started, a probe only reads it
+        if (!fProbe)
+            {
+            installOverride(System.getenv("COHERENCE_HOME"), mapProperty.get(PROP_OVERRIDE));
+            }
+
+        System.out.println("Coherence " + sVersion + ", starting " + sMain + " with:");
+        for (Map.Entry<String, String> entry : mapSecurity.entrySet())
+            {
+            System.out.println("  " + entry.getKey() + "=" + entry.getValue());
+            }
+        for (Map.Entry<String, String> entry : mapProperty.entrySet())
+            {
+            if (System.getProperty(entry.getKey()) == null)
+                {
+                System.setProperty(entry.getKey(), entry.getValue());
+                System.out.println("  -D" + entry.getKey() + "=" + entry.getValue());
+                }
+            }
+        System.out.println("Configured in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ldtStart) + "ms");
+
+        Method method = Class.forName(sMain, true, Thread.currentThread().getContextClassLoader())
+                             .getMethod("main", String[].class);
+
+        try
+            {
+            method.invoke(null, (Object) asMain);
+            }
+        catch (InvocationTargetException e)
+            {
+            Throwable t = e.getCause();
+
+            if (t instanceof Exception)
+                {
+                throw (Exception) t;
+                }
+            throw (Error) t;
+            }
+        }
+
+    /**
+     * Obtain the system properties configured by the environment.
+     *
+     * @param mapEnv    the environment variables
+     * @param sVersion  the Coherence version
+     *
+     * @return  the system property values keyed by name, in the order they are configured
+     */
+    static Map<String, String> getProperties(Map<String, String> mapEnv, String sVersion)
+        {
+        return getProperties(mapEnv, sVersion, false);
+        }
+
+    /**
+     * Obtain the system properties configured by the environment.
+     * <p>
+     * A probe does not need the site of the Pod, so it is only fetched,
+     * which may take an HTTP request to the operator, for a cluster member.
+     *
+     * @param mapEnv    the environment variables
+     * @param sVersion  the Coherence version
+     * @param fProbe    {@code true} if the main class is the {@link PodChecker} probe
+     *
+     * @return  the system property values keyed by name, in the order they are configured
+     */
+    static Map<String, String> getProperties(Map<String, String> mapEnv, String sVersion, boolean fProbe)
+        {
+        Map<String, String> map = new LinkedHashMap<>();
+
+        // configure Coherence WKA
+        put(map, "coherence.wka", mapEnv.get("COH_WKA"));
+        put(map, RetryingWkaAddressProvider.PROP_WKA_SEEDS, mapEnv.get("COH_WKA_SEEDS"));
+
+        // configure the Coherence member properties
+        put(map, "coherence.machine", mapEnv.get("COH_MACHINE_NAME"));
+        put(map, RetryingWkaAddressProvider.PROP_MEMBER, mapEnv.get("COH_MEMBER_NAME"));
+        put(map, "coherence.cluster", mapEnv.get("COH_CLUSTER_NAME"));
+
+        // configure the extend port (and if a cache config is not set then the extend cache configuration)
+        String sCacheConfig = mapEnv.get("COH_CACHE_CONFIG");
+
+        if (put(map, "coherence.extend.port", mapEnv.get("COH_EXTEND_PORT")) && isEmpty(sCacheConfig))
+            {
+            sCacheConfig = "extend-cache-config.xml";
+            }
+        put(map, "coherence.cacheconfig", sCacheConfig);
+
+        put(map, "coherence.metrics.http.port", mapEnv.get("COH_METRICS_PORT"));
+        put(map, "coherence.management.http.port", mapEnv.get("COH_MGMT_HTTP_PORT"));
+
+        // configure the Coherence member's site and rack
+        if (!fProbe)
+            {
+            String sSite = getSite(mapEnv.get("COH_SITE_INFO_LOCATION"));
+
+            put(map, "coherence.site", sSite);
+            put(map, "coherence.rack", sSite);
+            }
+
+        put(map, "coherence.pof.config", mapEnv.get("COH_POF_CONFIG"));
+
+        // configure Coherence persistence and the snapshot location
+        if ("true".equals(mapEnv.get("COH_PERSISTENCE_ENABLED")))
+            {
+            map.put("coherence.distributed.persistence-mode", "active");
+            map.put("coherence.distributed.persistence.base.dir", "/persistence");
+            }
+        else
+            {
+            map.put("coherence.distributed.persistence-mode", "on-demand");
+            }
+
+        if ("true".equals(mapEnv.get("COH_SNAPSHOT_ENABLED")))
+            {
+            map.put("coherence.distributed.persistence.snapshot.dir", "/snapshot");
+            }
+
+        // configure logging, before anything in this JVM uses java.util.logging
+        String sLogging = mapEnv.get("COH_LOGGING_CONFIG");
+
+        if (!isEmpty(sLogging))
+            {
+            if (Files.isRegularFile(Paths.get(sLogging)))
+                {
+                map.put("coherence.log", "jdk");
+                map.put("coherence.log.logger", "com.oracle.coherence");
+                map.put("java.util.logging.config.file", sLogging);
+                }
+            else
+                {
+                System.out.println("Logging configuration file " + sLogging + " does not exist.");
+                }
+            }
+
+        put(map, "coherence.log.level", mapEnv.get("COH_LOG_LEVEL"));
+
+        // configure the override file, only versions with SSL endpoints can use the SSL socket providers
+        boolean fSSL = CoherenceVersion.supports(sVersion, CoherenceVersion.Feature.SSL_ENDPOINTS);
+
+        map.put(PROP_OVERRIDE, fSSL ? OVERRIDE_SSL : OVERRIDE_NO_SSL);
+        put(map, "coherence.k8s.override", mapEnv.get("COH_OVERRIDE_CONFIG"));
+
+        if (fSSL)
+            {
+            addSSL(map, mapEnv, "management", "MGMT", "ManagementSSLProvider");
+            addSSL(map, mapEnv, "metrics", "METRICS", "MetricsSSLProvider");
+            }
+
+        return map;
+        }
+
+    /**
+     * Obtain the security properties configuring how long the JVM caches DNS lookups.
+     * <p>
+     * By default the JVM caches a successful lookup for 30 seconds and a failed lookup
+     * for 10 seconds, which would hide the WKA host names resolving from the retries and
+     * background refreshes of the {@link RetryingWkaAddressProvider}. The cache times are
+     * set to the {@code COH_DNS_CACHE_TTL} and {@code COH_DNS_NEGATIVE_CACHE_TTL}
+     * environment variables, in seconds, defaulting to {@value #DNS_CACHE_TTL} and
+     * {@value #DNS_NEGATIVE_CACHE_TTL}. A cache time set with the
+     * {@code sun.net.inetaddr.ttl} or {@code sun.net.inetaddr.negative.ttl} system
+     * property, for example in {@code JAVA_OPTS}, is not changed.
+     *
+     * @param mapEnv  the environment variables
+     *
+     * @return  the security property values keyed by name
+     */
+    static Map<String, String> getDnsCacheProperties(Map<String, String> mapEnv)
+        {
+        Map<String, String> map = new LinkedHashMap<>();
+
+        if (System.getProperty("sun.net.inetaddr.ttl") == null)
+            {
+            String sTtl = mapEnv.get("COH_DNS_CACHE_TTL");
+
+            map.put(PROP_DNS_CACHE_TTL, isEmpty(sTtl) ? DNS_CACHE_TTL : sTtl.trim());
+            }
+
+        if (System.getProperty("sun.net.inetaddr.negative.ttl") == null)
+            {
+            String sTtl = mapEnv.get("COH_DNS_NEGATIVE_CACHE_TTL");
+
+            map.put(PROP_DNS_NEGATIVE_CACHE_TTL, isEmpty(sTtl) ? DNS_NEGATIVE_CACHE_TTL : sTtl.trim());
+            }
+
+        return map;
+        }
+
+    /**
+     * Obtain the site of this Pod.
+     *
+     * @param sLocation  the URL or file containing the site, may be {@code null}
+     *
+     * @return  the site or {@code null} if it is not known
+     */
+    static String getSite(String sLocation)
+        {
+        if (isEmpty(sLocation) || sLocation.startsWith("http://$"))
+            {
+            // no location, or the operator could not resolve the node of the Pod
+            return null;
+            }
+
+        try
+            {
+            if (sLocation.startsWith("http://"))
+                {
+                URLConnection connection = new URL(sLocation).openConnection();
+
+                connection.setConnectTimeout(SITE_TIMEOUT_MS);
+                connection.setReadTimeout(SITE_TIMEOUT_MS);
+
+                try (InputStream in = connection.getInputStream())
+                    {
+                    return trimToNull(read(in));
+                    }
+                }
+
+            Path path = Paths.get(sLocation);
+
+            return Files.isRegularFile(path) ? trimToNull(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)) : null;
+            }
+        catch (IOException | RuntimeException e)
+            {
+            System.out.println("Cannot read the site from " + sLocation + ": " + e);
+            return null;
+            }
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Add the properties configuring SSL for the management or metrics endpoint.
+     *
+     * @param map          the properties to add to
+     * @param mapEnv       the environment variables
+     * @param sEndpoint    the endpoint name used in the property names
+     * @param sEnv         the endpoint name used in the environment variable names
+     * @param sProvider    the name of the socket provider for the endpoint
+     */
+    private static void addSSL(Map<String, String> map, Map<String, String> mapEnv, String sEndpoint, String sEnv,
+                               String sProvider)
+        {
+        String sCerts  = mapEnv.get("COH_" + sEnv + "_SSL_CERTS");
+        String sPrefix = "file:";
+
+        if (!isEmpty(sCerts))
+            {
+            sPrefix = sCerts.endsWith("/") ? sCerts : sCerts + "/";
+            sPrefix = sPrefix.startsWith("file:") ? sPrefix : "file:" + sPrefix;
+            }
+
+        String sEnvPrefix = "COH_" + sEnv + "_SSL_";
+        String sProperty  = "coherence." + sEndpoint + ".security.";
+
+        if (!isEmpty(mapEnv.get(sEnvPrefix + "ENABLED")))
+            {
+            map.put("coherence." + sEndpoint + ".http.provider", sProvider);
+            }
+
+        putFile(map, sProperty + "keystore", sPrefix, mapEnv.get(sEnvPrefix + "KEYSTORE"));
+        putFile(map, sProperty + "keystore.password", sPrefix, mapEnv.get(sEnvPrefix + "KEYSTORE_PASSWORD_FILE"));
+        putFile(map, sProperty + "key.password", sPrefix, mapEnv.get(sEnvPrefix + "KEY_PASSWORD_FILE"));
+        put(map, sProperty + "keystore.algorithm", mapEnv.get(sEnvPrefix + "KEYSTORE_ALGORITHM"));
+        put(map, sProperty + "keystore.provider", mapEnv.get(sEnvPrefix + "KEYSTORE_PROVIDER"));
+        put(map, sProperty + "keystore.type", mapEnv.get(sEnvPrefix + "KEYSTORE_TYPE"));
+        putFile(map, sProperty + "truststore", sPrefix, mapEnv.get(sEnvPrefix + "TRUSTSTORE"));
+        putFile(map, sProperty + "truststore.password", sPrefix, mapEnv.get(sEnvPrefix + "TRUSTSTORE_PASSWORD_FILE"));
+        put(map, sProperty + "truststore.algorithm", mapEnv.get(sEnvPrefix + "TRUSTSTORE_ALGORITHM"));
+        put(map, sProperty + "truststore.provider", mapEnv.get(sEnvPrefix + "TRUSTSTORE_PROVIDER"));
+        put(map, sProperty + "truststore.type", mapEnv.get(sEnvPrefix + "TRUSTSTORE_TYPE"));
+
+        if (!isEmpty(mapEnv.get(sEnvPrefix + "REQUIRE_CLIENT_CERT")))
+            {
+            map.put("coherence." + sEndpoint + ".http.auth", "cert");
+            }
+        }
+
+    /**
+     * Copy the override file from the scripts directory onto the Coherence
+     * class path.
+     *
+     * @param sCoherenceHome  the Coherence home directory, may be {@code null}
+     * @param sOverride       the name of the override file
+     */
+    private static void installOverride(String sCoherenceHome, String sOverride)
+        {
+        Path pathSource = Paths.get(SCRIPTS_DIR, sOverride);
+
+        if (isEmpty(sCoherenceHome) || !Files.isRegularFile(pathSource))
+            {
+            return;
+            }
+
+        try
+            {
+            Files.copy(pathSource, Paths.get(sCoherenceHome, "conf", sOverride), StandardCopyOption.REPLACE_EXISTING);
+            }
+        catch (IOException e)
+            {
+            System.out.println("Cannot copy " + pathSource + " to " + sCoherenceHome + "/conf: " + e);
+            }
+        }
+
+    /**
+     * Add a property if its value is not empty.
+     *
+     * @param map     the properties
+     * @param sName   the property name
+     * @param sValue  the property value, may be {@code null}
+     *
+     * @return  {@code true} if the property was added
+     */
+    private static boolean put(Map<String, String> map, String sName, String sValue)
+        {
+        if (isEmpty(sValue))
+            {
+            return false;
+            }
+
+        map.put(sName, sValue);
+        return true;
+        }
+
+    /**
+     * Add a property naming a file in a certificates directory if the file name is not empty.
+     *
+     * @param map      the properties
+     * @param sName    the property name
+     * @param sPrefix  the URL prefix of the certificates directory
+     * @param sFile    the file name, may be {@code null}
+     */
+    private static void putFile(Map<String, String> map, String sName, String sPrefix, String sFile)
+        {
+        if (!isEmpty(sFile))
+            {
+            map.put(sName, sPrefix + sFile);
+            }
+        }
+
+    /**
+     * Read a stream as a UTF-8 string.
+     *
+     * @param in  the stream
+     *
+     * @return  the content of the stream
+     */
+    private static String read(InputStream in)
+        {
+        Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A");
+
+        return scanner.hasNext() ? scanner.next() : "";
+        }
+
+    /**
+     * Trim a value, returning {@code null} for an empty value.
+     *
+     * @param s  the value
+     *
+     * @return  the trimmed value or {@code null}
+     */
+    private static String trimToNull(String s)
+        {
+        return isEmpty(s) ? null : s.trim();
+        }
+
+    /**
+     * Determine whether a value is {@code null} or blank.
+     *
+     * @param s  the value
+     *
+     * @return  {@code true} if the value is {@code null} or blank
+     */
+    private static boolean isEmpty(String s)
+        {
+        return s == null || s.trim().isEmpty();
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The System property used by Coherence to set the operational override file.
+     */
+    static final String PROP_OVERRIDE = SSLContextLoader.PROP_OVERRIDE;
+
+    /**
+     * The override file used with Coherence versions supporting SSL management and metrics.
+     */
+    static final String OVERRIDE_SSL = "k8s-coherence-override.xml";
+
+    /**
+     * The override file used with earlier Coherence versions.
+     */
+    static final String OVERRIDE_NO_SSL = "k8s-coherence-nossl-override.xml";
+
+    /**
+     * The security property setting the time in seconds the JVM caches a successful DNS lookup.
+     */
+    static final String PROP_DNS_CACHE_TTL = "networkaddress.cache.ttl";
+
+    /**
+     * The security property setting the time in seconds the JVM caches a failed DNS lookup.
+     */
+    static final String PROP_DNS_NEGATIVE_CACHE_TTL = "networkaddress.cache.negative.ttl";
+
+    /**
+     * The default time in seconds a successful DNS lookup is cached, no longer than the
+     * default {@link RetryingWkaAddressProvider#PROP_WKA_CACHE_TTL} so its refreshes see DNS changes.
+     */
+    static final String DNS_CACHE_TTL = "5";
+
+    /**
+     * The default time in seconds a failed DNS lookup is cached, zero so that every retry
+     * of an unresolved WKA host name is a real lookup.
+     */
+    static final String DNS_NEGATIVE_CACHE_TTL = "0";
+
+    /**
+     * The directory the chart mounts the scripts and override files in.
+     */
+    private static final String SCRIPTS_DIR = "/scripts";
+
+    /**
+     * The connect and read timeout used to fetch the site.
+     */
+    private static final int SITE_TIMEOUT_MS = 5000;
+    }
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Streaming extraction of the values used by the probes from Coherence
+ * management over ReST json responses.
+ * <p>
+ * The methods read tokens from a {@link JsonParser}, skip everything they
+ * do not need without materializing it and return as soon as the result
+ * is known.
+ *
+ * @author jk
+ */
+class ManagementJson
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Private constructor for utility class.
+     */
+    private ManagementJson()
+        {
+        }
+
+    // ----- ManagementJson methods -----------------------------------------
+
+    /**
+     * Create a parser for the specified json content.
+     *
+     * @param ab  the json content
+     *
+     * @return  a parser for the content
+     *
+     * @throws IOException  if the parser cannot be created
+     */
+    static JsonParser createParser(byte[] ab) throws IOException
+        {
+        return JSON_FACTORY.createParser(ab);
+        }
+
+    /**
+     * Determine whether the top level {@code items} array of a json document
+     * has at least one element, stopping at the first element.
+     *
+     * @param parser  the json parser positioned before the document
+     *
+     * @return  {@code true} if the {@code items} array is not empty
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    static boolean hasItems(JsonParser parser) throws IOException
+        {
+        return findItems(parser) && parser.nextToken() != JsonToken.END_ARRAY;
+        }
+
+    /**
+     * Find the string value of a top level field of a json document.
+     *
+     * @param parser  the json parser positioned before the document
+     * @param sName   the field name
+     *
+     * @return  the value of the field or {@code null} if the field is not
+     *          present or not a string
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    static String findString(JsonParser parser, String sName) throws IOException
+        {
+        return parser.nextToken() == JsonToken.START_OBJECT
+               && findField(parser, sName)
+               && parser.nextToken() == JsonToken.VALUE_STRING ? parser.getText() : null;
+        }
+
+    /**
+     * Find the {@code href} of the links with the specified {@code rel} of
+     * each element of the top level {@code items} array of a json document.
+     *
+     * @param parser  the json parser positioned before the document
+     * @param sRel    the {@code rel} of the links to find
+     *
+     * @return  the {@code href} of the matching links
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    static Set<String> findItemLinks(JsonParser parser, String sRel) throws IOException
+        {
+        Set<String> setHref = new HashSet<>();
+
+        if (findItems(parser))
+            {
+            while (parser.nextToken() == JsonToken.START_OBJECT)
+                {
+                while (parser.nextToken() == JsonToken.FIELD_NAME)
+                    {
+                    boolean fLinks = RestProbe.JSON_ATTRIBUTE_LINKS.equals(parser.getCurrentName());
+
+                    if (parser.nextToken() == JsonToken.START_ARRAY && fLinks)
+                        {
+                        while (parser.nextToken() == JsonToken.START_OBJECT)
+                            {
+                            String sLinkRel  = null;
+                            String sLinkHref = null;
+
+                            while (parser.nextToken() == JsonToken.FIELD_NAME)
+                                {
+                                String sField = parser.getCurrentName();
+
+                                parser.nextToken();
+                                if (RestProbe.JSON_ATTRIBUTE_LINKS_REL.equals(sField))
+                                    {
+                                    sLinkRel = parser.getValueAsString();
+                                    }
+                                else if (RestProbe.JSON_ATTRIBUTE_LINKS_HREF.equals(sField))
+                                    {
+                                    sLinkHref = parser.getValueAsString();
+                                    }
+                                else
+                                    {
+                                    parser.skipChildren();
+                                    }
+                                }
+
+                            if (sRel.equals(sLinkRel) && sLinkHref != null)
+                                {
+                                setHref.add(sLinkHref);
+                                }
+                            }
+                        }
+                    else
+                        {
+                        parser.skipChildren();
+                        }
+                    }
+                }
+            }
+
+        return setHref;
+        }
+
+    /**
+     * Determine whether every service in a services search response is HA.
+     * <p>
+     * Each element of the top level {@code items} array is a service whose
+     * {@code partition} object holds the HA attributes; services without
+     * one are not partitioned and are ignored. Parsing stops at the first
+     * service that is not HA.
+     *
+     * @param parser  the json parser positioned before the document
+     * @param probe   the probe used to evaluate the HA attributes
+     *
+     * @return  {@code true} if every service is HA
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    static boolean isStatusHA(JsonParser parser, Probe probe) throws IOException
+        {
+        if (findItems(parser))
+            {
+            while (parser.nextToken() == JsonToken.START_OBJECT)
+                {
+                while (parser.nextToken() == JsonToken.FIELD_NAME)
+                    {
+                    boolean fPartition = RestProbe.JSON_ATTRIBUTE_LINK_PARTITION.equals(parser.getCurrentName());
+
+                    if (parser.nextToken() == JsonToken.START_OBJECT && fPartition)
+                        {
+                        if (Boolean.FALSE.equals(readStatusHAObject(parser, probe)))
+                            {
+                            return false;
+                            }
+                        }
+                    else
+                        {
+                        parser.skipChildren();
+                        }
+                    }
+                }
+            }
+
+        return true;
+        }
+
+    /**
+     * Determine whether the service whose partition assignment attributes are
+     * the top level object of a json document is HA.
+     *
+     * @param parser  the json parser positioned before the document
+     * @param probe   the probe used to evaluate the HA attributes
+     *
+     * @return  whether the service is HA or {@code null} if the document has
+     *          no HA attributes
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    static Boolean isServiceStatusHA(JsonParser parser, Probe probe) throws IOException
+        {
+        return parser.nextToken() == JsonToken.START_OBJECT ? readStatusHAObject(parser, probe) : null;
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Read the HA attributes of the object the parser is positioned at and
+     * determine whether the service is HA. Attribute names are matched
+     * ignoring case as MBeans and ReST return them with different cases.
+     *
+     * @param parser  the json parser positioned at the start of the object
+     * @param probe   the probe used to evaluate the HA attributes
+     *
+     * @return  whether the service is HA or {@code null} if the object has
+     *          no HA attributes
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    private static Boolean readStatusHAObject(JsonParser parser, Probe probe) throws IOException
+        {
+        String  sStatus = null;
+        int     cBackup = 0;
+        int     cNode   = 0;
+        int     cRemain = 0;
+        boolean fFound  = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+            String sField = parser.getCurrentName();
+
+            parser.nextToken();
+            if (Probe.ATTRIB_HASTATUS.equalsIgnoreCase(sField))
+                {
+                sStatus = parser.getValueAsString();
+                fFound  = true;
+                }
+            else if (Probe.ATTRIB_BACKUPS.equalsIgnoreCase(sField))
+                {
+                cBackup = parser.getValueAsInt();
+                fFound  = true;
+                }
+            else if (Probe.ATTRIB_NODE_COUNT.equalsIgnoreCase(sField))
+                {
+                cNode  = parser.getValueAsInt();
+                fFound = true;
+                }
+            else if (Probe.ATTRIB_REMAINING_DISTRIBUTIONS.equalsIgnoreCase(sField))
+                {
+                cRemain = parser.getValueAsInt();
+                }
+            else
+                {
+                parser.skipChildren();
+                }
+            }
+
+        return fFound ? probe.isServiceStatusHA(sStatus, cBackup, cNode, cRemain) : null;
+        }
+
+    /**
+     * Advance the parser to the first element of the top level {@code items}
+     * array of a json document.
+     *
+     * @param parser  the json parser positioned before the document
+     *
+     * @return  {@code true} if the parser is positioned at the start of the
+     *          {@code items} array, {@code false} if there is no array
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    private static boolean findItems(JsonParser parser) throws IOException
+        {
+        return parser.nextToken() == JsonToken.START_OBJECT
+               && findField(parser, RestProbe.JSON_ATTRIBUTE_ITEMS)
+               && parser.nextToken() == JsonToken.START_ARRAY;
+        }
+
+    /**
+     * Advance the parser to the name of a field of the current object,
+     * skipping the values of other fields without materializing them.
+     *
+     * @param parser  the json parser positioned at the start of the object
+     * @param sName   the field name
+     *
+     * @return  {@code true} if the field was found
+     *
+     * @throws IOException  if the json cannot be parsed
+     */
+    private static boolean findField(JsonParser parser, String sName) throws IOException
+        {
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+            if (sName.equals(parser.getCurrentName()))
+                {
+                return true;
+                }
+
+            parser.nextToken();
+            parser.skipChildren();
+            }
+
+        return false;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The factory of streaming json parsers.
+     */
+    static final JsonFactory JSON_FACTORY = new JsonFactory();
+    }
@@ -8,8 +8,12 @@ package com.oracle.coherence.k8s;
 
 import com.tangosol.net.CacheFactory;
 
-import java.util.Arrays;
-import java.util.List;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 
 /**
@@ -26,14 +30,30 @@ public class PodChecker
      */
     public PodChecker()
         {
-        f_listProbe = Arrays.asList(new RestProbe(),
-                                    new ClusterMemberProbe());
+        this(createProbes(), ProbeSelection.getInstance());
+        }
+
+    /**
+     * Create a {@link PodChecker}.
+     *
+     * @param mapProbe   the {@link Probe} factories keyed by probe class name,
+     *                   in order of preference
+     * @param selection  the cache of the selected {@link Probe}
+     */
+    PodChecker(Map<String, Supplier<Probe>> mapProbe, ProbeSelection selection)
+        {
+        f_mapProbe  = mapProbe;
+        f_selection = selection;
         }
 
     // ----- public methods -------------------------------------------------
 
     /**
      * Run the Pod test.
+     * <p>
+     * The first argument is the probe type and the optional second argument
+     * is the timeout in seconds of the Kubernetes probe running the test, as
+     * each probe has its own timeout.
      *
      * @param args  the arguments controlling the test
      *
@@ -42,12 +62,15 @@ public class PodChecker
     public int run(String... args)
         {
         String  sType    = args == null || args.length == 0 ? null : args[0];
-        boolean fResult = false;
+        boolean fResult  = false;
+        long    ldtStart = System.nanoTime();
 
         try
             {
             Type type = (sType == null) ? Type.readiness : Type.valueOf(sType);
 
+            m_cMillisTimeout = sType != null && args.length > 1 ? parseTimeout(args[1]) : 0L;
+
             switch (type)
                 {
                 case readiness:
@@ -56,6 +79,9 @@ public class PodChecker
                 case liveness:
                     fResult = liveness();
                     break;
+                case startup:
+                    fResult = startup();
+                    break;
                 default:
                     CacheFactory.log(getClass() + " unrecognised probe type '" + type + "'", CacheFactory.LOG_ERR);
                     return RETURN_CODE_NOT_READY;
@@ -65,6 +91,13 @@ public class PodChecker
             {
             CacheFactory.log(getClass() + " probe type argument is invalid '" + sType + "'", CacheFactory.LOG_ERR);
             }
+        finally
+            {
+            ProbeHistory history = ProbeHistory.getInstance();
+
+            history.add(ProbeHistory.Phase.TOTAL, System.nanoTime() - ldtStart);
+            history.complete();
+            }
 
         return fResult ? RETURN_CODE_READY : RETURN_CODE_NOT_READY;
         }
@@ -76,10 +109,7 @@ public class PodChecker
      */
     boolean readiness()
         {
-        try (Probe probe = findActiveProbe())
-            {
-            return probe.isReady();
-            }
+        return evaluate(Probe::isReady);
         }
 
     /**
@@ -89,28 +119,134 @@ public class PodChecker
      */
     boolean liveness()
         {
+        return evaluate(Probe::isLive);
+        }
+
+    /**
+     * Perform the startup test using the first available {@link Probe}.
+     *
+     * @return  zero if the Pod has started
+     */
+    boolean startup()
+        {
+        return evaluate(Probe::isStarted);
+        }
+
+    /**
+     * Perform a test using the first available {@link Probe}.
+     * <p>
+     * If the test fails with an exception using the probe selected by a
+     * previous test, for example because management over ReST has been
+     * disabled, the selection is discarded and the test is retried once
+     * with a newly selected probe.
+     *
+     * @param test  the test to perform
+     *
+     * @return  the result of the test
+     */
+    private boolean evaluate(Predicate<Probe> test)
+        {
+        String sSelected = f_selection.get();
+
+        try (Probe probe = findActiveProbe())
+            {
+            probe.setProbeTimeout(m_cMillisTimeout);
+            return test.test(probe);
+            }
+        catch (RuntimeException e)
+            {
+            if (sSelected == null)
+                {
+                throw e;
+                }
+
+            CacheFactory.log(getClass().getSimpleName() + " probe " + sSelected
+                             + " failed, selecting a probe again: " + e, CacheFactory.LOG_INFO);
+            f_selection.clear();
+            }
+
         try (Probe probe = findActiveProbe())
             {
-            return probe.isLive();
+            probe.setProbeTimeout(m_cMillisTimeout);
+            return test.test(probe);
+            }
+        }
+
+    /**
+     * Parse the timeout argument of a probe.
+     *
+     * @param sTimeout  the timeout in seconds
+     *
+     * @return  the timeout in milliseconds, or zero if the argument is not a positive number
+     */
+    static long parseTimeout(String sTimeout)
+        {
+        try
+            {
+            return Math.max(Long.parseLong(sTimeout.trim()) * 1000L, 0L);
+            }
+        catch (NumberFormatException e)
+            {
+            CacheFactory.log("PodChecker probe timeout argument is invalid '" + sTimeout + "'",
+                             CacheFactory.LOG_WARN);
+            return 0L;
             }
         }
 
     /**
      * Find the first {@link Probe} that is active.
+     * <p>
+     * Probes are created lazily, in order of preference. The probe selected
+     * by a previous test is used without checking that it is available,
+     * so a steady-state test does not need an extra management round-trip.
+     * Probes preferred to the selected probe are still checked, so that the
+     * selection moves back to a preferred probe when it becomes available.
      *
      * @return  the first {@link Probe} that is active
      */
     Probe findActiveProbe()
         {
-        return f_listProbe.stream()
-                          .filter(Probe::isAvailable)
-                          .findFirst()
-                          .orElseThrow(() -> new IllegalStateException("No active Probe class available"));
+        return ProbeHistory.getInstance().time(ProbeHistory.Phase.SELECT, () ->
+            {
+            String sSelected = f_selection.get();
+
+            for (Map.Entry<String, Supplier<Probe>> entry : f_mapProbe.entrySet())
+                {
+                String sProbe = entry.getKey();
+                Probe  probe  = entry.getValue().get();
+
+                if (sProbe.equals(sSelected) || probe.isAvailable())
+                    {
+                    f_selection.set(sProbe);
+                    return probe;
+                    }
+
+                probe.close();
+                }
+
+            throw new IllegalStateException("No active Probe class available");
+            });
+        }
+
+    /**
+     * Create the factories of the {@link Probe}s to use, keyed by probe
+     * class name, in order of preference.
+     *
+     * @return  the {@link Probe} factories
+     */
+    private static Map<String, Supplier<Probe>> createProbes()
+        {
+        Map<String, Supplier<Probe>> mapProbe = new LinkedHashMap<>();
+
+        mapProbe.put(RestProbe.class.getName(), RestProbe::new);
+        mapProbe.put(ClusterMemberProbe.class.getName(), ClusterMemberProbe::new);
+
+        return mapProbe;
         }
 
     /**
-     * Main Method that takes probe type i.e either readiness or liveness in the
-     * list of arguments to the process.
+     * Main Method that takes probe type i.e either readiness, liveness or startup, and
+     * optionally the probe timeout in seconds, in the list of arguments to the process.
      *
      * @param args  the program arguments
      */
@@ -118,6 +254,10 @@ public class PodChecker
         {
         try
             {
+            // the time from the start of the JVM to running the probe
+            ProbeHistory.getInstance().add(ProbeHistory.Phase.STARTUP,
+                    TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime()));
+
             PodChecker probe     = new PodChecker();
             int        nExitCode = probe.run(args);
 
@@ -147,7 +287,12 @@ public class PodChecker
         /**
          * Perform a liveness test.
          */
-        liveness
+        liveness,
+
+        /**
+         * Perform a startup test.
+         */
+        startup
         }
 
     // ----- constants ---------------------------------------------------
@@ -163,10 +308,21 @@ public class PodChecker
     public static final int RETURN_CODE_NOT_READY = 1;
 
     /**
-     * The {@link List} of {@link Probe}s to use to execute the test.
+     * The factories of the {@link Probe}s to use to execute the test, keyed
+     * by probe class name.
      * <p>
      * When executing a test the first available {@link Probe} in this
-     * list will be used.
+     * map will be used.
+     */
+    private final Map<String, Supplier<Probe>> f_mapProbe;
+
+    /**
+     * The cache of the selected {@link Probe}.
+     */
+    private final ProbeSelection f_selection;
+
+    /**
+     * The timeout in milliseconds of the Kubernetes probe, or zero if not given.
      */
-    private final List<Probe> f_listProbe;
+    private long m_cMillisTimeout;
     }
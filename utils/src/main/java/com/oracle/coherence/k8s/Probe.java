@@ -7,13 +7,32 @@ package com.oracle.coherence.k8s;
 
 import com.tangosol.net.CacheFactory;
 
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * A readiness/liveness probe.
+ * <p>
+ * The HA status of services is evaluated concurrently within a time budget
+ * so that the probe returns an answer before Kubernetes kills it. The budget
+ * is taken from the timeout of the Kubernetes probe, set with
+ * {@link #setProbeTimeout(long)}, or else configured with the
+ * {@code COH_PROBE_TIMEOUT} environment variable or the
+ * {@code coherence.k8s.probe.timeout} system property, in seconds, less the
+ * time the probe JVM has already been running and a safety margin.
  *
  * @author jk
  */
@@ -27,7 +46,7 @@ public abstract class Probe
      */
     public boolean isReady()
         {
-        return isClusterMember() && isStatusHA();
+        return ProbeHistory.getInstance().time(ProbeHistory.Phase.EVALUATE, () -> isClusterMember() && isStatusHA());
         }
 
     /**
@@ -37,7 +56,23 @@ public abstract class Probe
      */
     public boolean isLive()
         {
-        return isClusterMember();
+        return ProbeHistory.getInstance().time(ProbeHistory.Phase.EVALUATE, this::isClusterMember);
+        }
+
+    /**
+     * Perform the startup test.
+     * <p>
+     * The test passes once the server is a cluster member and no service is
+     * recovering active persistence or loading a snapshot, so that the
+     * readiness and liveness probes do not need delays sized for the
+     * slowest recovery.
+     *
+     * @return  {@code true} if the startup test passes.
+     */
+    public boolean isStarted()
+        {
+        return ProbeHistory.getInstance().time(ProbeHistory.Phase.EVALUATE,
+                                               () -> isClusterMember() && isPersistenceIdle());
         }
 
     @Override
@@ -52,22 +87,330 @@ public abstract class Probe
      */
     public boolean isStatusHA()
         {
-        boolean fStatusHA = false;
+        try
+            {
+            return isStatusHA(getPartitionAssignmentMBeans(), this::getServiceStatusHA);
+            }
+        catch (Throwable t)
+            {
+            CacheFactory.log(t);
+            return false;
+            }
+        }
+
+    /**
+     * Determine whether the services with the specified partition assignment
+     * MBeans are all HA.
+     *
+     * @param colMBean    the partition assignment MBeans
+     * @param fnStatusHA  the function to determine whether the service of an MBean
+     *                    is HA, returning {@code null} if the MBean has no HA status
+     *
+     * @return  {@code true} if the services are all HA
+     *
+     * @throws Exception  if the evaluation of a service failed
+     *
+     * @see #evaluateAll(Collection, Function)
+     */
+    protected boolean isStatusHA(Collection<String> colMBean, Function<String, Boolean> fnStatusHA)
+            throws Exception
+        {
+        return evaluateAll(colMBean, fnStatusHA);
+        }
 
+    /**
+     * Evaluate a condition for each of the specified MBeans, such as whether
+     * the service of a partition assignment MBean is HA.
+     * <p>
+     * The MBeans are evaluated concurrently. The result is {@code false} as
+     * soon as the condition is false for one MBean, or if the time budget is
+     * used up before every MBean has been evaluated, in which case the MBeans
+     * still being evaluated are reported with {@link #onTimeout(Set, long)}.
+     *
+     * @param colMBean    the MBeans to evaluate
+     * @param fnEvaluate  the function evaluating the condition for an MBean,
+     *                    returning {@code null} if the condition does not apply
+     *
+     * @return  {@code true} if the condition holds for all the MBeans
+     *
+     * @throws Exception  if the evaluation of an MBean failed
+     */
+    protected boolean evaluateAll(Collection<String> colMBean, Function<String, Boolean> fnEvaluate)
+            throws Exception
+        {
+        if (colMBean.isEmpty())
+            {
+            return true;
+            }
+
+        long            cMillisBudget = getTimeBudget();
+        long            ldtDeadline   = System.currentTimeMillis() + cMillisBudget;
+        int             cThread       = Math.min(colMBean.size(), MAX_PARALLEL);
+        ExecutorService executor      = Executors.newFixedThreadPool(cThread, runnable ->
+            {
+            Thread thread = new Thread(runnable, "ProbeEvaluator");
+            thread.setDaemon(true);
+            return thread;
+            });
+
+        try
+            {
+            CompletionService<Boolean>   service    = new ExecutorCompletionService<>(executor);
+            Set<String>                  setPending = new HashSet<>(colMBean);
+            Map<Future<Boolean>, String> mapFuture  = new HashMap<>();
+
+            for (String sMBean : colMBean)
+                {
+                mapFuture.put(service.submit(() ->
+                    {
+                    Boolean fResult = fnEvaluate.apply(sMBean);
+                    return fResult == null || fResult;
+                    }), sMBean);
+                }
+
+            for (int i = 0; i < colMBean.size(); i++)
+                {
+                long            cMillisLeft = ldtDeadline - System.currentTimeMillis();
+                Future<Boolean> future      = cMillisLeft > 0 ? service.poll(cMillisLeft, TimeUnit.MILLISECONDS) : null;
+
+                if (future == null)
+                    {
+                    onTimeout(setPending, cMillisBudget);
+                    return false;
+                    }
+
+                setPending.remove(mapFuture.get(future));
+
+                if (!future.get())
+                    {
+                    return false;
+                    }
+                }
+
+            return true;
+            }
+        finally
+            {
+            executor.shutdownNow();
+            }
+        }
+
+    /**
+     * Determine whether the service of a partition assignment MBean is HA.
+     *
+     * @param sMBean  the partition assignment MBean
+     *
+     * @return  whether the service is HA or {@code null} if the MBean has no HA status
+     */
+    protected Boolean getServiceStatusHA(String sMBean)
+        {
+        Map<String, Object> mapAttributes = getMBeanServiceStatusHAAttributes(sMBean);
+
+        return mapAttributes == null ? null : isServiceStatusHA(mapAttributes);
+        }
+
+    /**
+     * Determine whether the persistence coordinators of all services are
+     * idle, that is no service is recovering persistence or a snapshot.
+     *
+     * @return  {@code true} if persistence is idle
+     */
+    public boolean isPersistenceIdle()
+        {
         try
             {
-            fStatusHA = getPartitionAssignmentMBeans()
-                                .stream()
-                                .map(this::getMBeanServiceStatusHAAttributes)
-                                .filter(Objects::nonNull)
-                                .allMatch(this::isServiceStatusHA);
+            return evaluateAll(getPersistenceMBeans(), this::getPersistenceIdle);
             }
         catch (Throwable t)
             {
             CacheFactory.log(t);
+            return false;
             }
+        }
 
-        return fStatusHA;
+    /**
+     * Determine whether the persistence coordinator of a service is idle.
+     *
+     * @param sMBean  the persistence coordinator MBean
+     *
+     * @return  whether the coordinator is idle or {@code null} if the MBean
+     *          does not exist
+     */
+    protected Boolean getPersistenceIdle(String sMBean)
+        {
+        Map<String, Object> mapAttributes = getMBeanAttributes(sMBean, PERSISTENCE_ATTRIBUTES);
+
+        if (mapAttributes == null)
+            {
+            return null;
+            }
+
+        Object oIdle   = null;
+        Object oStatus = null;
+
+        // match the attribute names ignoring case as MBeanProxy or ReST return them with different cases
+        for (Map.Entry<String, Object> entry : mapAttributes.entrySet())
+            {
+            String sName = entry.getKey();
+
+            if (ATTRIB_IDLE.equalsIgnoreCase(sName))
+                {
+                oIdle = entry.getValue();
+                }
+            else if (ATTRIB_OPERATION_STATUS.equalsIgnoreCase(sName))
+                {
+                oStatus = entry.getValue();
+                }
+            }
+
+        if (oIdle == null)
+            {
+            return null;
+            }
+
+        boolean fIdle = oIdle instanceof Boolean ? (Boolean) oIdle : Boolean.parseBoolean(oIdle.toString());
+
+        if (!fIdle)
+            {
+            CacheFactory.log("Persistence of " + sMBean + " is not idle: " + oStatus, CacheFactory.LOG_INFO);
+            }
+
+        return fIdle;
+        }
+
+    /**
+     * Obtain the set of persistence coordinator MBeans.
+     * <p>
+     * Probes that cannot query persistence return an empty set, in which
+     * case the startup test only checks cluster membership.
+     *
+     * @return  the set of persistence coordinator MBeans
+     */
+    protected Set<String> getPersistenceMBeans()
+        {
+        return Collections.emptySet();
+        }
+
+    /**
+     * Called when the time budget is used up before every MBean has been
+     * evaluated, such as before the HA status of every service has been
+     * determined.
+     *
+     * @param setMBean       the MBeans that were still being evaluated
+     * @param cMillisBudget  the time budget in milliseconds
+     */
+    protected void onTimeout(Set<String> setMBean, long cMillisBudget)
+        {
+        CacheFactory.log("Probe time budget of " + cMillisBudget + "ms exceeded waiting for the status of "
+                         + setMBean, CacheFactory.LOG_WARN);
+        }
+
+    /**
+     * Obtain the time budget for determining the HA status of services.
+     *
+     * @return  the time budget in milliseconds
+     */
+    public long getTimeBudget()
+        {
+        long cMillis = m_cMillisBudget;
+
+        if (cMillis <= 0)
+            {
+            // the probe timeout includes the time taken to start this JVM
+            long cMillisUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+
+            long cMillisTimeout = m_cMillisTimeout;
+
+            cMillis = (cMillisTimeout > 0 ? cMillisTimeout : getProbeTimeout())
+                      - TIMEOUT_MARGIN_MILLIS - cMillisUptime;
+            }
+
+        return Math.max(cMillis, MIN_BUDGET_MILLIS);
+        }
+
+    /**
+     * Set the time budget for determining the HA status of services.
+     *
+     * @param cMillis  the time budget in milliseconds, or zero to derive
+     *                 the budget from the probe timeout
+     */
+    public void setTimeBudget(long cMillis)
+        {
+        m_cMillisBudget = cMillis;
+        }
+
+    /**
+     * Set the timeout of the Kubernetes probe running this probe, which is
+     * used to derive the time budget instead of {@code COH_PROBE_TIMEOUT}.
+     *
+     * @param cMillis  the probe timeout in milliseconds, or zero to use
+     *                 {@code COH_PROBE_TIMEOUT}
+     */
+    public void setProbeTimeout(long cMillis)
+        {
+        m_cMillisTimeout = cMillis;
+        }
+
+    /**
+     * Obtain the readiness mode, either {@link #READINESS_MODE_HA} or
+     * {@link #READINESS_MODE_BALANCED}.
+     *
+     * @return  the readiness mode
+     */
+    public String getReadinessMode()
+        {
+        String sMode = m_sReadinessMode;
+
+        if (sMode == null)
+            {
+            sMode = System.getenv(ENV_READINESS_MODE);
+
+            if (sMode == null || sMode.trim().isEmpty())
+                {
+                sMode = System.getProperty(PROP_READINESS_MODE);
+                }
+
+            sMode = sMode != null && READINESS_MODE_BALANCED.equalsIgnoreCase(sMode.trim())
+                    ? READINESS_MODE_BALANCED : READINESS_MODE_HA;
+
+            m_sReadinessMode = sMode;
+            }
+
+        return sMode;
+        }
+
+    /**
+     * Set the readiness mode.
+     *
+     * @param sMode  either {@link #READINESS_MODE_HA} or {@link #READINESS_MODE_BALANCED}
+     */
+    public void setReadinessMode(String sMode)
+        {
+        m_sReadinessMode = sMode;
+        }
+
+    /**
+     * Obtain the probe timeout configured for Kubernetes.
+     *
+     * @return  the probe timeout in milliseconds
+     */
+    static long getProbeTimeout()
+        {
+        String sTimeout = System.getenv(ENV_PROBE_TIMEOUT);
+
+        if (sTimeout == null || sTimeout.trim().isEmpty())
+            {
+            sTimeout = System.getProperty(PROP_PROBE_TIMEOUT);
+            }
+
+        try
+            {
+            return sTimeout == null ? DEFAULT_PROBE_TIMEOUT_MILLIS : Long.parseLong(sTimeout.trim()) * 1000L;
+            }
+        catch (NumberFormatException e)
+            {
+            return DEFAULT_PROBE_TIMEOUT_MILLIS;
+            }
         }
 
 
@@ -83,19 +426,89 @@ public abstract class Probe
      */
     protected boolean isServiceStatusHA(Map<String, Object> mapAttributes)
         {
-        boolean fStatusHA = true;
+        String sStatus = null;
+        Object oNode   = null;
+        Object oBackup = null;
+        Object oRemain = null;
 
-        // convert the attribute case as MBeanProxy or ReST return them with different cases
-        Map map = mapAttributes.entrySet()
-                        .stream()
-                        .collect(Collectors.toMap(e -> e.getKey().toLowerCase(), Map.Entry::getValue));
+        // match the attribute names ignoring case as MBeanProxy or ReST return them with different cases
+        for (Map.Entry<String, Object> entry : mapAttributes.entrySet())
+            {
+            String sName = entry.getKey();
+
+            if (ATTRIB_HASTATUS.equalsIgnoreCase(sName))
+                {
+                sStatus = (String) entry.getValue();
+                }
+            else if (ATTRIB_NODE_COUNT.equalsIgnoreCase(sName))
+                {
+                oNode = entry.getValue();
+                }
+            else if (ATTRIB_BACKUPS.equalsIgnoreCase(sName))
+                {
+                oBackup = entry.getValue();
+                }
+            else if (ATTRIB_REMAINING_DISTRIBUTIONS.equalsIgnoreCase(sName))
+                {
+                oRemain = entry.getValue();
+                }
+            }
 
-        int cNode   = (int) map.get(ATTRIB_NODE_COUNT);
-        int cBackup = (int) map.get(ATTRIB_BACKUPS);
+        // the remaining distribution count is not available from older Coherence versions
+        int cRemain = oRemain instanceof Number ? ((Number) oRemain).intValue() : 0;
+
+        return isServiceStatusHA(sStatus, (int) oBackup, (int) oNode, cRemain);
+        }
+
+    /**
+     * Determine whether a service is HA from its HA attributes.
+     * <p>
+     * If the service only has a single member, or no backups, then it will always
+     * be endangered but this method will return {@code true}.
+     *
+     * @param sStatus  the value of the HAStatus attribute of the service
+     * @param cBackup  the value of the BackupCount attribute of the service
+     * @param cNode    the value of the ServiceNodeCount attribute of the service
+     *
+     * @return  {@code true} if the service is HA
+     */
+    protected boolean isServiceStatusHA(String sStatus, int cBackup, int cNode)
+        {
+        return isServiceStatusHA(sStatus, cBackup, cNode, 0);
+        }
+
+    /**
+     * Determine whether a service is ready from its HA and partition
+     * distribution attributes.
+     * <p>
+     * In the {@link #READINESS_MODE_HA} readiness mode the service is ready
+     * if it is HA. In the {@link #READINESS_MODE_BALANCED} mode the service
+     * must also have no partition transfers remaining, so that a rolling
+     * restart waits until the data of the restarted member has been moved
+     * rather than relying on fixed probe delays.
+     * <p>
+     * If the service only has a single member, or no backups, then it will always
+     * be endangered but this method will return {@code true}.
+     *
+     * @param sStatus  the value of the HAStatus attribute of the service
+     * @param cBackup  the value of the BackupCount attribute of the service
+     * @param cNode    the value of the ServiceNodeCount attribute of the service
+     * @param cRemain  the value of the RemainingDistributionCount attribute of the service
+     *
+     * @return  {@code true} if the service is ready
+     */
+    protected boolean isServiceStatusHA(String sStatus, int cBackup, int cNode, int cRemain)
+        {
+        if (cNode > 1 && cRemain > 0 && READINESS_MODE_BALANCED.equals(getReadinessMode()))
+            {
+            return false;
+            }
+
+        boolean fStatusHA = true;
 
         if (cNode > 1 && cBackup > 0)
             {
-            fStatusHA = !Objects.equals(STATUS_ENDANGERED, map.get(ATTRIB_HASTATUS));
+            fStatusHA = !Objects.equals(STATUS_ENDANGERED, sStatus);
             }
 
         return fStatusHA;
@@ -146,6 +559,57 @@ public abstract class Probe
 
     // ----- constants ------------------------------------------------------
 
+    /**
+     * The environment variable holding the Kubernetes probe timeout in seconds.
+     */
+    public static final String ENV_PROBE_TIMEOUT = "COH_PROBE_TIMEOUT";
+
+    /**
+     * The System property holding the probe timeout in seconds.
+     */
+    public static final String PROP_PROBE_TIMEOUT = "coherence.k8s.probe.timeout";
+
+    /**
+     * The default probe timeout, the same as the default in the chart.
+     */
+    public static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 5000L;
+
+    /**
+     * The time left before the probe timeout for the probe to exit.
+     */
+    public static final long TIMEOUT_MARGIN_MILLIS = 500L;
+
+    /**
+     * The minimum time budget for determining the HA status of services.
+     */
+    public static final long MIN_BUDGET_MILLIS = 250L;
+
+    /**
+     * The maximum number of services evaluated concurrently.
+     */
+    public static final int MAX_PARALLEL = 8;
+
+    /**
+     * The environment variable holding the readiness mode.
+     */
+    public static final String ENV_READINESS_MODE = "COH_READINESS_MODE";
+
+    /**
+     * The System property holding the readiness mode.
+     */
+    public static final String PROP_READINESS_MODE = "coherence.k8s.readiness.mode";
+
+    /**
+     * The readiness mode where a Pod is ready when its services are HA.
+     */
+    public static final String READINESS_MODE_HA = "ha";
+
+    /**
+     * The readiness mode where a Pod is ready when its services are HA and
+     * have no partition transfers remaining.
+     */
+    public static final String READINESS_MODE_BALANCED = "balanced";
+
     /**
      * The value of the Status HA attribute to signify endangered.
      */
@@ -167,7 +631,34 @@ public abstract class Probe
     public static final String ATTRIB_NODE_COUNT = "servicenodecount";
 
     /**
-     * Service MBean Attributes required to compute HAStatus.
+     * The name of the remaining distribution count MBean attribute.
+     */
+    public static final String ATTRIB_REMAINING_DISTRIBUTIONS = "remainingdistributioncount";
+
+    /**
+     * The name of the persistence coordinator idle MBean attribute.
+     */
+    public static final String ATTRIB_IDLE = "idle";
+
+    /**
+     * The name of the persistence coordinator operation status MBean attribute.
+     */
+    public static final String ATTRIB_OPERATION_STATUS = "operationstatus";
+
+    /**
+     * Persistence coordinator MBean attributes required to determine whether
+     * persistence is idle.
+     *
+     * @see #getPersistenceIdle(String)
+     */
+    public static final String[] PERSISTENCE_ATTRIBUTES =
+        {
+            "Idle",
+            "OperationStatus"
+        };
+
+    /**
+     * Service MBean Attributes required to compute HAStatus and readiness.
      *
      * @see #isServiceStatusHA(Map)
      */
@@ -175,6 +666,24 @@ public abstract class Probe
         {
             "HAStatus",
             "BackupCount",
-            "ServiceNodeCount"
+            "ServiceNodeCount",
+            "RemainingDistributionCount"
         };
+    
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The time budget in milliseconds, or zero to derive it from the probe timeout.
+     */
+    private volatile long m_cMillisBudget;
+
+    /**
+     * The timeout in milliseconds of the Kubernetes probe, or zero to use {@code COH_PROBE_TIMEOUT}.
+     */
+    private volatile long m_cMillisTimeout;
+
+    /**
+     * The readiness mode, or {@code null} to read it from the environment.
+     */
+    private volatile String m_sReadinessMode;
     }
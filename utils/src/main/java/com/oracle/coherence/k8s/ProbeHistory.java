@@ -0,0 +1,509 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.CacheFactory;
+import com.tangosol.net.management.AnnotatedStandardMBean;
+
+import javax.management.NotCompliantMBeanException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A rolling history of the time taken by each phase of the readiness and
+ * liveness probes.
+ * <p>
+ * The time of each phase is accumulated while a probe runs and recorded as
+ * one sample when the probe completes. Phases may overlap, for example the
+ * http phase is the total time of the management requests made while
+ * selecting a probe and evaluating it.
+ * <p>
+ * Probes run by Kubernetes each run in a new JVM, so the history is kept in
+ * a small file, by default {@code probe-history.txt} in the {@code /logs}
+ * directory, that the Coherence server reads to expose the p50 and p99 of
+ * each phase as metrics through {@link ProbeHistoryMBean}. If the directory
+ * does not exist, for example when the probe runs in-process, the history
+ * is only kept in memory.
+ *
+ * @author jk
+ */
+public class ProbeHistory
+        implements ProbeHistoryMBean
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link ProbeHistory}.
+     *
+     * @param file  the file holding the history, or {@code null} to keep
+     *              the history in memory
+     */
+    ProbeHistory(File file)
+        {
+        f_file = file;
+
+        for (Phase phase : Phase.values())
+            {
+            f_mapSample.put(phase, new long[0]);
+            }
+        }
+
+    // ----- ProbeHistory methods -------------------------------------------
+
+    /**
+     * Obtain the {@link ProbeHistory} of this JVM.
+     *
+     * @return  the {@link ProbeHistory} of this JVM
+     */
+    public static ProbeHistory getInstance()
+        {
+        return INSTANCE;
+        }
+
+    /**
+     * Obtain the {@link ProbeHistoryMBean} of this JVM, used to register
+     * the MBean with Coherence.
+     *
+     * @return  the {@link ProbeHistoryMBean} of this JVM
+     */
+    public static Object getMBean()
+        {
+        try
+            {
+            return new AnnotatedStandardMBean(getInstance(), ProbeHistoryMBean.class);
+            }
+        catch (NotCompliantMBeanException e)
+            {
+            throw new IllegalStateException(e);
+            }
+        }
+
+    /**
+     * Add to the time taken by a phase of the current probe.
+     *
+     * @param phase   the phase
+     * @param cNanos  the time in nanoseconds
+     */
+    public synchronized void add(Phase phase, long cNanos)
+        {
+        f_mapCurrent.merge(phase, cNanos, Long::sum);
+        }
+
+    /**
+     * Run an action, adding the time taken to a phase of the current probe.
+     *
+     * @param phase     the phase
+     * @param supplier  the action
+     * @param <R>       the type of the result of the action
+     *
+     * @return  the result of the action
+     */
+    public <R> R time(Phase phase, Supplier<R> supplier)
+        {
+        long ldtStart = System.nanoTime();
+
+        try
+            {
+            return supplier.get();
+            }
+        finally
+            {
+            add(phase, System.nanoTime() - ldtStart);
+            }
+        }
+
+    /**
+     * Record the phase times of the current probe in the history.
+     */
+    public synchronized void complete()
+        {
+        if (f_mapCurrent.isEmpty())
+            {
+            return;
+            }
+
+        Map<Phase, Long> mapProbe = new EnumMap<>(Phase.class);
+
+        for (Phase phase : Phase.values())
+            {
+            mapProbe.put(phase, TimeUnit.NANOSECONDS.toMillis(f_mapCurrent.getOrDefault(phase, 0L)));
+            }
+
+        f_mapCurrent.clear();
+
+        if (f_file == null)
+            {
+            append(mapProbe);
+            return;
+            }
+
+        try (RandomAccessFile file = new RandomAccessFile(f_file, "rw");
+             FileLock         lock = file.getChannel().lock())
+            {
+            read(file.getChannel());
+            append(mapProbe);
+
+            byte[] ab = write();
+
+            file.setLength(0);
+            file.write(ab);
+            }
+        catch (IOException e)
+            {
+            CacheFactory.log("Failed to write probe history to " + f_file + ": " + e, CacheFactory.LOG_WARN);
+            }
+        }
+
+    /**
+     * Obtain a percentile of the time taken by a phase.
+     *
+     * @param phase        the phase
+     * @param nPercentile  the percentile, from 1 to 100
+     *
+     * @return  the time in milliseconds or zero if the history is empty
+     */
+    public synchronized long getPercentile(Phase phase, int nPercentile)
+        {
+        refresh();
+
+        long[] alSample = f_mapSample.get(phase).clone();
+
+        if (alSample.length == 0)
+            {
+            return 0L;
+            }
+
+        Arrays.sort(alSample);
+
+        // nearest rank
+        int nRank = (int) Math.ceil(nPercentile / 100.0 * alSample.length);
+
+        return alSample[Math.max(nRank, 1) - 1];
+        }
+
+    // ----- ProbeHistoryMBean interface ------------------------------------
+
+    @Override
+    public synchronized int getProbeCount()
+        {
+        refresh();
+
+        return f_mapSample.get(Phase.TOTAL).length;
+        }
+
+    @Override
+    public long getStartupP50()
+        {
+        return getPercentile(Phase.STARTUP, 50);
+        }
+
+    @Override
+    public long getStartupP99()
+        {
+        return getPercentile(Phase.STARTUP, 99);
+        }
+
+    @Override
+    public long getSslP50()
+        {
+        return getPercentile(Phase.SSL, 50);
+        }
+
+    @Override
+    public long getSslP99()
+        {
+        return getPercentile(Phase.SSL, 99);
+        }
+
+    @Override
+    public long getSelectP50()
+        {
+        return getPercentile(Phase.SELECT, 50);
+        }
+
+    @Override
+    public long getSelectP99()
+        {
+        return getPercentile(Phase.SELECT, 99);
+        }
+
+    @Override
+    public long getHttpP50()
+        {
+        return getPercentile(Phase.HTTP, 50);
+        }
+
+    @Override
+    public long getHttpP99()
+        {
+        return getPercentile(Phase.HTTP, 99);
+        }
+
+    @Override
+    public long getEvaluateP50()
+        {
+        return getPercentile(Phase.EVALUATE, 50);
+        }
+
+    @Override
+    public long getEvaluateP99()
+        {
+        return getPercentile(Phase.EVALUATE, 99);
+        }
+
+    @Override
+    public long getTotalP50()
+        {
+        return getPercentile(Phase.TOTAL, 50);
+        }
+
+    @Override
+    public long getTotalP99()
+        {
+        return getPercentile(Phase.TOTAL, 99);
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Append the phase times of a probe to the history, discarding the
+     * oldest samples if the history is full.
+     *
+     * @param mapProbe  the phase times of the probe
+     */
+    private void append(Map<Phase, Long> mapProbe)
+        {
+        for (Phase phase : Phase.values())
+            {
+            long[] alOld = f_mapSample.get(phase);
+            int    cKeep = Math.min(alOld.length, HISTORY_SIZE - 1);
+            long[] alNew = new long[cKeep + 1];
+
+            System.arraycopy(alOld, alOld.length - cKeep, alNew, 0, cKeep);
+            alNew[cKeep] = mapProbe.get(phase);
+            f_mapSample.put(phase, alNew);
+            }
+        }
+
+    /**
+     * Reload the history from the file if it has changed.
+     */
+    private void refresh()
+        {
+        if (f_file == null || !f_file.exists() || f_file.lastModified() == m_ldtModified)
+            {
+            return;
+            }
+
+        try (RandomAccessFile file = new RandomAccessFile(f_file, "r");
+             FileLock         lock = file.getChannel().lock(0L, Long.MAX_VALUE, true))
+            {
+            m_ldtModified = f_file.lastModified();
+            read(file.getChannel());
+            }
+        catch (IOException e)
+            {
+            CacheFactory.log("Failed to read probe history from " + f_file + ": " + e, CacheFactory.LOG_WARN);
+            }
+        }
+
+    /**
+     * Read the history from a file, replacing the history in memory.
+     * <p>
+     * Each line of the file holds the name of a phase followed by its
+     * samples in milliseconds, oldest first.
+     *
+     * @param channel  the channel to read the file from
+     *
+     * @throws IOException  if the file cannot be read
+     */
+    private void read(FileChannel channel) throws IOException
+        {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer            buf = ByteBuffer.allocate(4096);
+
+        channel.position(0);
+        while (channel.read(buf) > 0)
+            {
+            out.write(buf.array(), 0, buf.position());
+            buf.clear();
+            }
+
+        for (String sLine : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"))
+            {
+            String[] asPart = sLine.trim().split(" ");
+
+            try
+                {
+                Phase  phase    = Phase.valueOf(asPart[0]);
+                long[] alSample = new long[Math.min(asPart.length - 1, HISTORY_SIZE)];
+                int    of       = asPart.length - alSample.length;
+
+                for (int i = 0; i < alSample.length; i++)
+                    {
+                    alSample[i] = Long.parseLong(asPart[of + i]);
+                    }
+
+                f_mapSample.put(phase, alSample);
+                }
+            catch (IllegalArgumentException e)
+                {
+                // ignore lines written by a different version or partially written lines
+                }
+            }
+        }
+
+    /**
+     * Serialize the history.
+     *
+     * @return  the serialized history
+     */
+    private byte[] write()
+        {
+        StringBuilder sb = new StringBuilder();
+
+        for (Phase phase : Phase.values())
+            {
+            sb.append(phase.name());
+            for (long cMillis : f_mapSample.get(phase))
+                {
+                sb.append(' ').append(cMillis);
+                }
+            sb.append('\n');
+            }
+
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+    /**
+     * Determine the file holding the history.
+     *
+     * @return  the file holding the history, or {@code null} if the history
+     *          should be kept in memory
+     */
+    private static File getHistoryFile()
+        {
+        String sFile = System.getenv(ENV_PROBE_HISTORY);
+
+        if (sFile == null || sFile.trim().isEmpty())
+            {
+            sFile = System.getProperty(PROP_PROBE_HISTORY);
+            }
+
+        if (sFile != null && !sFile.trim().isEmpty())
+            {
+            return new File(sFile.trim());
+            }
+
+        File dirLogs = new File(DEFAULT_HISTORY_DIR);
+
+        return dirLogs.isDirectory() && dirLogs.canWrite() ? new File(dirLogs, DEFAULT_HISTORY_FILE) : null;
+        }
+
+    // ----- inner enum: Phase ----------------------------------------------
+
+    /**
+     * The phases of a probe.
+     */
+    public enum Phase
+        {
+        /**
+         * Starting the probe JVM.
+         */
+        STARTUP,
+
+        /**
+         * Creating the SSL context.
+         */
+        SSL,
+
+        /**
+         * Selecting the probe to use.
+         */
+        SELECT,
+
+        /**
+         * Management over ReST requests.
+         */
+        HTTP,
+
+        /**
+         * Evaluating readiness or liveness.
+         */
+        EVALUATE,
+
+        /**
+         * The whole probe.
+         */
+        TOTAL
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The environment variable holding the name of the probe history file.
+     */
+    public static final String ENV_PROBE_HISTORY = "COH_PROBE_HISTORY";
+
+    /**
+     * The System property holding the name of the probe history file.
+     */
+    public static final String PROP_PROBE_HISTORY = "coherence.k8s.probe.history";
+
+    /**
+     * The directory of the probe history file if no file is configured.
+     */
+    public static final String DEFAULT_HISTORY_DIR = "/logs";
+
+    /**
+     * The name of the probe history file if no file is configured.
+     */
+    public static final String DEFAULT_HISTORY_FILE = "probe-history.txt";
+
+    /**
+     * The number of probes kept in the history.
+     */
+    public static final int HISTORY_SIZE = 100;
+
+    /**
+     * The {@link ProbeHistory} of this JVM.
+     */
+    private static final ProbeHistory INSTANCE = new ProbeHistory(getHistoryFile());
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The file holding the history, or {@code null} if the history is kept in memory.
+     */
+    private final File f_file;
+
+    /**
+     * The samples of each phase in milliseconds, oldest first.
+     */
+    private final Map<Phase, long[]> f_mapSample = new EnumMap<>(Phase.class);
+
+    /**
+     * The times of the phases of the current probe in nanoseconds.
+     */
+    private final Map<Phase, Long> f_mapCurrent = new EnumMap<>(Phase.class);
+
+    /**
+     * The last modified time of the history file when it was last read.
+     */
+    private long m_ldtModified;
+    }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.management.annotation.Description;
+import com.tangosol.net.management.annotation.MetricsScope;
+import com.tangosol.net.management.annotation.MetricsValue;
+import com.tangosol.net.metrics.MBeanMetric;
+
+/**
+ * The MBean interface exposing the p50 and p99 durations, in milliseconds,
+ * of each phase of recent readiness and liveness probes.
+ *
+ * @author jk
+ */
+@MetricsScope(MBeanMetric.Scope.APPLICATION)
+@Description("The durations of the phases of recent Kubernetes probes")
+public interface ProbeHistoryMBean
+    {
+    /**
+     * Obtain the number of probes in the history.
+     *
+     * @return  the number of probes in the history
+     */
+    @MetricsValue
+    @Description("The number of probes in the history")
+    int getProbeCount();
+
+    /**
+     * Obtain the p50 time taken to start the probe JVM.
+     *
+     * @return  the p50 time taken to start the probe JVM
+     */
+    @MetricsValue
+    @Description("The p50 time in milliseconds taken to start the probe JVM")
+    long getStartupP50();
+
+    /**
+     * Obtain the p99 time taken to start the probe JVM.
+     *
+     * @return  the p99 time taken to start the probe JVM
+     */
+    @MetricsValue
+    @Description("The p99 time in milliseconds taken to start the probe JVM")
+    long getStartupP99();
+
+    /**
+     * Obtain the p50 time taken to create the SSL context.
+     *
+     * @return  the p50 time taken to create the SSL context
+     */
+    @MetricsValue
+    @Description("The p50 time in milliseconds taken to create the SSL context")
+    long getSslP50();
+
+    /**
+     * Obtain the p99 time taken to create the SSL context.
+     *
+     * @return  the p99 time taken to create the SSL context
+     */
+    @MetricsValue
+    @Description("The p99 time in milliseconds taken to create the SSL context")
+    long getSslP99();
+
+    /**
+     * Obtain the p50 time taken to select the probe to use.
+     *
+     * @return  the p50 time taken to select the probe to use
+     */
+    @MetricsValue
+    @Description("The p50 time in milliseconds taken to select the probe to use")
+    long getSelectP50();
+
+    /**
+     * Obtain the p99 time taken to select the probe to use.
+     *
+     * @return  the p99 time taken to select the probe to use
+     */
+    @MetricsValue
+    @Description("The p99 time in milliseconds taken to select the probe to use")
+    long getSelectP99();
+
+    /**
+     * Obtain the p50 time spent in management over ReST requests.
+     *
+     * @return  the p50 time spent in management over ReST requests
+     */
+    @MetricsValue
+    @Description("The p50 time in milliseconds spent in management over ReST requests")
+    long getHttpP50();
+
+    /**
+     * Obtain the p99 time spent in management over ReST requests.
+     *
+     * @return  the p99 time spent in management over ReST requests
+     */
+    @MetricsValue
+    @Description("The p99 time in milliseconds spent in management over ReST requests")
+    long getHttpP99();
+
+    /**
+     * Obtain the p50 time taken to evaluate readiness or liveness.
+     *
+     * @return  the p50 time taken to evaluate readiness or liveness
+     */
+    @MetricsValue
+    @Description("The p50 time in milliseconds taken to evaluate readiness or liveness")
+    long getEvaluateP50();
+
+    /**
+     * Obtain the p99 time taken to evaluate readiness or liveness.
+     *
+     * @return  the p99 time taken to evaluate readiness or liveness
+     */
+    @MetricsValue
+    @Description("The p99 time in milliseconds taken to evaluate readiness or liveness")
+    long getEvaluateP99();
+
+    /**
+     * Obtain the p50 total time taken by a probe.
+     *
+     * @return  the p50 total time taken by a probe
+     */
+    @MetricsValue
+    @Description("The p50 total time in milliseconds taken by a probe")
+    long getTotalP50();
+
+    /**
+     * Obtain the p99 total time taken by a probe.
+     *
+     * @return  the p99 total time taken by a probe
+     */
+    @MetricsValue
+    @Description("The p99 total time in milliseconds taken by a probe")
+    long getTotalP99();
+    }
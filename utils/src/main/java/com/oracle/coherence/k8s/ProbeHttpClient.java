@@ -22,6 +22,8 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import java.io.Closeable;
 import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A simple utility class that handles correctly configuring a http or https client.
@@ -29,6 +31,12 @@ import java.net.URI;
  * It is expected the the probe JVM is started with the same parameters as the co-located
  * Coherence server so that the http client can be configured with the same settings,
  * in particular SSL certificates.
+ * <p>
+ * Probes should use the shared clients returned by {@link #getInstance()} so
+ * that connections to the management server are kept alive between requests.
+ * The {@link SSLContext} for a socket provider is created once and cached, so
+ * reusing it lets TLS sessions be resumed from its client session cache rather
+ * than performing a full handshake for every new connection.
  *
  * @author jk
  */
@@ -63,11 +71,26 @@ public class ProbeHttpClient
      * Create a {@link ProbeHttpClient}.
      */
     public ProbeHttpClient(String sPort, String sSocketProvider)
+        {
+        this(sPort, sSocketProvider, false);
+        }
+
+    /**
+     * Create a {@link ProbeHttpClient}.
+     *
+     * @param sPort            the management server port
+     * @param sSocketProvider  the optional name of the socket provider
+     * @param fShared          {@code true} if the client is shared and
+     *                         should not be closed by its users
+     */
+    private ProbeHttpClient(String sPort, String sSocketProvider, boolean fShared)
         {
         ClientConfig  clientConfig = new ClientConfig();
         ClientBuilder builder      = ClientBuilder.newBuilder()
                                                   .withConfig(clientConfig)
-                                                  .hostnameVerifier(new NoopHostnameVerifier());
+                                                  .hostnameVerifier(HOSTNAME_VERIFIER);
+
+        f_fShared = fShared;
 
         try
             {
@@ -80,15 +103,10 @@ public class ProbeHttpClient
 
         if (sSocketProvider != null && sSocketProvider.length() > 0)
             {
-            Cluster               cluster  = CacheFactory.getCluster();
-            SocketProviderFactory factory  = cluster.getDependencies().getSocketProviderFactory();
-            SocketProvider        provider = factory.getSocketProvider(sSocketProvider);
-            SSLSettings           settings = factory.getSSLSettings(provider);
+            SSLContext context = getSSLContext(sSocketProvider);
 
-            if (settings != null)
+            if (context != null)
                 {
-                SSLContext context = settings.getSSLContext();
-
                 m_sProtocol = "https";
                 builder     = builder.sslContext(context);
                 }
@@ -99,6 +117,103 @@ public class ProbeHttpClient
 
     // ----- ProbeHttpClient methods ----------------------------------------
 
+    /**
+     * Obtain the shared {@link ProbeHttpClient} for the management server
+     * port and socket provider configured with system properties.
+     *
+     * @return  the shared {@link ProbeHttpClient}
+     */
+    public static ProbeHttpClient getInstance()
+        {
+        return getInstance(System.getProperty(PROP_HTTP_PORT, String.valueOf(DEFAULT_MANAGEMENT_PORT)),
+                           System.getProperty(PROP_HTTP_SOCKET_PROVIDER));
+        }
+
+    /**
+     * Obtain the shared {@link ProbeHttpClient} for a management server port
+     * and socket provider.
+     * <p>
+     * Closing a shared client has no effect.
+     *
+     * @param sPort            the management server port
+     * @param sSocketProvider  the optional name of the socket provider
+     *
+     * @return  the shared {@link ProbeHttpClient}
+     */
+    public static ProbeHttpClient getInstance(String sPort, String sSocketProvider)
+        {
+        String sKey = sPort + '/' + (sSocketProvider == null ? "" : sSocketProvider);
+
+        return s_mapClient.computeIfAbsent(sKey, k -> new ProbeHttpClient(sPort, sSocketProvider, true));
+        }
+
+    /**
+     * Obtain the cached {@link SSLContext} for a socket provider, creating it
+     * the first time the provider is used.
+     *
+     * @param sSocketProvider  the name of the socket provider
+     *
+     * @return  the {@link SSLContext} or {@code null} if the socket provider
+     *          is not an SSL provider
+     */
+    static SSLContext getSSLContext(String sSocketProvider)
+        {
+        return s_mapSSLContext.computeIfAbsent(sSocketProvider, ProbeHttpClient::createSSLContext);
+        }
+
+    /**
+     * Create the {@link SSLContext} for a socket provider.
+     * <p>
+     * The context is created from the socket provider configuration in the
+     * operational override file if possible, so that the probe does not have
+     * to initialize the Coherence cluster dependencies. If the configuration
+     * cannot be loaded that way the socket provider is obtained from Coherence.
+     *
+     * @param sSocketProvider  the name of the socket provider
+     *
+     * @return  the {@link SSLContext} or {@code null} if the socket provider
+     *          is not an SSL provider
+     */
+    private static SSLContext createSSLContext(String sSocketProvider)
+        {
+        return ProbeHistory.getInstance().time(ProbeHistory.Phase.SSL, () -> loadSSLContext(sSocketProvider));
+        }
+
+    /**
+     * Load the {@link SSLContext} for a socket provider.
+     *
+     * @param sSocketProvider  the name of the socket provider
+     *
+     * @return  the {@link SSLContext} or {@code null} if the socket provider
+     *          is not an SSL provider
+     */
+    private static SSLContext loadSSLContext(String sSocketProvider)
+        {
+        SSLContext context = SSLContextLoader.load(sSocketProvider);
+
+        if (context != null)
+            {
+            return context;
+            }
+
+        Cluster               cluster  = CacheFactory.getCluster();
+        SocketProviderFactory factory  = cluster.getDependencies().getSocketProviderFactory();
+        SocketProvider        provider = factory.getSocketProvider(sSocketProvider);
+        SSLSettings           settings = factory.getSSLSettings(provider);
+
+        return settings == null ? null : settings.getSSLContext();
+        }
+
+    /**
+     * Determine whether this client is shared.
+     *
+     * @return  {@code true} if this client is shared
+     */
+    public boolean isShared()
+        {
+        return f_fShared;
+        }
+
     /**
      * Obtain a {@link WebTarget} for the specified request path.
      *
@@ -144,7 +259,10 @@ public class ProbeHttpClient
     @Override
     public void close()
         {
-        m_client.close();
+        if (!f_fShared)
+            {
+            m_client.close();
+            }
         }
 
     // ----- inner class NoopHostnameVerifier -------------------------------
@@ -152,7 +270,7 @@ public class ProbeHttpClient
     /**
      * A no-op implementation of a {@link HostnameVerifier}.
      */
-    private class NoopHostnameVerifier
+    private static class NoopHostnameVerifier
             implements HostnameVerifier
         {
         @Override
@@ -185,6 +303,26 @@ public class ProbeHttpClient
      */
     public static final String HOST_NAME = "127.0.0.1";
 
+    /**
+     * The {@link HostnameVerifier} used by all clients.
+     */
+    private static final HostnameVerifier HOSTNAME_VERIFIER = new NoopHostnameVerifier();
+
+    /**
+     * The shared clients keyed by port and socket provider.
+     */
+    private static final Map<String, ProbeHttpClient> s_mapClient = new ConcurrentHashMap<>();
+
+    /**
+     * The {@link SSLContext}s keyed by socket provider name.
+     */
+    private static final Map<String, SSLContext> s_mapSSLContext = new ConcurrentHashMap<>();
+
+    /**
+     * {@code true} if this client is shared and is not closed by {@link #close()}.
+     */
+    private final boolean f_fShared;
+
     /**
      * The protocol to use for http requests. This will be http unless the server is
      * using SSL in which case it will be https.
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.CacheFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A cache of the name of the {@link Probe} class that last worked for this
+ * Pod, so that later probes can use it without first checking that it is
+ * available.
+ * <p>
+ * Probes run by Kubernetes each run in a new JVM, so the selection is kept
+ * in a small file, by default {@code probe-selection.txt} in the
+ * {@code /logs} directory. If the directory does not exist the selection is
+ * only kept in memory.
+ *
+ * @author jk
+ */
+class ProbeSelection
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link ProbeSelection}.
+     *
+     * @param file  the file holding the selection, or {@code null} to keep
+     *              the selection in memory
+     */
+    ProbeSelection(File file)
+        {
+        f_file = file;
+        }
+
+    // ----- ProbeSelection methods -----------------------------------------
+
+    /**
+     * Obtain the {@link ProbeSelection} of this JVM.
+     *
+     * @return  the {@link ProbeSelection} of this JVM
+     */
+    static ProbeSelection getInstance()
+        {
+        return INSTANCE;
+        }
+
+    /**
+     * Obtain the name of the selected {@link Probe} class.
+     *
+     * @return  the name of the selected {@link Probe} class or {@code null}
+     *          if no probe has been selected
+     */
+    synchronized String get()
+        {
+        if (m_sProbe == null && f_file != null && f_file.isFile())
+            {
+            try
+                {
+                String sProbe = new String(Files.readAllBytes(f_file.toPath()), StandardCharsets.UTF_8).trim();
+
+                m_sProbe = sProbe.isEmpty() ? null : sProbe;
+                }
+            catch (IOException e)
+                {
+                CacheFactory.log("Failed to read probe selection from " + f_file + ": " + e, CacheFactory.LOG_WARN);
+                }
+            }
+
+        return m_sProbe;
+        }
+
+    /**
+     * Set the name of the selected {@link Probe} class.
+     *
+     * @param sProbe  the name of the selected {@link Probe} class
+     */
+    synchronized void set(String sProbe)
+        {
+        if (sProbe.equals(m_sProbe))
+            {
+            return;
+            }
+
+        m_sProbe = sProbe;
+
+        if (f_file != null)
+            {
+            try
+                {
+                // write to a temporary file and move it so that a concurrent probe never reads a partial name
+                Path pathTemp = Files.createTempFile(f_file.getAbsoluteFile().getParentFile().toPath(),
+                                                     f_file.getName(), ".tmp");
+
+                Files.write(pathTemp, sProbe.getBytes(StandardCharsets.UTF_8));
+                Files.move(pathTemp, f_file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+                }
+            catch (IOException e)
+                {
+                CacheFactory.log("Failed to write probe selection to " + f_file + ": " + e, CacheFactory.LOG_WARN);
+                }
+            }
+        }
+
+    /**
+     * Clear the selection.
+     */
+    synchronized void clear()
+        {
+        m_sProbe = null;
+
+        if (f_file != null && f_file.exists() && !f_file.delete())
+            {
+            CacheFactory.log("Failed to delete probe selection " + f_file, CacheFactory.LOG_WARN);
+            }
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Determine the file holding the selection.
+     *
+     * @return  the file holding the selection, or {@code null} if the
+     *          selection should be kept in memory
+     */
+    private static File getSelectionFile()
+        {
+        String sFile = System.getenv(ENV_PROBE_SELECTION);
+
+        if (sFile == null || sFile.trim().isEmpty())
+            {
+            sFile = System.getProperty(PROP_PROBE_SELECTION);
+            }
+
+        if (sFile != null && !sFile.trim().isEmpty())
+            {
+            return new File(sFile.trim());
+            }
+
+        File dirLogs = new File(ProbeHistory.DEFAULT_HISTORY_DIR);
+
+        return dirLogs.isDirectory() && dirLogs.canWrite() ? new File(dirLogs, DEFAULT_SELECTION_FILE) : null;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The environment variable holding the name of the probe selection file.
+     */
+    public static final String ENV_PROBE_SELECTION = "COH_PROBE_SELECTION";
+
+    /**
+     * The System property holding the name of the probe selection file.
+     */
+    public static final String PROP_PROBE_SELECTION = "coherence.k8s.probe.selection";
+
+    /**
+     * The name of the probe selection file if no file is configured.
+     */
+    public static final String DEFAULT_SELECTION_FILE = "probe-selection.txt";
+
+    /**
+     * The {@link ProbeSelection} of this JVM.
+     */
+    private static final ProbeSelection INSTANCE = new ProbeSelection(getSelectionFile());
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The file holding the selection, or {@code null} if the selection is kept in memory.
+     */
+    private final File f_file;
+
+    /**
+     * The name of the selected {@link Probe} class.
+     */
+    private String m_sProbe;
+    }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.net.Socket;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+
+/**
+ * An {@link X509ExtendedKeyManager} that delegates to a key manager that
+ * can be replaced while the key manager is in use.
+ * <p>
+ * Each TLS handshake uses the delegate current when the handshake starts,
+ * so replacing the delegate changes the key material used by new
+ * connections without affecting established connections.
+ *
+ * @author jk
+ */
+public class ReloadingKeyManager
+        extends X509ExtendedKeyManager
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link ReloadingKeyManager}.
+     *
+     * @param delegate  the initial key manager
+     */
+    public ReloadingKeyManager(X509ExtendedKeyManager delegate)
+        {
+        m_delegate = delegate;
+        }
+
+    // ----- ReloadingKeyManager methods ------------------------------------
+
+    /**
+     * Replace the key manager.
+     *
+     * @param delegate  the new key manager
+     */
+    public void setDelegate(X509ExtendedKeyManager delegate)
+        {
+        m_delegate = delegate;
+        m_cReload++;
+        }
+
+    /**
+     * Obtain the number of times the key manager has been replaced.
+     *
+     * @return  the number of times the key manager has been replaced
+     */
+    public int getReloadCount()
+        {
+        return m_cReload;
+        }
+
+    // ----- X509ExtendedKeyManager methods ---------------------------------
+
+    @Override
+    public String[] getClientAliases(String sKeyType, Principal[] aIssuer)
+        {
+        return m_delegate.getClientAliases(sKeyType, aIssuer);
+        }
+
+    @Override
+    public String chooseClientAlias(String[] asKeyType, Principal[] aIssuer, Socket socket)
+        {
+        return m_delegate.chooseClientAlias(asKeyType, aIssuer, socket);
+        }
+
+    @Override
+    public String chooseEngineClientAlias(String[] asKeyType, Principal[] aIssuer, SSLEngine engine)
+        {
+        return m_delegate.chooseEngineClientAlias(asKeyType, aIssuer, engine);
+        }
+
+    @Override
+    public String[] getServerAliases(String sKeyType, Principal[] aIssuer)
+        {
+        return m_delegate.getServerAliases(sKeyType, aIssuer);
+        }
+
+    @Override
+    public String chooseServerAlias(String sKeyType, Principal[] aIssuer, Socket socket)
+        {
+        return m_delegate.chooseServerAlias(sKeyType, aIssuer, socket);
+        }
+
+    @Override
+    public String chooseEngineServerAlias(String sKeyType, Principal[] aIssuer, SSLEngine engine)
+        {
+        return m_delegate.chooseEngineServerAlias(sKeyType, aIssuer, engine);
+        }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String sAlias)
+        {
+        return m_delegate.getCertificateChain(sAlias);
+        }
+
+    @Override
+    public PrivateKey getPrivateKey(String sAlias)
+        {
+        return m_delegate.getPrivateKey(sAlias);
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The current key manager.
+     */
+    private volatile X509ExtendedKeyManager m_delegate;
+
+    /**
+     * The number of times the key manager has been replaced.
+     */
+    private volatile int m_cReload;
+    }
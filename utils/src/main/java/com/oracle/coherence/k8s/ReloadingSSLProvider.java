@@ -0,0 +1,650 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.CacheFactory;
+import com.tangosol.util.Base;
+import com.tangosol.util.Resources;
+import org.w3c.dom.Element;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.KeyManagerFactorySpi;
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.TrustManagerFactorySpi;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.UnrecoverableKeyException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A security {@link Provider} of key and trust manager factories whose
+ * managers reload their key store when the mounted secret holding it changes.
+ * <p>
+ * The provider is configured as the {@code provider} of the
+ * {@code identity-manager} or {@code trust-manager} of an SSL socket provider
+ * in the operational override file, with init-params naming the socket
+ * provider, the manager element and optionally the delegate provider, for
+ * example:
+ * <pre>
+ * &lt;init-params&gt;
+ *   &lt;init-param&gt;
+ *     &lt;param-name&gt;socket-provider&lt;/param-name&gt;
+ *     &lt;param-value&gt;ManagementSSLProvider&lt;/param-value&gt;
+ *   &lt;/init-param&gt;
+ *   &lt;init-param&gt;
+ *     &lt;param-name&gt;manager&lt;/param-name&gt;
+ *     &lt;param-value&gt;identity-manager&lt;/param-value&gt;
+ *   &lt;/init-param&gt;
+ *   &lt;init-param&gt;
+ *     &lt;param-name&gt;delegate-provider&lt;/param-name&gt;
+ *     &lt;param-value/&gt;
+ *   &lt;/init-param&gt;
+ * &lt;/init-params&gt;
+ * </pre>
+ * The factories are only passed the loaded key store, so the key store and
+ * password files are read from the {@code key-store} and
+ * {@code password-provider} elements of that manager using the
+ * {@link SSLContextLoader}. The factories support the standard X509 algorithm
+ * names and delegate to the factory of the same algorithm from the JDK, or
+ * from the delegate provider.
+ * <p>
+ * The directories of the key store and password files are watched with a
+ * {@link DirectoryWatcher}. When one changes the key store is loaded again
+ * and the key material of every {@link ReloadingKeyManager} or
+ * {@link ReloadingTrustManager} still in use is replaced atomically, so
+ * certificates can be rotated without restarting the member. If the new key
+ * store cannot be loaded, for example because only some of the files of the
+ * secret have been updated, the current key material is kept.
+ *
+ * @author jk
+ */
+public class ReloadingSSLProvider
+        extends Provider
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link ReloadingSSLProvider} for a manager configured in the
+     * operational override file set with the {@code coherence.override}
+     * system property.
+     *
+     * @param sSocketProvider  the id of the socket provider
+     * @param sManager         the manager element, {@code identity-manager}
+     *                         or {@code trust-manager}
+     * @param sProvider        the name of the provider of the delegate
+     *                         factories, or empty for the default provider
+     */
+    public ReloadingSSLProvider(String sSocketProvider, String sManager, String sProvider)
+        {
+        this(System.getProperty(SSLContextLoader.PROP_OVERRIDE, SSLContextLoader.DEFAULT_OVERRIDE),
+             sSocketProvider, sManager, sProvider);
+        }
+
+    /**
+     * Create a {@link ReloadingSSLProvider} for a manager configured in an
+     * operational override file.
+     *
+     * @param sOverride        the name of the override file or resource
+     * @param sSocketProvider  the id of the socket provider
+     * @param sManager         the manager element, {@code identity-manager}
+     *                         or {@code trust-manager}
+     * @param sProvider        the name of the provider of the delegate
+     *                         factories, or empty for the default provider
+     *
+     * @throws IllegalArgumentException  if the manager has no key store in
+     *                                   the override file
+     */
+    ReloadingSSLProvider(String sOverride, String sSocketProvider, String sManager, String sProvider)
+        {
+        super(NAME, 1.0, "Reloading X509 key and trust manager factories");
+
+        f_xmlManager  = SSLContextLoader.findManager(sOverride, sSocketProvider, sManager.trim());
+        f_xmlKeyStore = SSLContextLoader.getChild(f_xmlManager, "key-store");
+        f_sKeyStore   = SSLContextLoader.getString(f_xmlKeyStore, "url", null);
+        f_sProvider   = trimToNull(sProvider);
+
+        if (f_sKeyStore == null)
+            {
+            throw new IllegalArgumentException("No key store url configured for " + sManager
+                                               + " of socket provider " + sSocketProvider + " in " + sOverride);
+            }
+
+        f_setDir = getDirectories();
+
+        Set<String> setKeyAlgorithm = new LinkedHashSet<>(Arrays.asList("SunX509", "NewSunX509", "PKIX"));
+        setKeyAlgorithm.add(KeyManagerFactory.getDefaultAlgorithm());
+
+        Set<String> setTrustAlgorithm = new LinkedHashSet<>(Arrays.asList("SunX509", "PKIX", "X509", "X.509"));
+        setTrustAlgorithm.add(TrustManagerFactory.getDefaultAlgorithm());
+
+        for (String sAlgorithm : setKeyAlgorithm)
+            {
+            putService(new ReloadingService(TYPE_KEY_MANAGER_FACTORY, sAlgorithm));
+            }
+
+        for (String sAlgorithm : setTrustAlgorithm)
+            {
+            putService(new ReloadingService(TYPE_TRUST_MANAGER_FACTORY, sAlgorithm));
+            }
+        }
+
+    // ----- ReloadingSSLProvider methods -----------------------------------
+
+    /**
+     * Obtain the name of the provider of the delegate factories.
+     *
+     * @return  the name of the delegate provider, or {@code null} for the default provider
+     */
+    public String getDelegateProvider()
+        {
+        return f_sProvider;
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Register a key manager to be reloaded when the key store changes.
+     *
+     * @param keyManager     the key manager
+     * @param sAlgorithm     the algorithm of the delegate factory
+     * @param acKeyPassword  the private key password the factory was
+     *                       initialized with, used if the manager has no
+     *                       password configured
+     */
+    private void registerKeyManager(ReloadingKeyManager keyManager, String sAlgorithm, char[] acKeyPassword)
+        {
+        // the reloader must not refer to the factory, which holds the manager strongly
+        register(keyManager, (oManager, keyStore) ->
+            {
+            char[] acKey = SSLContextLoader.getPassword(f_xmlManager);
+
+            ((ReloadingKeyManager) oManager).setDelegate(
+                    createKeyManager(sAlgorithm, keyStore, acKey == null ? acKeyPassword : acKey));
+            });
+        }
+
+    /**
+     * Register a trust manager to be reloaded when the trust store changes.
+     *
+     * @param trustManager  the trust manager
+     * @param sAlgorithm    the algorithm of the delegate factory
+     */
+    private void registerTrustManager(ReloadingTrustManager trustManager, String sAlgorithm)
+        {
+        register(trustManager, (oManager, keyStore) ->
+                ((ReloadingTrustManager) oManager).setDelegate(createTrustManager(sAlgorithm, keyStore)));
+        }
+
+    /**
+     * Register a manager to be reloaded and watch the directories of the key
+     * store and password files.
+     * <p>
+     * The manager is held weakly, so that managers of discarded SSL contexts
+     * are no longer reloaded, and the directories are watched by a single
+     * listener of this provider however many managers are registered.
+     *
+     * @param oManager  the manager
+     * @param reloader  the action that replaces the delegate of the manager
+     */
+    private void register(Object oManager, Reloader reloader)
+        {
+        f_mapManager.put(oManager, reloader);
+
+        for (Path dir : f_setDir)
+            {
+            // the listener is the same for every manager so it is only added once
+            DirectoryWatcher.watch(dir, f_listener);
+            }
+        }
+
+    /**
+     * Obtain the directories of the key store and password files.
+     *
+     * @return  the directories to watch, empty if the key store is not a file
+     */
+    private Set<Path> getDirectories()
+        {
+        Set<Path> setDir       = new LinkedHashSet<>();
+        Path      pathKeyStore = toPath(findFile(f_sKeyStore));
+
+        if (pathKeyStore == null)
+            {
+            CacheFactory.log("Key store " + f_sKeyStore + " is not a file, it will not be reloaded",
+                             CacheFactory.LOG_WARN);
+            return setDir;
+            }
+
+        setDir.add(pathKeyStore.getParent());
+        for (Element xml : new Element[] {f_xmlKeyStore, f_xmlManager})
+            {
+            try
+                {
+                String sFile = SSLContextLoader.getPasswordFile(xml);
+                Path   path  = sFile == null ? null : toPath(findFile(sFile));
+
+                if (path != null)
+                    {
+                    setDir.add(path.getParent());
+                    }
+                }
+            catch (UnsupportedOperationException e)
+                {
+                // the password is not read from a file
+                }
+            }
+
+        return setDir;
+        }
+
+    /**
+     * Load the key store again and replace the delegates of the registered
+     * managers.
+     */
+    private void reload()
+        {
+        Map<Object, Reloader> mapManager;
+
+        synchronized (f_mapManager)
+            {
+            mapManager = new HashMap<>(f_mapManager);
+            }
+
+        if (mapManager.isEmpty())
+            {
+            return;
+            }
+
+        try
+            {
+            KeyStore keyStore = loadKeyStore();
+
+            for (Map.Entry<Object, Reloader> entry : mapManager.entrySet())
+                {
+                entry.getValue().reload(entry.getKey(), keyStore);
+                }
+
+            CacheFactory.log("Reloaded key store " + f_sKeyStore, CacheFactory.LOG_INFO);
+            }
+        catch (GeneralSecurityException | IOException | RuntimeException e)
+            {
+            CacheFactory.log("Failed to reload key store " + f_sKeyStore + ", keeping the current keys: " + e,
+                             CacheFactory.LOG_WARN);
+            }
+        }
+
+    /**
+     * Create a key manager from the delegate factory.
+     *
+     * @param sAlgorithm  the algorithm of the delegate factory
+     * @param keyStore    the key store
+     * @param acPassword  the private key password
+     *
+     * @return  the key manager
+     *
+     * @throws GeneralSecurityException  if the key manager cannot be created
+     */
+    private X509ExtendedKeyManager createKeyManager(String sAlgorithm, KeyStore keyStore, char[] acPassword)
+            throws GeneralSecurityException
+        {
+        KeyManagerFactory factory = f_sProvider == null
+                                    ? KeyManagerFactory.getInstance(sAlgorithm)
+                                    : KeyManagerFactory.getInstance(sAlgorithm, f_sProvider);
+
+        factory.init(keyStore, acPassword);
+
+        for (KeyManager keyManager : factory.getKeyManagers())
+            {
+            if (keyManager instanceof X509ExtendedKeyManager)
+                {
+                return (X509ExtendedKeyManager) keyManager;
+                }
+            }
+
+        throw new GeneralSecurityException("No X509ExtendedKeyManager from " + sAlgorithm + " factory");
+        }
+
+    /**
+     * Create a trust manager from the delegate factory.
+     *
+     * @param sAlgorithm  the algorithm of the delegate factory
+     * @param keyStore    the trust store
+     *
+     * @return  the trust manager
+     *
+     * @throws GeneralSecurityException  if the trust manager cannot be created
+     */
+    private X509ExtendedTrustManager createTrustManager(String sAlgorithm, KeyStore keyStore)
+            throws GeneralSecurityException
+        {
+        TrustManagerFactory factory = f_sProvider == null
+                                      ? TrustManagerFactory.getInstance(sAlgorithm)
+                                      : TrustManagerFactory.getInstance(sAlgorithm, f_sProvider);
+
+        factory.init(keyStore);
+
+        for (TrustManager trustManager : factory.getTrustManagers())
+            {
+            if (trustManager instanceof X509ExtendedTrustManager)
+                {
+                return (X509ExtendedTrustManager) trustManager;
+                }
+            }
+
+        throw new GeneralSecurityException("No X509ExtendedTrustManager from " + sAlgorithm + " factory");
+        }
+
+    /**
+     * Load the key store configured for the manager.
+     *
+     * @return  the key store
+     *
+     * @throws GeneralSecurityException  if the key store cannot be loaded
+     * @throws IOException               if the key store cannot be read
+     */
+    private KeyStore loadKeyStore()
+            throws GeneralSecurityException, IOException
+        {
+        return SSLContextLoader.loadKeyStore(f_xmlKeyStore);
+        }
+
+    /**
+     * Find a file or resource.
+     *
+     * @param sName  the name or URL of the file or resource
+     *
+     * @return  the URL of the file or resource or {@code null} if it does not exist
+     */
+    private static URL findFile(String sName)
+        {
+        return sName == null ? null : Resources.findFileOrResource(sName, ReloadingSSLProvider.class.getClassLoader());
+        }
+
+    /**
+     * Obtain the file system path of a URL.
+     *
+     * @param url  the URL
+     *
+     * @return  the absolute path of the file or {@code null} if the URL is not a file
+     */
+    private static Path toPath(URL url)
+        {
+        if (url == null || !"file".equals(url.getProtocol()))
+            {
+            return null;
+            }
+
+        try
+            {
+            return Paths.get(url.toURI()).toAbsolutePath();
+            }
+        catch (URISyntaxException | IllegalArgumentException e)
+            {
+            return null;
+            }
+        }
+
+    /**
+     * Trim a value, returning {@code null} for an empty value.
+     *
+     * @param s  the value
+     *
+     * @return  the trimmed value or {@code null}
+     */
+    private static String trimToNull(String s)
+        {
+        return s == null || s.trim().isEmpty() ? null : s.trim();
+        }
+
+    // ----- inner class: ReloadingService ----------------------------------
+
+    /**
+     * A {@link Provider.Service} creating factories bound to the
+     * configuration of this provider.
+     */
+    private class ReloadingService
+            extends Provider.Service
+        {
+        /**
+         * Create a {@link ReloadingService}.
+         *
+         * @param sType       the type of the service
+         * @param sAlgorithm  the algorithm of the service
+         */
+        ReloadingService(String sType, String sAlgorithm)
+            {
+            super(ReloadingSSLProvider.this, sType, sAlgorithm, ReloadingService.class.getName(), null, null);
+            }
+
+        @Override
+        public Object newInstance(Object oParameter)
+            {
+            return TYPE_KEY_MANAGER_FACTORY.equals(getType())
+                   ? new ReloadingKeyManagerFactory(getAlgorithm())
+                   : new ReloadingTrustManagerFactory(getAlgorithm());
+            }
+        }
+
+    // ----- inner interface: Reloader --------------------------------------
+
+    /**
+     * An action replacing the delegate of a registered manager.
+     * <p>
+     * A {@link Reloader} is passed the manager rather than holding it, so that
+     * the manager is only weakly reachable from this provider.
+     */
+    @FunctionalInterface
+    private interface Reloader
+        {
+        /**
+         * Replace the delegate of a manager.
+         *
+         * @param oManager  the manager
+         * @param keyStore  the reloaded key store
+         *
+         * @throws GeneralSecurityException  if the delegate cannot be created
+         */
+        void reload(Object oManager, KeyStore keyStore)
+                throws GeneralSecurityException;
+        }
+
+    // ----- inner class: ReloadingKeyManagerFactory ------------------------
+
+    /**
+     * A {@link KeyManagerFactorySpi} creating a {@link ReloadingKeyManager}.
+     */
+    private class ReloadingKeyManagerFactory
+            extends KeyManagerFactorySpi
+        {
+        /**
+         * Create a {@link ReloadingKeyManagerFactory}.
+         *
+         * @param sAlgorithm  the algorithm of the delegate factory
+         */
+        ReloadingKeyManagerFactory(String sAlgorithm)
+            {
+            f_sAlgorithm = sAlgorithm;
+            }
+
+        @Override
+        protected void engineInit(KeyStore keyStore, char[] acPassword)
+                throws KeyStoreException, NoSuchAlgorithmException, UnrecoverableKeyException
+            {
+            // the caller may clear the password so keep a copy to reload with
+            char[] acKeyPassword = acPassword == null ? null : acPassword.clone();
+
+            try
+                {
+                m_keyManager = new ReloadingKeyManager(createKeyManager(f_sAlgorithm, keyStore, acKeyPassword));
+                }
+            catch (KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e)
+                {
+                throw e;
+                }
+            catch (GeneralSecurityException e)
+                {
+                throw new KeyStoreException(e);
+                }
+
+            registerKeyManager(m_keyManager, f_sAlgorithm, acKeyPassword);
+            }
+
+        @Override
+        protected void engineInit(ManagerFactoryParameters parameters)
+                throws InvalidAlgorithmParameterException
+            {
+            throw new InvalidAlgorithmParameterException("ManagerFactoryParameters are not supported");
+            }
+
+        @Override
+        protected KeyManager[] engineGetKeyManagers()
+            {
+            return new KeyManager[] {m_keyManager};
+            }
+
+        /**
+         * The algorithm of the delegate factory.
+         */
+        private final String f_sAlgorithm;
+
+        /**
+         * The key manager.
+         */
+        private ReloadingKeyManager m_keyManager;
+        }
+
+    // ----- inner class: ReloadingTrustManagerFactory ----------------------
+
+    /**
+     * A {@link TrustManagerFactorySpi} creating a {@link ReloadingTrustManager}.
+     */
+    private class ReloadingTrustManagerFactory
+            extends TrustManagerFactorySpi
+        {
+        /**
+         * Create a {@link ReloadingTrustManagerFactory}.
+         *
+         * @param sAlgorithm  the algorithm of the delegate factory
+         */
+        ReloadingTrustManagerFactory(String sAlgorithm)
+            {
+            f_sAlgorithm = sAlgorithm;
+            }
+
+        @Override
+        protected void engineInit(KeyStore keyStore)
+            {
+            try
+                {
+                m_trustManager = new ReloadingTrustManager(createTrustManager(f_sAlgorithm, keyStore));
+                }
+            catch (GeneralSecurityException e)
+                {
+                throw Base.ensureRuntimeException(e);
+                }
+
+            registerTrustManager(m_trustManager, f_sAlgorithm);
+            }
+
+        @Override
+        protected void engineInit(ManagerFactoryParameters parameters)
+                throws InvalidAlgorithmParameterException
+            {
+            throw new InvalidAlgorithmParameterException("ManagerFactoryParameters are not supported");
+            }
+
+        @Override
+        protected TrustManager[] engineGetTrustManagers()
+            {
+            return new TrustManager[] {m_trustManager};
+            }
+
+        /**
+         * The algorithm of the delegate factory.
+         */
+        private final String f_sAlgorithm;
+
+        /**
+         * The trust manager.
+         */
+        private ReloadingTrustManager m_trustManager;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The name of this provider.
+     */
+    public static final String NAME = "CoherenceK8sReloading";
+
+    /**
+     * The service type of key manager factories.
+     */
+    private static final String TYPE_KEY_MANAGER_FACTORY = "KeyManagerFactory";
+
+    /**
+     * The service type of trust manager factories.
+     */
+    private static final String TYPE_TRUST_MANAGER_FACTORY = "TrustManagerFactory";
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The {@code identity-manager} or {@code trust-manager} element configuring the key store.
+     */
+    private final Element f_xmlManager;
+
+    /**
+     * The {@code key-store} element of the manager.
+     */
+    private final Element f_xmlKeyStore;
+
+    /**
+     * The URL of the key store.
+     */
+    private final String f_sKeyStore;
+
+    /**
+     * The name of the provider of the delegate factories.
+     */
+    private final String f_sProvider;
+
+    /**
+     * The directories of the key store and password files.
+     */
+    private final Set<Path> f_setDir;
+
+    /**
+     * The managers to reload, held weakly, with the action that reloads each of them.
+     */
+    private final Map<Object, Reloader> f_mapManager = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The listener reloading the managers when a watched directory changes.
+     */
+    private final Consumer<Path> f_listener = dir -> reload();
+    }
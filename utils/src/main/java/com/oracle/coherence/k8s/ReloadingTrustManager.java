@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+/**
+ * An {@link X509ExtendedTrustManager} that delegates to a trust manager
+ * that can be replaced while the trust manager is in use.
+ * <p>
+ * Each certificate check uses the delegate current when the check is made,
+ * so replacing the delegate changes the trusted certificates for new
+ * connections without affecting established connections.
+ *
+ * @author jk
+ */
+public class ReloadingTrustManager
+        extends X509ExtendedTrustManager
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link ReloadingTrustManager}.
+     *
+     * @param delegate  the initial trust manager
+     */
+    public ReloadingTrustManager(X509ExtendedTrustManager delegate)
+        {
+        m_delegate = delegate;
+        }
+
+    // ----- ReloadingTrustManager methods ----------------------------------
+
+    /**
+     * Replace the trust manager.
+     *
+     * @param delegate  the new trust manager
+     */
+    public void setDelegate(X509ExtendedTrustManager delegate)
+        {
+        m_delegate = delegate;
+        m_cReload++;
+        }
+
+    /**
+     * Obtain the number of times the trust manager has been replaced.
+     *
+     * @return  the number of times the trust manager has been replaced
+     */
+    public int getReloadCount()
+        {
+        return m_cReload;
+        }
+
+    // ----- X509ExtendedTrustManager methods -------------------------------
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] aCert, String sAuthType, Socket socket)
+            throws CertificateException
+        {
+        m_delegate.checkClientTrusted(aCert, sAuthType, socket);
+        }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] aCert, String sAuthType, Socket socket)
+            throws CertificateException
+        {
+        m_delegate.checkServerTrusted(aCert, sAuthType, socket);
+        }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] aCert, String sAuthType, SSLEngine engine)
+            throws CertificateException
+        {
+        m_delegate.checkClientTrusted(aCert, sAuthType, engine);
+        }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] aCert, String sAuthType, SSLEngine engine)
+            throws CertificateException
+        {
+        m_delegate.checkServerTrusted(aCert, sAuthType, engine);
+        }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] aCert, String sAuthType)
+            throws CertificateException
+        {
+        m_delegate.checkClientTrusted(aCert, sAuthType);
+        }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] aCert, String sAuthType)
+            throws CertificateException
+        {
+        m_delegate.checkServerTrusted(aCert, sAuthType);
+        }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers()
+        {
+        return m_delegate.getAcceptedIssuers();
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The current trust manager.
+     */
+    private volatile X509ExtendedTrustManager m_delegate;
+
+    /**
+     * The number of times the trust manager has been replaced.
+     */
+    private volatile int m_cReload;
+    }
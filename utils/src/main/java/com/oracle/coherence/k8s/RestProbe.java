@@ -6,18 +6,44 @@
 
 package com.oracle.coherence.k8s;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.tangosol.net.CacheFactory;
+import org.glassfish.jersey.client.ClientProperties;
+
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.net.URLEncoder;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * A readiness/liveness probe that uses Coherence management over ReST.
+ * <p>
+ * Queries are restricted with the {@code fields} and {@code links} query
+ * parameters to the attributes the probe needs, and the HA status of all
+ * services is obtained with a single search request where the management
+ * server supports it. Responses are read with a streaming json parser that
+ * extracts only the values the probe needs, see {@link ManagementJson}.
+ * <p>
+ * Cluster membership is checked by querying only the local member, identified
+ * by the {@code COH_MEMBER_NAME} environment variable or the
+ * {@code coherence.member} system property, so the cost of the check does
+ * not grow with the size of the cluster.
  *
  * @author jk
  */
@@ -31,7 +57,7 @@ public class RestProbe
      */
     public RestProbe()
         {
-        this(new ProbeHttpClient());
+        this(ProbeHttpClient.getInstance());
         }
 
     /**
@@ -41,7 +67,19 @@ public class RestProbe
      */
     RestProbe(ProbeHttpClient client)
         {
-        f_client = client;
+        this(client, getLocalMemberName());
+        }
+
+    /**
+     * Create a {@link RestProbe}.
+     *
+     * @param client       the http client to use
+     * @param sMemberName  the name of the local member, or {@code null} if not known
+     */
+    RestProbe(ProbeHttpClient client, String sMemberName)
+        {
+        f_client      = client;
+        f_sMemberName = sMemberName == null || sMemberName.isEmpty() ? null : sMemberName;
         }
 
     // ----- Probe methods --------------------------------------------------
@@ -51,8 +89,7 @@ public class RestProbe
         {
         try
             {
-            jsonQuery(PATH_CLUSTER);
-            return true;
+            return streamQuery(PATH_CLUSTER, null, false, parser -> Boolean.TRUE);
             }
         catch (Throwable e)
             {
@@ -67,48 +104,310 @@ public class RestProbe
         }
 
     @Override
-    @SuppressWarnings("unchecked")
+    public boolean isStatusHA()
+        {
+        try
+            {
+            if (m_fSearchSupported)
+                {
+                long cMillisBudget = getTimeBudget();
+
+                try
+                    {
+                    return streamQuery(PATH_SERVICES_SEARCH, Entity.json(createStatusHASearch()), false,
+                                       cMillisBudget, parser -> ManagementJson.isStatusHA(parser, this));
+                    }
+                catch (ProcessingException e)
+                    {
+                    if (e.getCause() instanceof SocketTimeoutException)
+                        {
+                        onTimeout(Collections.singleton(PATH_SERVICES_SEARCH), cMillisBudget);
+                        return false;
+                        }
+                    throw e;
+                    }
+                catch (WebApplicationException e)
+                    {
+                    int nStatus = e.getResponse().getStatus();
+
+                    if (nStatus != Response.Status.NOT_FOUND.getStatusCode()
+                            && nStatus != Response.Status.METHOD_NOT_ALLOWED.getStatusCode())
+                        {
+                        throw e;
+                        }
+
+                    // the management server does not support search, use a query per service from now on
+                    m_fSearchSupported = false;
+                    }
+                }
+
+            return isStatusHA(getPartitionAssignmentMBeans(), this::getServiceStatusHA);
+            }
+        catch (Throwable t)
+            {
+            CacheFactory.log(t);
+            return false;
+            }
+        }
+
+    @Override
+    protected Boolean getServiceStatusHA(String sMBean)
+        {
+        return streamQuery(getFieldsQuery(sMBean, SERVICE_STATUS_HA_ATTRIBUTES), null, true,
+                           parser -> ManagementJson.isServiceStatusHA(parser, this));
+        }
+
+    @Override
     protected Set<String> getPartitionAssignmentMBeans()
         {
-        return queryItems(PATH_SERVICES)
-                    .stream()
-                    .flatMap(m -> ((List<Map>)  m.getOrDefault(JSON_ATTRIBUTE_LINKS, Collections.emptyList())).stream())
-                    .filter(m -> JSON_ATTRIBUTE_LINK_PARTITION.equals(m.get(JSON_ATTRIBUTE_LINKS_REL)))
-                    .map(m -> (String) m.get(JSON_ATTRIBUTE_LINKS_HREF))
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet());
+        return streamQuery(PATH_SERVICES_PARTITION_LINKS, null, false,
+                           parser -> ManagementJson.findItemLinks(parser, JSON_ATTRIBUTE_LINK_PARTITION));
+        }
+
+    @Override
+    protected Set<String> getPersistenceMBeans()
+        {
+        // the persistence resource of a service is a sibling of its partition assignment resource
+        return getPartitionAssignmentMBeans().stream()
+                .map(sMBean -> sMBean.substring(0, sMBean.lastIndexOf('/') + 1) + PATH_PERSISTENCE)
+                .collect(Collectors.toSet());
         }
 
     @Override
     @SuppressWarnings("unchecked")
     protected Map<String, Object> getMBeanAttributes(String sMBean, String[] asAttributes)
         {
-        // Future optimization: only get attributes specified in asAttributes
-        return jsonQuery(sMBean, true);
+        return jsonQuery(getFieldsQuery(sMBean, asAttributes), true);
         }
 
     @Override
     public boolean isClusterMember()
         {
-        return !queryItems(PATH_MEMBERS).isEmpty();
+        if (f_sMemberName == null)
+            {
+            // the local member is not known, so check that there is at least one member
+            return streamQuery(PATH_MEMBERS, null, false, ManagementJson::hasItems);
+            }
+
+        Boolean fMember = streamQuery(getLocalMemberPath(f_sMemberName), null, true, parser ->
+                f_sMemberName.equals(ManagementJson.findString(parser, JSON_ATTRIBUTE_MEMBER_NAME)));
+
+        return Boolean.TRUE.equals(fMember);
         }
 
     // ----- helper methods -------------------------------------------------
 
     /**
-     * Perform a ReST query and return the json response as a {@link Map}.
+     * Obtain the name of the local member from the {@code COH_MEMBER_NAME}
+     * environment variable or the {@code coherence.member} system property.
+     *
+     * @return  the name of the local member or {@code null} if not set
+     */
+    private static String getLocalMemberName()
+        {
+        String sName = System.getenv(ENV_MEMBER_NAME);
+
+        return sName == null || sName.isEmpty() ? System.getProperty(PROP_MEMBER_NAME) : sName;
+        }
+
+    /**
+     * Obtain the path to query the name of the specified member.
+     *
+     * @param sMemberName  the member name
+     *
+     * @return  the path to query the name of the member
+     */
+    static String getLocalMemberPath(String sMemberName)
+        {
+        try
+            {
+            return PATH_MEMBER_BASE + "/" + URLEncoder.encode(sMemberName, "UTF-8").replace("+", "%20")
+                    + "?fields=" + JSON_ATTRIBUTE_MEMBER_NAME + "&links=";
+            }
+        catch (UnsupportedEncodingException e)
+            {
+            throw new IllegalStateException(e);
+            }
+        }
+
+    /**
+     * Obtain the query for the specified attributes of an MBean.
+     *
+     * @param sMBean        the MBean path or URI
+     * @param asAttributes  the MBean attribute names
+     *
+     * @return  the query for the attributes, without links
+     */
+    private static String getFieldsQuery(String sMBean, String[] asAttributes)
+        {
+        String sFields = Arrays.stream(asAttributes).map(RestProbe::toFieldName).collect(Collectors.joining(","));
+        String sSep    = sMBean.indexOf('?') < 0 ? "?" : "&";
+
+        return sMBean + sSep + JSON_ATTRIBUTE_FIELDS + "=" + sFields + "&links=";
+        }
+
+    /**
+     * Create the body of a search request for the HA attributes of the
+     * partition assignment of every service.
+     *
+     * @return  the body of the search request
+     */
+    private static Map<String, Object> createStatusHASearch()
+        {
+        Map<String, Object> mapPartition = new LinkedHashMap<>();
+        mapPartition.put(JSON_ATTRIBUTE_LINKS, Collections.emptyList());
+        mapPartition.put(JSON_ATTRIBUTE_FIELDS, Arrays.stream(SERVICE_STATUS_HA_ATTRIBUTES)
+                                                      .map(RestProbe::toFieldName)
+                                                      .collect(Collectors.toList()));
+
+        Map<String, Object> mapQuery = new LinkedHashMap<>();
+        mapQuery.put(JSON_ATTRIBUTE_LINKS, Collections.emptyList());
+        mapQuery.put(JSON_ATTRIBUTE_FIELDS, Collections.singletonList(JSON_ATTRIBUTE_NAME));
+        mapQuery.put(JSON_ATTRIBUTE_CHILDREN, Collections.singletonMap(JSON_ATTRIBUTE_LINK_PARTITION, mapPartition));
+
+        return mapQuery;
+        }
+
+    /**
+     * Perform a ReST query and pass the streaming json response to a function.
      * <p>
-     * The query can be just the part part of a query or a full URI. If the
-     * query string is a full URI only the path part is used.
-     * 
-     * @param sQuery  the query to execute
+     * The query can be just the path part of a query or a full URI. If the
+     * query string is a full URI only the path and query parts are used.
      *
-     * @return  the json response as a {@link Map} or null if the response
-     *          code was not 200.
+     * @param sQuery          the query to execute
+     * @param entity          the entity to POST, or {@code null} to GET
+     * @param fAllowNotFound  {@code true} to return null rather than throw if
+     *                        the response code was 404
+     * @param function        the function to apply to the json parser
+     * @param <R>             the type of the result
+     *
+     * @return  the result of the function or null if the response code
+     *          was 404 and not found is allowed
+     *
+     * @throws WebApplicationException  if the response code was not 200
      */
-    private Map jsonQuery(String sQuery)
+    private <R> R streamQuery(String sQuery, Entity<?> entity, boolean fAllowNotFound, JsonFunction<R> function)
         {
-        return jsonQuery(sQuery, false);
+        return streamQuery(sQuery, entity, fAllowNotFound, 0L, function);
+        }
+
+    /**
+     * Perform a ReST query with a read timeout and pass the streaming json
+     * response to a function.
+     *
+     * @param sQuery          the query to execute
+     * @param entity          the entity to POST, or {@code null} to GET
+     * @param fAllowNotFound  {@code true} to return null rather than throw if
+     *                        the response code was 404
+     * @param cMillisTimeout  the read timeout in milliseconds, or zero for
+     *                        the default timeout
+     * @param function        the function to apply to the json parser
+     * @param <R>             the type of the result
+     *
+     * @return  the result of the function or null if the response code
+     *          was 404 and not found is allowed
+     *
+     * @throws WebApplicationException  if the response code was not 200
+     */
+    private <R> R streamQuery(String sQuery, Entity<?> entity, boolean fAllowNotFound, long cMillisTimeout,
+                              JsonFunction<R> function)
+        {
+        long               ldtStart = System.nanoTime();
+        Invocation.Builder builder = f_client.getWebTarget(toPath(sQuery)).request(MediaType.APPLICATION_JSON);
+
+        if (cMillisTimeout > 0)
+            {
+            builder.property(ClientProperties.READ_TIMEOUT, (int) Math.min(cMillisTimeout, Integer.MAX_VALUE));
+            }
+
+        Response response = entity == null ? builder.get() : builder.post(entity);
+
+        try
+            {
+            int nStatus = response.getStatus();
+
+            if (nStatus == Response.Status.NOT_FOUND.getStatusCode() && fAllowNotFound)
+                {
+                return null;
+                }
+            if (nStatus != Response.Status.OK.getStatusCode())
+                {
+                throw new WebApplicationException("Query " + sQuery + " failed with status " + nStatus, nStatus);
+                }
+
+            try (InputStream in     = response.readEntity(InputStream.class);
+                 JsonParser  parser = ManagementJson.JSON_FACTORY.createParser(in))
+                {
+                R result = function.apply(parser);
+
+                // the parser may stop early, read the rest of the response so that
+                // the connection is returned to the keep-alive cache
+                drain(in);
+
+                return result;
+                }
+            }
+        catch (IOException e)
+            {
+            throw new UncheckedIOException(e);
+            }
+        finally
+            {
+            response.close();
+            ProbeHistory.getInstance().add(ProbeHistory.Phase.HTTP, System.nanoTime() - ldtStart);
+            }
+        }
+
+    /**
+     * Read and discard the remainder of a stream.
+     *
+     * @param in  the stream to drain
+     *
+     * @throws IOException  if the stream cannot be read
+     */
+    private static void drain(InputStream in) throws IOException
+        {
+        byte[] ab = new byte[1024];
+
+        while (in.read(ab) >= 0)
+            {
+            }
+        }
+
+    /**
+     * Obtain the raw path and query of a query that may be a full URI.
+     *
+     * @param sQuery  the query
+     *
+     * @return  the raw path and query
+     */
+    private static String toPath(String sQuery)
+        {
+        URI uri = URI.create(sQuery);
+
+        return uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+        }
+
+    /**
+     * Convert an MBean attribute name to the name of the corresponding
+     * ReST field, for example {@code HAStatus} to {@code haStatus}.
+     *
+     * @param sAttribute  the MBean attribute name
+     *
+     * @return  the ReST field name
+     */
+    static String toFieldName(String sAttribute)
+        {
+        int cUpper = 0;
+        while (cUpper < sAttribute.length() && Character.isUpperCase(sAttribute.charAt(cUpper)))
+            {
+            cUpper++;
+            }
+
+        // keep the last capital of a leading acronym when it starts the next word
+        int cLower = cUpper > 1 && cUpper < sAttribute.length() ? cUpper - 1 : cUpper;
+
+        return sAttribute.substring(0, cLower).toLowerCase() + sAttribute.substring(cLower);
         }
 
     /**
@@ -117,7 +416,9 @@ public class RestProbe
      * The query can be just the part part of a query or a full URI. If the
      * query string is a full URI only the path part is used.
      *
-     * @param sQuery  the query to execute
+     * @param sQuery          the query to execute
+     * @param fAllowNotFound  {@code true} to return null rather than throw if
+     *                        the response code was 404
      *
      * @return  the json response as a {@link Map} or null if the response
      *          code was not 200.
@@ -126,11 +427,10 @@ public class RestProbe
         {
         try
             {
-            URI uri = URI.create(sQuery);
-
-            return f_client.getWebTarget(uri.getSchemeSpecificPart())
-                                            .request(MediaType.APPLICATION_JSON)
-                                            .get(Map.class);
+            return ProbeHistory.getInstance().time(ProbeHistory.Phase.HTTP,
+                    () -> f_client.getWebTarget(toPath(sQuery))
+                                  .request(MediaType.APPLICATION_JSON)
+                                  .get(Map.class));
             }
         catch (NotFoundException e)
             {
@@ -145,24 +445,45 @@ public class RestProbe
             }
         }
 
+    // ----- inner interface: JsonFunction ----------------------------------
+
     /**
-     * Perform a query for a json value and obtain the list
-     * mapped to the {@code items} attribute of the json.
+     * A function applied to a streaming json response.
      *
-     * @param sPath  the path to use for the json query
-     *
-     * @return  the {@link List} mapped to the {@code items} attribute
-     *          of the json returned by the query
+     * @param <R>  the type of the result
      */
-    @SuppressWarnings("unchecked")
-    private List<Map> queryItems(String sPath)
+    @FunctionalInterface
+    private interface JsonFunction<R>
         {
-        return (List) jsonQuery(sPath)
-                .getOrDefault(JSON_ATTRIBUTE_ITEMS, Collections.emptyList());
+        /**
+         * Apply the function to the json parser.
+         *
+         * @param parser  the json parser positioned before the first token
+         *
+         * @return  the result
+         *
+         * @throws IOException  if the json cannot be parsed
+         */
+        R apply(JsonParser parser) throws IOException;
         }
 
     // ----- constants ------------------------------------------------------
 
+    /**
+     * The environment variable holding the name of the local member.
+     */
+    public static final String ENV_MEMBER_NAME = "COH_MEMBER_NAME";
+
+    /**
+     * The System property holding the name of the local member.
+     */
+    public static final String PROP_MEMBER_NAME = "coherence.member";
+
+    /**
+     * The json attribute name for the member name.
+     */
+    public static final String JSON_ATTRIBUTE_MEMBER_NAME = "memberName";
+
     /**
      * The json attribute name for the cluster members list.
      */
@@ -178,6 +499,21 @@ public class RestProbe
      */
     public static final String JSON_ATTRIBUTE_LINKS_REL = "rel";
 
+    /**
+     * The json attribute name for the fields of a search request.
+     */
+    public static final String JSON_ATTRIBUTE_FIELDS = "fields";
+
+    /**
+     * The json attribute name for the children of a search request.
+     */
+    public static final String JSON_ATTRIBUTE_CHILDREN = "children";
+
+    /**
+     * The json attribute name for the name of a service.
+     */
+    public static final String JSON_ATTRIBUTE_NAME = "name";
+
     /**
      * The json attribute name for the links rel attribute.
      */
@@ -203,15 +539,46 @@ public class RestProbe
      */
     public static final String PATH_SERVICES = PATH_CLUSTER + "/services";
 
+    /**
+     * The path to use to query for the names and partition links of services.
+     */
+    public static final String PATH_SERVICES_PARTITION_LINKS = PATH_SERVICES
+            + "?" + JSON_ATTRIBUTE_FIELDS + "=" + JSON_ATTRIBUTE_NAME + "&links=" + JSON_ATTRIBUTE_LINK_PARTITION;
+
+    /**
+     * The path to use to search services and their children in a single request.
+     */
+    public static final String PATH_SERVICES_SEARCH = PATH_SERVICES + "/search";
+
     /**
      * The path to use to query the member count.
      */
     public static final String PATH_MEMBERS = "/management/coherence/cluster/members?fields=memberName";
 
+    /**
+     * The path of the cluster members.
+     */
+    public static final String PATH_MEMBER_BASE = PATH_CLUSTER + "/members";
+
+    /**
+     * The path of the persistence resource of a service, relative to the service.
+     */
+    public static final String PATH_PERSISTENCE = "persistence";
+
     // ----- data members ---------------------------------------------------
 
     /**
      * The http client to use.
      */
     private final ProbeHttpClient f_client;
+
+    /**
+     * The name of the local member, or {@code null} if not known.
+     */
+    private final String f_sMemberName;
+
+    /**
+     * Flag indicating whether the management server supports search requests.
+     */
+    private volatile boolean m_fSearchSupported = true;
     }
@@ -9,20 +9,45 @@ package com.oracle.coherence.k8s;
 import com.oracle.common.util.Duration;
 import com.oracle.common.util.Duration.Magnitude;
 import com.tangosol.net.AddressProvider;
+import com.tangosol.net.CacheFactory;
 import com.tangosol.net.ConfigurableAddressProvider;
 import com.tangosol.util.Base;
-import com.tangosol.util.WrapperException;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * An AddressProvider that eventually resolves at least one dns host name in provided WKA list, {@link #PROP_WKA_OVERRIDE}.
  * Throws an exception if unable to resolve at least one host name within {@link #f_WkaDNSResolutionTimeout_ms}.
+ * <p>
+ * Once resolved, the addresses of each host name are cached for {@link #f_WkaDNSCacheTtl_ms}. Coherence resolves
+ * the WKA list every time it iterates it, so a stale entry is still returned and refreshed in the background,
+ * keeping DNS lookups off the cluster join path. The resolution statistics are exposed by {@link WkaResolution}.
+ * <p>
+ * The retries and refreshes only see DNS changes if the JVM's own DNS cache expires first, see
+ * {@link Main#getDnsCacheProperties(Map)}, which configures it when the process is started by {@link Main}.
  */
 public class RetryingWkaAddressProvider
     extends ConfigurableAddressProvider
@@ -39,10 +64,27 @@ public class RetryingWkaAddressProvider
      */
     public RetryingWkaAddressProvider(Iterable<AddressHolder> addressHolders, boolean fSafe, long frequency_ms, long timeout_ms)
         {
+        this(addressHolders, fSafe, frequency_ms, timeout_ms,
+             new Duration(System.getProperty(PROP_WKA_CACHE_TTL, "5s")).as(Magnitude.MILLI));
+        }
+
+    /**
+     * Construct a {@link RetryingWkaAddressProvider}
+     *
+     * @param addressHolders  the {@link AddressHolder}s
+     * @param fSafe           true if the provider skips unresolved addresses
+     * @param timeout_ms      maximum time in milliseconds to attempt to resolve {@link AddressHolder}s
+     * @param frequency_ms    frequency in milliseconds to attempt to retry {@link AddressHolder} dns resolution
+     * @param cacheTtl_ms     time in milliseconds after which a cached resolution is refreshed in the background
+     */
+    public RetryingWkaAddressProvider(Iterable<AddressHolder> addressHolders, boolean fSafe, long frequency_ms,
+                                      long timeout_ms, long cacheTtl_ms)
+        {
         super(addressHolders, fSafe);
 
         f_WkaDNSReresolveFrequency_ms = frequency_ms;
         f_WkaDNSResolutionTimeout_ms  = timeout_ms;
+        f_WkaDNSCacheTtl_ms           = cacheTtl_ms;
         }
 
     /**
@@ -54,14 +96,16 @@ public class RetryingWkaAddressProvider
      * <p>
      * If {@link #PROP_WKA_OVERRIDE} is not set an empty
      * {@link ConfigurableAddressProvider} will be returned.
-     *
+     * <p>
+     * If {@link #PROP_WKA_SEEDS} is set the WKA addresses are replaced by the seed members,
+     * see {@link #getSeedAddresses(String, int, String)}.
      *
      * @return an {@link AddressProvider}.
      */
     public static AddressProvider create()
         throws UnknownHostException
         {
-        return create(System.getProperty(PROP_WKA_OVERRIDE));
+        return create(getWkaOverride());
         }
 
     /**
@@ -138,51 +182,403 @@ public class RetryingWkaAddressProvider
     public static AddressProvider create(String sDurationFrequency, String sDurationTimeout)
         throws UnknownHostException
         {
-        return create(System.getProperty(PROP_WKA_OVERRIDE),
+        return create(getWkaOverride(),
             new Duration(sDurationFrequency).as(Magnitude.MILLI), new Duration(sDurationTimeout).as(Magnitude.MILLI));
         }
 
+    /**
+     * Obtain the WKA override from the {@link #PROP_WKA_OVERRIDE} System property, replaced by
+     * the seed members if {@link #PROP_WKA_SEEDS} is set.
+     *
+     * @return the comma delimited WKA address list, or {@code null} if there is no WKA override
+     */
+    public static String getWkaOverride()
+        {
+        return getSeedAddresses(System.getProperty(PROP_WKA_OVERRIDE), Integer.getInteger(PROP_WKA_SEEDS, 0),
+                                System.getProperty(PROP_MEMBER));
+        }
+
+    /**
+     * Obtain the host names of the seed members of a StatefulSet.
+     * <p>
+     * When every Pod of a StatefulSet starts in parallel, having each member resolve and contact
+     * every other member through the headless service leads to many small clusters that then have
+     * to merge. Using the first {@code cSeeds} ordinals of the StatefulSet as WKA means that only the
+     * seeds can form a cluster and the other members wait for, and join through, one of the seeds.
+     * <p>
+     * The seed host names are the stable Pod host names of the StatefulSet, {@code <statefulset>-<ordinal>.<wka>},
+     * where the StatefulSet name is obtained from the member name, which is the Pod name. This requires the
+     * StatefulSet's service name to be the headless WKA service.
+     *
+     * @param sWka     the comma delimited WKA address list, typically the headless service
+     * @param cSeeds   the number of seed members, or zero to use the WKA list as is
+     * @param sMember  the member name, which is the name of the Pod
+     *
+     * @return the comma delimited seed host names, or {@code sWka} if seeds are not used
+     */
+    static String getSeedAddresses(String sWka, int cSeeds, String sMember)
+        {
+        if (sWka == null || cSeeds <= 0)
+            {
+            return sWka;
+            }
+
+        Matcher matcher = sMember == null ? null : POD_ORDINAL.matcher(sMember);
+
+        if (matcher == null || !matcher.matches())
+            {
+            CacheFactory.log("Ignoring " + PROP_WKA_SEEDS + "=" + cSeeds + " as the member name " + sMember
+                             + " is not a StatefulSet Pod name, using WKA " + sWka, CacheFactory.LOG_WARN);
+            return sWka;
+            }
+
+        String       sStatefulSet = matcher.group(1);
+        List<String> listSeed     = new ArrayList<>();
+
+        for (String sHost : sWka.split(","))
+            {
+            sHost = sHost.trim();
+            for (int i = 0; i < cSeeds; i++)
+                {
+                listSeed.add(sStatefulSet + "-" + i + "." + sHost);
+                }
+            }
+
+        String sSeeds = String.join(",", listSeed);
+
+        CacheFactory.log("Using WKA seed members " + sSeeds, CacheFactory.LOG_INFO);
+
+        return sSeeds;
+        }
+
+    // ----- ConfigurableAddressProvider methods ----------------------------
+
+    /**
+     * Resolve a WKA host name, using the cached addresses of the host if it has been resolved before.
+     * <p>
+     * A host is only looked up on the calling thread the first time it is used. After that its cached
+     * addresses are returned, and if they are older than {@link #f_WkaDNSCacheTtl_ms} a background lookup
+     * is started to refresh them. A host that did not resolve is cached as having no addresses, so it is
+     * also re-checked in the background rather than each time the WKA list is iterated.
+     *
+     * @param sHost  the host name
+     * @param nPort  the port
+     *
+     * @return the resolved addresses of the host
+     */
+    @Override
+    protected synchronized Iterator<InetSocketAddress> resolveAddress(String sHost, int nPort)
+        {
+        ResolvedHost resolved = f_mapResolved.get(sHost);
+
+        if (resolved == null)
+            {
+            List<InetAddress>           listAddress = new ArrayList<>();
+            long                        ldtStart    = System.nanoTime();
+            Iterator<InetSocketAddress> iter        = super.resolveAddress(sHost, nPort);
+
+            while (iter != null && iter.hasNext())
+                {
+                InetSocketAddress address = iter.next();
+
+                // an unresolvable host is returned as an unresolved address
+                if (!address.isUnresolved())
+                    {
+                    listAddress.add(address.getAddress());
+                    }
+                }
+
+            f_resolution.onResolve(!listAddress.isEmpty(), System.nanoTime() - ldtStart);
+
+            resolved = new ResolvedHost(listAddress);
+            f_mapResolved.put(sHost, resolved);
+            }
+        else
+            {
+            f_resolution.onCacheHit();
+
+            if (Base.getSafeTimeMillis() - resolved.f_ldtResolved >= f_WkaDNSCacheTtl_ms)
+                {
+                refreshAsync(sHost);
+                }
+            }
+
+        List<InetSocketAddress> listAddress = new ArrayList<>(resolved.f_listAddress.size());
+
+        for (InetAddress address : resolved.f_listAddress)
+            {
+            listAddress.add(new InetSocketAddress(address, nPort));
+            }
+
+        return listAddress.iterator();
+        }
+
     // ----- helpers --------------------------------------------------------
 
+    /**
+     * Start a background lookup of a host name unless one is already in progress.
+     *
+     * @param sHost  the host name
+     */
+    private void refreshAsync(String sHost)
+        {
+        if (f_setRefreshing.add(sHost))
+            {
+            REFRESH_EXECUTOR.execute(() ->
+                {
+                try
+                    {
+                    refresh(sHost);
+                    }
+                finally
+                    {
+                    f_setRefreshing.remove(sHost);
+                    }
+                });
+            }
+        }
+
+    /**
+     * Look up a host name and update its cached addresses.
+     * <p>
+     * If the lookup fails the previously resolved addresses are kept, so a transient DNS failure,
+     * for example during a network partition, does not remove members from the WKA list.
+     *
+     * @param sHost  the host name
+     */
+    void refresh(String sHost)
+        {
+        long ldtStart = System.nanoTime();
+
+        try
+            {
+            InetAddress[] aAddress = InetAddress.getAllByName(sHost);
+
+            f_resolution.onResolve(true, System.nanoTime() - ldtStart);
+            f_mapResolved.put(sHost, new ResolvedHost(Arrays.asList(aAddress)));
+            }
+        catch (UnknownHostException e)
+            {
+            f_resolution.onResolve(false, System.nanoTime() - ldtStart);
+            f_mapResolved.computeIfPresent(sHost, (s, resolved) -> new ResolvedHost(resolved.f_listAddress));
+            }
+        }
+
+
     /**
      * Attempt resolution of each dns reference in wka until at least on dns reference resolves
      * or throw an {@link IOException} after {@link #f_WkaDNSResolutionTimeout_ms}.
+     * <p>
+     * All of the WKA host names are resolved concurrently, so a slow or failing lookup of one
+     * host does not delay the others, and this method returns as soon as any host resolves.
+     * Unresolved host names are retried on an adaptive schedule that starts with a delay of
+     * {@link #INITIAL_RERESOLVE_FREQUENCY_MS} and doubles up to {@link #f_WkaDNSReresolveFrequency_ms},
+     * so a member does not wait a full re-resolve period after the headless service has endpoints.
+     * A lookup that is still in progress is not retried until it completes.
+     * <p>
+     * The hosts that have not resolved when this method returns are cached as unresolved, so
+     * they are looked up in the background rather than on the cluster join path.
      *
      * @return this {@link RetryingWkaAddressProvider} instance
      *
-     * @throws WrapperException if no dns references resolve within {@link #f_WkaDNSResolutionTimeout_ms}.
+     * @throws UnknownHostException if no dns references resolve within {@link #f_WkaDNSResolutionTimeout_ms}.
      */
     public AddressProvider eventuallyResolve()
         throws UnknownHostException
         {
-        long ldtStart = Base.getLastSafeTimeMillis();
+        long            ldtDeadline = Base.getSafeTimeMillis() + f_WkaDNSResolutionTimeout_ms;
+        Set<String>     setHost     = getHostNames();
+        ExecutorService executor    = Executors.newFixedThreadPool(Math.max(1, Math.min(setHost.size(), MAX_PARALLEL)),
+                                                                  runnable ->
+            {
+            Thread thread = new Thread(runnable, "WkaResolver");
+            thread.setDaemon(true);
+            return thread;
+            });
 
-        m_nLastReresolveCount = 0;
-        while ((Base.getLastSafeTimeMillis() - ldtStart) < f_WkaDNSResolutionTimeout_ms)
+        try
             {
-            m_nLastReresolveCount++;
-            if (getNextAddress() == null)
-                {
-                Base.sleep(f_WkaDNSReresolveFrequency_ms);
-                reset();
-                }
-            else
+            CompletionService<InetAddress[]>   service   = new ExecutorCompletionService<>(executor);
+            Map<Future<InetAddress[]>, String> mapFuture = new HashMap<>();
+            long                               cDelay    = Math.min(INITIAL_RERESOLVE_FREQUENCY_MS,
+                                                                    f_WkaDNSReresolveFrequency_ms);
+
+            m_nLastReresolveCount = 0;
+            while (Base.getSafeTimeMillis() < ldtDeadline)
                 {
-                reset();
-                return this;
+                m_nLastReresolveCount++;
+
+                // start a lookup of every host that does not have one in progress
+                for (String sHost : setHost)
+                    {
+                    if (!mapFuture.containsValue(sHost))
+                        {
+                        mapFuture.put(service.submit(() -> InetAddress.getAllByName(sHost)), sHost);
+                        }
+                    }
+
+                long                  ldtRetry = Math.min(Base.getSafeTimeMillis() + cDelay, ldtDeadline);
+                long                  cWait;
+                Future<InetAddress[]> future;
+
+                while ((cWait = ldtRetry - Base.getSafeTimeMillis()) > 0
+                       && (future = service.poll(cWait, TimeUnit.MILLISECONDS)) != null)
+                    {
+                    String        sHost    = mapFuture.remove(future);
+                    InetAddress[] aAddress = getResolved(future);
+
+                    if (aAddress != null)
+                        {
+                        // cache the addresses and confirm the provider can use them
+                        f_mapResolved.put(sHost, new ResolvedHost(Arrays.asList(aAddress)));
+                        reset();
+                        if (getNextAddress() != null)
+                            {
+                            reset();
+
+                            // cache the other hosts as unresolved and already stale, so the first
+                            // iteration refreshes them in the background rather than looking them
+                            // up in turn on the join path
+                            for (String sHostOther : setHost)
+                                {
+                                f_mapResolved.putIfAbsent(sHostOther, new ResolvedHost(Collections.emptyList(), 0L));
+                                }
+                            return this;
+                            }
+                        }
+                    }
+
+                cDelay = Math.min(cDelay * 2, f_WkaDNSReresolveFrequency_ms);
                 }
             }
+        catch (InterruptedException e)
+            {
+            Thread.currentThread().interrupt();
+            throw Base.ensureRuntimeException(e);
+            }
+        finally
+            {
+            executor.shutdownNow();
+            reset();
+            f_resolution.setLastReresolveCount(m_nLastReresolveCount);
+            }
 
         throw new UnknownHostException(RetryingWkaAddressProvider.class.getName() +
-            " failed to resolve configured WKA address(es) " + System.getProperty(PROP_WKA_OVERRIDE) +
+            " failed to resolve configured WKA address(es) " + setHost +
             " within " + f_WkaDNSResolutionTimeout_ms + " milliseconds.");
         }
 
+    /**
+     * Obtain the WKA host names of this provider.
+     *
+     * @return the WKA host names
+     */
+    protected Set<String> getHostNames()
+        {
+        Set<String> setHost = new LinkedHashSet<>();
+
+        // the descriptions are the unresolved "host:port" of each address holder
+        for (String sAddress : getAddressDescriptions())
+            {
+            int    of    = sAddress.lastIndexOf(':');
+            String sHost = of < 0 ? sAddress : sAddress.substring(0, of);
+
+            if (sHost.startsWith("[") && sHost.endsWith("]"))
+                {
+                sHost = sHost.substring(1, sHost.length() - 1);
+                }
+
+            setHost.add(sHost);
+            }
+
+        return setHost;
+        }
+
+    /**
+     * Obtain the addresses resolved by a completed lookup.
+     *
+     * @param future  the completed lookup
+     *
+     * @return the resolved addresses or {@code null} if the host was not resolved
+     */
+    private static InetAddress[] getResolved(Future<InetAddress[]> future)
+        {
+        try
+            {
+            InetAddress[] aAddress = future.get();
+
+            return aAddress != null && aAddress.length > 0 ? aAddress : null;
+            }
+        catch (InterruptedException e)
+            {
+            Thread.currentThread().interrupt();
+            throw Base.ensureRuntimeException(e);
+            }
+        catch (ExecutionException e)
+            {
+            // the host does not resolve yet
+            return null;
+            }
+        }
+
+    // ----- inner class: ResolvedHost ---------------------------------------
+
+    /**
+     * The resolved addresses of a WKA host name.
+     */
+    private static class ResolvedHost
+        {
+        /**
+         * Create a {@link ResolvedHost} resolved now.
+         *
+         * @param listAddress  the resolved addresses, empty if the host did not resolve
+         */
+        ResolvedHost(List<InetAddress> listAddress)
+            {
+            this(listAddress, Base.getSafeTimeMillis());
+            }
+
+        /**
+         * Create a {@link ResolvedHost}.
+         *
+         * @param listAddress  the resolved addresses, empty if the host did not resolve
+         * @param ldtResolved  the time the host was resolved
+         */
+        ResolvedHost(List<InetAddress> listAddress, long ldtResolved)
+            {
+            f_listAddress = listAddress;
+            f_ldtResolved = ldtResolved;
+            }
+
+        /**
+         * The resolved addresses.
+         */
+        final List<InetAddress> f_listAddress;
+
+        /**
+         * The time the host was resolved.
+         */
+        final long f_ldtResolved;
+        }
+
+    // ----- constants ------------------------------------------------------
+
     /**
      * The name of the System property to use to return a fixed WKA list.
      */
     public static final String PROP_WKA_OVERRIDE = "coherence.wka";
 
+    /**
+     * The name of the System property holding the number of seed members to use as WKA, see
+     * {@link #getSeedAddresses(String, int, String)}.
+     */
+    public static final String PROP_WKA_SEEDS = "coherence.k8s.wka.seeds";
+
+    /**
+     * The name of the System property holding the Coherence member name.
+     */
+    public static final String PROP_MEMBER = "coherence.member";
+
     /**
      * The name of the System property to configure maximum time to attempt to resolve wka addresses.
      * Provides default value for {link #f_WkaDNSResolutionTimeout_ms}. Set this system property
@@ -199,6 +595,38 @@ public class RetryingWkaAddressProvider
      */
     public static final String PROP_WKA_RERESOLVE_FREQUENCY = RetryingWkaAddressProvider.class.getName() + ".dnsResolutionFrequency";
 
+    /**
+     * System property for configuring the time after which the cached addresses of a wka host name are
+     * refreshed in the background. Set this system property to the format of the string parameter
+     * described in {@link Duration(String)}, the default is "5s".
+     */
+    public static final String PROP_WKA_CACHE_TTL = RetryingWkaAddressProvider.class.getName() + ".dnsCacheTtl";
+
+    /**
+     * The initial delay in milliseconds before retrying unresolved WKA addresses.
+     */
+    public static final long INITIAL_RERESOLVE_FREQUENCY_MS = 50L;
+
+    /**
+     * The maximum number of WKA host names resolved concurrently.
+     */
+    public static final int MAX_PARALLEL = 8;
+
+    /**
+     * The pattern of a StatefulSet Pod name, the StatefulSet name followed by the ordinal.
+     */
+    private static final Pattern POD_ORDINAL = Pattern.compile("(.+)-(\\d+)");
+
+    /**
+     * The executor refreshing the cached addresses of WKA host names.
+     */
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(runnable ->
+        {
+        Thread thread = new Thread(runnable, "WkaRefresh");
+        thread.setDaemon(true);
+        return thread;
+        });
+
     /**
      * WKA DNS Resolution frequency.
      */
@@ -209,6 +637,26 @@ public class RetryingWkaAddressProvider
      */
     public final long f_WkaDNSResolutionTimeout_ms;
 
+    /**
+     * The time in milliseconds after which cached wka addresses are refreshed.
+     */
+    public final long f_WkaDNSCacheTtl_ms;
+
+    /**
+     * The cached addresses of each WKA host name.
+     */
+    private final Map<String, ResolvedHost> f_mapResolved = new ConcurrentHashMap<>();
+
+    /**
+     * The WKA host names being refreshed in the background.
+     */
+    private final Set<String> f_setRefreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The statistics of the DNS resolution.
+     */
+    private final WkaResolution f_resolution = WkaResolution.getInstance();
+
     /**
      * Added for testing verification.
      * Count of how many times a DNS resolve of entire WKA address list has been performed.
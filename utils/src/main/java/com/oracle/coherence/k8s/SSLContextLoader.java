@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.util.Base;
+import com.tangosol.util.Resources;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+/**
+ * Creates an {@link SSLContext} directly from the {@code socket-provider}
+ * configuration in the Coherence operational override file.
+ * <p>
+ * Obtaining an SSL socket provider from Coherence requires the cluster
+ * dependencies to be initialized, which takes seconds in a probe JVM. This
+ * loader only parses the override file, with the JDK xml parser as the
+ * Coherence xml parser is also slow to initialize, and the key stores it
+ * refers to. Values are replaced by the system property named by their
+ * {@code system-property} attribute as Coherence would do.
+ * It supports the configuration used by the operator, that is key stores
+ * with plain passwords or passwords read by a {@link FileBasedPasswordProvider}.
+ * Any other configuration is not loaded so that the caller can fall back
+ * to Coherence.
+ *
+ * @author jk
+ */
+class SSLContextLoader
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Private constructor for utility class.
+     */
+    private SSLContextLoader()
+        {
+        }
+
+    // ----- SSLContextLoader methods ---------------------------------------
+
+    /**
+     * Create the {@link SSLContext} for a socket provider configured in the
+     * operational override file set with the {@code coherence.override}
+     * system property.
+     *
+     * @param sSocketProvider  the id of the socket provider
+     *
+     * @return  the {@link SSLContext} or {@code null} if the socket provider
+     *          is not an SSL provider that can be loaded from the override file
+     */
+    static SSLContext load(String sSocketProvider)
+        {
+        return load(System.getProperty(PROP_OVERRIDE, DEFAULT_OVERRIDE), sSocketProvider);
+        }
+
+    /**
+     * Create the {@link SSLContext} for a socket provider configured in an
+     * operational override file.
+     *
+     * @param sOverride        the name of the override file or resource
+     * @param sSocketProvider  the id of the socket provider
+     *
+     * @return  the {@link SSLContext} or {@code null} if the socket provider
+     *          is not an SSL provider that can be loaded from the override file
+     */
+    static SSLContext load(String sOverride, String sSocketProvider)
+        {
+        Element xmlSSL = findSSL(sOverride, sSocketProvider);
+
+        if (xmlSSL == null)
+            {
+            return null;
+            }
+
+        try
+            {
+            String         sProvider = getProviderName(xmlSSL);
+            String         sProtocol = getString(xmlSSL, "protocol", DEFAULT_PROTOCOL);
+            KeyManager[]   aKey      = createKeyManagers(getChild(xmlSSL, "identity-manager"));
+            TrustManager[] aTrust    = createTrustManagers(getChild(xmlSSL, "trust-manager"));
+            SSLContext     context   = sProvider == null
+                                       ? SSLContext.getInstance(sProtocol)
+                                       : SSLContext.getInstance(sProtocol, sProvider);
+
+            context.init(aKey, aTrust, null);
+
+            return context;
+            }
+        catch (UnsupportedOperationException e)
+            {
+            return null;
+            }
+        catch (GeneralSecurityException | IOException e)
+            {
+            throw Base.ensureRuntimeException(e, "Failed to create SSLContext for socket provider " + sSocketProvider);
+            }
+        }
+
+    /**
+     * Find the {@code identity-manager} or {@code trust-manager} element of
+     * an SSL socket provider in an override file.
+     *
+     * @param sOverride        the name of the override file or resource
+     * @param sSocketProvider  the id of the socket provider
+     * @param sManager         the name of the manager element
+     *
+     * @return  the manager element or {@code null} if the override file,
+     *          socket provider or manager does not exist
+     */
+    static Element findManager(String sOverride, String sSocketProvider, String sManager)
+        {
+        return getChild(findSSL(sOverride, sSocketProvider), sManager);
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Find the {@code ssl} element of a socket provider in an override file.
+     *
+     * @param sOverride        the name of the override file or resource
+     * @param sSocketProvider  the id of the socket provider
+     *
+     * @return  the {@code ssl} element of the socket provider or {@code null}
+     *          if the override file or socket provider does not exist or the
+     *          socket provider is not an SSL provider
+     */
+    private static Element findSSL(String sOverride, String sSocketProvider)
+        {
+        URL url = Resources.findFileOrResource(sOverride, SSLContextLoader.class.getClassLoader());
+
+        if (url == null)
+            {
+            return null;
+            }
+
+        Document document;
+
+        try (InputStream in = url.openStream())
+            {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+
+            document = factory.newDocumentBuilder().parse(in);
+            }
+        catch (IOException | ParserConfigurationException | SAXException e)
+            {
+            return null;
+            }
+
+        Element xmlProviders = getChild(getChild(document.getDocumentElement(), "cluster-config"), "socket-providers");
+
+        for (Element xmlProvider = getChild(xmlProviders, "socket-provider");
+             xmlProvider != null;
+             xmlProvider = getNext(xmlProvider, "socket-provider"))
+            {
+            if (sSocketProvider.equals(xmlProvider.getAttribute("id")))
+                {
+                return getChild(xmlProvider, "ssl");
+                }
+            }
+
+        return null;
+        }
+
+    /**
+     * Create the {@link KeyManager}s configured by an {@code identity-manager} element.
+     *
+     * @param xml  the {@code identity-manager} element, may be {@code null}
+     *
+     * @return  the {@link KeyManager}s or {@code null} if there is no identity manager
+     *
+     * @throws GeneralSecurityException  if the key managers cannot be created
+     * @throws IOException               if the key store cannot be read
+     */
+    private static KeyManager[] createKeyManagers(Element xml)
+            throws GeneralSecurityException, IOException
+        {
+        if (xml == null)
+            {
+            return null;
+            }
+
+        String            sAlgorithm = getString(xml, "algorithm", KeyManagerFactory.getDefaultAlgorithm());
+        String            sProvider  = getProviderName(xml);
+        KeyStore          keyStore   = loadKeyStore(getChild(xml, "key-store"));
+        KeyManagerFactory factory    = sProvider == null
+                                       ? KeyManagerFactory.getInstance(sAlgorithm)
+                                       : KeyManagerFactory.getInstance(sAlgorithm, sProvider);
+
+        factory.init(keyStore, getPassword(xml));
+
+        return factory.getKeyManagers();
+        }
+
+    /**
+     * Create the {@link TrustManager}s configured by a {@code trust-manager} element.
+     *
+     * @param xml  the {@code trust-manager} element, may be {@code null}
+     *
+     * @return  the {@link TrustManager}s or {@code null} if there is no trust manager
+     *
+     * @throws GeneralSecurityException  if the trust managers cannot be created
+     * @throws IOException               if the key store cannot be read
+     */
+    private static TrustManager[] createTrustManagers(Element xml)
+            throws GeneralSecurityException, IOException
+        {
+        if (xml == null)
+            {
+            return null;
+            }
+
+        String              sAlgorithm = getString(xml, "algorithm", TrustManagerFactory.getDefaultAlgorithm());
+        String              sProvider  = getProviderName(xml);
+        KeyStore            keyStore   = loadKeyStore(getChild(xml, "key-store"));
+        TrustManagerFactory factory    = sProvider == null
+                                         ? TrustManagerFactory.getInstance(sAlgorithm)
+                                         : TrustManagerFactory.getInstance(sAlgorithm, sProvider);
+
+        factory.init(keyStore);
+
+        return factory.getTrustManagers();
+        }
+
+    /**
+     * Load the key store configured by a {@code key-store} element.
+     *
+     * @param xml  the {@code key-store} element, may be {@code null}
+     *
+     * @return  the {@link KeyStore} or {@code null} if there is no key store
+     *
+     * @throws GeneralSecurityException  if the key store cannot be loaded
+     * @throws IOException               if the key store cannot be read
+     */
+    static KeyStore loadKeyStore(Element xml)
+            throws GeneralSecurityException, IOException
+        {
+        if (xml == null)
+            {
+            return null;
+            }
+
+        String sURL = getString(xml, "url", null);
+
+        if (sURL == null)
+            {
+            throw new IOException("No url configured for key store");
+            }
+
+        URL url = Resources.findFileOrResource(sURL, SSLContextLoader.class.getClassLoader());
+
+        if (url == null)
+            {
+            throw new IOException("Cannot find key store " + sURL);
+            }
+
+        KeyStore keyStore = KeyStore.getInstance(getString(xml, "type", DEFAULT_KEY_STORE_TYPE));
+
+        try (InputStream in = url.openStream())
+            {
+            keyStore.load(in, getPassword(xml));
+            }
+
+        return keyStore;
+        }
+
+    /**
+     * Obtain the password configured by the {@code password} or
+     * {@code password-provider} child of an element.
+     *
+     * @param xml  the parent element
+     *
+     * @return  the password or {@code null} if no password is configured
+     *
+     * @throws UnsupportedOperationException  if the password provider is
+     *                                        not a {@link FileBasedPasswordProvider}
+     */
+    static char[] getPassword(Element xml)
+        {
+        Element xmlPassword = getChild(xml, "password");
+
+        if (xmlPassword != null)
+            {
+            return getValue(xmlPassword).toCharArray();
+            }
+
+        String sFile = getPasswordFile(xml);
+
+        return sFile == null ? null : new FileBasedPasswordProvider(sFile).get();
+        }
+
+    /**
+     * Obtain the name of the file read by the {@link FileBasedPasswordProvider}
+     * configured by the {@code password-provider} child of an element.
+     *
+     * @param xml  the parent element
+     *
+     * @return  the name of the password file or {@code null} if there is no
+     *          password provider
+     *
+     * @throws UnsupportedOperationException  if the password provider is
+     *                                        not a {@link FileBasedPasswordProvider}
+     */
+    static String getPasswordFile(Element xml)
+        {
+        Element xmlProvider = getChild(xml, "password-provider");
+
+        if (xmlProvider == null)
+            {
+            return null;
+            }
+
+        String sClass = getString(xmlProvider, "class-name", null);
+
+        if (!FileBasedPasswordProvider.class.getName().equals(sClass))
+            {
+            throw new UnsupportedOperationException("Unsupported password provider " + sClass);
+            }
+
+        return getString(getChild(getChild(xmlProvider, "init-params"), "init-param"), "param-value", null);
+        }
+
+    /**
+     * Obtain the name of the security provider configured by the
+     * {@code provider} child of an element.
+     * <p>
+     * A {@link ReloadingSSLProvider} only adds reloading to the factories of
+     * the provider it delegates to, so the delegate provider, named by its
+     * {@value #PARAM_DELEGATE_PROVIDER} init-param, is used as the key store
+     * is only loaded once here.
+     *
+     * @param xml  the parent element
+     *
+     * @return  the provider name or {@code null} to use the default provider
+     *
+     * @throws UnsupportedOperationException  if the provider is configured
+     *                                        with any other class or factory
+     */
+    private static String getProviderName(Element xml)
+        {
+        Element xmlProvider = getChild(xml, "provider");
+
+        if (xmlProvider == null)
+            {
+            return null;
+            }
+
+        if (ReloadingSSLProvider.class.getName().equals(getString(xmlProvider, "class-name", null)))
+            {
+            for (Element xmlParam = getChild(getChild(xmlProvider, "init-params"), "init-param");
+                 xmlParam != null;
+                 xmlParam = getNext(xmlParam, "init-param"))
+                {
+                if (PARAM_DELEGATE_PROVIDER.equals(getString(xmlParam, "param-name", null)))
+                    {
+                    return getString(xmlParam, "param-value", null);
+                    }
+                }
+
+            return null;
+            }
+
+        if (getChild(xmlProvider, "class-name") != null || getChild(xmlProvider, "class-factory-name") != null)
+            {
+            throw new UnsupportedOperationException("Unsupported security provider configuration");
+            }
+
+        Element xmlName = getChild(xmlProvider, "name");
+        String  sName   = getValue(xmlName == null ? xmlProvider : xmlName);
+
+        return sName.isEmpty() ? null : sName;
+        }
+
+    /**
+     * Obtain the trimmed value of a child element.
+     *
+     * @param xml       the parent element, may be {@code null}
+     * @param sName     the name of the child element
+     * @param sDefault  the value to return if the child is missing or empty
+     *
+     * @return  the value of the child element or the default value
+     */
+    static String getString(Element xml, String sName, String sDefault)
+        {
+        Element xmlChild = getChild(xml, sName);
+        String  sValue   = xmlChild == null ? "" : getValue(xmlChild);
+
+        return sValue.isEmpty() ? sDefault : sValue;
+        }
+
+    /**
+     * Obtain the trimmed value of an element, replaced by the value of the
+     * system property named by its {@code system-property} attribute if
+     * that property is set.
+     *
+     * @param xml  the element
+     *
+     * @return  the value of the element
+     */
+    private static String getValue(Element xml)
+        {
+        String sProperty = xml.getAttribute(ATTR_SYSTEM_PROPERTY);
+        String sValue    = sProperty.isEmpty() ? null : System.getProperty(sProperty);
+
+        if (sValue == null)
+            {
+            StringBuilder sb = new StringBuilder();
+
+            for (Node node = xml.getFirstChild(); node != null; node = node.getNextSibling())
+                {
+                if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE)
+                    {
+                    sb.append(node.getNodeValue());
+                    }
+                }
+
+            sValue = sb.toString();
+            }
+
+        return sValue.trim();
+        }
+
+    /**
+     * Obtain the first child element with a name.
+     *
+     * @param xml    the parent element, may be {@code null}
+     * @param sName  the name of the child element
+     *
+     * @return  the child element or {@code null} if there is none
+     */
+    static Element getChild(Element xml, String sName)
+        {
+        return xml == null ? null : findElement(xml.getFirstChild(), sName);
+        }
+
+    /**
+     * Obtain the next sibling element with a name.
+     *
+     * @param xml    the element
+     * @param sName  the name of the sibling element
+     *
+     * @return  the sibling element or {@code null} if there is none
+     */
+    private static Element getNext(Element xml, String sName)
+        {
+        return findElement(xml.getNextSibling(), sName);
+        }
+
+    /**
+     * Find the first element with a name starting at a node and following
+     * its siblings.
+     *
+     * @param node   the node to start at
+     * @param sName  the name of the element
+     *
+     * @return  the element or {@code null} if there is none
+     */
+    private static Element findElement(Node node, String sName)
+        {
+        for ( ; node != null; node = node.getNextSibling())
+            {
+            if (node.getNodeType() == Node.ELEMENT_NODE && sName.equals(node.getLocalName()))
+                {
+                return (Element) node;
+                }
+            }
+
+        return null;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The attribute naming the system property that overrides an element value.
+     */
+    private static final String ATTR_SYSTEM_PROPERTY = "system-property";
+
+    /**
+     * The name of the {@link ReloadingSSLProvider} init-param naming the delegate provider.
+     */
+    static final String PARAM_DELEGATE_PROVIDER = "delegate-provider";
+
+    /**
+     * The System property used by Coherence to set the operational override file.
+     */
+    public static final String PROP_OVERRIDE = "coherence.override";
+
+    /**
+     * The default operational override file.
+     */
+    public static final String DEFAULT_OVERRIDE = "tangosol-coherence-override.xml";
+
+    /**
+     * The default SSL protocol, the same as the Coherence default.
+     */
+    public static final String DEFAULT_PROTOCOL = "TLS";
+
+    /**
+     * The default key store type, the same as the Coherence default.
+     */
+    public static final String DEFAULT_KEY_STORE_TYPE = "JKS";
+    }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.management.AnnotatedStandardMBean;
+
+import javax.management.NotCompliantMBeanException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of the DNS resolution of the WKA host names by the
+ * {@link RetryingWkaAddressProvider} instances of this JVM, exposed as
+ * metrics through {@link WkaResolutionMBean}.
+ *
+ * @author jk
+ */
+public class WkaResolution
+        implements WkaResolutionMBean
+    {
+    // ----- constructors ---------------------------------------------------
+
+    /**
+     * Create a {@link WkaResolution}.
+     */
+    WkaResolution()
+        {
+        }
+
+    // ----- WkaResolution methods ------------------------------------------
+
+    /**
+     * Obtain the {@link WkaResolution} of this JVM.
+     *
+     * @return  the {@link WkaResolution} of this JVM
+     */
+    public static WkaResolution getInstance()
+        {
+        return INSTANCE;
+        }
+
+    /**
+     * Obtain the {@link WkaResolutionMBean} of this JVM, used to register
+     * the MBean with Coherence.
+     *
+     * @return  the {@link WkaResolutionMBean} of this JVM
+     */
+    public static Object getMBean()
+        {
+        try
+            {
+            return new AnnotatedStandardMBean(getInstance(), WkaResolutionMBean.class);
+            }
+        catch (NotCompliantMBeanException e)
+            {
+            throw new IllegalStateException(e);
+            }
+        }
+
+    /**
+     * Record a DNS lookup of a WKA host name.
+     *
+     * @param fSuccess  {@code true} if the host name resolved
+     * @param cNanos    the time in nanoseconds taken by the lookup
+     */
+    void onResolve(boolean fSuccess, long cNanos)
+        {
+        long cMillis = TimeUnit.NANOSECONDS.toMillis(cNanos);
+
+        f_cResolution.incrementAndGet();
+        f_cMillisTotal.addAndGet(cMillis);
+        f_cMillisMax.accumulateAndGet(cMillis, Math::max);
+        m_cMillisLast = cMillis;
+
+        if (fSuccess)
+            {
+            m_ldtLastSuccess = System.currentTimeMillis();
+            }
+        else
+            {
+            f_cFailure.incrementAndGet();
+            }
+        }
+
+    /**
+     * Record a WKA host name served from the resolved address cache.
+     */
+    void onCacheHit()
+        {
+        f_cCacheHit.incrementAndGet();
+        }
+
+    /**
+     * Set the number of attempts made by the last initial resolution of the
+     * WKA host names.
+     *
+     * @param cReresolve  the number of attempts
+     */
+    void setLastReresolveCount(int cReresolve)
+        {
+        m_cLastReresolve = cReresolve;
+        }
+
+    // ----- WkaResolutionMBean interface -----------------------------------
+
+    @Override
+    public long getResolutionCount()
+        {
+        return f_cResolution.get();
+        }
+
+    @Override
+    public long getResolutionFailureCount()
+        {
+        return f_cFailure.get();
+        }
+
+    @Override
+    public long getCacheHitCount()
+        {
+        return f_cCacheHit.get();
+        }
+
+    @Override
+    public long getLastResolutionMillis()
+        {
+        return m_cMillisLast;
+        }
+
+    @Override
+    public long getAverageResolutionMillis()
+        {
+        long cResolution = f_cResolution.get();
+
+        return cResolution == 0 ? 0 : f_cMillisTotal.get() / cResolution;
+        }
+
+    @Override
+    public long getMaxResolutionMillis()
+        {
+        return f_cMillisMax.get();
+        }
+
+    @Override
+    public long getLastSuccessTime()
+        {
+        return m_ldtLastSuccess;
+        }
+
+    @Override
+    public int getLastReresolveCount()
+        {
+        return m_cLastReresolve;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The {@link WkaResolution} of this JVM.
+     */
+    private static final WkaResolution INSTANCE = new WkaResolution();
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The number of DNS lookups.
+     */
+    private final AtomicLong f_cResolution = new AtomicLong();
+
+    /**
+     * The number of DNS lookups that failed.
+     */
+    private final AtomicLong f_cFailure = new AtomicLong();
+
+    /**
+     * The number of host names served from the cache.
+     */
+    private final AtomicLong f_cCacheHit = new AtomicLong();
+
+    /**
+     * The total time in milliseconds taken by the DNS lookups.
+     */
+    private final AtomicLong f_cMillisTotal = new AtomicLong();
+
+    /**
+     * The maximum time in milliseconds taken by a DNS lookup.
+     */
+    private final AtomicLong f_cMillisMax = new AtomicLong();
+
+    /**
+     * The time in milliseconds taken by the last DNS lookup.
+     */
+    private volatile long m_cMillisLast;
+
+    /**
+     * The time of the last successful DNS lookup.
+     */
+    private volatile long m_ldtLastSuccess;
+
+    /**
+     * The number of attempts made by the last initial resolution.
+     */
+    private volatile int m_cLastReresolve;
+    }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.net.management.annotation.Description;
+import com.tangosol.net.management.annotation.MetricsScope;
+import com.tangosol.net.management.annotation.MetricsValue;
+import com.tangosol.net.metrics.MBeanMetric;
+
+/**
+ * The MBean interface exposing the statistics of the DNS resolution of the
+ * WKA host names by {@link RetryingWkaAddressProvider}.
+ *
+ * @author jk
+ */
+@MetricsScope(MBeanMetric.Scope.APPLICATION)
+@Description("The statistics of the DNS resolution of the WKA host names")
+public interface WkaResolutionMBean
+    {
+    /**
+     * Obtain the number of DNS lookups of WKA host names.
+     *
+     * @return  the number of DNS lookups of WKA host names
+     */
+    @MetricsValue
+    @Description("The number of DNS lookups of WKA host names")
+    long getResolutionCount();
+
+    /**
+     * Obtain the number of DNS lookups of WKA host names that failed.
+     *
+     * @return  the number of DNS lookups of WKA host names that failed
+     */
+    @MetricsValue
+    @Description("The number of DNS lookups of WKA host names that failed")
+    long getResolutionFailureCount();
+
+    /**
+     * Obtain the number of WKA host names served from the resolved address cache.
+     *
+     * @return  the number of WKA host names served from the cache
+     */
+    @MetricsValue
+    @Description("The number of WKA host names served from the resolved address cache")
+    long getCacheHitCount();
+
+    /**
+     * Obtain the time taken by the last DNS lookup of a WKA host name.
+     *
+     * @return  the time in milliseconds taken by the last DNS lookup
+     */
+    @MetricsValue
+    @Description("The time in milliseconds taken by the last DNS lookup of a WKA host name")
+    long getLastResolutionMillis();
+
+    /**
+     * Obtain the average time taken by a DNS lookup of a WKA host name.
+     *
+     * @return  the average time in milliseconds taken by a DNS lookup
+     */
+    @MetricsValue
+    @Description("The average time in milliseconds taken by a DNS lookup of a WKA host name")
+    long getAverageResolutionMillis();
+
+    /**
+     * Obtain the maximum time taken by a DNS lookup of a WKA host name.
+     *
+     * @return  the maximum time in milliseconds taken by a DNS lookup
+     */
+    @MetricsValue
+    @Description("The maximum time in milliseconds taken by a DNS lookup of a WKA host name")
+    long getMaxResolutionMillis();
+
+    /**
+     * Obtain the time of the last successful DNS lookup of a WKA host name.
+     *
+     * @return  the time in milliseconds since the epoch of the last
+     *          successful DNS lookup, or zero if no lookup has succeeded
+     */
+    @MetricsValue
+    @Description("The time in milliseconds since the epoch of the last successful DNS lookup of a WKA host name")
+    long getLastSuccessTime();
+
+    /**
+     * Obtain the number of attempts made by the last initial resolution of
+     * the WKA host names.
+     *
+     * @return  the number of attempts made by the last initial resolution
+     */
+    @MetricsValue
+    @Description("The number of attempts made by the last initial resolution of the WKA host names")
+    int getLastReresolveCount();
+    }
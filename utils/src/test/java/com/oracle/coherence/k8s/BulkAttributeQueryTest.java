@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasKey;
+
+/**
+ * Unit tests for {@link BulkAttributeQuery}.
+ *
+ * @author jk
+ */
+public class BulkAttributeQueryTest
+    {
+    @Before
+    public void setup() throws Exception
+        {
+        m_server = MBeanServerFactory.newMBeanServer();
+
+        for (int i = 0; i < 3; i++)
+            {
+            m_server.registerMBean(new Counter(i), new ObjectName("test:type=Counter,id=" + i));
+            }
+        m_server.registerMBean(new Counter(99), new ObjectName("other:type=Counter"));
+        }
+
+    @Test
+    public void shouldReadAttributesOfMatchingMBeans()
+        {
+        BulkAttributeQuery query = new BulkAttributeQuery(m_server, 0);
+
+        Map<String, Map<String, Object>> map = query.query("test:type=Counter,*", new String[] {"Count", "Missing"});
+
+        assertThat(map.size(), is(3));
+        assertThat(map, not(hasKey("other:type=Counter")));
+        for (int i = 0; i < 3; i++)
+            {
+            Map<String, Object> mapMBean = map.get("test:id=" + i + ",type=Counter");
+
+            assertThat(mapMBean.size(), is(1));
+            assertThat(mapMBean, hasEntry("Count", (Object) (long) i));
+            }
+        }
+
+    @Test
+    public void shouldReadAllAttributesIfNoneSpecified()
+        {
+        BulkAttributeQuery query = new BulkAttributeQuery(m_server, 0);
+
+        Map<String, Object> mapMBean = query.query("other:type=Counter", null).get("other:type=Counter");
+
+        assertThat(mapMBean, hasEntry("Count", (Object) 99L));
+        assertThat(mapMBean, hasEntry("Name", (Object) "counter-99"));
+        }
+
+    @Test
+    public void shouldCacheResults() throws Exception
+        {
+        BulkAttributeQuery query       = new BulkAttributeQuery(m_server, 60000L);
+        String[]           asAttribute = {"Count"};
+
+        Map<String, Map<String, Object>> map = query.query("test:type=Counter,*", asAttribute);
+
+        assertThat(query.query("test:type=Counter,*", asAttribute), is(sameInstance(map)));
+        assertThat(query.query("test:*,type=Counter", asAttribute), is(sameInstance(map)));
+        assertThat(query.query("test:type=Counter,*", new String[] {"Name"}), is(not(sameInstance(map))));
+        assertThat(query.getQueryCount(), is(4L));
+        assertThat(query.getCacheHitCount(), is(2L));
+        }
+
+    @Test
+    public void shouldNotCacheResultsWithoutTtl()
+        {
+        BulkAttributeQuery query = new BulkAttributeQuery(m_server, 0);
+
+        Map<String, Map<String, Object>> map = query.query("test:type=Counter,*", null);
+
+        assertThat(query.query("test:type=Counter,*", null), is(not(sameInstance(map))));
+        assertThat(query.getCacheHitCount(), is(0L));
+        }
+
+    @Test
+    public void shouldOnlyReturnOpenValues() throws Exception
+        {
+        BulkAttributeQuery  query    = new BulkAttributeQuery(m_server, 0);
+        Map<String, Object> mapMBean = query.query("other:type=Counter", null).get("other:type=Counter");
+
+        assertThat(mapMBean, hasEntry("Unit", (Object) "SECONDS"));
+        assertThat(mapMBean, hasKey("History"));
+        assertThat(mapMBean, not(hasKey("Lock")));
+
+        // the whole result can be sent to a client
+        try (ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream()))
+            {
+            out.writeObject(query.query("*:type=Counter,*", null));
+            }
+        }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidPattern()
+        {
+        new BulkAttributeQuery(m_server, 0).query("not a pattern", null);
+        }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldQueryOverJmxmp() throws Exception
+        {
+        int nPort;
+
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress()))
+            {
+            nPort = socket.getLocalPort();
+            }
+
+        System.setProperty("coherence.jmxmp.port", String.valueOf(nPort));
+        System.setProperty(JmxmpServer.PROP_BULK_QUERY, "true");
+
+        try
+            {
+            new JmxmpServer("127.0.0.1").findMBeanServer(null);
+
+            try (JMXConnector connector = JMXConnectorFactory.connect(new JmxmpServer().findJMXServiceUrl(null)))
+                {
+                MBeanServerConnection connection = connector.getMBeanServerConnection();
+
+                Map<String, Map<String, Object>> map = (Map<String, Map<String, Object>>) connection.invoke(
+                        new ObjectName(JmxmpServer.BULK_QUERY_MBEAN), "query",
+                        new Object[] {"java.lang:type=Runtime", new String[] {"VmName"}},
+                        new String[] {String.class.getName(), String[].class.getName()});
+
+                assertThat(map.get("java.lang:type=Runtime"),
+                           hasEntry("VmName", (Object) System.getProperty("java.vm.name")));
+                }
+            }
+        finally
+            {
+            System.clearProperty("coherence.jmxmp.port");
+            System.clearProperty(JmxmpServer.PROP_BULK_QUERY);
+            }
+        }
+
+    // ----- inner interface: CounterMBean ----------------------------------
+
+    /**
+     * The MBean interface of {@link Counter}.
+     */
+    public interface CounterMBean
+        {
+        /**
+         * Obtain the count.
+         *
+         * @return  the count
+         */
+        long getCount();
+
+        /**
+         * Obtain the name.
+         *
+         * @return  the name
+         */
+        String getName();
+
+        /**
+         * Obtain the unit of the count, an enum value.
+         *
+         * @return  the unit
+         */
+        TimeUnit getUnit();
+
+        /**
+         * Obtain the previous counts, an array of a primitive type.
+         *
+         * @return  the previous counts
+         */
+        long[] getHistory();
+
+        /**
+         * Obtain the lock of the counter, a value that is not serializable.
+         *
+         * @return  the lock
+         */
+        Object getLock();
+        }
+
+    // ----- inner class: Counter -------------------------------------------
+
+    /**
+     * A simple test MBean.
+     */
+    public static class Counter
+            implements CounterMBean
+        {
+        /**
+         * Create a {@link Counter}.
+         *
+         * @param cCount  the count
+         */
+        Counter(long cCount)
+            {
+            f_cCount = cCount;
+            }
+
+        @Override
+        public long getCount()
+            {
+            return f_cCount;
+            }
+
+        @Override
+        public String getName()
+            {
+            return "counter-" + f_cCount;
+            }
+
+        @Override
+        public TimeUnit getUnit()
+            {
+            return TimeUnit.SECONDS;
+            }
+
+        @Override
+        public long[] getHistory()
+            {
+            return new long[] {f_cCount};
+            }
+
+        @Override
+        public Object getLock()
+            {
+            return f_oLock;
+            }
+
+        /**
+         * The count.
+         */
+        private final long f_cCount;
+
+        /**
+         * The lock.
+         */
+        private final Object f_oLock = new Object();
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The {@link MBeanServer} holding the test MBeans.
+     */
+    private MBeanServer m_server;
+    }
@@ -6,6 +6,7 @@
 
 package com.oracle.coherence.k8s;
 
+import com.tangosol.net.CacheFactory;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -49,5 +50,77 @@ public class CoherenceVersionTest
         assertThat(CoherenceVersion.versionCheck("1.1.1", "1.1.2"), is(false));
         assertThat(CoherenceVersion.versionCheck("1.1.1.1", "1.1.1.2"), is(false));
         assertThat(CoherenceVersion.versionCheck("1.1.1.1.1", "1.1.1.1.2"), is(false));
+        assertThat(CoherenceVersion.versionCheck("1", "1.1"), is(false));
+        }
+
+    @Test
+    public void shouldCompareLaterMajorVersionAsGreater()
+        {
+        assertThat(CoherenceVersion.versionCheck("14.1.1", "12.2.1.4.0"), is(true));
+        assertThat(CoherenceVersion.versionCheck("14.1.1.0.0", "12.2.1.4.0"), is(true));
+        assertThat(CoherenceVersion.versionCheck("20.06", "14.1.1.0.3"), is(true));
+        assertThat(CoherenceVersion.versionCheck("12.2.1.3.5", "12.2.1.4.0"), is(false));
+        assertThat(CoherenceVersion.versionCheck("12.2.1.10.0", "12.2.1.9.0"), is(true));
+        }
+
+    @Test
+    public void shouldIgnoreImageNameAndSuffixes()
+        {
+        assertThat(CoherenceVersion.compare("container-registry.oracle.com/middleware/coherence:12.2.1.4.0",
+                                            "12.2.1.4.0"), is(0));
+        assertThat(CoherenceVersion.compare("localhost:5000/coherence:14.1.1.0.0", "14.1.1"), is(0));
+        assertThat(CoherenceVersion.compare("14.1.1-0-3", "14.1.1.0.3"), is(0));
+        assertThat(CoherenceVersion.compare("14.1.2-0-0-SNAPSHOT", "14.1.2.0.0"), is(0));
+        assertThat(CoherenceVersion.compare("12.2.1.4.0 Build 74630", "12.2.1.4.0"), is(0));
+        assertThat(CoherenceVersion.compare("v14.1.1", "14.1.1"), is(0));
+        }
+
+    @Test
+    public void shouldCompareSymmetrically()
+        {
+        assertThat(Integer.signum(CoherenceVersion.compare("14.1.1", "12.2.1.4.0")), is(1));
+        assertThat(Integer.signum(CoherenceVersion.compare("12.2.1.4.0", "14.1.1")), is(-1));
+        assertThat(CoherenceVersion.compare("", ""), is(0));
+        assertThat(Integer.signum(CoherenceVersion.compare("", "1")), is(-1));
+        }
+
+    @Test
+    public void shouldReadCurrentVersion()
+        {
+        assertThat(CoherenceVersion.compare(CoherenceVersion.getVersion(), CacheFactory.VERSION), is(0));
+        assertThat(CoherenceVersion.isAtLeast(CacheFactory.VERSION), is(true));
+        assertThat(CoherenceVersion.isAtLeast("9999"), is(false));
+        }
+
+    @Test
+    public void shouldCompareParsedVersion()
+        {
+        int[] anParts = CoherenceVersion.parse("coherence:14.1.1-0-3-SNAPSHOT");
+
+        assertThat(anParts, is(new int[] {14, 1, 1, 0, 3}));
+        assertThat(CoherenceVersion.parse("1.2.3.4.5.6.7.8.9").length, is(9));
+        assertThat(CoherenceVersion.parse("").length, is(0));
+
+        assertThat(CoherenceVersion.compare(anParts, "14.1.1.0.3"), is(0));
+        assertThat(CoherenceVersion.compare(anParts, "14.1.1"), is(1));
+        assertThat(CoherenceVersion.compare(anParts, "14.1.1.0.3.0"), is(0));
+        assertThat(Integer.signum(CoherenceVersion.compare(anParts, "14.1.2")), is(-1));
+        assertThat(Integer.signum(CoherenceVersion.compare(anParts, "12.2.1.4.0")), is(1));
+        }
+
+    @Test
+    public void shouldCheckFeatures()
+        {
+        for (CoherenceVersion.Feature feature : CoherenceVersion.Feature.values())
+            {
+            assertThat(CoherenceVersion.supports(feature),
+                       is(CoherenceVersion.isAtLeast(feature.getMinimumVersion())));
+            }
+
+        assertThat(CoherenceVersion.supports("12.2.1.3.0", CoherenceVersion.Feature.METRICS), is(false));
+        assertThat(CoherenceVersion.supports("12.2.1.4.0", CoherenceVersion.Feature.MANAGEMENT_OVER_REST), is(true));
+        assertThat(CoherenceVersion.supports("12.2.1.3.0", CoherenceVersion.Feature.SSL_ENDPOINTS), is(false));
+        assertThat(CoherenceVersion.supports("12.2.1.4.0", CoherenceVersion.Feature.SSL_ENDPOINTS), is(true));
+        assertThat(CoherenceVersion.supports("14.1.1.0.0", CoherenceVersion.Feature.SSL_ENDPOINTS), is(true));
         }
     }
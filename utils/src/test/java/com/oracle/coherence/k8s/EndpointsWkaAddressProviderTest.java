@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.oracle.bedrock.runtime.LocalPlatform;
+import com.tangosol.net.AddressProvider;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link EndpointsWkaAddressProvider}.
+ *
+ * @author jk
+ */
+public class EndpointsWkaAddressProviderTest
+    {
+    @Before
+    public void reset()
+        {
+        s_httpServer.reset();
+        }
+
+    @Test
+    public void shouldUseEndpointAddresses() throws UnknownHostException
+        {
+        s_httpServer.onGet(PATH_ENDPOINTS, "10.0.0.1,10.0.0.2");
+
+        EndpointsWkaAddressProvider provider = create(getUrl(), Collections.singletonList("127.0.0.1"));
+
+        assertThat(iterate(provider), contains("10.0.0.1", "10.0.0.2"));
+        }
+
+    @Test
+    public void shouldStartNewIterationAfterEnd() throws UnknownHostException
+        {
+        s_httpServer.onGet(PATH_ENDPOINTS, "10.0.0.1");
+
+        EndpointsWkaAddressProvider provider = create(getUrl(), Collections.emptyList());
+
+        assertThat(iterate(provider), contains("10.0.0.1"));
+        assertThat(iterate(provider), contains("10.0.0.1"));
+        }
+
+    @Test
+    public void shouldResolveHostsIfEndpointsNotFound() throws UnknownHostException
+        {
+        EndpointsWkaAddressProvider provider = create(getUrl(),
+                Arrays.asList("NonExiStentHoStName12345678", "127.0.0.1"));
+
+        assertThat(iterate(provider), contains("127.0.0.1"));
+        }
+
+    @Test
+    public void shouldResolveHostsIfInfoServerUnavailable() throws UnknownHostException
+        {
+        int nPort = LocalPlatform.get().getAvailablePorts().next();
+
+        EndpointsWkaAddressProvider provider = create("http://127.0.0.1:" + nPort + PATH_ENDPOINTS,
+                                                      Collections.singletonList("127.0.0.1"));
+
+        assertThat(iterate(provider), contains("127.0.0.1"));
+        }
+
+    @Test
+    public void shouldFailIfNoAddresses()
+        {
+        EndpointsWkaAddressProvider provider =
+                new EndpointsWkaAddressProvider(getUrl(), Collections.emptyList(), 1000, 100, 500);
+        long ldtStart = System.currentTimeMillis();
+
+        try
+            {
+            provider.eventuallyResolve();
+            fail("A provider without addresses should not be created");
+            }
+        catch (UnknownHostException e)
+            {
+            assertThat(System.currentTimeMillis() - ldtStart, is(greaterThanOrEqualTo(500L)));
+            }
+
+        assertThat(provider.getNextAddress(), is(nullValue()));
+        }
+
+    @Test
+    public void shouldWaitForFirstAddresses() throws Exception
+        {
+        EndpointsWkaAddressProvider provider =
+                new EndpointsWkaAddressProvider(getUrl(), Collections.emptyList(), 1000, 100, 30000);
+        Thread thread = new Thread(() ->
+            {
+            try
+                {
+                Thread.sleep(500);
+                }
+            catch (InterruptedException e)
+                {
+                // serve the Endpoints anyway
+                }
+            s_httpServer.onGet(PATH_ENDPOINTS, "10.0.0.4");
+            });
+
+        thread.start();
+
+        assertThat(iterate(provider.eventuallyResolve()), contains("10.0.0.4"));
+        }
+
+    @Test
+    public void shouldRefreshInBackground() throws Exception
+        {
+        s_httpServer.onGet(PATH_ENDPOINTS, "10.0.0.1");
+
+        EndpointsWkaAddressProvider provider = create(getUrl(), Collections.emptyList());
+
+        s_httpServer.onGet(PATH_ENDPOINTS, "10.0.0.2");
+        Thread.sleep(EndpointsWkaAddressProvider.DEFAULT_REFRESH_MILLIS);
+
+        // the stale addresses are returned while the refresh runs
+        assertThat(iterate(provider), contains("10.0.0.1"));
+
+        long ldtTimeout = System.currentTimeMillis() + 10000L;
+
+        while (!iterate(provider).contains("10.0.0.2") && System.currentTimeMillis() < ldtTimeout)
+            {
+            Thread.sleep(50);
+            }
+
+        assertThat(iterate(provider), contains("10.0.0.2"));
+        }
+
+    @Test
+    public void shouldKeepAddressesIfRefreshFindsNone() throws UnknownHostException
+        {
+        s_httpServer.onGet(PATH_ENDPOINTS, "10.0.0.1");
+
+        EndpointsWkaAddressProvider provider = create(getUrl(), Collections.emptyList());
+
+        s_httpServer.reset();
+        provider.refresh();
+
+        assertThat(iterate(provider), contains("10.0.0.1"));
+        }
+
+    @Test
+    public void shouldCreateDnsProviderIfEndpointsNotConfigured() throws UnknownHostException
+        {
+        System.setProperty(RetryingWkaAddressProvider.PROP_WKA_OVERRIDE, "127.0.0.1");
+
+        try
+            {
+            AddressProvider provider = EndpointsWkaAddressProvider.create();
+
+            assertThat(provider, is(instanceOf(RetryingWkaAddressProvider.class)));
+            }
+        finally
+            {
+            System.clearProperty(RetryingWkaAddressProvider.PROP_WKA_OVERRIDE);
+            }
+        }
+
+    @Test
+    public void shouldCreateEndpointsProviderIfConfigured() throws UnknownHostException
+        {
+        s_httpServer.onGet(PATH_ENDPOINTS, "10.0.0.3");
+
+        System.setProperty(EndpointsWkaAddressProvider.PROP_WKA_ENDPOINTS, getUrl());
+
+        try
+            {
+            AddressProvider provider = EndpointsWkaAddressProvider.create();
+
+            assertThat(provider, is(instanceOf(EndpointsWkaAddressProvider.class)));
+            assertThat(iterate((EndpointsWkaAddressProvider) provider), contains("10.0.0.3"));
+            }
+        finally
+            {
+            System.clearProperty(EndpointsWkaAddressProvider.PROP_WKA_ENDPOINTS);
+            }
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Create a provider that has found its first addresses.
+     *
+     * @param sUrl      the info server URL of the Endpoints
+     * @param listHost  the WKA host names
+     *
+     * @return  the provider
+     *
+     * @throws UnknownHostException  if no addresses are found
+     */
+    private static EndpointsWkaAddressProvider create(String sUrl, List<String> listHost)
+            throws UnknownHostException
+        {
+        return new EndpointsWkaAddressProvider(sUrl, listHost, 1000, 100, 5000).eventuallyResolve();
+        }
+
+    /**
+     * Obtain the addresses of one iteration over a provider.
+     *
+     * @param provider  the provider
+     *
+     * @return  the host addresses of the iteration
+     */
+    private static List<String> iterate(EndpointsWkaAddressProvider provider)
+        {
+        List<String>      listAddress = new ArrayList<>();
+        InetSocketAddress address;
+
+        while ((address = provider.getNextAddress()) != null)
+            {
+            listAddress.add(address.getAddress().getHostAddress());
+            }
+
+        return listAddress;
+        }
+
+    /**
+     * Obtain the URL of the Endpoints on the stub server.
+     *
+     * @return  the URL of the Endpoints
+     */
+    private static String getUrl()
+        {
+        return "http://127.0.0.1:" + s_httpServer.getBoundPort() + PATH_ENDPOINTS;
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    private static final String PATH_ENDPOINTS = "/endpoints/ns/test-coherence-headless";
+
+    // ----- data members ---------------------------------------------------
+
+    @ClassRule
+    public static HttpServerStub s_httpServer = new HttpServerStub().bindToPort(0);
+    }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for {@link FileBasedPasswordProvider}.
+ *
+ * @author jk
+ */
+public class FileBasedPasswordProviderTest
+    {
+    @Test
+    public void shouldReturnNullIfNoFile()
+        {
+        assertThat(new FileBasedPasswordProvider(null).get(), is(nullValue()));
+        assertThat(new FileBasedPasswordProvider(" ", true).get(), is(nullValue()));
+        }
+
+    @Test
+    public void shouldReadPasswordOnEachCall() throws Exception
+        {
+        File file = m_tempFolder.newFile("pass.txt");
+
+        write(file.toPath(), "secret");
+
+        FileBasedPasswordProvider provider = new FileBasedPasswordProvider(file.getAbsolutePath());
+
+        assertThat(new String(provider.get()), is("secret"));
+
+        write(file.toPath(), "rotated");
+
+        assertThat(new String(provider.get()), is("rotated"));
+        }
+
+    @Test
+    public void shouldReturnCopyOfCachedPassword() throws Exception
+        {
+        File file = m_tempFolder.newFile("pass.txt");
+
+        write(file.toPath(), "secret");
+
+        FileBasedPasswordProvider provider = new FileBasedPasswordProvider(file.getAbsolutePath(), true);
+        char[]                    acPass   = provider.get();
+
+        Arrays.fill(acPass, '\0');
+
+        assertThat(new String(provider.get()), is("secret"));
+        }
+
+    @Test
+    public void shouldReloadCachedPasswordWhenFileChanges() throws Exception
+        {
+        File file = m_tempFolder.newFile("pass.txt");
+
+        write(file.toPath(), "secret");
+
+        FileBasedPasswordProvider provider = new FileBasedPasswordProvider(file.getAbsolutePath(), true);
+
+        assertThat(new String(provider.get()), is("secret"));
+
+        write(file.toPath(), "rotated");
+
+        assertEventually(provider, "rotated");
+        }
+
+    @Test
+    public void shouldReloadCachedPasswordWhenSecretLinkSwapped() throws Exception
+        {
+        // lay out the directory the way Kubernetes mounts a secret, pass.txt -> ..data/pass.txt -> ..v1/pass.txt
+        Path dir = m_tempFolder.newFolder("secret").toPath();
+
+        write(Files.createDirectory(dir.resolve("..v1")).resolve("pass.txt"), "secret");
+        write(Files.createDirectory(dir.resolve("..v2")).resolve("pass.txt"), "rotated");
+        Files.createSymbolicLink(dir.resolve("..data"), dir.resolve("..v1").getFileName());
+        Files.createSymbolicLink(dir.resolve("pass.txt"), dir.getFileSystem().getPath("..data", "pass.txt"));
+
+        FileBasedPasswordProvider provider =
+                new FileBasedPasswordProvider(dir.resolve("pass.txt").toString(), true);
+
+        assertThat(new String(provider.get()), is("secret"));
+
+        // swap the ..data link atomically, as Kubernetes does
+        Path pathTemp = Files.createSymbolicLink(dir.resolve("..data_tmp"), dir.resolve("..v2").getFileName());
+
+        Files.move(pathTemp, dir.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+
+        assertEventually(provider, "rotated");
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Write a password to a file.
+     *
+     * @param path   the file
+     * @param sPass  the password
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Path path, String sPass) throws IOException
+        {
+        Files.write(path, (sPass + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+    /**
+     * Assert that a provider eventually returns a password.
+     *
+     * @param provider  the provider
+     * @param sPass     the expected password
+     *
+     * @throws InterruptedException if interrupted
+     */
+    private static void assertEventually(FileBasedPasswordProvider provider, String sPass)
+            throws InterruptedException
+        {
+        long ldtTimeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+
+        while (!sPass.equals(new String(provider.get())) && System.currentTimeMillis() < ldtTimeout)
+            {
+            Thread.sleep(100);
+            }
+
+        assertThat(new String(provider.get()), is(sPass));
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The temporary folder holding the password files.
+     */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+    }
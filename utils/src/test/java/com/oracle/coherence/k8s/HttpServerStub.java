@@ -37,6 +37,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
@@ -211,6 +212,19 @@ public class HttpServerStub
         }
 
 
+    /**
+     * Add a POST response function for a path.
+     *
+     * @param path     the path to use the function for
+     * @param urlBody  the URL to return as the response body
+     *
+     * @return this {@link HttpServerStub} to allow for method chaining
+     */
+    public HttpServerStub onPost(String path, URL urlBody, String mediaType)
+        {
+        return onPost(path, (p) -> fromURL(urlBody, 200, mediaType));
+        }
+
     /**
      * Add a POST response function for a path that matches the specified regex.
      *
@@ -270,10 +284,24 @@ public class HttpServerStub
         f_mapRegExHttpResponse.forEach((key, value) -> value.clear());
         f_mapRegExHttpResponse.clear();
 
+        f_setClientAddress.clear();
+
         return this;
         }
 
 
+    /**
+     * Obtain the number of client connections that sent requests since the
+     * server was started or last reset.
+     *
+     * @return the number of distinct client connections
+     */
+    public int getConnectionCount()
+        {
+        return f_setClientAddress.size();
+        }
+
+
     /**
      * Obtain the {@link URI} used to start this server.
      *
@@ -494,11 +522,16 @@ public class HttpServerStub
             String       sMethod  = httpExchange.getRequestMethod();
             HttpResponse response;
 
+            f_setClientAddress.add(httpExchange.getRemoteAddress());
+
             switch (sMethod)
                 {
                 case "GET":
                     response = HttpServerStub.this.getHttpResponse(GET.class, sPath);
                     break;
+                case "POST":
+                    response = HttpServerStub.this.getHttpResponse(POST.class, sPath);
+                    break;
                 default:
                     response = NOT_FOUND;
                 }
@@ -593,6 +626,8 @@ public class HttpServerStub
     private final Map<Class, Map<Pattern, Function<String, HttpResponse>>> f_mapRegExHttpResponse
             = new ConcurrentHashMap<>();
 
+    private final Set<InetSocketAddress> f_setClientAddress = ConcurrentHashMap.newKeySet();
+
     private final Function<String, HttpResponse> f_fnNotFound
             = (p) -> NOT_FOUND;
 
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.generic.MessageConnection;
+import javax.management.remote.generic.MessageConnectionServer;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the connector environment of {@link JmxmpServer}.
+ *
+ * @author jk
+ */
+public class JmxmpServerTest
+    {
+    @After
+    public void cleanup() throws Exception
+        {
+        if (m_connectorServer != null)
+            {
+            m_connectorServer.stop();
+            }
+        }
+
+    @Test
+    public void shouldCreateEnvironmentFromProperties() throws Exception
+        {
+        System.setProperty(JmxmpServer.PROP_MAX_CONNECTIONS, "7");
+        System.setProperty(JmxmpServer.PROP_MAX_THREADS, "6");
+        System.setProperty(JmxmpServer.PROP_IDLE_TIMEOUT, "30s");
+        System.setProperty("jmx.remote.x.server.min.threads", "2");
+
+        try
+            {
+            Map<String, Object> mapEnv = JmxmpServer.createEnvironment(new JMXServiceURL("jmxmp", "127.0.0.1", 0));
+
+            assertThat(mapEnv, hasEntry(JmxmpServer.ENV_MAX_THREADS, (Object) 6));
+            assertThat(mapEnv, hasEntry(JmxmpServer.ENV_IDLE_TIMEOUT, (Object) 30000L));
+            assertThat(mapEnv, hasEntry("jmx.remote.x.server.min.threads", (Object) "2"));
+
+            BoundedConnectionServer server = (BoundedConnectionServer) mapEnv.get(JmxmpServer.ENV_CONNECTION_SERVER);
+
+            assertThat(server, is(notNullValue()));
+            assertThat(server.getMaxConnectionCount(), is(7));
+            assertThat(server.getConnectingMillis(), is(10000L));
+            }
+        finally
+            {
+            System.clearProperty(JmxmpServer.PROP_MAX_CONNECTIONS);
+            System.clearProperty(JmxmpServer.PROP_MAX_THREADS);
+            System.clearProperty(JmxmpServer.PROP_IDLE_TIMEOUT);
+            System.clearProperty("jmx.remote.x.server.min.threads");
+            }
+        }
+
+    @Test(timeout = 60000)
+    public void shouldRejectConnectionsOverTheLimit() throws Exception
+        {
+        JMXServiceURL url = startServer(2);
+
+        try (JMXConnector connector1 = connect(url);
+             JMXConnector connector2 = connect(url))
+            {
+            try (JMXConnector connector3 = JMXConnectorFactory.connect(url))
+                {
+                fail("Expected the connection over the limit to be rejected");
+                }
+            catch (IOException e)
+                {
+                // expected
+                }
+
+            assertThat(m_server.getRejectedCount(), is(1L));
+
+            connector1.close();
+            awaitConnectionCount(1);
+
+            try (JMXConnector connector3 = connect(url))
+                {
+                assertThat(m_server.getConnectionCount(), is(2));
+                }
+            }
+
+        awaitConnectionCount(0);
+        }
+
+    @Test(timeout = 60000)
+    public void shouldCloseConnectionsThatDoNotCompleteHandshake() throws Exception
+        {
+        JMXServiceURL url;
+
+        System.setProperty(JmxmpServer.PROP_CONNECTING_TIMEOUT, "500ms");
+        try
+            {
+            url = startServer(1);
+            }
+        finally
+            {
+            System.clearProperty(JmxmpServer.PROP_CONNECTING_TIMEOUT);
+            }
+
+        try (Socket socket = new Socket(url.getHost(), url.getPort()))
+            {
+            long ldtTimeout = System.currentTimeMillis() + 30000L;
+
+            while (m_server.getConnectionCount() == 0 && System.currentTimeMillis() < ldtTimeout)
+                {
+                Thread.sleep(10);
+                }
+
+            // the silent client is closed, freeing the only connection for a real client
+            awaitConnectionCount(0);
+
+            try (JMXConnector connector = connect(url))
+                {
+                assertThat(m_server.getConnectionCount(), is(1));
+                }
+            }
+        }
+
+    @Test(timeout = 180000)
+    public void shouldServeManyConcurrentClients() throws Exception
+        {
+        int             cClient    = 300;
+        int             cMax       = 16;
+        JMXServiceURL   url        = startServer(cMax);
+        ExecutorService executor   = Executors.newFixedThreadPool(cClient);
+        CountDownLatch  latchStart = new CountDownLatch(1);
+        AtomicInteger   cPeak      = new AtomicInteger();
+        Thread          sampler    = new Thread(() ->
+            {
+            while (!Thread.currentThread().isInterrupted())
+                {
+                cPeak.accumulateAndGet(m_server.getConnectionCount(), Math::max);
+                Thread.yield();
+                }
+            });
+
+        sampler.setDaemon(true);
+        sampler.start();
+
+        try
+            {
+            List<Future<Integer>> listFuture = new ArrayList<>();
+
+            for (int i = 0; i < cClient; i++)
+                {
+                listFuture.add(executor.submit(() ->
+                    {
+                    latchStart.await();
+
+                    for (int cAttempt = 1; ; cAttempt++)
+                        {
+                        try (JMXConnector connector = JMXConnectorFactory.connect(url))
+                            {
+                            assertThat(connector.getMBeanServerConnection()
+                                               .getAttribute(MBeanServerDelegate.DELEGATE_NAME, "MBeanServerId"),
+                                       is(notNullValue()));
+                            return cAttempt;
+                            }
+                        catch (IOException e)
+                            {
+                            // rejected because the server is at its limit, back off and retry
+                            Thread.sleep(ThreadLocalRandom.current().nextInt(10, 100));
+                            }
+                        }
+                    }));
+                }
+
+            latchStart.countDown();
+
+            int cAttempt = 0;
+
+            for (Future<Integer> future : listFuture)
+                {
+                cAttempt += future.get(150, TimeUnit.SECONDS);
+                }
+
+            assertThat(cAttempt, is(greaterThan(cClient)));
+            assertThat(m_server.getRejectedCount(), is(greaterThan(0L)));
+            assertThat(cPeak.get(), is(lessThanOrEqualTo(cMax)));
+            }
+        finally
+            {
+            sampler.interrupt();
+            executor.shutdownNow();
+            }
+
+        awaitConnectionCount(0);
+        }
+
+    @Test
+    public void shouldBackOffWhenAcceptFails() throws Exception
+        {
+        MessageConnectionServer delegate   = mock(MessageConnectionServer.class);
+        MessageConnection       connection = mock(MessageConnection.class);
+        BoundedConnectionServer server     = new BoundedConnectionServer(delegate, 1, 0L);
+
+        when(delegate.accept()).thenThrow(new IOException("fail 1"), new IOException("fail 2"),
+                                          new IOException("fail 3"), new IOException("fail 4"))
+                               .thenReturn(connection);
+
+        long ldtStart = System.currentTimeMillis();
+
+        assertThat(server.accept(), is(notNullValue()));
+
+        // 10ms + 20ms + 40ms + 80ms
+        assertThat(System.currentTimeMillis() - ldtStart, is(greaterThanOrEqualTo(150L)));
+        assertThat(server.getAcceptFailureCount(), is(4L));
+
+        server.stop();
+        reset(delegate);
+        when(delegate.accept()).thenThrow(new IOException("stopped"));
+
+        try
+            {
+            server.accept();
+            fail("accept should fail once the server is stopped");
+            }
+        catch (IOException e)
+            {
+            assertThat(e.getMessage(), is("stopped"));
+            }
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Start a JMXMP connector server on an ephemeral port with the
+     * environment created by {@link JmxmpServer#createEnvironment(JMXServiceURL)}.
+     *
+     * @param cMaxConnection  the maximum number of open connections
+     *
+     * @return  the address of the started connector server
+     *
+     * @throws IOException  if the connector server cannot be started
+     */
+    private JMXServiceURL startServer(int cMaxConnection) throws IOException
+        {
+        JMXServiceURL       url = new JMXServiceURL("jmxmp", "127.0.0.1", 0);
+        Map<String, Object> mapEnv;
+
+        System.setProperty(JmxmpServer.PROP_MAX_CONNECTIONS, String.valueOf(cMaxConnection));
+        try
+            {
+            mapEnv = JmxmpServer.createEnvironment(url);
+            }
+        finally
+            {
+            System.clearProperty(JmxmpServer.PROP_MAX_CONNECTIONS);
+            }
+
+        m_server          = (BoundedConnectionServer) mapEnv.get(JmxmpServer.ENV_CONNECTION_SERVER);
+        m_connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(url, mapEnv,
+                                                                            MBeanServerFactory.newMBeanServer());
+        m_connectorServer.start();
+
+        return m_connectorServer.getAddress();
+        }
+
+    /**
+     * Connect to a JMXMP connector server, checking the connection works.
+     *
+     * @param url  the address of the connector server
+     *
+     * @return  the connector
+     *
+     * @throws Exception  if the connection fails
+     */
+    private JMXConnector connect(JMXServiceURL url) throws Exception
+        {
+        JMXConnector connector = JMXConnectorFactory.connect(url);
+
+        connector.getMBeanServerConnection().getMBeanCount();
+
+        return connector;
+        }
+
+    /**
+     * Wait for the number of open server connections to reach a value.
+     *
+     * @param cConnection  the expected number of open connections
+     *
+     * @throws InterruptedException  if the wait is interrupted
+     */
+    private void awaitConnectionCount(int cConnection) throws InterruptedException
+        {
+        long ldtTimeout = System.currentTimeMillis() + 30000L;
+
+        while (m_server.getConnectionCount() != cConnection && System.currentTimeMillis() < ldtTimeout)
+            {
+            Thread.sleep(50);
+            }
+
+        assertThat(m_server.getConnectionCount(), is(cConnection));
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The server accepting connections for the connector server under test.
+     */
+    private BoundedConnectionServer m_server;
+
+    /**
+     * The connector server under test.
+     */
+    private JMXConnectorServer m_connectorServer;
+    }
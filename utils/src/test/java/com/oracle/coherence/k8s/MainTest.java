@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Unit tests for {@link Main}.
+ *
+ * @author jk
+ */
+public class MainTest
+    {
+    @Test
+    public void shouldConfigureMemberProperties()
+        {
+        Map<String, String> mapEnv = new HashMap<>();
+
+        mapEnv.put("COH_WKA", "storage-headless");
+        mapEnv.put("COH_MACHINE_NAME", "node-1");
+        mapEnv.put("COH_MEMBER_NAME", "storage-0");
+        mapEnv.put("COH_CLUSTER_NAME", "test");
+        mapEnv.put("COH_CACHE_CONFIG", "");
+        mapEnv.put("COH_LOG_LEVEL", "9");
+
+        Map<String, String> map = Main.getProperties(mapEnv, "12.2.1.4.0");
+
+        assertThat(map, hasEntry("coherence.wka", "storage-headless"));
+        assertThat(map, hasEntry("coherence.machine", "node-1"));
+        assertThat(map, hasEntry("coherence.member", "storage-0"));
+        assertThat(map, hasEntry("coherence.cluster", "test"));
+        assertThat(map, hasEntry("coherence.log.level", "9"));
+        assertThat(map, hasEntry("coherence.distributed.persistence-mode", "on-demand"));
+        assertThat(map, not(hasKey("coherence.cacheconfig")));
+        assertThat(map, not(hasKey("coherence.site")));
+        }
+
+    @Test
+    public void shouldUseExtendCacheConfigIfNoCacheConfig()
+        {
+        Map<String, String> mapEnv = new HashMap<>();
+
+        mapEnv.put("COH_EXTEND_PORT", "20000");
+
+        assertThat(Main.getProperties(mapEnv, "12.2.1.4.0"), hasEntry("coherence.cacheconfig", "extend-cache-config.xml"));
+
+        mapEnv.put("COH_CACHE_CONFIG", "test-cache-config.xml");
+
+        assertThat(Main.getProperties(mapEnv, "12.2.1.4.0"), hasEntry("coherence.cacheconfig", "test-cache-config.xml"));
+        }
+
+    @Test
+    public void shouldConfigurePersistence()
+        {
+        Map<String, String> mapEnv = new HashMap<>();
+
+        mapEnv.put("COH_PERSISTENCE_ENABLED", "true");
+        mapEnv.put("COH_SNAPSHOT_ENABLED", "true");
+
+        Map<String, String> map = Main.getProperties(mapEnv, "12.2.1.4.0");
+
+        assertThat(map, hasEntry("coherence.distributed.persistence-mode", "active"));
+        assertThat(map, hasEntry("coherence.distributed.persistence.base.dir", "/persistence"));
+        assertThat(map, hasEntry("coherence.distributed.persistence.snapshot.dir", "/snapshot"));
+        }
+
+    @Test
+    public void shouldUseOverrideForVersion()
+        {
+        Map<String, String> mapEnv = new HashMap<>();
+
+        mapEnv.put("COH_MGMT_SSL_ENABLED", "true");
+
+        assertThat(Main.getProperties(mapEnv, "12.2.1.4.0"), hasEntry("coherence.override", Main.OVERRIDE_SSL));
+        assertThat(Main.getProperties(mapEnv, "12.2.1.3.0"), hasEntry("coherence.override", Main.OVERRIDE_NO_SSL));
+        assertThat(Main.getProperties(mapEnv, "12.2.1.3.0"), not(hasKey("coherence.management.http.provider")));
+        }
+
+    @Test
+    public void shouldConfigureSSL()
+        {
+        Map<String, String> mapEnv = new HashMap<>();
+
+        mapEnv.put("COH_MGMT_SSL_ENABLED", "true");
+        mapEnv.put("COH_MGMT_SSL_CERTS", "/coherence/certs/management");
+        mapEnv.put("COH_MGMT_SSL_KEYSTORE", "server.jks");
+        mapEnv.put("COH_MGMT_SSL_KEYSTORE_PASSWORD_FILE", "storepass.txt");
+        mapEnv.put("COH_MGMT_SSL_KEYSTORE_TYPE", "PKCS12");
+        mapEnv.put("COH_MGMT_SSL_REQUIRE_CLIENT_CERT", "true");
+        mapEnv.put("COH_METRICS_SSL_CERTS", "file:/coherence/certs/metrics/");
+        mapEnv.put("COH_METRICS_SSL_TRUSTSTORE", "truststore.jks");
+
+        Map<String, String> map = Main.getProperties(mapEnv, "14.1.1.0.0");
+
+        assertThat(map, hasEntry("coherence.management.http.provider", "ManagementSSLProvider"));
+        assertThat(map, hasEntry("coherence.management.security.keystore",
+                                 "file:/coherence/certs/management/server.jks"));
+        assertThat(map, hasEntry("coherence.management.security.keystore.password",
+                                 "file:/coherence/certs/management/storepass.txt"));
+        assertThat(map, hasEntry("coherence.management.security.keystore.type", "PKCS12"));
+        assertThat(map, hasEntry("coherence.management.http.auth", "cert"));
+        assertThat(map, hasEntry("coherence.metrics.security.truststore", "file:/coherence/certs/metrics/truststore.jks"));
+        assertThat(map, not(hasKey("coherence.metrics.http.provider")));
+        assertThat(map, not(hasKey("coherence.metrics.http.auth")));
+        }
+
+    @Test
+    public void shouldReadSiteFromFile() throws Exception
+        {
+        File file = m_tempFolder.newFile("site.txt");
+
+        Files.write(file.toPath(), "zone-1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(Main.getSite(file.getAbsolutePath()), is("zone-1"));
+        assertThat(Main.getSite(file.getAbsolutePath() + ".missing"), is(nullValue()));
+        }
+
+    @Test
+    public void shouldReadSiteFromURL() throws Exception
+        {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        server.createContext("/site", exchange ->
+            {
+            byte[] abBody = "zone-2".getBytes(StandardCharsets.UTF_8);
+
+            exchange.sendResponseHeaders(200, abBody.length);
+            try (OutputStream out = exchange.getResponseBody())
+                {
+                out.write(abBody);
+                }
+            });
+        server.start();
+
+        try
+            {
+            String sURL = "http://127.0.0.1:" + server.getAddress().getPort();
+
+            assertThat(Main.getSite(sURL + "/site"), is("zone-2"));
+            assertThat(Main.getSite(sURL + "/missing"), is(nullValue()));
+            }
+        finally
+            {
+            server.stop(0);
+            }
+        }
+
+    @Test
+    public void shouldNotReadSiteForProbe() throws Exception
+        {
+        File file = m_tempFolder.newFile("site.txt");
+
+        Files.write(file.toPath(), "zone-1\n".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, String> mapEnv = new HashMap<>();
+
+        mapEnv.put("COH_SITE_INFO_LOCATION", file.getAbsolutePath());
+
+        assertThat(Main.getProperties(mapEnv, "12.2.1.4.0", false), hasEntry("coherence.site", "zone-1"));
+        assertThat(Main.getProperties(mapEnv, "12.2.1.4.0", true), not(hasKey("coherence.site")));
+        assertThat(Main.getProperties(mapEnv, "12.2.1.4.0", true), not(hasKey("coherence.rack")));
+        }
+
+    @Test
+    public void shouldIgnoreUnresolvedSiteURL()
+        {
+        assertThat(Main.getSite("http://$(COH_SITE_INFO_LOCATION)/site"), is(nullValue()));
+        assertThat(Main.getSite(""), is(nullValue()));
+        }
+
+    @Test
+    public void shouldConfigureDnsCache()
+        {
+        Map<String, String> mapEnv = new HashMap<>();
+
+        assertThat(Main.getDnsCacheProperties(mapEnv), hasEntry(Main.PROP_DNS_CACHE_TTL, "5"));
+        assertThat(Main.getDnsCacheProperties(mapEnv), hasEntry(Main.PROP_DNS_NEGATIVE_CACHE_TTL, "0"));
+
+        mapEnv.put("COH_DNS_CACHE_TTL", "1");
+        mapEnv.put("COH_DNS_NEGATIVE_CACHE_TTL", "2");
+
+        assertThat(Main.getDnsCacheProperties(mapEnv), hasEntry(Main.PROP_DNS_CACHE_TTL, "1"));
+        assertThat(Main.getDnsCacheProperties(mapEnv), hasEntry(Main.PROP_DNS_NEGATIVE_CACHE_TTL, "2"));
+
+        System.setProperty("sun.net.inetaddr.ttl", "60");
+        try
+            {
+            assertThat(Main.getDnsCacheProperties(mapEnv), not(hasKey(Main.PROP_DNS_CACHE_TTL)));
+            }
+        finally
+            {
+            System.clearProperty("sun.net.inetaddr.ttl");
+            }
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The temporary folder holding the site file.
+     */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+    }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of evaluating the HA status of services from management
+ * over ReST responses by materializing the json as maps, as the probe did
+ * previously, with the streaming extraction of {@link ManagementJson}.
+ * <p>
+ * The payloads are a full partition assignment MBean response and a services
+ * search response with the partition assignment of each service. Run with
+ * {@code java -cp <test classpath> com.oracle.coherence.k8s.ManagementJsonBenchmark}.
+ *
+ * @author jk
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagementJsonBenchmark
+    {
+    @Setup
+    public void setup() throws Exception
+        {
+        m_abPartition = readResource("json/partition-assignment.json");
+
+        StringBuilder sb = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < m_cServices; i++)
+            {
+            if (i > 0)
+                {
+                sb.append(',');
+                }
+
+            String sPartition = new String(m_abPartition, StandardCharsets.UTF_8)
+                    .replace("PartitionedCache", "Service-" + i);
+
+            sb.append("{\"name\":\"Service-").append(i).append("\",\"partition\":").append(sPartition).append('}');
+            }
+
+        m_abSearch = sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public boolean partitionMap() throws Exception
+        {
+        return f_probe.isServiceStatusHA(toLowerCaseKeys(f_mapper.readValue(m_abPartition, Map.class)));
+        }
+
+    @Benchmark
+    public Boolean partitionStreaming() throws Exception
+        {
+        return ManagementJson.isServiceStatusHA(ManagementJson.createParser(m_abPartition), f_probe);
+        }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public boolean searchMap() throws Exception
+        {
+        Map<String, Object>       mapResponse = f_mapper.readValue(m_abSearch, Map.class);
+        List<Map<String, Object>> listItems   = (List<Map<String, Object>>) mapResponse.get("items");
+
+        for (Map<String, Object> mapItem : listItems)
+            {
+            Map<String, Object> mapPartition = (Map<String, Object>) mapItem.get("partition");
+
+            if (mapPartition != null && !f_probe.isServiceStatusHA(toLowerCaseKeys(mapPartition)))
+                {
+                return false;
+                }
+            }
+
+        return true;
+        }
+
+    @Benchmark
+    public boolean searchStreaming() throws Exception
+        {
+        return ManagementJson.isStatusHA(ManagementJson.createParser(m_abSearch), f_probe);
+        }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param asArg  the program arguments (not used)
+     *
+     * @throws Exception  if the benchmarks fail
+     */
+    public static void main(String[] asArg) throws Exception
+        {
+        new Runner(new OptionsBuilder().include(ManagementJsonBenchmark.class.getSimpleName()).build()).run();
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Copy a map with the keys converted to lower case, as the probe did for
+     * every MBean attribute map before the streaming extraction was used.
+     *
+     * @param map  the map to copy
+     *
+     * @return  a copy of the map with lower case keys
+     */
+    private static Map<String, Object> toLowerCaseKeys(Map<String, Object> map)
+        {
+        Map<String, Object> mapLower = new HashMap<>();
+        map.forEach((sKey, oValue) -> mapLower.put(sKey.toLowerCase(), oValue));
+        return mapLower;
+        }
+
+    /**
+     * Read a test resource.
+     *
+     * @param sResource  the name of the resource
+     *
+     * @return  the content of the resource
+     *
+     * @throws Exception  if the resource cannot be read
+     */
+    private static byte[] readResource(String sResource) throws Exception
+        {
+        try (InputStream in = ManagementJsonBenchmark.class.getClassLoader().getResourceAsStream(sResource))
+            {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[]                ab  = new byte[4096];
+            int                   cb;
+
+            while ((cb = in.read(ab)) > 0)
+                {
+                out.write(ab, 0, cb);
+                }
+
+            return out.toByteArray();
+            }
+        }
+
+    // ----- inner class: HAProbe -------------------------------------------
+
+    /**
+     * A {@link Probe} that only evaluates HA attributes.
+     */
+    private static class HAProbe
+            extends Probe
+        {
+        @Override
+        protected boolean isAvailable()
+            {
+            return true;
+            }
+
+        @Override
+        protected boolean isClusterMember()
+            {
+            return true;
+            }
+
+        @Override
+        protected Set<String> getPartitionAssignmentMBeans()
+            {
+            throw new UnsupportedOperationException();
+            }
+
+        @Override
+        protected Map<String, Object> getMBeanAttributes(String sMBean, String[] asAttributes)
+            {
+            throw new UnsupportedOperationException();
+            }
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The number of services in the search response.
+     */
+    @Param({"10", "40"})
+    public int m_cServices;
+
+    /**
+     * The partition assignment MBean response.
+     */
+    private byte[] m_abPartition;
+
+    /**
+     * The services search response.
+     */
+    private byte[] m_abSearch;
+
+    /**
+     * The json mapper used to materialize responses as maps.
+     */
+    private final ObjectMapper f_mapper = new ObjectMapper();
+
+    /**
+     * The probe used to evaluate the HA attributes.
+     */
+    private final Probe f_probe = new HAProbe();
+    }
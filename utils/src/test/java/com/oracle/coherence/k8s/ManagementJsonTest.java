@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+
+/**
+ * Unit tests for {@link ManagementJson}.
+ *
+ * @author jk
+ */
+public class ManagementJsonTest
+    {
+    @Test
+    public void shouldFindItems() throws Exception
+        {
+        assertThat(ManagementJson.hasItems(parse("json/cluster-members-single-member.json")), is(true));
+        assertThat(ManagementJson.hasItems(parse("json/cluster-members-empty.json")), is(false));
+        assertThat(ManagementJson.hasItems(parse("json/cluster-members-null.json")), is(false));
+        }
+
+    @Test
+    public void shouldFindString() throws Exception
+        {
+        assertThat(ManagementJson.findString(parse("json/cluster-member-local.json"), "memberName"), is("storage-0"));
+        assertThat(ManagementJson.findString(parse("json/cluster-member-local.json"), "machineName"), is(nullValue()));
+        }
+
+    @Test
+    public void shouldFindItemLinks() throws Exception
+        {
+        Set<String> setHref = ManagementJson.findItemLinks(parse("json/cluster-services.json"), "partition");
+
+        assertThat(setHref, containsInAnyOrder(
+                "http://0%3A0%3A0%3A0%3A0%3A0%3A0%3A1:30000/management/coherence/cluster/services/Foo/partition",
+                "http://0%3A0%3A0%3A0%3A0%3A0%3A0%3A1:30000/management/coherence/cluster/services/Bar/partition"));
+
+        assertThat(ManagementJson.findItemLinks(parse("json/cluster-services-no-partition.json"), "partition")
+                           .isEmpty(), is(true));
+        }
+
+    @Test
+    public void shouldEvaluateSearchStatusHA() throws Exception
+        {
+        Probe probe = new StubProbe();
+
+        assertThat(ManagementJson.isStatusHA(parse("json/cluster-services-search-ha.json"), probe), is(true));
+        assertThat(ManagementJson.isStatusHA(parse("json/cluster-services-search-endangered.json"), probe), is(false));
+        }
+
+    @Test
+    public void shouldEvaluateServiceStatusHA() throws Exception
+        {
+        Probe probe = new StubProbe();
+
+        assertThat(ManagementJson.isServiceStatusHA(parse("json/partition-ha.json"), probe), is(true));
+        assertThat(ManagementJson.isServiceStatusHA(parse("json/partition-endangered.json"), probe), is(false));
+        assertThat(ManagementJson.isServiceStatusHA(parse("json/cluster.json"), probe), is(nullValue()));
+        }
+
+    @Test
+    public void shouldMatchAttributeNamesIgnoringCase() throws Exception
+        {
+        Probe      probe  = new StubProbe();
+        JsonParser parser = ManagementJson.createParser(
+                "{\"HAStatus\":\"ENDANGERED\",\"BackupCount\":1,\"ServiceNodeCount\":2}"
+                        .getBytes(StandardCharsets.UTF_8));
+
+        assertThat(ManagementJson.isServiceStatusHA(parser, probe), is(false));
+        }
+
+    @Test
+    public void shouldEvaluateRemainingDistributions() throws Exception
+        {
+        Probe  probe = new StubProbe();
+        byte[] ab    = ("{\"haStatus\":\"NODE_SAFE\",\"backupCount\":1,\"serviceNodeCount\":2,"
+                        + "\"remainingDistributionCount\":5}").getBytes(StandardCharsets.UTF_8);
+
+        assertThat(ManagementJson.isServiceStatusHA(ManagementJson.createParser(ab), probe), is(true));
+
+        probe.setReadinessMode(Probe.READINESS_MODE_BALANCED);
+
+        assertThat(ManagementJson.isServiceStatusHA(ManagementJson.createParser(ab), probe), is(false));
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Create a parser for a json test resource.
+     *
+     * @param sResource  the name of the resource
+     *
+     * @return  a parser for the resource
+     *
+     * @throws Exception  if the resource cannot be read
+     */
+    static JsonParser parse(String sResource) throws Exception
+        {
+        try (InputStream in = ManagementJsonTest.class.getClassLoader().getResourceAsStream(sResource))
+            {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[]                ab  = new byte[4096];
+            int                   cb;
+
+            while ((cb = in.read(ab)) > 0)
+                {
+                out.write(ab, 0, cb);
+                }
+
+            return ManagementJson.createParser(out.toByteArray());
+            }
+        }
+    
+    // ----- inner class: StubProbe -----------------------------------------
+
+    /**
+     * A {@link Probe} that only evaluates HA attributes.
+     */
+    private static class StubProbe
+            extends Probe
+        {
+        @Override
+        protected boolean isAvailable()
+            {
+            return true;
+            }
+
+        @Override
+        protected boolean isClusterMember()
+            {
+            return true;
+            }
+
+        @Override
+        protected Set<String> getPartitionAssignmentMBeans()
+            {
+            throw new UnsupportedOperationException();
+            }
+
+        @Override
+        protected Map<String, Object> getMBeanAttributes(String sMBean, String[] asAttributes)
+            {
+            throw new UnsupportedOperationException();
+            }
+        }
+    }
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for the probe selection of {@link PodChecker}.
+ *
+ * @author jk
+ */
+public class PodCheckerTest
+    {
+    @Test
+    public void shouldCreateProbesLazily()
+        {
+        StubProbe      probeFirst  = new StubProbe(true);
+        AtomicInteger  cCreated    = new AtomicInteger();
+        ProbeSelection selection   = new ProbeSelection(null);
+        PodChecker     checker     = new PodChecker(probes(() -> probeFirst, () ->
+            {
+            cCreated.incrementAndGet();
+            return new StubProbe(true);
+            }), selection);
+
+        assertThat(checker.readiness(), is(true));
+        assertThat(cCreated.get(), is(0));
+        assertThat(selection.get(), is("first"));
+        }
+
+    @Test
+    public void shouldNotCheckAvailabilityOfSelectedProbe()
+        {
+        StubProbe      probe     = new StubProbe(true);
+        ProbeSelection selection = new ProbeSelection(null);
+        PodChecker     checker   = new PodChecker(probes(() -> probe, () -> new StubProbe(true)), selection);
+
+        assertThat(checker.readiness(), is(true));
+        assertThat(checker.readiness(), is(true));
+        assertThat(checker.liveness(), is(true));
+
+        assertThat(probe.m_cAvailable.get(), is(1));
+        assertThat(probe.m_cMember.get(), is(3));
+        }
+
+    @Test
+    public void shouldCheckPreferredProbeBeforeSelectedProbe()
+        {
+        StubProbe      probeFirst  = new StubProbe(false);
+        StubProbe      probeSecond = new StubProbe(true);
+        ProbeSelection selection   = new ProbeSelection(null);
+        PodChecker     checker     = new PodChecker(probes(() -> probeFirst, () -> probeSecond), selection);
+
+        assertThat(checker.readiness(), is(true));
+        assertThat(selection.get(), is("second"));
+
+        probeFirst.m_fAvailable = true;
+
+        assertThat(checker.readiness(), is(true));
+        assertThat(selection.get(), is("first"));
+        assertThat(probeSecond.m_cAvailable.get(), is(1));
+        }
+
+    @Test
+    public void shouldSelectAgainIfSelectedProbeFails()
+        {
+        StubProbe      probeFirst  = new StubProbe(true);
+        StubProbe      probeSecond = new StubProbe(true);
+        ProbeSelection selection   = new ProbeSelection(null);
+        PodChecker     checker     = new PodChecker(probes(() -> probeFirst, () -> probeSecond), selection);
+
+        assertThat(checker.readiness(), is(true));
+
+        probeFirst.m_fAvailable = false;
+        probeFirst.m_fFail      = true;
+
+        assertThat(checker.readiness(), is(true));
+        assertThat(selection.get(), is("second"));
+        assertThat(probeSecond.m_cMember.get(), is(1));
+        }
+
+    @Test
+    public void shouldRunStartupTest()
+        {
+        StubProbe      probe     = new StubProbe(true);
+        ProbeSelection selection = new ProbeSelection(null);
+        PodChecker     checker   = new PodChecker(probes(() -> probe, () -> new StubProbe(true)), selection);
+
+        assertThat(checker.run(PodChecker.Type.startup.name()), is(PodChecker.RETURN_CODE_READY));
+
+        probe.m_fRecovering = true;
+
+        assertThat(checker.run(PodChecker.Type.startup.name()), is(PodChecker.RETURN_CODE_NOT_READY));
+        }
+
+    @Test
+    public void shouldUseTimeoutOfProbe()
+        {
+        StubProbe      probe     = new StubProbe(true);
+        ProbeSelection selection = new ProbeSelection(null);
+        PodChecker     checker   = new PodChecker(probes(() -> probe, () -> new StubProbe(true)), selection);
+
+        assertThat(checker.run(PodChecker.Type.startup.name(), "2"), is(PodChecker.RETURN_CODE_READY));
+        assertThat(probe.m_cMillisTimeout, is(2000L));
+
+        assertThat(checker.run(PodChecker.Type.readiness.name()), is(PodChecker.RETURN_CODE_READY));
+        assertThat(probe.m_cMillisTimeout, is(0L));
+
+        assertThat(PodChecker.parseTimeout(" 7 "), is(7000L));
+        assertThat(PodChecker.parseTimeout("-1"), is(0L));
+        assertThat(PodChecker.parseTimeout("fast"), is(0L));
+        }
+
+    @Test
+    public void shouldShareSelectionThroughFile()
+        {
+        File file = new File(m_tempFolder.getRoot(), "probe-selection.txt");
+
+        new ProbeSelection(file).set("second");
+        assertThat(new ProbeSelection(file).get(), is("second"));
+
+        new ProbeSelection(file).clear();
+        assertThat(new ProbeSelection(file).get(), is(nullValue()));
+        assertThat(file.exists(), is(false));
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Create the probe factories for a {@link PodChecker}.
+     *
+     * @param supplierFirst   the factory of the preferred probe
+     * @param supplierSecond  the factory of the fallback probe
+     *
+     * @return  the probe factories
+     */
+    private static Map<String, Supplier<Probe>> probes(Supplier<Probe> supplierFirst, Supplier<Probe> supplierSecond)
+        {
+        Map<String, Supplier<Probe>> mapProbe = new LinkedHashMap<>();
+
+        mapProbe.put("first", supplierFirst);
+        mapProbe.put("second", supplierSecond);
+
+        return mapProbe;
+        }
+
+    // ----- inner class: StubProbe -----------------------------------------
+
+    /**
+     * A {@link Probe} that counts the checks made against it.
+     */
+    private static class StubProbe
+            extends Probe
+        {
+        /**
+         * Create a {@link StubProbe}.
+         *
+         * @param fAvailable  whether the probe is available
+         */
+        StubProbe(boolean fAvailable)
+            {
+            m_fAvailable = fAvailable;
+            }
+
+        @Override
+        protected boolean isAvailable()
+            {
+            m_cAvailable.incrementAndGet();
+            return m_fAvailable;
+            }
+
+        @Override
+        protected boolean isClusterMember()
+            {
+            if (m_fFail)
+                {
+                throw new IllegalStateException("probe failed");
+                }
+
+            m_cMember.incrementAndGet();
+            return true;
+            }
+
+        @Override
+        public boolean isStatusHA()
+            {
+            return true;
+            }
+
+        @Override
+        public boolean isPersistenceIdle()
+            {
+            return !m_fRecovering;
+            }
+
+        @Override
+        protected Set<String> getPartitionAssignmentMBeans()
+            {
+            throw new UnsupportedOperationException();
+            }
+
+        @Override
+        protected Map<String, Object> getMBeanAttributes(String sMBean, String[] asAttributes)
+            {
+            throw new UnsupportedOperationException();
+            }
+
+        @Override
+        public void setProbeTimeout(long cMillis)
+            {
+            super.setProbeTimeout(cMillis);
+            m_cMillisTimeout = cMillis;
+            }
+
+        /**
+         * Whether the probe is available.
+         */
+        volatile boolean m_fAvailable;
+
+        /**
+         * Whether the probe fails with an exception.
+         */
+        volatile boolean m_fFail;
+
+        /**
+         * Whether persistence is being recovered.
+         */
+        volatile boolean m_fRecovering;
+
+        /**
+         * The number of availability checks.
+         */
+        final AtomicInteger m_cAvailable = new AtomicInteger();
+
+        /**
+         * The number of membership checks.
+         */
+        final AtomicInteger m_cMember = new AtomicInteger();
+
+        /**
+         * The probe timeout in milliseconds last set.
+         */
+        volatile long m_cMillisTimeout;
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The temporary folder holding the selection file.
+     */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+    }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for {@link ProbeHistory}.
+ *
+ * @author jk
+ */
+public class ProbeHistoryTest
+    {
+    @Test
+    public void shouldBeEmpty()
+        {
+        ProbeHistory history = new ProbeHistory(null);
+
+        assertThat(history.getProbeCount(), is(0));
+        assertThat(history.getTotalP50(), is(0L));
+        assertThat(history.getTotalP99(), is(0L));
+        }
+
+    @Test
+    public void shouldCalculatePercentiles()
+        {
+        ProbeHistory history = new ProbeHistory(null);
+
+        for (int i = 1; i <= 100; i++)
+            {
+            history.add(ProbeHistory.Phase.HTTP, TimeUnit.MILLISECONDS.toNanos(i));
+            history.add(ProbeHistory.Phase.TOTAL, TimeUnit.MILLISECONDS.toNanos(i * 2));
+            history.complete();
+            }
+
+        assertThat(history.getProbeCount(), is(100));
+        assertThat(history.getHttpP50(), is(50L));
+        assertThat(history.getHttpP99(), is(99L));
+        assertThat(history.getTotalP50(), is(100L));
+        assertThat(history.getTotalP99(), is(198L));
+        assertThat(history.getSslP99(), is(0L));
+        }
+
+    @Test
+    public void shouldAccumulatePhaseOfProbe()
+        {
+        ProbeHistory history = new ProbeHistory(null);
+
+        history.add(ProbeHistory.Phase.HTTP, TimeUnit.MILLISECONDS.toNanos(10));
+        history.add(ProbeHistory.Phase.HTTP, TimeUnit.MILLISECONDS.toNanos(15));
+        assertThat(history.time(ProbeHistory.Phase.EVALUATE, () -> "done"), is("done"));
+        history.complete();
+
+        assertThat(history.getProbeCount(), is(1));
+        assertThat(history.getHttpP50(), is(25L));
+        }
+
+    @Test
+    public void shouldDiscardOldestProbes()
+        {
+        ProbeHistory history = new ProbeHistory(null);
+
+        for (int i = 1; i <= ProbeHistory.HISTORY_SIZE + 50; i++)
+            {
+            history.add(ProbeHistory.Phase.TOTAL, TimeUnit.MILLISECONDS.toNanos(i));
+            history.complete();
+            }
+
+        assertThat(history.getProbeCount(), is(ProbeHistory.HISTORY_SIZE));
+        assertThat(history.getPercentile(ProbeHistory.Phase.TOTAL, 1), is(51L));
+        }
+
+    @Test
+    public void shouldShareHistoryThroughFile() throws Exception
+        {
+        File         file     = new File(m_tempFolder.getRoot(), "probe-history.txt");
+        ProbeHistory reader   = new ProbeHistory(file);
+
+        assertThat(reader.getProbeCount(), is(0));
+
+        // each probe runs in its own JVM with its own history instance
+        for (int i = 1; i <= 3; i++)
+            {
+            ProbeHistory probe = new ProbeHistory(file);
+
+            probe.add(ProbeHistory.Phase.TOTAL, TimeUnit.MILLISECONDS.toNanos(i * 100));
+            probe.complete();
+            }
+
+        // make sure the modification time differs from the last read
+        file.setLastModified(file.lastModified() + 1000);
+
+        assertThat(reader.getProbeCount(), is(3));
+        assertThat(reader.getTotalP50(), is(200L));
+        assertThat(reader.getTotalP99(), is(300L));
+        }
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The temporary folder holding the history file.
+     */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+    }
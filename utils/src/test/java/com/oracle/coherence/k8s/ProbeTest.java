@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Unit tests for the HA evaluation of {@link Probe}.
+ *
+ * @author jk
+ */
+public class ProbeTest
+    {
+    @Test
+    public void shouldBeHAWithNoServices()
+        {
+        StubProbe probe = new StubProbe();
+
+        assertThat(probe.isStatusHA(), is(true));
+        }
+
+    @Test
+    public void shouldEvaluateServicesConcurrently()
+        {
+        StubProbe probe = new StubProbe()
+                .addService("A", "NODE_SAFE", 500)
+                .addService("B", "NODE_SAFE", 500)
+                .addService("C", "NODE_SAFE", 500)
+                .addService("D", "NODE_SAFE", 500);
+
+        probe.setTimeBudget(5000);
+
+        long ldtStart = System.currentTimeMillis();
+
+        assertThat(probe.isStatusHA(), is(true));
+        assertThat(System.currentTimeMillis() - ldtStart, is(lessThan(1500L)));
+        assertThat(probe.m_setTimeout, is(nullValue()));
+        }
+
+    @Test
+    public void shouldNotBeHAIfAnyServiceIsEndangered()
+        {
+        StubProbe probe = new StubProbe()
+                .addService("A", "NODE_SAFE", 0)
+                .addService("B", "ENDANGERED", 0)
+                .addService("C", "NODE_SAFE", 10000);
+
+        probe.setTimeBudget(20000);
+
+        long ldtStart = System.currentTimeMillis();
+
+        assertThat(probe.isStatusHA(), is(false));
+        assertThat(System.currentTimeMillis() - ldtStart, is(lessThan(5000L)));
+        }
+
+    @Test
+    public void shouldNotBeHAIfBudgetIsExceeded()
+        {
+        StubProbe probe = new StubProbe()
+                .addService("A", "NODE_SAFE", 0)
+                .addService("B", "NODE_SAFE", 10000)
+                .addService("C", "NODE_SAFE", 10000);
+
+        probe.setTimeBudget(500);
+
+        long ldtStart = System.currentTimeMillis();
+
+        assertThat(probe.isStatusHA(), is(false));
+        assertThat(System.currentTimeMillis() - ldtStart, is(lessThan(5000L)));
+        assertThat(probe.m_setTimeout, containsInAnyOrder("B", "C"));
+        }
+
+    @Test
+    public void shouldNotBeHAIfServiceFails()
+        {
+        StubProbe probe = new StubProbe()
+                .addService("A", "NODE_SAFE", 0)
+                .addService("B", null, 0);
+
+        assertThat(probe.isStatusHA(), is(false));
+        }
+
+    @Test
+    public void shouldUseMinimumBudget()
+        {
+        StubProbe probe = new StubProbe();
+
+        probe.setTimeBudget(1);
+
+        assertThat(probe.getTimeBudget(), is(Probe.MIN_BUDGET_MILLIS));
+        }
+
+    @Test
+    public void shouldIgnoreTransfersInHAMode()
+        {
+        StubProbe probe = new StubProbe()
+                .addService("A", "NODE_SAFE", 0, 0)
+                .addService("B", "NODE_SAFE", 0, 12);
+
+        probe.setReadinessMode(Probe.READINESS_MODE_HA);
+
+        assertThat(probe.isStatusHA(), is(true));
+        }
+
+    @Test
+    public void shouldNotBeReadyWithTransfersInBalancedMode()
+        {
+        StubProbe probe = new StubProbe()
+                .addService("A", "NODE_SAFE", 0, 0)
+                .addService("B", "NODE_SAFE", 0, 12);
+
+        probe.setReadinessMode(Probe.READINESS_MODE_BALANCED);
+
+        assertThat(probe.isStatusHA(), is(false));
+        }
+
+    @Test
+    public void shouldBeReadyWhenBalancedInBalancedMode()
+        {
+        StubProbe probe = new StubProbe()
+                .addService("A", "NODE_SAFE", 0, 0)
+                .addService("B", "MACHINE_SAFE", 0, 0);
+
+        probe.setReadinessMode(Probe.READINESS_MODE_BALANCED);
+
+        assertThat(probe.isStatusHA(), is(true));
+        }
+
+    @Test
+    public void shouldDefaultToHAReadinessMode()
+        {
+        assertThat(new StubProbe().getReadinessMode(), is(Probe.READINESS_MODE_HA));
+        }
+
+    // ----- inner class: StubProbe -----------------------------------------
+
+    /**
+     * A {@link Probe} with services whose HA attributes take a configurable
+     * time to obtain.
+     */
+    private static class StubProbe
+            extends Probe
+        {
+        /**
+         * Add a service.
+         *
+         * @param sName    the service name
+         * @param sStatus  the HA status of the service, or {@code null} to fail
+         * @param cMillis  the time taken to obtain the HA attributes
+         *
+         * @return  this probe
+         */
+        StubProbe addService(String sName, String sStatus, long cMillis)
+            {
+            return addService(sName, sStatus, cMillis, 0);
+            }
+
+        /**
+         * Add a service with remaining partition transfers.
+         *
+         * @param sName    the service name
+         * @param sStatus  the HA status of the service, or {@code null} to fail
+         * @param cMillis  the time taken to obtain the HA attributes
+         * @param cRemain  the number of remaining partition transfers
+         *
+         * @return  this probe
+         */
+        StubProbe addService(String sName, String sStatus, long cMillis, int cRemain)
+            {
+            Map<String, Object> map = new HashMap<>();
+
+            map.put("HAStatus", sStatus);
+            map.put("BackupCount", 1);
+            map.put("ServiceNodeCount", 3);
+            map.put("RemainingDistributionCount", cRemain);
+
+            f_mapService.put(sName, map);
+            f_mapDelay.put(sName, cMillis);
+
+            return this;
+            }
+
+        @Override
+        protected boolean isAvailable()
+            {
+            return true;
+            }
+
+        @Override
+        protected boolean isClusterMember()
+            {
+            return true;
+            }
+
+        @Override
+        protected Set<String> getPartitionAssignmentMBeans()
+            {
+            return f_mapService.keySet();
+            }
+
+        @Override
+        protected Map<String, Object> getMBeanAttributes(String sMBean, String[] asAttributes)
+            {
+            try
+                {
+                Thread.sleep(f_mapDelay.get(sMBean));
+                }
+            catch (InterruptedException e)
+                {
+                return Collections.emptyMap();
+                }
+
+            Map<String, Object> map = f_mapService.get(sMBean);
+
+            if (map.get("HAStatus") == null)
+                {
+                throw new IllegalStateException("Failed to get attributes of " + sMBean);
+                }
+
+            return map;
+            }
+
+        @Override
+        protected void onTimeout(Set<String> setMBean, long cMillisBudget)
+            {
+            m_setTimeout = setMBean;
+            }
+
+        /**
+         * The HA attributes of each service.
+         */
+        private final Map<String, Map<String, Object>> f_mapService = new HashMap<>();
+
+        /**
+         * The time taken to obtain the HA attributes of each service.
+         */
+        private final Map<String, Long> f_mapDelay = new HashMap<>();
+
+        /**
+         * The services that were still being evaluated when the budget ran out.
+         */
+        private Set<String> m_setTimeout;
+        }
+    }
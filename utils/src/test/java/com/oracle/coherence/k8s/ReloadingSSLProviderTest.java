@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.util.Resources;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStore;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Unit tests for {@link ReloadingSSLProvider}.
+ *
+ * @author jk
+ */
+public class ReloadingSSLProviderTest
+    {
+    @Before
+    public void setup() throws Exception
+        {
+        m_dir = m_tempFolder.newFolder("certs").toPath();
+
+        for (String sFile : new String[] {"groot.jks", "truststore-guardians.jks", "storepass.txt", "keypass.txt",
+                                          "trustpass.txt"})
+            {
+            try (InputStream in = Resources.findFileOrResource("certs/" + sFile, null).openStream())
+                {
+                Files.copy(in, m_dir.resolve(sFile));
+                }
+            }
+
+        m_pathOverride = Files.write(m_tempFolder.getRoot().toPath().resolve("override.xml"),
+                                     String.format(OVERRIDE, m_dir.resolve("groot.jks").toUri(),
+                                                   m_dir.resolve("storepass.txt"), m_dir.resolve("keypass.txt"),
+                                                   m_dir.resolve("truststore-guardians.jks").toUri(),
+                                                   m_dir.resolve("trustpass.txt"))
+                                             .getBytes(StandardCharsets.UTF_8));
+        }
+
+    @Test
+    public void shouldCreateReloadingManagers() throws Exception
+        {
+        assertThat(createKeyManagerFactory().getKeyManagers()[0], is(instanceOf(ReloadingKeyManager.class)));
+        assertThat(createTrustManagerFactory().getTrustManagers()[0], is(instanceOf(ReloadingTrustManager.class)));
+        }
+
+    @Test
+    public void shouldReloadKeyStoreWhenFileChanges() throws Exception
+        {
+        KeyManager[]          aKeyManager   = createKeyManagerFactory().getKeyManagers();
+        TrustManager[]        aTrustManager = createTrustManagerFactory().getTrustManagers();
+        ReloadingKeyManager   keyManager    = (ReloadingKeyManager) aKeyManager[0];
+        ReloadingTrustManager trustManager  = (ReloadingTrustManager) aTrustManager[0];
+        SSLContext            context       = SSLContext.getInstance("TLS");
+
+        context.init(aKeyManager, aTrustManager, null);
+        assertHandshake(context);
+
+        replace("groot.jks", Files.readAllBytes(m_dir.resolve("groot.jks")));
+        replace("truststore-guardians.jks", Files.readAllBytes(m_dir.resolve("truststore-guardians.jks")));
+
+        assertEventuallyReloaded(keyManager::getReloadCount, 0);
+        assertEventuallyReloaded(trustManager::getReloadCount, 0);
+        assertHandshake(context);
+        }
+
+    @Test
+    public void shouldKeepKeysIfKeyStoreIsInvalid() throws Exception
+        {
+        KeyManager[]        aKeyManager = createKeyManagerFactory().getKeyManagers();
+        ReloadingKeyManager keyManager  = (ReloadingKeyManager) aKeyManager[0];
+        SSLContext          context     = SSLContext.getInstance("TLS");
+        byte[]              abKeyStore  = Files.readAllBytes(m_dir.resolve("groot.jks"));
+
+        context.init(aKeyManager, createTrustManagerFactory().getTrustManagers(), null);
+
+        replace("groot.jks", "not a key store".getBytes(StandardCharsets.UTF_8));
+
+        // the password file is in the same directory, so a later change is seen after the failed one
+        replace("storepass.txt", Files.readAllBytes(m_dir.resolve("storepass.txt")));
+        Thread.sleep(1000);
+
+        assertThat(keyManager.getReloadCount(), is(0));
+        assertHandshake(context);
+
+        replace("groot.jks", abKeyStore);
+
+        assertEventuallyReloaded(keyManager::getReloadCount, 0);
+        assertHandshake(context);
+        }
+
+    @Test
+    public void shouldReloadEveryManagerOfProvider() throws Exception
+        {
+        ReloadingSSLProvider provider    = createProvider("identity-manager");
+        ReloadingKeyManager  keyManager1 = (ReloadingKeyManager) createKeyManagerFactory(provider).getKeyManagers()[0];
+        ReloadingKeyManager  keyManager2 = (ReloadingKeyManager) createKeyManagerFactory(provider).getKeyManagers()[0];
+
+        replace("groot.jks", Files.readAllBytes(m_dir.resolve("groot.jks")));
+
+        assertEventuallyReloaded(keyManager1::getReloadCount, 0);
+        assertEventuallyReloaded(keyManager2::getReloadCount, 0);
+        }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectManagerWithoutKeyStore()
+        {
+        createProvider("unknown-manager");
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Create a {@link ReloadingSSLProvider} for a manager of the test override file.
+     *
+     * @param sManager  the manager element
+     *
+     * @return  the provider
+     */
+    private ReloadingSSLProvider createProvider(String sManager)
+        {
+        return new ReloadingSSLProvider(m_pathOverride.toString(), "ReloadingProvider", sManager, "");
+        }
+
+    /**
+     * Create a key manager factory using the test key store, the way
+     * Coherence creates it.
+     *
+     * @return  the initialized factory
+     *
+     * @throws Exception  if the factory cannot be created
+     */
+    private KeyManagerFactory createKeyManagerFactory() throws Exception
+        {
+        return createKeyManagerFactory(createProvider("identity-manager"));
+        }
+
+    /**
+     * Create a key manager factory from a provider using the test key
+     * store, the way Coherence creates it.
+     *
+     * @param provider  the provider
+     *
+     * @return  the initialized factory
+     *
+     * @throws Exception  if the factory cannot be created
+     */
+    private KeyManagerFactory createKeyManagerFactory(ReloadingSSLProvider provider) throws Exception
+        {
+        KeyManagerFactory factory = KeyManagerFactory.getInstance("SunX509", provider);
+
+        factory.init(load("groot.jks", "storepass.txt"), read("keypass.txt"));
+
+        return factory;
+        }
+
+    /**
+     * Create a trust manager factory using the test trust store, the way
+     * Coherence creates it.
+     *
+     * @return  the initialized factory
+     *
+     * @throws Exception  if the factory cannot be created
+     */
+    private TrustManagerFactory createTrustManagerFactory() throws Exception
+        {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance("SunX509", createProvider("trust-manager"));
+
+        factory.init(load("truststore-guardians.jks", "trustpass.txt"));
+
+        return factory;
+        }
+
+    /**
+     * Load a key store from the test directory.
+     *
+     * @param sKeyStore  the key store file name
+     * @param sPassFile  the password file name
+     *
+     * @return  the key store
+     *
+     * @throws Exception  if the key store cannot be loaded
+     */
+    private KeyStore load(String sKeyStore, String sPassFile) throws Exception
+        {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+
+        try (InputStream in = Files.newInputStream(m_dir.resolve(sKeyStore)))
+            {
+            keyStore.load(in, read(sPassFile));
+            }
+
+        return keyStore;
+        }
+
+    /**
+     * Read a password file from the test directory.
+     *
+     * @param sFile  the file name
+     *
+     * @return  the password
+     */
+    private char[] read(String sFile)
+        {
+        return new FileBasedPasswordProvider(m_dir.resolve(sFile).toString()).get();
+        }
+
+    /**
+     * Atomically replace a file in the test directory.
+     *
+     * @param sFile    the file name
+     * @param abBytes  the new content
+     *
+     * @throws Exception  if the file cannot be written
+     */
+    private void replace(String sFile, byte[] abBytes) throws Exception
+        {
+        Path pathTemp = Files.write(m_tempFolder.getRoot().toPath().resolve(sFile + ".tmp"), abBytes);
+
+        Files.move(pathTemp, m_dir.resolve(sFile), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        }
+
+    /**
+     * Assert that a reload count eventually exceeds a value.
+     *
+     * @param supplier  the supplier of the reload count
+     * @param cReload   the value to exceed
+     *
+     * @throws InterruptedException if interrupted
+     */
+    private static void assertEventuallyReloaded(IntSupplier supplier, int cReload)
+            throws InterruptedException
+        {
+        long ldtTimeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+
+        while (supplier.getAsInt() <= cReload && System.currentTimeMillis() < ldtTimeout)
+            {
+            Thread.sleep(100);
+            }
+
+        assertThat(supplier.getAsInt(), is(greaterThan(cReload)));
+        }
+
+    /**
+     * Assert that a client and server using the context can complete a
+     * TLS handshake.
+     *
+     * @param context  the {@link SSLContext} to use
+     *
+     * @throws Exception  if the handshake fails
+     */
+    private static void assertHandshake(SSLContext context) throws Exception
+        {
+        InetAddress address = InetAddress.getLoopbackAddress();
+
+        try (SSLServerSocket server = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0, 1, address))
+            {
+            CompletableFuture<Void> future = CompletableFuture.runAsync(() ->
+                {
+                try (SSLSocket socket = (SSLSocket) server.accept())
+                    {
+                    socket.startHandshake();
+                    socket.getOutputStream().write(1);
+                    }
+                catch (Exception e)
+                    {
+                    throw new RuntimeException(e);
+                    }
+                });
+
+            try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket(address, server.getLocalPort()))
+                {
+                socket.startHandshake();
+                assertThat(socket.getInputStream().read(), is(1));
+                }
+
+            future.get(1, TimeUnit.MINUTES);
+            }
+        }
+
+    // ----- constants ------------------------------------------------------
+
+    /**
+     * The override file template, formatted with the key store URL, the key
+     * store and key password files, the trust store URL and the trust store
+     * password file.
+     */
+    private static final String OVERRIDE =
+            "<coherence xmlns=\"http://xmlns.oracle.com/coherence/coherence-operational-config\">\n"
+            + "<cluster-config><socket-providers><socket-provider id=\"ReloadingProvider\"><ssl>\n"
+            + "<identity-manager>\n"
+            + "<key-store><url>%s</url><password-provider>\n"
+            + "<class-name>com.oracle.coherence.k8s.FileBasedPasswordProvider</class-name>\n"
+            + "<init-params><init-param><param-type>String</param-type><param-value>%s</param-value>"
+            + "</init-param></init-params></password-provider></key-store>\n"
+            + "<password-provider><class-name>com.oracle.coherence.k8s.FileBasedPasswordProvider</class-name>\n"
+            + "<init-params><init-param><param-type>String</param-type><param-value>%s</param-value>"
+            + "</init-param></init-params></password-provider>\n"
+            + "</identity-manager>\n"
+            + "<trust-manager>\n"
+            + "<key-store><url>%s</url><password-provider>\n"
+            + "<class-name>com.oracle.coherence.k8s.FileBasedPasswordProvider</class-name>\n"
+            + "<init-params><init-param><param-type>String</param-type><param-value>%s</param-value>"
+            + "</init-param></init-params></password-provider></key-store>\n"
+            + "</trust-manager>\n"
+            + "</ssl></socket-provider></socket-providers></cluster-config></coherence>\n";
+
+    // ----- data members ---------------------------------------------------
+
+    /**
+     * The temporary folder holding the key stores.
+     */
+    @Rule
+    public TemporaryFolder m_tempFolder = new TemporaryFolder();
+
+    /**
+     * The directory holding the key stores and password files.
+     */
+    private Path m_dir;
+
+    /**
+     * The override file configuring the key stores in the test directory.
+     */
+    private Path m_pathOverride;
+    }
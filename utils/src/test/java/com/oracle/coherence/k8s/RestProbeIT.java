@@ -17,9 +17,13 @@ import org.junit.rules.ExpectedException;
 
 import javax.ws.rs.core.MediaType;
 import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.collection.IsEmptyIterable.emptyIterable;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 
@@ -73,12 +77,48 @@ public class RestProbeIT
             }
         }
 
+    @Test
+    public void shouldShareClient()
+        {
+        String          sPort  = String.valueOf(s_httpServer.getBoundPort());
+        ProbeHttpClient client = ProbeHttpClient.getInstance(sPort, null);
+
+        assertThat(client.isShared(), is(true));
+        assertThat(ProbeHttpClient.getInstance(sPort, null), is(sameInstance(client)));
+
+        try (RestProbe probe = new RestProbe(client))
+            {
+            assertThat(probe.isAvailable(), is(true));
+            }
+
+        // closing the probe must not close the shared client
+        assertThat(new RestProbe(client).isAvailable(), is(true));
+        }
+
+    @Test
+    public void shouldReuseConnection()
+        {
+        ProbeHttpClient client = ProbeHttpClient.getInstance(String.valueOf(s_httpServer.getBoundPort()), null);
+
+        s_httpServer.onGet(RestProbe.getLocalMemberPath("storage-0"), URL_CLUSTER_MEMBER_LOCAL, MediaType.APPLICATION_JSON);
+
+        for (int i = 0; i < 5; i++)
+            {
+            RestProbe probe = new RestProbe(client, "storage-0");
+
+            assertThat(probe.isAvailable(), is(true));
+            assertThat(probe.isClusterMember(), is(true));
+            }
+
+        assertThat(s_httpServer.getConnectionCount(), is(1));
+        }
+
     @Test
     public void shouldBeClusterMemberIfSingleMember()
         {
         s_httpServer.onGet(RestProbe.PATH_MEMBERS, URL_CLUSTER_MEMBERS_SINGLE, MediaType.APPLICATION_JSON);
 
-        RestProbe probe = new RestProbe(s_client);
+        RestProbe probe = new RestProbe(s_client, null);
 
         assertThat(probe.isClusterMember(), is(true));
         }
@@ -88,7 +128,7 @@ public class RestProbeIT
         {
         s_httpServer.onGet(RestProbe.PATH_MEMBERS, URL_CLUSTER_MEMBERS_MULTI, MediaType.APPLICATION_JSON);
 
-        RestProbe probe = new RestProbe(s_client);
+        RestProbe probe = new RestProbe(s_client, null);
 
         assertThat(probe.isClusterMember(), is(true));
         }
@@ -98,7 +138,7 @@ public class RestProbeIT
         {
         s_httpServer.onGet(RestProbe.PATH_MEMBERS, URL_CLUSTER_MEMBERS_EMPTY, MediaType.APPLICATION_JSON);
 
-        RestProbe probe = new RestProbe(s_client);
+        RestProbe probe = new RestProbe(s_client, null);
 
         assertThat(probe.isClusterMember(), is(false));
         }
@@ -108,7 +148,39 @@ public class RestProbeIT
         {
         s_httpServer.onGet(RestProbe.PATH_MEMBERS, URL_CLUSTER_MEMBERS_NULL, MediaType.APPLICATION_JSON);
 
-        RestProbe probe = new RestProbe(s_client);
+        RestProbe probe = new RestProbe(s_client, null);
+
+        assertThat(probe.isClusterMember(), is(false));
+        }
+
+    @Test
+    public void shouldBeClusterMemberIfLocalMemberFound()
+        {
+        s_httpServer.onGet(RestProbe.getLocalMemberPath("storage-0"), URL_CLUSTER_MEMBER_LOCAL,
+                           MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client, "storage-0");
+
+        assertThat(probe.isClusterMember(), is(true));
+        }
+
+    @Test
+    public void shouldNotBeClusterMemberIfLocalMemberNotFound()
+        {
+        s_httpServer.onGet(RestProbe.getLocalMemberPath("storage-0"), p -> HttpServerStub.NOT_FOUND);
+
+        RestProbe probe = new RestProbe(s_client, "storage-0");
+
+        assertThat(probe.isClusterMember(), is(false));
+        }
+
+    @Test
+    public void shouldNotBeClusterMemberIfLocalMemberNameDiffers()
+        {
+        s_httpServer.onGet(RestProbe.getLocalMemberPath("storage-1"), URL_CLUSTER_MEMBER_LOCAL,
+                           MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client, "storage-1");
 
         assertThat(probe.isClusterMember(), is(false));
         }
@@ -118,7 +190,7 @@ public class RestProbeIT
         {
         s_httpServer.onGet(RestProbe.PATH_MEMBERS, p -> HttpServerStub.NOT_FOUND);
 
-        RestProbe probe = new RestProbe(s_client);
+        RestProbe probe = new RestProbe(s_client, null);
 
         m_executionException.expect(RuntimeException.class);
 
@@ -128,7 +200,7 @@ public class RestProbeIT
     @Test
     public void shouldGetServiceNamesForSingleService()
         {
-        s_httpServer.onGet(RestProbe.PATH_SERVICES, URL_CLUSTER_SERVICES_SINGLE, MediaType.APPLICATION_JSON);
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES_SINGLE, MediaType.APPLICATION_JSON);
 
         RestProbe probe = new RestProbe(s_client);
 
@@ -138,7 +210,7 @@ public class RestProbeIT
     @Test
     public void shouldGetServiceNamesForMultipleService()
         {
-        s_httpServer.onGet(RestProbe.PATH_SERVICES, URL_CLUSTER_SERVICES, MediaType.APPLICATION_JSON);
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES, MediaType.APPLICATION_JSON);
 
         RestProbe probe = new RestProbe(s_client);
 
@@ -148,7 +220,7 @@ public class RestProbeIT
     @Test
     public void shouldGetServiceNamesForNonPartitionedService()
         {
-        s_httpServer.onGet(RestProbe.PATH_SERVICES, URL_CLUSTER_SERVICES_NOT_PARTITIONED, MediaType.APPLICATION_JSON);
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES_NOT_PARTITIONED, MediaType.APPLICATION_JSON);
 
         RestProbe probe = new RestProbe(s_client);
 
@@ -158,7 +230,7 @@ public class RestProbeIT
     @Test
     public void shouldGetServiceNamesForEmptyService()
         {
-        s_httpServer.onGet(RestProbe.PATH_SERVICES, URL_CLUSTER_SERVICES_EMPTY, MediaType.APPLICATION_JSON);
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES_EMPTY, MediaType.APPLICATION_JSON);
 
         RestProbe probe = new RestProbe(s_client);
 
@@ -168,7 +240,7 @@ public class RestProbeIT
     @Test
     public void shouldGetServiceNamesForNullService()
         {
-        s_httpServer.onGet(RestProbe.PATH_SERVICES, URL_CLUSTER_SERVICES_NULL, MediaType.APPLICATION_JSON);
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES_NULL, MediaType.APPLICATION_JSON);
 
         RestProbe probe = new RestProbe(s_client);
 
@@ -187,6 +259,136 @@ public class RestProbeIT
         probe.getPartitionAssignmentMBeans();
         }
 
+    @Test
+    public void shouldConvertAttributeNamesToFieldNames()
+        {
+        assertThat(RestProbe.toFieldName("HAStatus"), is("haStatus"));
+        assertThat(RestProbe.toFieldName("BackupCount"), is("backupCount"));
+        assertThat(RestProbe.toFieldName("ServiceNodeCount"), is("serviceNodeCount"));
+        assertThat(RestProbe.toFieldName("ID"), is("id"));
+        }
+
+    @Test
+    public void shouldGetOnlyRequestedMBeanAttributes()
+        {
+        s_httpServer.onGet(PATH_PARTITION_FOO + HA_FIELDS, URL_PARTITION_HA, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.getMBeanServiceStatusHAAttributes(PARTITION_LINK_FOO).get("haStatus"), is("NODE_SAFE"));
+        }
+
+    @Test
+    public void shouldBeStatusHAUsingSearch()
+        {
+        s_httpServer.onPost(RestProbe.PATH_SERVICES_SEARCH, URL_SEARCH_HA, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.isStatusHA(), is(true));
+        }
+
+    @Test
+    public void shouldNotBeStatusHAUsingSearchIfEndangered()
+        {
+        s_httpServer.onPost(RestProbe.PATH_SERVICES_SEARCH, URL_SEARCH_ENDANGERED, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.isStatusHA(), is(false));
+        }
+
+    @Test
+    public void shouldNotBeStatusHAIfSearchExceedsTimeBudget()
+        {
+        s_httpServer.onPost(RestProbe.PATH_SERVICES_SEARCH, p ->
+            {
+            try
+                {
+                Thread.sleep(1000);
+                }
+            catch (InterruptedException e)
+                {
+                // ignored
+                }
+            return HttpServerStub.NOT_FOUND;
+            });
+
+        Set<String> setTimeout = new HashSet<>();
+        RestProbe   probe      = new RestProbe(s_client)
+            {
+            @Override
+            protected void onTimeout(Set<String> setMBean, long cMillisBudget)
+                {
+                setTimeout.addAll(setMBean);
+                }
+            };
+
+        probe.setTimeBudget(Probe.MIN_BUDGET_MILLIS);
+
+        assertThat(probe.isStatusHA(), is(false));
+        assertThat(setTimeout, contains(RestProbe.PATH_SERVICES_SEARCH));
+        }
+
+    @Test
+    public void shouldBeStatusHAUsingQueriesIfSearchNotSupported()
+        {
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PARTITION_FOO + HA_FIELDS, URL_PARTITION_HA, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PARTITION_BAR + HA_FIELDS, URL_PARTITION_HA, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.isStatusHA(), is(true));
+        }
+
+    @Test
+    public void shouldNotBeStatusHAUsingQueriesIfEndangered()
+        {
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PARTITION_FOO + HA_FIELDS, URL_PARTITION_HA, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PARTITION_BAR + HA_FIELDS, URL_PARTITION_ENDANGERED, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.isStatusHA(), is(false));
+        }
+
+
+    @Test
+    public void shouldBePersistenceIdle()
+        {
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PERSISTENCE_FOO + PERSISTENCE_FIELDS, URL_PERSISTENCE_IDLE, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PERSISTENCE_BAR + PERSISTENCE_FIELDS, URL_PERSISTENCE_IDLE, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.isPersistenceIdle(), is(true));
+        }
+
+    @Test
+    public void shouldNotBePersistenceIdleIfRecovering()
+        {
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PERSISTENCE_FOO + PERSISTENCE_FIELDS, URL_PERSISTENCE_IDLE, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PERSISTENCE_BAR + PERSISTENCE_FIELDS, URL_PERSISTENCE_RECOVERING, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.isPersistenceIdle(), is(false));
+        }
+
+    @Test
+    public void shouldBePersistenceIdleIfServiceHasNoPersistence()
+        {
+        s_httpServer.onGet(RestProbe.PATH_SERVICES_PARTITION_LINKS, URL_CLUSTER_SERVICES, MediaType.APPLICATION_JSON)
+                .onGet(PATH_PERSISTENCE_FOO + PERSISTENCE_FIELDS, URL_PERSISTENCE_IDLE, MediaType.APPLICATION_JSON);
+
+        RestProbe probe = new RestProbe(s_client);
+
+        assertThat(probe.isPersistenceIdle(), is(true));
+        }
 
     // ----- helper methods -------------------------------------------------
 
@@ -211,6 +413,8 @@ public class RestProbeIT
 
     public static final URL URL_CLUSTER_MEMBERS_SINGLE =  findURL("json/cluster-members-single-member.json");
 
+    public static final URL URL_CLUSTER_MEMBER_LOCAL =  findURL("json/cluster-member-local.json");
+
     public static final URL URL_CLUSTER_MEMBERS_EMPTY =  findURL("json/cluster-members-empty.json");
 
     public static final URL URL_CLUSTER_MEMBERS_NULL =  findURL("json/cluster-members-null.json");
@@ -225,6 +429,30 @@ public class RestProbeIT
 
     public static final URL URL_CLUSTER_SERVICES_NOT_PARTITIONED  =  findURL("json/cluster-services-no-partition.json");
 
+    public static final URL URL_SEARCH_HA =  findURL("json/cluster-services-search-ha.json");
+
+    public static final URL URL_SEARCH_ENDANGERED =  findURL("json/cluster-services-search-endangered.json");
+
+    public static final URL URL_PARTITION_HA =  findURL("json/partition-ha.json");
+
+    public static final URL URL_PARTITION_ENDANGERED =  findURL("json/partition-endangered.json");
+
+    public static final String PATH_PARTITION_FOO = RestProbe.PATH_SERVICES + "/Foo/partition";
+
+    public static final String PATH_PARTITION_BAR = RestProbe.PATH_SERVICES + "/Bar/partition";
+
+    public static final URL URL_PERSISTENCE_IDLE =  findURL("json/persistence-idle.json");
+
+    public static final URL URL_PERSISTENCE_RECOVERING =  findURL("json/persistence-recovering.json");
+
+    public static final String PATH_PERSISTENCE_FOO = RestProbe.PATH_SERVICES + "/Foo/persistence";
+
+    public static final String PATH_PERSISTENCE_BAR = RestProbe.PATH_SERVICES + "/Bar/persistence";
+
+    public static final String PERSISTENCE_FIELDS = "?fields=idle,operationStatus&links=";
+
+    public static final String HA_FIELDS = "?fields=haStatus,backupCount,serviceNodeCount,remainingDistributionCount&links=";
+
     public static final String PARTITION_LINK_FOO = "http://0%3A0%3A0%3A0%3A0%3A0%3A0%3A1:30000/management/coherence/cluster/services/Foo/partition";
 
     public static final String PARTITION_LINK_BAR = "http://0%3A0%3A0%3A0%3A0%3A0%3A0%3A1:30000/management/coherence/cluster/services/Bar/partition";
@@ -17,12 +17,17 @@ import org.junit.Test;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.oracle.coherence.k8s.RetryingWkaAddressProvider.*;
 import static com.oracle.common.util.Duration.Magnitude.MILLI;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -64,10 +69,209 @@ public class RetryingWkaAddressProviderTest
             assertThat("validate lower bound of reresolve count" ,
                 provider.m_nLastReresolveCount, greaterThanOrEqualTo(1));
             assertThat("validate upper bound of reresolve count" ,
-                provider.m_nLastReresolveCount, lessThanOrEqualTo((int)(TIMEOUT_MS / FREQUENCY_MS)));
+                provider.m_nLastReresolveCount, lessThanOrEqualTo(getMaxReresolveCount(FREQUENCY_MS, TIMEOUT_MS)));
             }
         }
 
+    @Test
+    public void shouldResolveConcurrentlyWithUnresolvableHosts()
+        throws UnknownHostException
+        {
+        final long FREQUENCY_MS = 5000;
+        final long TIMEOUT_MS   = 20000;
+
+        long ldtStart = Base.getSafeTimeMillis();
+
+        RetryingWkaAddressProvider provider = (RetryingWkaAddressProvider)
+            create("NonExiStentHoStName12345678,NonExiStentHoStName87654321,127.0.0.1", FREQUENCY_MS, TIMEOUT_MS);
+
+        assertNotNull("confirm wka resolved", provider.getNextAddress());
+        assertThat("validate resolution did not wait for the reresolve frequency",
+            Base.getSafeTimeMillis() - ldtStart, lessThan(FREQUENCY_MS));
+        assertThat("validate resolved in first attempt", provider.m_nLastReresolveCount, is(1));
+        }
+
+    @Test
+    public void shouldObtainHostNames()
+        {
+        RetryingWkaAddressProvider provider = new RetryingWkaAddressProvider(
+            Arrays.asList(new AddressHolder("foo.bar", 0), new AddressHolder("127.0.0.1", 7574)), true, 1000, 1000);
+
+        assertThat(provider.getHostNames(), containsInAnyOrder("foo.bar", "127.0.0.1"));
+        }
+
+    @Test
+    public void shouldCacheResolvedAndUnresolvedHosts()
+        {
+        WkaResolution              resolution = WkaResolution.getInstance();
+        RetryingWkaAddressProvider provider   = new RetryingWkaAddressProvider(
+            Arrays.asList(new AddressHolder("NonExiStentHoStName12345678", 0), new AddressHolder("127.0.0.1", 7574)),
+            true, 1000, 1000, 60000);
+
+        long cResolution = resolution.getResolutionCount();
+        long cFailure    = resolution.getResolutionFailureCount();
+        long cCacheHit   = resolution.getCacheHitCount();
+
+        assertThat("confirm wka resolved", iterate(provider), is(1));
+        assertThat("confirm wka resolved from cache", iterate(provider), is(1));
+
+        assertThat("validate each host looked up once", resolution.getResolutionCount() - cResolution, is(2L));
+        assertThat("validate unresolved host recorded", resolution.getResolutionFailureCount() - cFailure, is(1L));
+        assertThat("validate second iteration used cache", resolution.getCacheHitCount() - cCacheHit, is(2L));
+        assertThat("validate last success recorded", resolution.getLastSuccessTime(), greaterThanOrEqualTo(1L));
+        }
+
+    @Test
+    public void shouldNotLookUpUnresolvedHostsOnJoinPath()
+        throws UnknownHostException
+        {
+        WkaResolution              resolution = WkaResolution.getInstance();
+        RetryingWkaAddressProvider provider   = new RetryingWkaAddressProvider(
+            Arrays.asList(new AddressHolder("NonExiStentHoStName12345678", 0), new AddressHolder("127.0.0.1", 7574)),
+            true, 1000, 20000, 60000);
+
+        provider.eventuallyResolve();
+
+        long cCacheHit = resolution.getCacheHitCount();
+
+        // the unresolved host is served from the cache and refreshed in the background
+        assertThat("confirm wka resolved", iterate(provider), is(1));
+        assertThat("validate first iteration used cache for every host",
+            resolution.getCacheHitCount() - cCacheHit, is(2L));
+        }
+
+    @Test
+    public void shouldRefreshStaleHostInBackground()
+        throws Exception
+        {
+        CountDownLatch             latch    = new CountDownLatch(1);
+        RetryingWkaAddressProvider provider = new RetryingWkaAddressProvider(
+            Arrays.asList(new AddressHolder("127.0.0.1", 7574)), true, 1000, 1000, 50)
+            {
+            @Override
+            void refresh(String sHost)
+                {
+                super.refresh(sHost);
+                latch.countDown();
+                }
+            };
+
+        assertThat("confirm wka resolved", iterate(provider), is(1));
+        Thread.sleep(100);
+        assertThat("confirm stale address still returned", iterate(provider), is(1));
+        assertThat("validate background refresh", latch.await(1, TimeUnit.MINUTES), is(true));
+        }
+
+    @Test
+    public void shouldPublishLastReresolveCount()
+        throws UnknownHostException
+        {
+        RetryingWkaAddressProvider provider = (RetryingWkaAddressProvider) create("127.0.0.1", 1000, 5000);
+
+        assertThat(WkaResolution.getInstance().getLastReresolveCount(), is(provider.m_nLastReresolveCount));
+        }
+
+    @Test
+    public void shouldCalculateResolutionStatistics()
+        {
+        WkaResolution resolution = new WkaResolution();
+
+        resolution.onResolve(true, TimeUnit.MILLISECONDS.toNanos(10));
+        resolution.onResolve(false, TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertThat(resolution.getResolutionCount(), is(2L));
+        assertThat(resolution.getResolutionFailureCount(), is(1L));
+        assertThat(resolution.getLastResolutionMillis(), is(30L));
+        assertThat(resolution.getAverageResolutionMillis(), is(20L));
+        assertThat(resolution.getMaxResolutionMillis(), is(30L));
+        }
+
+    @Test
+    public void shouldUseSeedMembers()
+        {
+        assertThat(getSeedAddresses("test-coherence-headless", 3, "test-coherence-7"),
+            is("test-coherence-0.test-coherence-headless,test-coherence-1.test-coherence-headless,"
+               + "test-coherence-2.test-coherence-headless"));
+        }
+
+    @Test
+    public void shouldNotUseSeedMembersIfNotConfigured()
+        {
+        assertThat(getSeedAddresses("test-coherence-headless", 0, "test-coherence-7"), is("test-coherence-headless"));
+        assertThat(getSeedAddresses(null, 3, "test-coherence-7"), is(nullValue()));
+        }
+
+    @Test
+    public void shouldNotUseSeedMembersIfNotStatefulSetPod()
+        {
+        assertThat(getSeedAddresses("test-coherence-headless", 3, "storage"), is("test-coherence-headless"));
+        assertThat(getSeedAddresses("test-coherence-headless", 3, null), is("test-coherence-headless"));
+        }
+
+    @Test
+    public void shouldConfigureSeedMembersBySystemProperties()
+        {
+        System.setProperty(PROP_WKA_OVERRIDE, "test-coherence-headless");
+        System.setProperty(PROP_WKA_SEEDS, "2");
+        System.setProperty(PROP_MEMBER, "test-coherence-12");
+
+        try
+            {
+            assertThat(getWkaOverride(),
+                is("test-coherence-0.test-coherence-headless,test-coherence-1.test-coherence-headless"));
+            }
+        finally
+            {
+            System.clearProperty(PROP_WKA_OVERRIDE);
+            System.clearProperty(PROP_WKA_SEEDS);
+            System.clearProperty(PROP_MEMBER);
+            }
+        }
+
+    /**
+     * Iterate over the addresses of a provider until it signals the end of the iteration.
+     *
+     * @param provider  the provider
+     *
+     * @return the number of addresses in the iteration
+     */
+    private static int iterate(RetryingWkaAddressProvider provider)
+        {
+        int cAddress = 0;
+
+        while (provider.getNextAddress() != null)
+            {
+            cAddress++;
+            }
+
+        return cAddress;
+        }
+
+    /**
+     * Obtain the maximum number of times the WKA list can be resolved before the timeout
+     * using the adaptive retry schedule.
+     *
+     * @param cFrequency  the maximum reresolve frequency
+     * @param cTimeout    the resolution timeout
+     *
+     * @return the maximum reresolve count
+     */
+    private static int getMaxReresolveCount(long cFrequency, long cTimeout)
+        {
+        long cDelay   = Math.min(INITIAL_RERESOLVE_FREQUENCY_MS, cFrequency);
+        long cElapsed = 0;
+        int  cCount   = 0;
+
+        while (cElapsed < cTimeout)
+            {
+            cCount++;
+            cElapsed += cDelay;
+            cDelay    = Math.min(cDelay * 2, cFrequency);
+            }
+
+        return cCount;
+        }
+
     @Test
     public void testShouldRevolveImmediately()
         throws UnknownHostException
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * Licensed under the Universal Permissive License v 1.0 as shown at
+ * http://oss.oracle.com/licenses/upl.
+ */
+
+package com.oracle.coherence.k8s;
+
+import com.tangosol.util.Resources;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Unit tests for {@link SSLContextLoader}.
+ *
+ * @author jk
+ */
+public class SSLContextLoaderTest
+    {
+    @BeforeClass
+    public static void setup()
+        {
+        System.setProperty("test.keystore", Resources.findFileOrResource("certs/groot.jks", null).toExternalForm());
+        System.setProperty("test.truststore",
+                           Resources.findFileOrResource("certs/truststore-guardians.jks", null).toExternalForm());
+        }
+
+    @AfterClass
+    public static void cleanup()
+        {
+        System.clearProperty("test.keystore");
+        System.clearProperty("test.truststore");
+        }
+
+    @Test
+    public void shouldLoadWithPasswords() throws Exception
+        {
+        SSLContext context = SSLContextLoader.load("ssl-coherence-override.xml", "ManagementSSLProvider");
+
+        assertThat(context, is(notNullValue()));
+        assertHandshake(context);
+        }
+
+    @Test
+    public void shouldLoadWithFileBasedPasswordProvider() throws Exception
+        {
+        SSLContext context = SSLContextLoader.load("ssl-password-file-override.xml", "ManagementSSLProvider");
+
+        assertThat(context, is(notNullValue()));
+        assertHandshake(context);
+        }
+
+    @Test
+    public void shouldLoadWithReloadingSSLProvider() throws Exception
+        {
+        SSLContext context = SSLContextLoader.load("ssl-password-file-override.xml", "ReloadingProvider");
+
+        assertThat(context, is(notNullValue()));
+        assertHandshake(context);
+        }
+
+    @Test
+    public void shouldNotLoadUnknownSocketProvider()
+        {
+        assertThat(SSLContextLoader.load("ssl-password-file-override.xml", "Unknown"), is(nullValue()));
+        }
+
+    @Test
+    public void shouldNotLoadNonSSLSocketProvider()
+        {
+        assertThat(SSLContextLoader.load("ssl-password-file-override.xml", "PlainProvider"), is(nullValue()));
+        }
+
+    @Test
+    public void shouldNotLoadUnsupportedPasswordProvider()
+        {
+        assertThat(SSLContextLoader.load("ssl-password-file-override.xml", "CustomPasswordProvider"),
+                   is(nullValue()));
+        }
+
+    @Test
+    public void shouldNotLoadMissingOverride()
+        {
+        assertThat(SSLContextLoader.load("missing-override.xml", "ManagementSSLProvider"), is(nullValue()));
+        }
+
+    // ----- helper methods -------------------------------------------------
+
+    /**
+     * Assert that a client and server using the context can complete a
+     * TLS handshake.
+     *
+     * @param context  the {@link SSLContext} to use
+     *
+     * @throws Exception  if the handshake fails
+     */
+    private static void assertHandshake(SSLContext context) throws Exception
+        {
+        InetAddress address = InetAddress.getLoopbackAddress();
+
+        try (SSLServerSocket server = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0, 1, address))
+            {
+            CompletableFuture<Void> future = CompletableFuture.runAsync(() ->
+                {
+                try (SSLSocket socket = (SSLSocket) server.accept())
+                    {
+                    socket.startHandshake();
+                    socket.getOutputStream().write(1);
+                    }
+                catch (Exception e)
+                    {
+                    throw new RuntimeException(e);
+                    }
+                });
+
+            try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket(address, server.getLocalPort()))
+                {
+                socket.startHandshake();
+                assertThat(socket.getInputStream().read(), is(1));
+                }
+
+            future.get(1, TimeUnit.MINUTES);
+            }
+        }
+    }